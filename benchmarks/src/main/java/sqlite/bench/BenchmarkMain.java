@@ -0,0 +1,21 @@
+package sqlite.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the benchmarks with JMH's command line, writing the results as JSON to {@code jmh-result.json} unless
+ * {@code -rf} or {@code -rff} says otherwise.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(List.of(args));
+        if (!options.contains("-rf")) {
+            options.addAll(0, List.of("-rf", "json"));
+        }
+        if (!options.contains("-rff")) {
+            options.addAll(0, List.of("-rff", "jmh-result.json"));
+        }
+        org.openjdk.jmh.Main.main(options.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,113 @@
+package sqlite.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding without I/O: varints, as found in cell headers and record headers, and whole records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+    static final int VARINTS = 1024;
+
+    private final ByteBuffer varints = ByteBuffer.allocate(VARINTS * 9);
+    private final int[] offsets = new int[VARINTS];
+    private ByteBuffer record;
+
+    @Setup
+    public void setup() {
+        // mostly one and two byte varints, as serial types and small rowids are, with the odd long one
+        var random = new Random(42);
+        for (int i = 0; i < VARINTS; ++i) {
+            int bits = switch (random.nextInt(10)) {
+                case 0, 1, 2, 3, 4 -> 7;
+                case 5, 6, 7 -> 14;
+                case 8 -> 28;
+                default -> 64;
+            };
+            offsets[i] = varints.position();
+            putVarint(varints, bits == 64 ? random.nextLong() : random.nextLong() & ((1L << bits) - 1));
+        }
+        varints.flip();
+
+        // a typical row: NULL for an INTEGER PRIMARY KEY alias, two short strings, an integer and a real
+        var name = "Granny Smith".getBytes(StandardCharsets.UTF_8);
+        var color = "Light Green".getBytes(StandardCharsets.UTF_8);
+        record = ByteBuffer.allocate(64);
+        record.put((byte) 6).put((byte) 0).put((byte) (name.length * 2 + 13)).put((byte) (color.length * 2 + 13))
+                .put((byte) 2).put((byte) 7);
+        record.put(name).put(color).putShort((short) 1234).putDouble(3.5);
+        record.flip();
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        if ((value & 0xff00000000000000L) != 0) {
+            // nine bytes: eight of seven bits, then a full byte
+            buffer.put((byte) ((value >>> 57) | 0x80));
+            for (int shift = 50; shift >= 8; shift -= 7) {
+                buffer.put((byte) ((value >>> shift) | 0x80));
+            }
+            buffer.put((byte) value);
+            return;
+        }
+        int groups = 1;
+        while (groups < 8 && value >>> (7 * groups) != 0) {
+            ++groups;
+        }
+        for (int i = groups - 1; i > 0; --i) {
+            buffer.put((byte) ((value >>> (7 * i)) | 0x80));
+        }
+        buffer.put((byte) (value & 0x7f));
+    }
+
+    /**
+     * {@code Cell.from}, which reads a varint at the buffer's position and allocates its result.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VARINTS)
+    public long cellFrom() {
+        var buffer = varints.duplicate();
+        long sum = 0;
+        for (int i = 0; i < VARINTS; ++i) {
+            sum += Engine.cellFrom(buffer).hashCode();
+        }
+        return sum;
+    }
+
+    /**
+     * {@code Cell.varint}, which reads a varint at an offset and returns only its value.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VARINTS)
+    public long varintAtOffset() {
+        long sum = 0;
+        for (int i = 0; i < VARINTS; ++i) {
+            sum += Engine.varint(varints, offsets[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Object readRecord() {
+        return Engine.readRecord(record.duplicate());
+    }
+}
@@ -0,0 +1,304 @@
+package sqlite.bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The engine's entry points, as seen from the benchmarks.
+ * <p>
+ * The engine lives in the unnamed package, which no named package can import, while JMH will not generate
+ * benchmarks in the unnamed package. The calls are therefore bound once to method handles held in static finals,
+ * which the JIT inlines like direct calls, and engine objects are passed around as {@code Object}.
+ */
+final class Engine {
+    private static final MethodHandle CELL_FROM;
+    private static final MethodHandle CELL_VARINT;
+    private static final MethodHandle READ_RECORD;
+    private static final MethodHandle OPEN_PAGE_SOURCE;
+    private static final MethodHandle READ_PAGE;
+    private static final MethodHandle CELL_COUNT;
+    private static final MethodHandle PAGE_SIZE;
+    private static final MethodHandle RAW_PAGE;
+    private static final MethodHandle OPEN_DB;
+    private static final MethodHandle SET_SCAN_PARALLELISM;
+    private static final MethodHandle PREPARE;
+    private static final MethodHandle EXECUTE;
+    private static final MethodHandle RUN_QUERY;
+    private static final MethodHandle TABLE_NAMES;
+    private static final MethodHandle CATALOG;
+    private static final MethodHandle GET_TABLE;
+    private static final MethodHandle GET_INDEXES;
+    private static final MethodHandle INDEX_COLUMN;
+    private static final MethodHandle GET_COLUMN_LIST;
+    private static final MethodHandle COLUMN_NAME;
+    private static final MethodHandle COLUMN_IS_PK;
+    private static final MethodHandle NEW_SINK;
+
+    static {
+        try {
+            var lookup = MethodHandles.publicLookup();
+            Class<?> cell = Class.forName("Cell");
+            Class<?> varInt = Class.forName("VarInt");
+            Class<?> record = Class.forName("Record");
+            Class<?> pageSource = Class.forName("PageSource");
+            Class<?> kind = Class.forName("PageSource$Kind");
+            Class<?> btreePage = Class.forName("BtreePage");
+            Class<?> db = Class.forName("DB");
+            Class<?> preparedQuery = Class.forName("PreparedQuery");
+            Class<?> rowSink = Class.forName("RowSink");
+            Class<?> catalog = Class.forName("Catalog");
+            Class<?> schema = Class.forName("Schema");
+            Class<?> index = Class.forName("Schema$Index");
+            Class<?> column = Class.forName("Schema$Column");
+
+            CELL_FROM = erase(lookup.findStatic(cell, "from", MethodType.methodType(varInt, ByteBuffer.class)));
+            CELL_VARINT = lookup.findStatic(cell, "varint", MethodType.methodType(long.class, ByteBuffer.class, int.class));
+            READ_RECORD = erase(lookup.findStatic(record, "readRecord", MethodType.methodType(record, ByteBuffer.class)));
+            // FileChannel reads, as DB does by default
+            Object fileChannel = Arrays.stream(kind.getEnumConstants())
+                    .filter(constant -> ((Enum<?>) constant).name().equals("FILE_CHANNEL"))
+                    .findFirst().orElseThrow();
+            OPEN_PAGE_SOURCE = erase(MethodHandles.insertArguments(
+                    lookup.findStatic(pageSource, "open", MethodType.methodType(pageSource, String.class, kind)), 1, fileChannel));
+            READ_PAGE = erase(lookup.findStatic(btreePage, "readPage", MethodType.methodType(btreePage, pageSource, int.class)));
+            PAGE_SIZE = erase(lookup.findVirtual(pageSource, "pageSize", MethodType.methodType(int.class)));
+            RAW_PAGE = erase(lookup.findVirtual(pageSource, "readPage", MethodType.methodType(ByteBuffer.class, int.class)));
+            CELL_COUNT = erase(lookup.findVirtual(btreePage, "getCellPointerArray", MethodType.methodType(short[].class)));
+            OPEN_DB = erase(lookup.findConstructor(db, MethodType.methodType(void.class, String.class)));
+            SET_SCAN_PARALLELISM = erase(lookup.findVirtual(db, "setScanParallelism", MethodType.methodType(void.class, int.class)));
+            PREPARE = erase(lookup.findVirtual(db, "prepare", MethodType.methodType(preparedQuery, String.class)));
+            EXECUTE = erase(lookup.findVirtual(preparedQuery, "execute", MethodType.methodType(void.class, rowSink, Object[].class)));
+            RUN_QUERY = erase(lookup.findVirtual(db, "runQuery", MethodType.methodType(List.class, String.class, Object[].class)));
+            TABLE_NAMES = erase(lookup.findVirtual(db, "tableNames", MethodType.methodType(List.class)));
+            CATALOG = erase(lookup.findVirtual(db, "catalog", MethodType.methodType(catalog)));
+            GET_TABLE = erase(lookup.findVirtual(catalog, "getTable", MethodType.methodType(schema, String.class)));
+            GET_INDEXES = erase(lookup.findVirtual(schema, "getIndexes", MethodType.methodType(List.class)));
+            INDEX_COLUMN = erase(lookup.findVirtual(index, "column", MethodType.methodType(String.class)));
+            GET_COLUMN_LIST = erase(lookup.findVirtual(schema, "getColumnList", MethodType.methodType(List.class)));
+            COLUMN_NAME = erase(lookup.findVirtual(column, "name", MethodType.methodType(String.class)));
+            COLUMN_IS_PK = erase(lookup.findVirtual(column, "isPK", MethodType.methodType(boolean.class)));
+
+            // a RowSink whose rows go to a Blackhole, spun the way a lambda would be
+            var self = MethodHandles.lookup();
+            var consume = self.findStatic(Engine.class, "consume",
+                    MethodType.methodType(void.class, Blackhole.class, Object[].class));
+            var rowType = MethodType.methodType(void.class, Object[].class);
+            NEW_SINK = erase(LambdaMetafactory.metafactory(self, "accept", MethodType.methodType(rowSink, Blackhole.class),
+                    rowType, consume, rowType).getTarget());
+        } catch (Throwable e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Engine() {
+    }
+
+    /**
+     * The handle with every engine type in its signature replaced by {@code Object}, so it can be invoked
+     * exactly from code that cannot name those types.
+     */
+    private static MethodHandle erase(MethodHandle handle) {
+        var type = handle.type();
+        for (int i = 0; i < type.parameterCount(); ++i) {
+            if (isEngineType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isEngineType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isEngineType(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+
+    private static void consume(Blackhole blackhole, Object[] row) {
+        blackhole.consume(row);
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e instanceof Error error) {
+            throw error;
+        }
+        return new RuntimeException(e);
+    }
+
+    /**
+     * The path of a sample database: {@code database} in the directory named by the {@code bench.dir} system
+     * property, the repository root by default.
+     */
+    static String path(String database) {
+        return Path.of(System.getProperty("bench.dir", ".."), database).toString();
+    }
+
+    static Object cellFrom(ByteBuffer buffer) {
+        try {
+            return (Object) CELL_FROM.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static long varint(ByteBuffer buffer, int offset) {
+        try {
+            return (long) CELL_VARINT.invokeExact(buffer, offset);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object readRecord(ByteBuffer buffer) {
+        try {
+            return (Object) READ_RECORD.invokeExact(buffer);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static AutoCloseable openPageSource(String path) {
+        try {
+            return (AutoCloseable) (Object) OPEN_PAGE_SOURCE.invokeExact(path);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object readPage(Object pageSource, int pageNumber) {
+        try {
+            return (Object) READ_PAGE.invokeExact(pageSource, pageNumber);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int pageSize(Object pageSource) {
+        try {
+            return (int) PAGE_SIZE.invokeExact(pageSource);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * The page's contents as stored, without parsing them.
+     */
+    static ByteBuffer rawPage(Object pageSource, int pageNumber) {
+        try {
+            return (ByteBuffer) RAW_PAGE.invokeExact(pageSource, pageNumber);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static int cellCount(Object page) {
+        try {
+            return ((short[]) CELL_COUNT.invokeExact(page)).length;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Opens a database that scans on the calling thread only, so that timings do not depend on the machine's
+     * core count.
+     */
+    static AutoCloseable openDatabase(String path) {
+        try {
+            Object db = (Object) OPEN_DB.invokeExact(path);
+            SET_SCAN_PARALLELISM.invokeExact(db, 1);
+            return (AutoCloseable) db;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object prepare(Object db, String sql) {
+        try {
+            return (Object) PREPARE.invokeExact(db, sql);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static Object sink(Blackhole blackhole) {
+        try {
+            return (Object) NEW_SINK.invokeExact(blackhole);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    static void execute(Object statement, Object sink, Object... parameters) {
+        try {
+            EXECUTE.invokeExact(statement, sink, parameters);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object[]> query(Object db, String sql, Object... parameters) {
+        try {
+            return (List<Object[]>) (List<?>) RUN_QUERY.invokeExact(db, sql, parameters);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<String> tableNames(Object db) {
+        try {
+            return (List<String>) (List<?>) TABLE_NAMES.invokeExact(db);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * The columns of {@code table} on which it has an index.
+     */
+    static List<String> indexedColumns(Object db, String table) {
+        try {
+            Object schema = (Object) GET_TABLE.invokeExact((Object) CATALOG.invokeExact(db), table);
+            List<String> columns = new ArrayList<>();
+            for (Object index : (List<?>) GET_INDEXES.invokeExact(schema)) {
+                columns.add((String) INDEX_COLUMN.invokeExact(index));
+            }
+            return columns;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * The columns of {@code table} other than an INTEGER PRIMARY KEY.
+     */
+    static List<String> valueColumns(Object db, String table) {
+        try {
+            Object schema = (Object) GET_TABLE.invokeExact((Object) CATALOG.invokeExact(db), table);
+            List<String> columns = new ArrayList<>();
+            for (Object column : (List<?>) GET_COLUMN_LIST.invokeExact(schema)) {
+                if (!(boolean) COLUMN_IS_PK.invokeExact(column)) {
+                    columns.add((String) COLUMN_NAME.invokeExact(column));
+                }
+            }
+            return columns;
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package sqlite.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@code BtreePage.readPage}: reading a page from the file and parsing its header and cell pointer array,
+ * cycling through every b-tree page so that consecutive reads do not hit the same one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmark {
+    @Param({"sample.db", "superheroes.db", "companies.db"})
+    public String database;
+
+    private AutoCloseable pageSource;
+    private int[] pages;
+    private int next;
+
+    @Setup
+    public void open() {
+        var path = Engine.path(database);
+        pageSource = Engine.openPageSource(path);
+        int pageCount = (int) (new File(path).length() / Engine.pageSize(pageSource));
+        // overflow and freelist pages have no b-tree header to parse
+        pages = IntStream.rangeClosed(1, pageCount).filter(n -> {
+            int type = Engine.rawPage(pageSource, n).get(n == 1 ? 100 : 0);
+            return type == 2 || type == 5 || type == 10 || type == 13;
+        }).toArray();
+        next = 0;
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        pageSource.close();
+    }
+
+    @Benchmark
+    public int readPage() {
+        int pageNumber = pages[next];
+        next = (next + 1) % pages.length;
+        return Engine.cellCount(Engine.readPage(pageSource, pageNumber));
+    }
+}
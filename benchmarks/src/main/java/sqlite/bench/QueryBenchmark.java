@@ -0,0 +1,114 @@
+package sqlite.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole statements against the largest table of each database, through the statement cache and page cache as
+ * an application would run them: a full scan, count(*), an equality on the table's first indexed column (a scan
+ * when it has none) and a rowid lookup. Keys are drawn from the table at setup, so most lookups find a row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    static final int KEYS = 256;
+
+    @Param({"sample.db", "superheroes.db", "companies.db"})
+    public String database;
+
+    private AutoCloseable db;
+    private Object scan;
+    private Object count;
+    private Object indexLookup;
+    private Object rowidLookup;
+    private Object[] indexKeys;
+    private long[] rowids;
+    private int next;
+
+    @Setup
+    public void open() {
+        db = Engine.openDatabase(Engine.path(database));
+        String table = null;
+        long rows = -1;
+        for (var name : Engine.tableNames(db)) {
+            long tableRows = (Long) Engine.query(db, "SELECT count(*) FROM " + name).get(0)[0];
+            if (tableRows > rows) {
+                table = name;
+                rows = tableRows;
+            }
+        }
+        if (table == null) {
+            throw new IllegalStateException(database + " has no tables");
+        }
+        var indexed = Engine.indexedColumns(db, table);
+        var column = indexed.isEmpty() ? Engine.valueColumns(db, table).get(0) : indexed.get(0);
+
+        scan = Engine.prepare(db, "SELECT * FROM " + table);
+        count = Engine.prepare(db, "SELECT count(*) FROM " + table);
+        indexLookup = Engine.prepare(db, "SELECT * FROM " + table + " WHERE " + column + " = ?");
+        rowidLookup = Engine.prepare(db, "SELECT * FROM " + table + " WHERE rowid = ?");
+
+        // rowids are mostly 1 to the row count; keys are the column's values at some of them
+        var random = new Random(42);
+        rowids = new long[KEYS];
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < KEYS; ++i) {
+            rowids[i] = 1 + random.nextLong(Math.max(rows, 1));
+            var found = Engine.query(db, "SELECT " + column + " FROM " + table + " WHERE rowid = ?", rowids[i]);
+            if (!found.isEmpty() && found.get(0)[0] != null) {
+                keys.add(found.get(0)[0]);
+            }
+        }
+        if (keys.isEmpty()) {
+            keys.add(0L);
+        }
+        indexKeys = keys.toArray();
+    }
+
+    @TearDown
+    public void close() throws Exception {
+        db.close();
+    }
+
+    @Benchmark
+    public void fullScan(Blackhole blackhole) {
+        Engine.execute(scan, Engine.sink(blackhole));
+    }
+
+    @Benchmark
+    public void countRows(Blackhole blackhole) {
+        Engine.execute(count, Engine.sink(blackhole));
+    }
+
+    @Benchmark
+    public void indexEquality(Blackhole blackhole) {
+        next = (next + 1) % indexKeys.length;
+        Engine.execute(indexLookup, Engine.sink(blackhole), indexKeys[next]);
+    }
+
+    @Benchmark
+    public void rowidLookup(Blackhole blackhole) {
+        next = (next + 1) % rowids.length;
+        Engine.execute(rowidLookup, Engine.sink(blackhole), rowids[next]);
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+
+/**
+ * The rows of one table leaf page, decoded column-wise. Only the columns a plan reads are decoded; the others
+ * are {@code null}. Operators above the scan narrow the selection vector instead of moving rows, so the vectors
+ * are written once per page.
+ */
+public class Batch {
+    int size;
+    long[] rowIds;
+    // indexed by table column
+    final ColumnVector[] columns;
+    // positions of the rows still selected, in ascending order; the first selectedCount entries are valid
+    int[] selection;
+    int selectedCount;
+
+    public Batch(int columnCount, int[] decodedColumns, int capacity) {
+        rowIds = new long[capacity];
+        selection = new int[capacity];
+        columns = new ColumnVector[columnCount];
+        for (int column : decodedColumns) {
+            columns[column] = new ColumnVector(capacity);
+        }
+    }
+
+    /**
+     * Prepares the batch for {@code size} rows, all of them selected.
+     */
+    void reset(int size) {
+        if (size > rowIds.length) {
+            rowIds = Arrays.copyOf(rowIds, size);
+            selection = new int[size];
+            for (var column : columns) {
+                if (column != null) {
+                    column.ensureCapacity(size);
+                }
+            }
+        }
+        this.size = size;
+        for (int i = 0; i < size; ++i) {
+            selection[i] = i;
+        }
+        selectedCount = size;
+    }
+
+    public ColumnVector column(int n) {
+        return columns[n];
+    }
+
+    public int selectedCount() {
+        return selectedCount;
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.IOException;
+
+/**
+ * {@code count(*)} over batches: adds up the selection sizes without looking at a single row.
+ */
+public class BatchCount implements Operator<Object[]> {
+    private final Operator<Batch> child;
+    private boolean done;
+    private Object[] row;
+
+    public BatchCount(Operator<Batch> child) {
+        this.child = child;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        done = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (done) {
+            return false;
+        }
+        long count = 0;
+        while (child.next()) {
+            count += child.row().selectedCount;
+        }
+        row = new Object[]{count};
+        done = true;
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Narrows the selection of each batch to the rows satisfying every condition, skipping batches left empty. Each
+ * condition is one loop over a column vector, run only on the rows the previous ones kept.
+ */
+public class BatchFilter implements Operator<Batch> {
+    private final Operator<Batch> child;
+    private final List<RowPredicate.BatchCondition> conditions;
+
+    public BatchFilter(Operator<Batch> child, List<RowPredicate.BatchCondition> conditions) {
+        this.child = child;
+        this.conditions = conditions;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (child.next()) {
+            var batch = child.row();
+            for (var condition : conditions) {
+                if (batch.selectedCount == 0) {
+                    break;
+                }
+                condition.filter(batch);
+            }
+            if (batch.selectedCount > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Batch row() {
+        return child.row();
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
@@ -0,0 +1,52 @@
+import java.io.IOException;
+
+/**
+ * Turns the selected rows of each batch back into output rows of the selected columns, boxing only the values
+ * that are output.
+ */
+public class BatchProject implements Operator<Object[]> {
+    private final Operator<Batch> child;
+    private final int[] columns;
+    private Batch batch;
+    private int position;
+    private Object[] row;
+
+    public BatchProject(Operator<Batch> child, int[] columns) {
+        this.child = child;
+        this.columns = columns;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        batch = null;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (batch == null || position == batch.selectedCount) {
+            if (!child.next()) {
+                return false;
+            }
+            batch = child.row();
+            position = 0;
+        }
+        int r = batch.selection[position++];
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            values[i] = batch.columns[columns[i]].get(r);
+        }
+        row = values;
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * Walks a table B-tree a leaf page at a time, decoding the requested columns of all its rows into a
+ * {@link Batch}. The cursor stays on the leaf until the next batch is requested, so the text and blob slices
+ * of the batch remain valid until then.
+ * <p>
+ * Cells are decoded straight from the leaf's cell pointer array rather than by stepping the cursor, so a row
+ * costs two varints and a record header, with no per-cell objects. A predicate given to the scan is evaluated on
+ * the record before any column is decoded, and rows it rejects never enter the batch; leaves without a matching
+ * row are skipped. Conditions over the decoded vectors are left to a {@link BatchFilter} above the scan.
+ * A {@link RowidRange} makes the scan seek to its first row and stop after its last.
+ */
+public class BatchScan implements Operator<Batch> {
+    static final int INITIAL_CAPACITY = 256;
+
+    private final TableCursor cursor;
+    private final RecordView record;
+    private final int[] decodedColumns;
+    private final int rowIdAlias;
+    private final RowPredicate predicate;
+    private final RowidRange range;
+    private final Batch batch;
+    private boolean started;
+    // set once a row past the end of the range is seen
+    private boolean done;
+
+    public BatchScan(PageCache pageCache, PageSource pageSource, Schema schema, int rootPage, int[] columns) {
+        this(pageCache, pageSource, schema, rootPage, columns, null, RowidRange.ALL);
+    }
+
+    /**
+     * @param rootPage  root of the tree to walk: the table's root page or the root of one of its subtrees
+     * @param columns   table columns the plan reads
+     * @param predicate rows to keep, tested on the record; {@code null} for all
+     * @param range     rowids to visit
+     */
+    public BatchScan(PageCache pageCache, PageSource pageSource, Schema schema, int rootPage, int[] columns,
+                     RowPredicate predicate, RowidRange range) {
+        this.cursor = new TableCursor(pageCache, pageSource, rootPage);
+        this.predicate = predicate;
+        this.range = range;
+        this.record = new RecordView(pageSource);
+        this.decodedColumns = IntStream.of(columns).distinct().toArray();
+        this.rowIdAlias = TableRow.rowIdAlias(schema);
+        this.batch = new Batch(schema.columnList.size(), decodedColumns, INITIAL_CAPACITY);
+    }
+
+    @Override
+    public void open() {
+        started = false;
+        done = range.isEmpty();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        do {
+            if (done) {
+                return false;
+            }
+            boolean more;
+            if (started) {
+                more = cursor.nextLeaf();
+            } else {
+                started = true;
+                more = range.min() == Long.MIN_VALUE ? cursor.first() : cursor.seekGE(range.min());
+            }
+            if (!more) {
+                return false;
+            }
+        } while (decodeLeaf() == 0);
+        return true;
+    }
+
+    /**
+     * Fills the batch with the matching rows of the cursor's leaf, from the cell the cursor is on.
+     *
+     * @return the number of rows in the batch
+     */
+    private int decodeLeaf() {
+        var leaf = cursor.top();
+        var buffer = leaf.buffer;
+        int usableSize = leaf.page.usableSize;
+        int n = leaf.cellCount;
+        batch.reset(n);
+        int kept = 0;
+        int decoded = 0;
+        for (int cell = leaf.index; cell < n; ++cell) {
+            int offset = leaf.cellOffset(cell);
+            long payloadSize = Cell.varint(buffer, offset);
+            offset += Cell.varintSize(buffer, offset);
+            long rowId = Cell.varint(buffer, offset);
+            if (rowId > range.max()) {
+                done = true;
+                break;
+            }
+            offset += Cell.varintSize(buffer, offset);
+            int localSize = Cell.localPayloadSize(payloadSize, usableSize, true);
+            if (localSize == payloadSize) {
+                record.reset(buffer, offset, localSize);
+            } else {
+                record.reset(buffer, offset, localSize, buffer.getInt(offset + localSize), payloadSize);
+            }
+            decoded++;
+            if (predicate != null && !predicate.test(rowId, record)) {
+                continue;
+            }
+            int i = kept++;
+            batch.rowIds[i] = rowId;
+            for (int column : decodedColumns) {
+                if (column == rowIdAlias) {
+                    batch.columns[column].setLong(i, rowId);
+                } else {
+                    batch.columns[column].set(i, record, column);
+                }
+            }
+        }
+        cursor.cellsDecoded += decoded;
+        cursor.recordsDecoded += decoded;
+        batch.size = kept;
+        batch.selectedCount = kept;
+        return kept;
+    }
+
+    @Override
+    public Batch row() {
+        return batch;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
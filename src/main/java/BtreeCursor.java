@@ -0,0 +1,294 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Position in a B-tree, kept as an explicit stack of pages from the root down to the current page. Pages on
+ * the stack stay pinned in the {@link PageCache} until the cursor moves off them or is closed.
+ * <p>
+ * Table trees only hold entries in their leaves. Index trees also hold entries in interior cells, which come
+ * after every entry of their left child in key order; the cursor can therefore also rest on an interior page.
+ */
+public abstract class BtreeCursor implements AutoCloseable {
+    static final byte INTERIOR_INDEX = 0x02;
+    static final byte INTERIOR_TABLE = 0x05;
+    static final byte LEAF_INDEX = 0x0a;
+    static final byte LEAF_TABLE = 0x0d;
+
+    static class Frame {
+        final BtreePage page;
+        final ByteBuffer buffer;
+        final int cellCount;
+        // current cell; on interior pages, the child slot being visited (cellCount for the right-most pointer)
+        int index;
+
+        Frame(BtreePage page) {
+            this.page = page;
+            this.buffer = page.buffer();
+            this.cellCount = page.btreePageHeader.cellCounts & 0xFFFF;
+        }
+
+        boolean isLeaf() {
+            byte pageType = page.btreePageHeader.pageType;
+            return pageType == LEAF_TABLE || pageType == LEAF_INDEX;
+        }
+
+        int cellOffset(int i) {
+            return page.cellPointerArray[i] & 0xFFFF;
+        }
+
+        int childPage(int slot) {
+            return slot == cellCount ? page.btreePageHeader.rightMostPointer : buffer.getInt(cellOffset(slot));
+        }
+
+        Cell cell(int i) {
+            buffer.position(cellOffset(i));
+            return Cell.readCell(buffer, page.btreePageHeader.pageType, page.usableSize);
+        }
+    }
+
+    /**
+     * Compares the key of cell {@code i} of a frame with the key being sought.
+     */
+    @FunctionalInterface
+    protected interface CellComparator {
+        int compare(Frame frame, int i);
+    }
+
+    protected final PageCache pageCache;
+    protected final int rootPage;
+    protected final ArrayList<Frame> stack = new ArrayList<>();
+    private boolean valid;
+    // work since the last reset, added to the cache's metrics in one go rather than per cell
+    protected long cellsDecoded;
+    protected long recordsDecoded;
+
+    protected BtreeCursor(PageCache pageCache, int rootPage) {
+        this.pageCache = pageCache;
+        this.rootPage = rootPage;
+    }
+
+    /**
+     * Whether interior cells are entries themselves (index trees) or only separators (table trees).
+     */
+    protected abstract boolean entriesInInterior();
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean first() throws IOException {
+        reset();
+        return valid = descendLeftmost(rootPage);
+    }
+
+    public boolean last() throws IOException {
+        reset();
+        return valid = descendRightmost(rootPage);
+    }
+
+    public boolean next() throws IOException {
+        if (!valid) {
+            return false;
+        }
+        Frame top = top();
+        top.index++;
+        if (!top.isLeaf()) {
+            // resting on an interior entry: continue with the leftmost entry of the subtree to its right
+            return valid = descendLeftmost(top.childPage(top.index));
+        }
+        if (top.index < top.cellCount) {
+            return true;
+        }
+        return valid = climbForward();
+    }
+
+    public boolean prev() throws IOException {
+        if (!valid) {
+            return false;
+        }
+        Frame top = top();
+        if (!top.isLeaf()) {
+            return valid = descendRightmost(top.childPage(top.index));
+        }
+        top.index--;
+        if (top.index >= 0) {
+            return true;
+        }
+        return valid = climbBackward();
+    }
+
+    /**
+     * Moves to the first cell of the next leaf page; used by walks that only need per-leaf information.
+     */
+    public boolean nextLeaf() throws IOException {
+        if (!valid) {
+            return false;
+        }
+        Frame top = top();
+        top.index = top.cellCount - 1;
+        return next();
+    }
+
+    /**
+     * Number of cells on the current page.
+     */
+    public int pageCellCount() {
+        return top().cellCount;
+    }
+
+    public int pageNumber() {
+        return top().page.pageNumber;
+    }
+
+    /**
+     * The cell the cursor rests on.
+     */
+    public Cell cell() {
+        Frame top = top();
+        return cell(top, top.index);
+    }
+
+    @Override
+    public void close() {
+        reset();
+    }
+
+    /**
+     * Positions the cursor on the first entry whose key is greater than or equal to the sought key, as
+     * described by {@code comparator}. Each page on the way down is binary searched over its cell pointers.
+     */
+    protected boolean seekGE(CellComparator comparator) throws IOException {
+        reset();
+        return seekGE(push(rootPage), comparator);
+    }
+
+    /**
+     * Same as {@link #seekGE(CellComparator)}, starting from {@code frame}, which must be the top of the stack
+     * and whose subtree must contain the sought position.
+     */
+    protected boolean seekGE(Frame frame, CellComparator comparator) throws IOException {
+        while (true) {
+            int lo = 0;
+            int hi = frame.cellCount;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparator.compare(frame, mid) < 0) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            frame.index = lo;
+            if (frame.isLeaf()) {
+                break;
+            }
+            frame = push(frame.childPage(lo));
+        }
+        if (frame.index < frame.cellCount) {
+            return valid = true;
+        }
+        // every key on this leaf is smaller, the entry sought is the one after it
+        frame.index = frame.cellCount - 1;
+        valid = true;
+        return next();
+    }
+
+    /**
+     * Decodes cell {@code i} of a frame.
+     */
+    protected Cell cell(Frame frame, int i) {
+        cellsDecoded++;
+        return frame.cell(i);
+    }
+
+    protected Frame top() {
+        return stack.get(stack.size() - 1);
+    }
+
+    protected Frame push(int pageNumber) throws IOException {
+        var frame = new Frame(pageCache.pin(pageNumber));
+        stack.add(frame);
+        return frame;
+    }
+
+    /**
+     * Unpins and removes every frame above {@code depth}.
+     */
+    protected void popTo(int depth) {
+        while (stack.size() > depth + 1) {
+            pop();
+        }
+    }
+
+    protected void pop() {
+        pageCache.unpin(stack.remove(stack.size() - 1).page);
+    }
+
+    protected void reset() {
+        while (!stack.isEmpty()) {
+            pop();
+        }
+        valid = false;
+        if (cellsDecoded != 0 || recordsDecoded != 0) {
+            pageCache.metrics.cellsDecoded.add(cellsDecoded);
+            pageCache.metrics.recordsDecoded.add(recordsDecoded);
+            cellsDecoded = 0;
+            recordsDecoded = 0;
+        }
+    }
+
+    private boolean descendLeftmost(int pageNumber) throws IOException {
+        Frame frame = push(pageNumber);
+        while (!frame.isLeaf()) {
+            frame.index = 0;
+            frame = push(frame.childPage(0));
+        }
+        frame.index = 0;
+        // only an empty root can be a leaf without cells
+        return frame.cellCount > 0;
+    }
+
+    private boolean descendRightmost(int pageNumber) throws IOException {
+        Frame frame = push(pageNumber);
+        while (!frame.isLeaf()) {
+            frame.index = frame.cellCount;
+            frame = push(frame.childPage(frame.cellCount));
+        }
+        frame.index = frame.cellCount - 1;
+        return frame.cellCount > 0;
+    }
+
+    private boolean climbForward() throws IOException {
+        pop();
+        while (!stack.isEmpty()) {
+            Frame parent = top();
+            if (parent.index < parent.cellCount) {
+                if (entriesInInterior()) {
+                    // the separator after the subtree just finished is the next entry
+                    return true;
+                }
+                parent.index++;
+                return descendLeftmost(parent.childPage(parent.index));
+            }
+            pop();
+        }
+        return false;
+    }
+
+    private boolean climbBackward() throws IOException {
+        pop();
+        while (!stack.isEmpty()) {
+            Frame parent = top();
+            if (parent.index > 0) {
+                parent.index--;
+                if (entriesInInterior()) {
+                    return true;
+                }
+                return descendRightmost(parent.childPage(parent.index));
+            }
+            pop();
+        }
+        return false;
+    }
+}
@@ -1,18 +1,20 @@
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.List;
 
 public class BtreePage {
+    int pageNumber;
+    int usableSize;
+    //where overflow pages of this page's cells are read from
+    PageSource pageSource;
     BtreePageHeader btreePageHeader;
     short[] cellPointerArray;
-    byte[] pageContents;
+    ByteBuffer pageContents;
 
     Cell[] cellArray;
     Record[] records;
 
-    public BtreePage(BtreePageHeader pageHeader, short[] cellPointerArray, byte[] pageContents){
+    public BtreePage(BtreePageHeader pageHeader, short[] cellPointerArray, ByteBuffer pageContents){
         this.btreePageHeader = pageHeader;
         this.cellPointerArray = cellPointerArray;
         this.pageContents = pageContents;
@@ -34,14 +36,22 @@ public class BtreePage {
         this.cellPointerArray = cellPointerArray;
     }
 
-    public byte[] getPageContents() {
+    public ByteBuffer getPageContents() {
         return pageContents;
     }
 
-    public void setPageContents(byte[] pageContents) {
+    public void setPageContents(ByteBuffer pageContents) {
         this.pageContents = pageContents;
     }
 
+    /**
+     * Returns a big-endian view of the page contents with its own position, so concurrent readers of a
+     * cached page do not interfere with each other.
+     */
+    public ByteBuffer buffer() {
+        return pageContents.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
 //    public static BtreePage readPage(ByteBuffer fileBuffer, int pageNumber){
 //        int pageSize = fileBuffer.position(16).getShort() & 0xFFFF;
 //        int firstPageOffset = pageNumber == 1 ? 100 : 0;
@@ -58,14 +68,9 @@ public class BtreePage {
 //        return new BtreePage(header, cellPointerArray, pageContents);
 //    }
 
-    public static BtreePage readPage(RandomAccessFile file, int pageSize, int pageNumber) throws IOException {
-        byte[] pageContents = new byte[pageSize];
-        int pageOffset = (pageNumber-1) * pageSize;
-        file.seek(pageOffset);
-        var filesRead = file.read(pageContents);
-        assert filesRead == pageSize;
-
-        ByteBuffer pageBuffer = ByteBuffer.wrap(pageContents).order(ByteOrder.BIG_ENDIAN);
+    public static BtreePage readPage(PageSource pageSource, int pageNumber) throws IOException {
+        ByteBuffer pageContents = pageSource.readPage(pageNumber);
+        ByteBuffer pageBuffer = pageContents.duplicate().order(ByteOrder.BIG_ENDIAN);
         if(pageNumber == 1){ //skip db header
             pageBuffer.position(100);
         }
@@ -74,27 +79,38 @@ public class BtreePage {
         for(int i=0;i<header.cellCounts;++i){
             cellPointerArray[i] = pageBuffer.getShort();
         }
-        return new BtreePage(header, cellPointerArray, pageContents);
+        var page = new BtreePage(header, cellPointerArray, pageContents);
+        page.pageNumber = pageNumber;
+        page.usableSize = pageSource.usableSize();
+        page.pageSource = pageSource;
+        return page;
     }
 
-    public void popCells(){
-//        System.out.printf("pageType: %d\n", this.btreePageHeader.pageType);
-        this.cellArray = new Cell[this.cellPointerArray.length];
-        if(this.btreePageHeader.pageType != 0x05){
-            this.records = new Record[this.cellPointerArray.length];
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public void popCells() throws IOException {
+        if(this.cellArray != null){ //already decoded, e.g. a page served from the cache
+            return;
         }
+//        System.out.printf("pageType: %d\n", this.btreePageHeader.pageType);
+        var cells = new Cell[this.cellPointerArray.length];
+        var cellRecords = this.btreePageHeader.pageType != 0x05 ? new Record[this.cellPointerArray.length] : null;
 
-        ByteBuffer pageBuffer = ByteBuffer.wrap(this.pageContents).order(ByteOrder.BIG_ENDIAN);
+        ByteBuffer pageBuffer = buffer();
         int i=0;
         for(var cellPointer : cellPointerArray){
             pageBuffer.position(cellPointer);
-            var cell = Cell.readCell(pageBuffer, this.btreePageHeader.pageType);
-            cellArray[i] = cell;
-            if(this.btreePageHeader.pageType != 0x05){
-                records[i] = Record.readRecord(ByteBuffer.wrap(cell.payload).order(ByteOrder.BIG_ENDIAN));
+            var cell = Cell.readCell(pageBuffer, this.btreePageHeader.pageType, usableSize);
+            cells[i] = cell;
+            if(cellRecords != null){
+                cellRecords[i] = Record.readRecord(cell.getPayloadBuffer(pageSource));
             }
             i++;
         }
+        this.records = cellRecords;
+        this.cellArray = cells;
     }
 
 
@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The parsed {@code sqlite_schema} table: every table with all of its indexes, looked up by name without
+ * touching the file. The schema B-tree is read once, across as many pages as it spans; a catalog stays valid
+ * as long as the schema cookie in the file header has the value it was loaded with.
+ */
+public class Catalog {
+    static final int SCHEMA_ROOT_PAGE = 1;
+    static final int SCHEMA_COOKIE_OFFSET = 40;
+
+    /**
+     * A row of {@code sqlite_schema}; {@code sql} is {@code null} for automatic indexes.
+     */
+    public record Entry(String type, String name, String tableName, int rootPage, String sql) {
+    }
+
+    final int schemaCookie;
+    final List<Entry> entries;
+    // SQL identifiers are case-insensitive
+    final Map<String, Schema> tables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    final Map<String, Schema.Index> indexes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    Catalog(int schemaCookie, List<Entry> entries) {
+        this.schemaCookie = schemaCookie;
+        this.entries = entries;
+        for (var entry : entries) {
+            if (entry.type().equals("table") && entry.sql() != null) {
+                var table = new Schema(entry.name(), Schema.parseColumns(entry.sql()), entry.rootPage());
+                table.withoutRowid = Schema.isWithoutRowid(entry.sql());
+                tables.put(entry.name(), table);
+            }
+        }
+        // indexes are attached once every table is known, whatever order the rows are stored in
+        for (var entry : entries) {
+            if (entry.type().equals("index") && entry.sql() != null) {
+                var table = tables.get(entry.tableName());
+                if (table == null) {
+                    continue;
+                }
+                var index = Schema.parseIndex(table, entry.rootPage(), entry.name(), entry.sql());
+                if (index != null) {
+                    table.indexes.add(index);
+                    indexes.put(entry.name(), index);
+                }
+            }
+        }
+    }
+
+    public static Catalog load(PageCache pageCache, PageSource pageSource) throws IOException {
+        int schemaCookie = readSchemaCookie(pageSource);
+        var entries = new ArrayList<Entry>();
+        try (var cursor = new TableCursor(pageCache, pageSource, SCHEMA_ROOT_PAGE)) {
+            for (boolean more = cursor.first(); more; more = cursor.next()) {
+                var record = cursor.record();
+                entries.add(new Entry(
+                        record.getText(0),
+                        record.getText(1),
+                        record.getText(2),
+                        (int) record.getLong(3),
+                        record.getText(4)));
+            }
+        }
+        return new Catalog(schemaCookie, entries);
+    }
+
+    /**
+     * The schema cookie, incremented by SQLite on every schema change.
+     */
+    public static int readSchemaCookie(PageSource pageSource) throws IOException {
+        return pageSource.read(SCHEMA_COOKIE_OFFSET, 4).getInt(0);
+    }
+
+    public int getSchemaCookie() {
+        return schemaCookie;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    public Schema getTable(String name) {
+        var schema = tables.get(name);
+        if (schema == null) {
+            throw new RuntimeException("no such table: " + name);
+        }
+        if (schema.withoutRowid) {
+            throw new RuntimeException("not supported: WITHOUT ROWID table " + name);
+        }
+        return schema;
+    }
+
+    public boolean hasTable(String name) {
+        return tables.containsKey(name);
+    }
+
+    public Schema.Index getIndex(String name) {
+        var index = indexes.get(name);
+        if (index == null) {
+            throw new RuntimeException("no such index: " + name);
+        }
+        return index;
+    }
+
+    /**
+     * Table names in the order they appear in {@code sqlite_schema}.
+     */
+    public List<String> tableNames() {
+        return entries.stream().filter(e -> e.type().equals("table")).map(Entry::name).toList();
+    }
+}
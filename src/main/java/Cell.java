@@ -1,22 +1,35 @@
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
-
+/**
+ * A cell of a B-tree page. The payload is not copied: the cell keeps the page buffer and the payload's
+ * offset and length within it. Payloads too large for the page keep only a prefix on the page, followed by
+ * a chain of overflow pages starting at {@link #firstPageOfOverflow}.
+ */
 public class Cell {
     byte type;
     VarInt bytesOfPayload;
     VarInt rowId;
-    byte[] payload;
+
+    ByteBuffer page;
+    int payloadOffset;
+    //bytes of the payload stored on the page, less than bytesOfPayload when it spills to overflow pages
+    int payloadLength;
 
     //for B-Tree Interior pages
     int leftChildPointer;
 
     int firstPageOfOverflow;
 
-    public Cell(byte type, VarInt bytesOfPayload, VarInt rowId, byte[] payload) {
+    public Cell(byte type, VarInt bytesOfPayload, VarInt rowId, ByteBuffer page, int payloadOffset) {
         this.type = type;
         this.bytesOfPayload = bytesOfPayload;
         this.rowId = rowId;
-        this.payload = payload;
+        this.page = page;
+        this.payloadOffset = payloadOffset;
+        this.payloadLength = (int) bytesOfPayload.value();
     }
 
     public Cell(byte type, int leftChildPointer, VarInt rowId){
@@ -25,20 +38,28 @@ public class Cell {
         this.rowId = rowId;
     }
 
-    public Cell(byte type, VarInt bytesOfPayload, byte[] payload){
-        this.type = type;
-        this.bytesOfPayload = bytesOfPayload;
-        this.payload = payload;
+    public Cell(byte type, VarInt bytesOfPayload, ByteBuffer page, int payloadOffset){
+        this(type, bytesOfPayload, null, page, payloadOffset);
     }
 
+    /**
+     * Reads a cell of a page without reserved bytes, see {@link #readCell(ByteBuffer, byte, int)}.
+     */
     public static Cell readCell(ByteBuffer buffer, byte type) {
+        return readCell(buffer, type, buffer.capacity());
+    }
+
+    /**
+     * Reads the cell at the buffer's position and leaves the position just past the cell.
+     */
+    public static Cell readCell(ByteBuffer buffer, byte type, int usableSize) {
         if(type == 0x0d){
             //leaf table
             var bytesOfPayload = from(buffer);
             var rowId = from(buffer);
-            byte[] payload = new byte[(int) bytesOfPayload.value()];
-            buffer.get(payload);
-            return new Cell(type, bytesOfPayload, rowId, payload);
+            var cell = new Cell(type, bytesOfPayload, rowId, buffer, buffer.position());
+            cell.readLocalPayload(buffer, usableSize);
+            return cell;
         }else if(type == 0x05){
             //interior table
             int leftChildPointer = buffer.getInt();
@@ -47,23 +68,43 @@ public class Cell {
         }else if(type == 0x0a){
             //leaf index
             var bytesOfPayload = from(buffer);
-            byte[] payload = new byte[(int) bytesOfPayload.value()];
-            buffer.get(payload);
-            return new Cell(type, bytesOfPayload, payload);
+            var cell = new Cell(type, bytesOfPayload, buffer, buffer.position());
+            cell.readLocalPayload(buffer, usableSize);
+            return cell;
         }else if(type == 0x02){
             //interior index
             int leftChildPointer = buffer.getInt();
             var bytesOfPayload = from(buffer);
-            byte[] payload = new byte[(int) bytesOfPayload.value()];
-            buffer.get(payload);
-            Cell cell = new Cell(type, bytesOfPayload, payload);
+            Cell cell = new Cell(type, bytesOfPayload, buffer, buffer.position());
             cell.leftChildPointer = leftChildPointer;
+            cell.readLocalPayload(buffer, usableSize);
             return cell;
         }else{
             throw new RuntimeException("unrecognized cell type: " + type);
         }
     }
 
+    private void readLocalPayload(ByteBuffer buffer, int usableSize) {
+        long total = bytesOfPayload.value();
+        payloadLength = localPayloadSize(total, usableSize, type == 0x0d);
+        buffer.position(payloadOffset + payloadLength);
+        if (payloadLength < total) {
+            firstPageOfOverflow = buffer.getInt();
+        }
+    }
+
+    /**
+     * Number of payload bytes stored on the B-tree page itself, as defined by the file format.
+     */
+    public static int localPayloadSize(long payloadSize, int usableSize, boolean tableLeaf) {
+        int maxLocal = tableLeaf ? usableSize - 35 : ((usableSize - 12) * 64 / 255) - 23;
+        if (payloadSize <= maxLocal) {
+            return (int) payloadSize;
+        }
+        int minLocal = ((usableSize - 12) * 32 / 255) - 23;
+        int k = (int) (minLocal + ((payloadSize - minLocal) % (usableSize - 4)));
+        return k <= maxLocal ? k : minLocal;
+    }
 
     public static VarInt from(ByteBuffer buff) {
         long result = 0L;
@@ -71,6 +112,10 @@ public class Cell {
         for (int i = 0; i < 9; ++i) {
             byte b = buff.get();
             bytesRead++;
+            if (i == 8) { //the ninth byte contributes all 8 bits
+                result = (result << 8) + (b & 0xff);
+                break;
+            }
             result = (result << 7) + (b & 0x7f);
             if (((b >> 7) & 1) == 0) {
                 break;
@@ -79,6 +124,33 @@ public class Cell {
         return new VarInt(bytesRead, result);
     }
 
+    /**
+     * Decodes the varint at an absolute offset without moving the buffer position.
+     */
+    public static long varint(ByteBuffer buff, int offset) {
+        long result = 0L;
+        for (int i = 0; i < 8; ++i) {
+            byte b = buff.get(offset + i);
+            result = (result << 7) + (b & 0x7f);
+            if (b >= 0) {
+                return result;
+            }
+        }
+        return (result << 8) + (buff.get(offset + 8) & 0xff);
+    }
+
+    /**
+     * Number of bytes (1 to 9) taken by the varint at an absolute offset.
+     */
+    public static int varintSize(ByteBuffer buff, int offset) {
+        for (int i = 0; i < 8; ++i) {
+            if (buff.get(offset + i) >= 0) {
+                return i + 1;
+            }
+        }
+        return 9;
+    }
+
     public byte getType() {
         return type;
     }
@@ -103,12 +175,67 @@ public class Cell {
         this.rowId = rowId;
     }
 
+    /**
+     * Copies the on-page part of the payload. Prefer {@link #getPayloadBuffer()} or {@link #recordView(RecordView)}.
+     */
     public byte[] getPayload() {
+        byte[] payload = new byte[payloadLength];
+        page.get(payloadOffset, payload);
         return payload;
     }
 
-    public void setPayload(byte[] payload) {
-        this.payload = payload;
+    /**
+     * Returns a big-endian view of the on-page part of the payload sharing the page's memory.
+     */
+    public ByteBuffer getPayloadBuffer() {
+        return page.slice(payloadOffset, payloadLength).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Returns the complete payload: a view of the page when it fits, otherwise a copy assembled from the
+     * overflow chain.
+     */
+    public ByteBuffer getPayloadBuffer(PageSource pageSource) throws IOException {
+        if (!hasOverflow()) {
+            return getPayloadBuffer();
+        }
+        try (var in = openPayload(pageSource)) {
+            return ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    /**
+     * Streams the complete payload, reading overflow pages lazily.
+     */
+    public InputStream openPayload(PageSource pageSource) {
+        return new OverflowInputStream(pageSource, page, payloadOffset, payloadLength, firstPageOfOverflow, bytesOfPayload.value());
+    }
+
+    public boolean hasOverflow() {
+        return firstPageOfOverflow != 0;
+    }
+
+    public int getFirstPageOfOverflow() {
+        return firstPageOfOverflow;
+    }
+
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    public int getPayloadLength() {
+        return payloadLength;
+    }
+
+    /**
+     * Points {@code view} at this cell's record without copying it. Columns stored on overflow pages are read
+     * through the view's page source when accessed.
+     */
+    public RecordView recordView(RecordView view) {
+        if (hasOverflow()) {
+            return view.reset(page, payloadOffset, payloadLength, firstPageOfOverflow, bytesOfPayload.value());
+        }
+        return view.reset(page, payloadOffset, payloadLength);
     }
 
     public int getLeftChildPointer() {
@@ -0,0 +1,156 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * One column of a {@link Batch}, decoded into primitive arrays. Integers and reals are stored unboxed; TEXT and
+ * BLOB values stay in the page as an offset and length into its buffer, except values spilled to overflow
+ * pages, which are read into their own array.
+ */
+public class ColumnVector {
+    static final byte NULL = 0;
+    static final byte INTEGER = 1;
+    static final byte REAL = 2;
+    static final byte TEXT = 3;
+    static final byte BLOB = 4;
+
+    byte[] types;
+    long[] longs;
+    double[] doubles;
+    ByteBuffer[] buffers;
+    int[] offsets;
+    int[] lengths;
+    // TEXT and BLOB values that do not lie in a single page buffer, null for the others
+    byte[][] spilled;
+
+    public ColumnVector(int capacity) {
+        types = new byte[capacity];
+        longs = new long[capacity];
+        doubles = new double[capacity];
+        buffers = new ByteBuffer[capacity];
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        spilled = new byte[capacity][];
+    }
+
+    void ensureCapacity(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        types = Arrays.copyOf(types, capacity);
+        longs = Arrays.copyOf(longs, capacity);
+        doubles = Arrays.copyOf(doubles, capacity);
+        buffers = Arrays.copyOf(buffers, capacity);
+        offsets = Arrays.copyOf(offsets, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        spilled = Arrays.copyOf(spilled, capacity);
+    }
+
+    /**
+     * Decodes column {@code n} of {@code record} into slot {@code row}.
+     */
+    void set(int row, RecordView record, int n) {
+        int serialType = record.serialType(n);
+        if (serialType == 0) {
+            types[row] = NULL;
+        } else if (serialType == 7) {
+            types[row] = REAL;
+            doubles[row] = record.getDouble(n);
+        } else if (serialType < 12) {
+            types[row] = INTEGER;
+            longs[row] = record.getLong(n);
+        } else {
+            types[row] = (serialType & 1) == 1 ? TEXT : BLOB;
+            if (record.isSpilled(n)) {
+                spilled[row] = record.getBlob(n);
+                lengths[row] = spilled[row].length;
+            } else {
+                spilled[row] = null;
+                buffers[row] = record.buffer;
+                offsets[row] = record.offsets[n];
+                lengths[row] = RecordView.contentSize(serialType);
+            }
+        }
+    }
+
+    void setLong(int row, long value) {
+        types[row] = INTEGER;
+        longs[row] = value;
+    }
+
+    /**
+     * Whether the value in slot {@code row} is TEXT with exactly the bytes of {@code key}.
+     */
+    boolean textEquals(int row, byte[] key) {
+        if (types[row] != TEXT || lengths[row] != key.length) {
+            return false;
+        }
+        if (spilled[row] != null) {
+            return Arrays.equals(spilled[row], key);
+        }
+        ByteBuffer buffer = buffers[row];
+        int offset = offsets[row];
+        for (int i = 0; i < key.length; ++i) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the TEXT or BLOB value in slot {@code row} with {@code other}, as unsigned bytes.
+     */
+    int compareBytes(int row, byte[] other) {
+        if (spilled[row] != null) {
+            return Arrays.compareUnsigned(spilled[row], other);
+        }
+        ByteBuffer buffer = buffers[row];
+        int offset = offsets[row];
+        int common = Math.min(lengths[row], other.length);
+        for (int i = 0; i < common; ++i) {
+            int c = Integer.compare(buffer.get(offset + i) & 0xFF, other[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(lengths[row], other.length);
+    }
+
+    /**
+     * Copies the content of the TEXT or BLOB value in slot {@code row} into {@code destination} at {@code offset}.
+     */
+    void getBytes(int row, byte[] destination, int offset) {
+        if (spilled[row] != null) {
+            System.arraycopy(spilled[row], 0, destination, offset, lengths[row]);
+        } else {
+            buffers[row].get(offsets[row], destination, offset, lengths[row]);
+        }
+    }
+
+    /**
+     * Boxes the value in slot {@code row} as {@code null}, {@link Long}, {@link Double}, {@link String} or
+     * {@code byte[]}, as {@link RecordView#getValue(int)} does.
+     */
+    Object get(int row) {
+        return switch (types[row]) {
+            case INTEGER -> longs[row];
+            case REAL -> doubles[row];
+            case TEXT -> new String(bytes(row), StandardCharsets.UTF_8);
+            case BLOB -> bytes(row);
+            default -> null;
+        };
+    }
+
+    /**
+     * The content of the TEXT or BLOB value in slot {@code row}; a spilled value is not copied.
+     */
+    byte[] bytes(int row) {
+        if (spilled[row] != null) {
+            return spilled[row];
+        }
+        byte[] contents = new byte[lengths[row]];
+        buffers[row].get(offsets[row], contents);
+        return contents;
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.IOException;
+
+/**
+ * {@code count(*)}: the number of rows its child produces, as a single row.
+ */
+public class Count<R> implements Operator<Object[]> {
+    private final Operator<R> child;
+    private boolean done;
+    private Object[] row;
+
+    public Count(Operator<R> child) {
+        this.child = child;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        done = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (done) {
+            return false;
+        }
+        long count = 0;
+        while (child.next()) {
+            count++;
+        }
+        row = new Object[]{count};
+        done = true;
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
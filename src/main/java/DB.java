@@ -1,28 +1,57 @@
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
-
-public class DB {
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An open database file. The file, its header and the schema {@link Catalog} stay open across queries, so one
+ * instance can serve a whole session of statements; {@link #close()} releases the file.
+ */
+public class DB implements AutoCloseable {
     //    ByteBuffer fileContents;
     String databaseFilePath;
+    PageSource.Kind pageSourceKind;
 
     public DB(String databaseFilePath) throws IOException {
-        this.databaseFilePath = databaseFilePath;
-        load();
+        this(databaseFilePath, PageSource.Kind.FILE_CHANNEL, PageCache.DEFAULT_CAPACITY_BYTES);
     }
 
-    RandomAccessFile randomAccessFile;
+    public DB(String databaseFilePath, PageSource.Kind pageSourceKind, long pageCacheBytes) throws IOException {
+        this.databaseFilePath = databaseFilePath;
+        this.pageSourceKind = pageSourceKind;
+        load();
+        this.pageCache = new PageCache(n -> BtreePage.readPage(pageSource, n), pageSize, pageCacheBytes, metrics);
+    }
+
+    final Metrics metrics = new Metrics();
+    // the work of the statement that finished last
+    volatile Metrics.Snapshot lastQuery = Metrics.NONE;
+    PageSource pageSource;
+    PageCache pageCache;
+    Catalog catalog;
+    // workers for full-table scans; 1 scans on the calling thread
+    int scanParallelism = Runtime.getRuntime().availableProcessors();
+    // full-table scans decode a leaf page at a time into column vectors instead of a row at a time
+    boolean vectorized = true;
+    // bytes of rows an ORDER BY sorts in memory before spilling sorted runs to temporary files
+    long sortMemory = 64L << 20;
 
     int pageSize;
     DBInfo dbInfo;
 
+    static final int STATEMENT_CACHE_SIZE = 128;
+    // prepared statements by SQL text, least recently used first
+    private final Map<String, PreparedQuery> statements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedQuery> eldest) {
+            return size() > STATEMENT_CACHE_SIZE;
+        }
+    };
+
     private void load() throws IOException {
-        randomAccessFile = new RandomAccessFile(databaseFilePath, "r");
+        pageSource = new MeteredPageSource(PageSource.open(databaseFilePath, pageSourceKind), metrics);
         this.dbInfo = dbInfo();
     }
 
@@ -30,21 +59,8 @@ public class DB {
     }
 
     public DBInfo dbInfo() throws IOException {
-        // The page size is stored at the 16th byte offset, using 2 bytes in big-endian order.
-        // '& 0xFFFF' is used to convert the signed short to an unsigned int.
-        byte[] headerBytes = new byte[100];
-        randomAccessFile.seek(0);
-        int bytesRead = randomAccessFile.read(headerBytes);
-        assert bytesRead == 100;
-        ByteBuffer pageHeader = ByteBuffer.wrap(headerBytes).order(ByteOrder.BIG_ENDIAN);
-        pageSize = pageHeader.position(16).getShort() & 0xFFFF;
-
-        byte[] pageBuffer = new byte[pageSize];
-        randomAccessFile.seek(0);
-        bytesRead = randomAccessFile.read(pageBuffer);
-        assert bytesRead == pageSize;
-
-        ByteBuffer firstPage = ByteBuffer.wrap(pageBuffer).order(ByteOrder.BIG_ENDIAN);
+        pageSize = pageSource.pageSize();
+        ByteBuffer firstPage = pageSource.readPage(1);
         firstPage.position(100);
         var BtreeHeader = BtreePageHeader.getHeader(firstPage);
         assert BtreeHeader.pageType == 0x0d;
@@ -52,286 +68,118 @@ public class DB {
         return new DBInfo(pageSize, BtreeHeader.cellCounts);
     }
 
-    public void printTableNames() throws IOException {
-        BtreePage page = getFirstPage();
-        List<String> tableNames = new ArrayList<>();
-        ByteBuffer pageContents = ByteBuffer.wrap(page.pageContents).order(ByteOrder.BIG_ENDIAN);
-        for (var cellOffset : page.cellPointerArray) {
-            pageContents.position(cellOffset);
-            var cell = Cell.readCell(pageContents, page.btreePageHeader.pageType);
-            ByteBuffer cellPayload = ByteBuffer.wrap(cell.getPayload()).order(ByteOrder.BIG_ENDIAN);
-            var record = Record.readRecord(cellPayload);
-            tableNames.add(String.valueOf(record.getValues().get(2)));
-        }
-        System.out.println(String.join(" ", tableNames));
+    public int getScanParallelism() {
+        return scanParallelism;
     }
 
-    public int countRows(String table) throws IOException {
-        var tablePage = getTablePage(table);
-        return countRows(tablePage);
+    public void setScanParallelism(int scanParallelism) {
+        this.scanParallelism = scanParallelism;
     }
 
-    public int countRows(BtreePage page) throws IOException {
-        if (page.btreePageHeader.pageType == 0x0d) {
-            return page.btreePageHeader.cellCounts;
-        } else {
-            int count = 0;
-            ByteBuffer pageContents = ByteBuffer.wrap(page.getPageContents()).order(ByteOrder.BIG_ENDIAN);
-            for (var cellOffset : page.cellPointerArray) {
-                pageContents.position(cellOffset);
-                var cell = Cell.readCell(pageContents, page.btreePageHeader.pageType);
-                var pageNumber = cell.leftChildPointer;
-                var childPage = getNthPage(pageNumber);
-                count += countRows(childPage);
-            }
-            var rightmostPage = getNthPage(page.btreePageHeader.rightMostPointer);
-            count += countRows(rightmostPage);
-            return count;
-        }
-    }
-
-    private BtreePage getTablePage(String table) throws IOException {
-        BtreePage page = getFirstPage();
-        byte rootPageIndex = 0;
-        ByteBuffer pageContents = ByteBuffer.wrap(page.pageContents).order(ByteOrder.BIG_ENDIAN);
-        for (var cellOffset : page.cellPointerArray) {
-            pageContents.position(cellOffset);
-            var cell = Cell.readCell(pageContents, page.btreePageHeader.pageType);
-
-            ByteBuffer cellPayload = ByteBuffer.wrap(cell.getPayload()).order(ByteOrder.BIG_ENDIAN);
-            var record = Record.readRecord(cellPayload);
-            if (record.getValues().get(2).equals(table)) {
-                rootPageIndex = (byte) record.getValues().get(3);
-                break;
-            }
-        }
-        return getNthPage(rootPageIndex);
-    }
-
-    public List<String[]> runQuery(Query query) throws IOException {
-        load();
-        var firstPage = BtreePage.readPage(randomAccessFile, pageSize, 1);
-        var schema = Schema.loadSchema(firstPage, query.getTable());
-
-        var columnIndexes = getColumnIndexes(schema, query);
-        var tablePage = getTablePage(query.getTable());
-
-        RowPredicate rowPredicate = null;
-        List<String[]> resultSet = new ArrayList<>();
-        if (!query.filter.isBlank()) {
-            rowPredicate = new RowPredicate(query.filter, schema);
-            if (schema.index != null && schema.index.colIndex() == rowPredicate.colIndex) {
-                var indexRootPageNumber = schema.index.pageNumber();
-                var indexPage = BtreePage.readPage(randomAccessFile, pageSize, indexRootPageNumber);
-                List<Record> indexResultSet2 = new ArrayList<>();
-                queryIndexOpt(indexPage, rowPredicate, indexResultSet2);
-                executeIndexedSearch(tablePage, indexResultSet2, columnIndexes, resultSet);
-                return resultSet;
-            }
-        }
-        executeQuery(tablePage, columnIndexes, rowPredicate, resultSet);
-        return resultSet;
+    public boolean isVectorized() {
+        return vectorized;
     }
 
-    record IndexedRecord(long rowId, Record re){}
-
-    private IndexedRecord indexedSearch(BtreePage page, Record key) throws IOException {
-        page.popCells();
-        byte pageType = page.btreePageHeader.pageType;
-        Object k = key.getValues().get(1);
-        long searchedValue = switch (k){
-            case Integer i -> Long.valueOf(i);
-            case Long l -> l;
-            case Short s -> s;
-            default -> throw new IllegalStateException("Unexpected value: " + k);
-        };
-        Long[] keysInCell = Arrays.stream(page.cellArray).map(c -> c.getRowId().value()).toArray(Long[]::new);
-        //interior
-        if (pageType == 0x05) {
-            //search for first key index in array that is greater or equal to searched key
-            for (int i = 0; i < keysInCell.length; ++i) {
-                if(searchedValue <= keysInCell[i]){
-                    var childPage = getNthPage(page.cellArray[i].leftChildPointer);
-                    return indexedSearch(childPage, key);
-                }
-            }
-            if(searchedValue >= keysInCell[keysInCell.length-1]){
-                var rightMostPage = getNthPage(page.btreePageHeader.rightMostPointer);
-                return indexedSearch(rightMostPage, key);
-            }
-        } else { //leaf
-            for (int i = 0; i < keysInCell.length; ++i) {
-                if (searchedValue == keysInCell[i]) {
-                    var rowId = page.cellArray[i].rowId.value();
-                    return new IndexedRecord(rowId, page.records[i]);
-                }
-            }
-        }
-        return null;
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
     }
 
-    private void executeIndexedSearch(BtreePage page, List<Record> indexedKeys, List<Schema.Column> selectedColumns, List<String[]> resultSet) throws IOException {
-        for(var key : indexedKeys){
-            var searchResult = indexedSearch(page, key);
-            if(searchResult != null){
-                String[] result = new String[selectedColumns.size()];
-                for(int i=0;i<selectedColumns.size(); ++i){
-                    var colIndex = selectedColumns.get(i).index();
-                    var colValue = selectedColumns.get(i).isPK()
-                            ? String.valueOf(searchResult.rowId)
-                            : String.valueOf(searchResult.re.getValue(colIndex));
-                    result[i] = colValue;
-                }
-                resultSet.add(result);
-            }
-        }
+    public long getSortMemory() {
+        return sortMemory;
     }
 
-    private void printIndexedResults(List<Record> indexResultSet) {
-        for (Record record : indexResultSet) {
-            for (int i = 0; i < record.values.size(); ++i) {
-                System.out.printf("type: %d - value: %s | ",
-                        record.serialTypes.get(i), record.getValues().get(i));
-            }
-            System.out.println();
-        }
+    public void setSortMemory(long sortMemory) {
+        this.sortMemory = sortMemory;
     }
 
-    private Cell getNthCell(ByteBuffer pageContents, short cellPointer, byte pageType) {
-        pageContents.position(cellPointer);
-        return Cell.readCell(pageContents, pageType);
+    public PageCache.Stats cacheStats() {
+        return pageCache.stats();
     }
 
-    private int recordCompare(String searchedValue, Record record) {
-        String recordValue = (String) record.getValues().get(0);
-        return searchedValue.compareTo(recordValue);
+    /**
+     * The work done since the database was opened, as shown by {@code .stats}.
+     */
+    public Metrics.Snapshot metrics() {
+        return metrics.snapshot(pageCache.stats());
     }
 
-    private Record getRecord(Cell cell) {
-        ByteBuffer buffer = ByteBuffer.wrap(cell.payload).order(ByteOrder.BIG_ENDIAN);
-        return Record.readRecord(buffer);
+    /**
+     * The work done by the statement that finished last. Statements running concurrently on this database
+     * are counted in each other's numbers.
+     */
+    public Metrics.Snapshot lastQueryMetrics() {
+        return lastQuery;
     }
 
-
-    private void queryIndexOpt(BtreePage page, RowPredicate rowPredicate, List<Record> resultSet) throws IOException {
-        page.popCells();
-        byte pageType = page.btreePageHeader.pageType;
-        String searchedValue = (String) rowPredicate.getExpected();
-        String[] keysInCell = Arrays.stream(page.records).map(r -> (String) r.getValue(0)).toArray(String[]::new);
-
-        //interior
-        if (pageType == 0x02) {
-            //search for first key index in array that is greater or equal to searched key
-            for (int i = 0; i < keysInCell.length; ++i) {
-                var cellKey = keysInCell[i];
-                if (Objects.nonNull(cellKey) && searchedValue.compareTo(cellKey) <= 0) {
-                    if (searchedValue.equals(cellKey)) {
-                        resultSet.add(page.records[i]);
-                    }
-                    //continue search in child page
-                    var childPage = getNthPage(page.cellArray[i].leftChildPointer);
-                    queryIndexOpt(childPage, rowPredicate, resultSet);
-                }
-            }
-            if(searchedValue.compareTo(keysInCell[keysInCell.length-1]) > 0){
-                var rightMostPage = getNthPage(page.btreePageHeader.rightMostPointer);
-                queryIndexOpt(rightMostPage, rowPredicate, resultSet);
-            }
-        } else { //leaf
-            for (int i = 0; i < keysInCell.length; ++i) {
-                if (searchedValue.compareTo(keysInCell[i]) <= 0) {
-                    if (searchedValue.equals(keysInCell[i])) {
-                        resultSet.add(page.records[i]);
-                    }
-                }
+    /**
+     * The schema catalog, reloaded when the schema cookie shows the schema changed since it was read. Cached
+     * pages may then be stale as well and are dropped.
+     */
+    public Catalog catalog() throws IOException {
+        int schemaCookie = Catalog.readSchemaCookie(pageSource);
+        if (catalog == null || catalog.getSchemaCookie() != schemaCookie) {
+            if (catalog != null) {
+                pageCache.clear();
             }
+            catalog = Catalog.load(pageCache, pageSource);
         }
+        return catalog;
     }
 
+    /**
+     * Names of the user tables, as listed by {@code .tables}; like the sqlite3 shell, it leaves out the internal
+     * {@code sqlite_} tables.
+     */
+    public List<String> tableNames() throws IOException {
+        return catalog().tableNames().stream()
+                .filter(name -> !name.startsWith("sqlite_"))
+                .toList();
+    }
 
-    private void queryIndex(BtreePage page,
-                            List<Schema.Column> columnIndices,
-                            RowPredicate rowPredicate,
-                            List<Record> indexResultSet) throws IOException {
-
-        page.popCells();
-        String searchedValue = (String) rowPredicate.getExpected();
-        ByteBuffer pageContents = ByteBuffer.wrap(page.pageContents).order(ByteOrder.BIG_ENDIAN);
-        for (var cellOffset : page.cellPointerArray) {
-            pageContents.position(cellOffset);
-            var cell = Cell.readCell(pageContents, page.btreePageHeader.pageType);
-            ByteBuffer cellPayload = ByteBuffer.wrap(cell.getPayload()).order(ByteOrder.BIG_ENDIAN);
-            var record = Record.readRecord(cellPayload);
-            String recordValue = (String) record.getValues().get(0);
-            var compareResult = searchedValue.compareTo(recordValue);
-            if (compareResult == 0) {
-                indexResultSet.add(record);
-            }
-            if (compareResult <= 0 && cell.type == 0x02) {
-                var childPageNumber = cell.leftChildPointer;
-                BtreePage childPage = getNthPage(childPageNumber);
-                queryIndex(childPage, columnIndices, rowPredicate, indexResultSet);
-            }
-        }
-        if (page.btreePageHeader.pageType == 0x02) {
-            BtreePage rightMostChild = getNthPage(page.btreePageHeader.rightMostPointer);
-            queryIndex(rightMostChild, columnIndices, rowPredicate, indexResultSet);
+    public long countRows(String table) throws IOException {
+        try (var count = new LeafCount(pageCache, pageSource, ForkJoinPool.commonPool(), scanParallelism,
+                getTableRootPage(table))) {
+            count.open();
+            count.next();
+            return (Long) count.row()[0];
         }
     }
 
-    private void executeQuery(BtreePage page, List<Schema.Column> columnIndices, RowPredicate rowPredicate, List<String[]> resultSet) throws IOException {
-        ByteBuffer pageContents = ByteBuffer.wrap(page.pageContents).order(ByteOrder.BIG_ENDIAN);
+    private int getTableRootPage(String table) throws IOException {
+        return catalog().getTable(table).pageNumber;
+    }
 
-        for (var cellOffset : page.cellPointerArray) {
-            pageContents.position(cellOffset);
-            var cell = Cell.readCell(pageContents, page.btreePageHeader.pageType);
-            // leaf table
-            if (cell.type == 0x0d) {
-                ByteBuffer cellPayload = ByteBuffer.wrap(cell.getPayload()).order(ByteOrder.BIG_ENDIAN);
-                var record = Record.readRecord(cellPayload);
-                var includeRowInResultSet = rowPredicate == null || rowPredicate.eval(record);
-                if (includeRowInResultSet) {
-                    String[] row = new String[columnIndices.size()];
-                    for (int i = 0; i < columnIndices.size(); ++i) {
-                        var colIndex = columnIndices.get(i).index();
-                        var colValue = columnIndices.get(i).isPK()
-                                ? cell.rowId.value()
-                                : record.getValues().get(colIndex);
-                        row[i] = String.valueOf(colValue);
-                    }
-                    resultSet.add(row);
-                }
-            } else if (cell.type == 0x05) {
-                var childPageNumber = cell.leftChildPointer;
-                BtreePage childPage = getNthPage(childPageNumber);
-                executeQuery(childPage, columnIndices, rowPredicate, resultSet);
-            } else {
-                throw new RuntimeException("not implemented for page of type: " + cell.type);
+    /**
+     * The prepared form of {@code sql}. Statements are cached by their text, so running the same SQL again
+     * skips parsing and planning.
+     */
+    public PreparedQuery prepare(String sql) {
+        synchronized (statements) {
+            var statement = statements.get(sql);
+            if (statement == null) {
+                statement = new PreparedQuery(this, sql);
+                statements.put(sql, statement);
             }
-        }
-        if (page.btreePageHeader.pageType == 0x05) {
-            BtreePage rightMostChild = getNthPage(page.btreePageHeader.rightMostPointer);
-            executeQuery(rightMostChild, columnIndices, rowPredicate, resultSet);
+            return statement;
         }
     }
 
-    private List<Schema.Column> getColumnIndexes(Schema schema, Query query) {
-        List<Schema.Column> indexes = new ArrayList<>();
-        for (String selectedColumn : query.getColumns()) {
-            var col = schema.columnList.stream().filter(c -> c.name().equals(selectedColumn)).findAny();
-            if (col.isEmpty()) {
-                throw new RuntimeException("column not found " + selectedColumn);
-            }
-            indexes.add(col.get());
-        }
-        return indexes;
+    /**
+     * Runs a query and collects its rows; for small results and tests, see {@link #runQuery(String, RowSink)}.
+     */
+    public List<Object[]> runQuery(String sql, Object... parameters) throws IOException {
+        return prepare(sql).executeQuery(parameters);
     }
 
-    private BtreePage getFirstPage() throws IOException {
-        return BtreePage.readPage(randomAccessFile, pageSize, 1);
+    /**
+     * Runs a query, handing each row to {@code sink} as soon as the plan produces it.
+     */
+    public void runQuery(String sql, RowSink sink, Object... parameters) throws IOException {
+        prepare(sql).execute(sink, parameters);
     }
 
-    private BtreePage getNthPage(int n) throws IOException {
-        return BtreePage.readPage(randomAccessFile, pageSize, n);
+    @Override
+    public void close() throws IOException {
+        pageSource.close();
     }
 }
@@ -0,0 +1,569 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a SQLite database file from a {@link DatabaseSpec}, without SQLite: the file header, the schema table,
+ * a table B-tree per table and an index B-tree per index, with interior pages and overflow pages wherever the
+ * data needs them. The same spec always produces the same bytes.
+ * <p>
+ * Trees are loaded bottom-up: cells are appended to the page being filled on each level, and a full page is
+ * written out, its page number becoming a child on the level above. Pages are numbered in the order they are
+ * written, so the file is written sequentially, page 1 (the header and the schema) last. A table's rows are
+ * generated in rowid order; the entries of each of its indexes are generated again from the same seed and
+ * sorted with {@link Sort}, which spills to disk when they do not fit in memory.
+ * <p>
+ * Usage: {@code java DatabaseGenerator <spec file> <database path>}
+ */
+public class DatabaseGenerator {
+    static final int FILE_HEADER_SIZE = 100;
+    // the SQLite version the file claims to have been written by
+    static final int SQLITE_VERSION_NUMBER = 3046000;
+
+    private static final byte INDEX_INTERIOR = 2;
+    private static final byte TABLE_INTERIOR = 5;
+    private static final byte INDEX_LEAF = 10;
+    private static final byte TABLE_LEAF = 13;
+
+    // bytes of index entries sorted in memory before Sort spills them
+    static final long SORT_MEMORY = 64L << 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: DatabaseGenerator <spec file> <database path>");
+            return;
+        }
+        generate(DatabaseSpec.parse(Files.readString(Path.of(args[0]))), Path.of(args[1]));
+    }
+
+    public static void generate(DatabaseSpec spec, Path file) throws IOException {
+        try (var pages = new Pages(file, spec.pageSize())) {
+            List<Object[]> schema = new ArrayList<>();
+            for (var table : spec.tables()) {
+                int rootPage = writeTable(pages, table, spec.seed());
+                schema.add(new Object[]{"table", table.name(), table.name(), (long) rootPage, createTable(table)});
+            }
+            for (var index : spec.indexes()) {
+                var table = spec.table(index.table());
+                int rootPage = writeIndex(pages, table, index, spec.seed());
+                schema.add(new Object[]{"index", index.name(), table.name(), (long) rootPage, createIndex(table, index)});
+            }
+            pages.writeFirst(firstPage(pages, schema));
+        }
+    }
+
+    /**
+     * Writes the rows of a table in rowid order.
+     *
+     * @return the root page
+     */
+    private static int writeTable(Pages pages, DatabaseSpec.Table table, long seed) throws IOException {
+        var tree = new TreeLoader(pages, true);
+        var rows = new RowSource(table, seed);
+        int rowidColumn = table.rowidColumn();
+        while (rows.next()) {
+            Object[] values = rows.row();
+            if (rowidColumn >= 0) {
+                // an INTEGER PRIMARY KEY is stored as NULL, its value being the rowid
+                values = values.clone();
+                values[rowidColumn] = null;
+            }
+            tree.addRow(rows.rowid(), record(values));
+        }
+        return tree.finish();
+    }
+
+    /**
+     * Writes the entries of an index, its columns followed by the rowid, in SQLite's order.
+     *
+     * @return the root page
+     */
+    private static int writeIndex(Pages pages, DatabaseSpec.Table table, DatabaseSpec.Index index, long seed)
+            throws IOException {
+        int[] columns = index.columns().stream().mapToInt(table::columnIndex).toArray();
+        List<Sort.Key> keys = new ArrayList<>();
+        for (int i = 0; i <= columns.length; ++i) {
+            keys.add(new Sort.Key(i, false));
+        }
+        var entries = new Operator<Object[]>() {
+            private final RowSource rows = new RowSource(table, seed);
+            private final Object[] entry = new Object[columns.length + 1];
+
+            @Override
+            public void open() {
+            }
+
+            @Override
+            public boolean next() {
+                if (!rows.next()) {
+                    return false;
+                }
+                for (int i = 0; i < columns.length; ++i) {
+                    entry[i] = rows.row()[columns[i]];
+                }
+                entry[columns.length] = rows.rowid();
+                return true;
+            }
+
+            @Override
+            public Object[] row() {
+                return entry;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        var tree = new TreeLoader(pages, false);
+        try (var sorted = new Sort(entries, keys, columns.length + 1, -1, SORT_MEMORY)) {
+            sorted.open();
+            while (sorted.next()) {
+                tree.addEntry(record(sorted.row()));
+            }
+        }
+        return tree.finish();
+    }
+
+    /**
+     * Generates the rows of a table: per column, values drawn from a random stream seeded by the spec's seed and
+     * the table and column names, stored with the column's affinity applied as an INSERT would.
+     */
+    private static final class RowSource {
+        private final DatabaseSpec.Table table;
+        private final SplittableRandom[] randoms;
+        private final Schema.Affinity[] affinities;
+        private final Object[] row;
+        private long rowid;
+
+        RowSource(DatabaseSpec.Table table, long seed) {
+            this.table = table;
+            int width = table.columns().size();
+            randoms = new SplittableRandom[width];
+            affinities = new Schema.Affinity[width];
+            for (int i = 0; i < width; ++i) {
+                var column = table.columns().get(i);
+                var name = (table.name() + "." + column.name()).toLowerCase();
+                randoms[i] = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + name.hashCode());
+                affinities[i] = Schema.Affinity.of(column.type());
+            }
+            row = new Object[width];
+        }
+
+        boolean next() {
+            if (rowid == table.rows()) {
+                return false;
+            }
+            ++rowid;
+            for (int i = 0; i < row.length; ++i) {
+                var column = table.columns().get(i);
+                if (column.primaryKey()) {
+                    row[i] = rowid;
+                } else if (column.nullFraction() > 0 && randoms[i].nextDouble() < column.nullFraction()) {
+                    row[i] = null;
+                } else {
+                    row[i] = stored(affinities[i], column.values().next(randoms[i], rowid - 1));
+                }
+            }
+            return true;
+        }
+
+        long rowid() {
+            return rowid;
+        }
+
+        Object[] row() {
+            return row;
+        }
+    }
+
+    /**
+     * A value converted as SQLite converts it to be stored in a column of the given affinity.
+     */
+    static Object stored(Schema.Affinity affinity, Object value) {
+        var converted = RowPredicate.affinity(affinity, value);
+        if (affinity == Schema.Affinity.REAL && converted instanceof Long l) {
+            return (double) l;
+        }
+        if ((affinity == Schema.Affinity.INTEGER || affinity == Schema.Affinity.NUMERIC)
+                && converted instanceof Double d && d == Math.rint(d) && Math.abs(d) < 0x1p63) {
+            // a real with no fractional part is stored as an integer
+            return (long) (double) d;
+        }
+        return converted;
+    }
+
+    static String createTable(DatabaseSpec.Table table) {
+        var sql = new StringBuilder("CREATE TABLE ").append(quote(table.name())).append(" (");
+        for (var column : table.columns()) {
+            if (sql.charAt(sql.length() - 1) != '(') {
+                sql.append(", ");
+            }
+            sql.append(quote(column.name())).append(' ').append(column.type());
+            if (column.primaryKey()) {
+                sql.append(" PRIMARY KEY");
+            }
+        }
+        return sql.append(')').toString();
+    }
+
+    static String createIndex(DatabaseSpec.Table table, DatabaseSpec.Index index) {
+        return "CREATE INDEX " + quote(index.name()) + " ON " + quote(table.name()) + " ("
+                + String.join(", ", index.columns().stream().map(DatabaseGenerator::quote).toList()) + ")";
+    }
+
+    private static String quote(String name) {
+        return name.matches("[A-Za-z_][A-Za-z0-9_]*") ? name : '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Page 1: the file header followed by the root of the schema table.
+     */
+    private static byte[] firstPage(Pages pages, List<Object[]> schema) throws IOException {
+        var tree = new TreeLoader(pages, true);
+        for (int i = 0; i < schema.size(); ++i) {
+            tree.addRow(i + 1, record(schema.get(i)));
+        }
+        var page = tree.finish(FILE_HEADER_SIZE);
+        var header = ByteBuffer.wrap(page);
+        header.put("SQLite format 3\0".getBytes(StandardCharsets.US_ASCII));
+        header.putShort(16, (short) (pages.pageSize == 65536 ? 1 : pages.pageSize));
+        // legacy journal mode, no reserved bytes, the fixed payload fractions
+        header.put(18, (byte) 1).put(19, (byte) 1).put(20, (byte) 0);
+        header.put(21, (byte) 64).put(22, (byte) 32).put(23, (byte) 32);
+        // file change counter, database size in pages
+        header.putInt(24, 1).putInt(28, pages.count);
+        // no freelist; schema cookie 1, schema format 4, UTF-8
+        header.putInt(40, 1).putInt(44, 4).putInt(56, 1);
+        header.putInt(92, 1).putInt(96, SQLITE_VERSION_NUMBER);
+        return page;
+    }
+
+    /**
+     * Loads one B-tree bottom-up. Table trees keep every row in their leaves and copy the largest rowid of each
+     * child into its parent; in index trees each entry is stored once, and the entry that ends a full page moves
+     * up into the parent to separate that page from the next.
+     */
+    private static final class TreeLoader {
+        private final Pages pages;
+        private final boolean table;
+        // per level, from the leaves up, the page being filled
+        private final List<PageBuilder> levels = new ArrayList<>();
+
+        TreeLoader(Pages pages, boolean table) {
+            this.pages = pages;
+            this.table = table;
+            levels.add(new PageBuilder(table ? TABLE_LEAF : INDEX_LEAF, pages.usableSize));
+        }
+
+        void addRow(long rowid, byte[] record) throws IOException {
+            var cell = pages.payloadCell(concat(varint(record.length), varint(rowid)), record, true);
+            var leaf = levels.get(0);
+            if (!leaf.fits(cell)) {
+                int page = pages.append(pages.page(leaf.type, leaf.cells, 0, 0));
+                addKey(1, page, varint(leaf.lastRowid));
+                leaf.clear();
+            }
+            leaf.add(cell);
+            leaf.lastRowid = rowid;
+        }
+
+        void addEntry(byte[] record) throws IOException {
+            var cell = pages.payloadCell(varint(record.length), record, false);
+            var leaf = levels.get(0);
+            if (!leaf.fits(cell)) {
+                var divider = leaf.removeLast();
+                int page = pages.append(pages.page(leaf.type, leaf.cells, 0, 0));
+                addKey(1, page, divider);
+                leaf.clear();
+            }
+            leaf.add(cell);
+        }
+
+        /**
+         * Adds to interior level {@code n} the child {@code page}, followed by {@code key}, which separates it
+         * from the next child. When the page being filled is full, its last cell is taken off: its child becomes
+         * the page's right child and its key moves up a level.
+         */
+        private void addKey(int n, int page, byte[] key) throws IOException {
+            if (n == levels.size()) {
+                levels.add(new PageBuilder(table ? TABLE_INTERIOR : INDEX_INTERIOR, pages.usableSize));
+            }
+            var level = levels.get(n);
+            var cell = concat(ByteBuffer.allocate(4).putInt(page).array(), key);
+            if (!level.fits(cell)) {
+                var last = level.removeLast();
+                int written = pages.append(pages.page(level.type, level.cells, ByteBuffer.wrap(last).getInt(0), 0));
+                addKey(n + 1, written, Arrays.copyOfRange(last, 4, last.length));
+                level.clear();
+            }
+            level.add(cell);
+        }
+
+        /**
+         * Writes the pages still being filled; the last child of each level is the right child of the level
+         * above.
+         *
+         * @return the root page
+         */
+        int finish() throws IOException {
+            return pages.append(finish(0));
+        }
+
+        /**
+         * Writes the pages still being filled but the root, whose contents are returned with the page header at
+         * {@code headerOffset}.
+         */
+        byte[] finish(int headerOffset) throws IOException {
+            int child = 0;
+            for (int n = 0; n < levels.size() - 1; ++n) {
+                var level = levels.get(n);
+                child = pages.append(pages.page(level.type, level.cells, child, 0));
+            }
+            var root = levels.getLast();
+            if (headerOffset + headerSize(root.type) + root.used > pages.usableSize) {
+                // no room left for what precedes the header: the page moves down under a root without cells,
+                // as SQLite's balance_deeper() does
+                child = pages.append(pages.page(root.type, root.cells, child, 0));
+                return pages.page(table ? TABLE_INTERIOR : INDEX_INTERIOR, List.of(), child, headerOffset);
+            }
+            return pages.page(root.type, root.cells, child, headerOffset);
+        }
+    }
+
+    /**
+     * The cells of the page being filled on one level of a tree.
+     */
+    private static final class PageBuilder {
+        final byte type;
+        final int usableSize;
+        final List<byte[]> cells = new ArrayList<>();
+        // cell bytes and their pointers
+        int used;
+        long lastRowid;
+
+        PageBuilder(byte type, int usableSize) {
+            this.type = type;
+            this.usableSize = usableSize;
+        }
+
+        boolean fits(byte[] cell) {
+            return cells.isEmpty() || headerSize(type) + used + cell.length + 2 <= usableSize;
+        }
+
+        void add(byte[] cell) {
+            cells.add(cell);
+            used += cell.length + 2;
+        }
+
+        byte[] removeLast() {
+            var cell = cells.removeLast();
+            used -= cell.length + 2;
+            return cell;
+        }
+
+        void clear() {
+            cells.clear();
+            used = 0;
+        }
+    }
+
+    private static int headerSize(byte type) {
+        return type == TABLE_LEAF || type == INDEX_LEAF ? 8 : 12;
+    }
+
+    /**
+     * The file being written: pages are appended in page number order through a buffer, page 1 is written last.
+     */
+    private static final class Pages implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        final int pageSize;
+        final int usableSize;
+        // the last page number handed out; page 1 is reserved for the header and schema
+        int count = 1;
+        private long position;
+
+        Pages(Path file, int pageSize) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.pageSize = pageSize;
+            this.usableSize = pageSize;
+            position = pageSize;
+        }
+
+        int append(byte[] page) throws IOException {
+            if (buffer.remaining() < page.length) {
+                flush();
+            }
+            buffer.put(page);
+            return ++count;
+        }
+
+        void writeFirst(byte[] page) throws IOException {
+            flush();
+            channel.write(ByteBuffer.wrap(page), 0);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (channel) {
+                flush();
+            }
+        }
+
+        /**
+         * A cell holding {@code payload} after {@code prefix}; the part of the payload that does not fit in the
+         * cell is written to a chain of overflow pages, whose first page number ends the cell.
+         */
+        byte[] payloadCell(byte[] prefix, byte[] payload, boolean tableLeaf) throws IOException {
+            int local = Cell.localPayloadSize(payload.length, usableSize, tableLeaf);
+            var cell = ByteBuffer.allocate(prefix.length + local + (local < payload.length ? 4 : 0));
+            cell.put(prefix).put(payload, 0, local);
+            if (local < payload.length) {
+                cell.putInt(count + 1);
+                int perPage = usableSize - 4;
+                for (int offset = local; offset < payload.length; offset += perPage) {
+                    int length = Math.min(perPage, payload.length - offset);
+                    var page = ByteBuffer.allocate(pageSize);
+                    page.putInt(offset + length < payload.length ? count + 2 : 0).put(payload, offset, length);
+                    append(page.array());
+                }
+            }
+            return cell.array();
+        }
+
+        /**
+         * A B-tree page holding {@code cells} in order, its header at {@code headerOffset}.
+         */
+        byte[] page(byte type, List<byte[]> cells, int rightChild, int headerOffset) {
+            var page = ByteBuffer.allocate(pageSize);
+            int content = usableSize;
+            int pointer = headerOffset + headerSize(type);
+            for (var cell : cells) {
+                content -= cell.length;
+                page.put(content, cell);
+                page.putShort(pointer, (short) content);
+                pointer += 2;
+            }
+            page.put(headerOffset, type);
+            page.putShort(headerOffset + 3, (short) cells.size());
+            // 65536 is stored as 0
+            page.putShort(headerOffset + 5, (short) content);
+            if (rightChild != 0) {
+                page.putInt(headerOffset + 8, rightChild);
+            }
+            return page.array();
+        }
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        var bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    static byte[] varint(long value) {
+        if ((value & 0xff00000000000000L) != 0) {
+            // nine bytes: eight of seven bits, then a whole byte
+            var bytes = new byte[9];
+            bytes[8] = (byte) value;
+            value >>>= 8;
+            for (int i = 7; i >= 0; --i) {
+                bytes[i] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            return bytes;
+        }
+        int length = 1;
+        while (length < 8 && value >>> (7 * length) != 0) {
+            ++length;
+        }
+        var bytes = new byte[length];
+        for (int i = length - 1; i >= 0; --i) {
+            bytes[i] = (byte) ((value & 0x7f) | (i == length - 1 ? 0 : 0x80));
+            value >>>= 7;
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes values as a record: a header of serial types, each integer in the fewest bytes, then the values.
+     */
+    static byte[] record(Object[] values) {
+        var header = new ByteArrayOutputStream();
+        var body = new ByteArrayOutputStream();
+        for (var value : values) {
+            switch (value) {
+                case null -> header.write(0);
+                case Long l when l == 0 || l == 1 -> header.write((int) (8 + l));
+                case Long l -> {
+                    int size = integerSize(l);
+                    header.write(size == 6 ? 5 : size == 8 ? 6 : size);
+                    for (int i = size - 1; i >= 0; --i) {
+                        body.write((int) (l >>> (8 * i)));
+                    }
+                }
+                case Double d -> {
+                    header.write(7);
+                    body.writeBytes(ByteBuffer.allocate(8).putDouble(d).array());
+                }
+                case String s -> {
+                    var text = s.getBytes(StandardCharsets.UTF_8);
+                    header.writeBytes(varint(text.length * 2L + 13));
+                    body.writeBytes(text);
+                }
+                default -> {
+                    var blob = (byte[]) value;
+                    header.writeBytes(varint(blob.length * 2L + 12));
+                    body.writeBytes(blob);
+                }
+            }
+        }
+        // the header size counts itself
+        int headerSize = header.size() + 1;
+        if (varint(headerSize).length > 1) {
+            headerSize = header.size() + varint(header.size() + 2).length;
+        }
+        var record = new ByteArrayOutputStream(headerSize + body.size());
+        record.writeBytes(varint(headerSize));
+        record.writeBytes(header.toByteArray());
+        record.writeBytes(body.toByteArray());
+        return record.toByteArray();
+    }
+
+    /**
+     * Bytes taken by an integer: 1, 2, 3, 4, 6 or 8.
+     */
+    private static int integerSize(long value) {
+        if (value >= -128 && value <= 127) {
+            return 1;
+        } else if (value >= -32768 && value <= 32767) {
+            return 2;
+        } else if (value >= -8388608 && value <= 8388607) {
+            return 3;
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return 4;
+        } else if (value >= -(1L << 47) && value < 1L << 47) {
+            return 6;
+        }
+        return 8;
+    }
+}
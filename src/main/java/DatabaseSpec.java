@@ -0,0 +1,510 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * A declarative description of a database for {@link DatabaseGenerator}: its tables with their row counts,
+ * columns and how each column's values are distributed, and its indexes.
+ * <p>
+ * Specs are usually written as text, in statements ending with semicolons and tokenized like SQL:
+ * <pre>
+ * seed 42;
+ * page_size 4096;
+ * table companies rows 1000000 (
+ *     id integer primary key,
+ *     name text text(5, 30),
+ *     country text choice('India', 'China', 'France', 'Chile') skew(1.2),
+ *     employees integer zipf(100000, 1.1) nulls(0.05),
+ *     revenue real normal(1e6, 2e5),
+ *     description text text(100, 5000)
+ * );
+ * index idx_companies_country on companies (country);
+ * </pre>
+ * A column is a name, a type, an optional {@code primary key} (which makes an INTEGER column the rowid) and a
+ * distribution; without one, values are drawn from a default for the type's affinity. {@code nulls(f)} makes a
+ * fraction {@code f} of the values NULL.
+ */
+public record DatabaseSpec(long seed, int pageSize, List<Table> tables, List<Index> indexes) {
+    /**
+     * A table of {@code rows} rows, with rowids 1 to {@code rows}.
+     */
+    public record Table(String name, long rows, List<Column> columns) {
+        /**
+         * Position of the INTEGER PRIMARY KEY column, whose value is the rowid, -1 if there is none.
+         */
+        public int rowidColumn() {
+            for (int i = 0; i < columns.size(); ++i) {
+                if (columns.get(i).primaryKey()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        public int columnIndex(String column) {
+            for (int i = 0; i < columns.size(); ++i) {
+                if (columns.get(i).name().equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            throw new RuntimeException("no such column: " + name + "." + column);
+        }
+    }
+
+    /**
+     * @param values       null for the rowid of an INTEGER PRIMARY KEY
+     * @param nullFraction fraction of the rows in which the column is NULL
+     */
+    public record Column(String name, String type, boolean primaryKey, Distribution values, double nullFraction) {
+    }
+
+    public record Index(String name, String table, List<String> columns) {
+    }
+
+    /**
+     * How a column's values are drawn. Each is drawn from the column's own random stream, so that a column's
+     * values depend only on the seed and the table and column names.
+     */
+    public sealed interface Distribution {
+        /**
+         * Draws the value of row {@code row}, counted from 0.
+         */
+        Object next(SplittableRandom random, long row);
+
+        /**
+         * Integers {@code start}, {@code start + step}, ... in rowid order.
+         */
+        record Sequence(long start, long step) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                return start + row * step;
+            }
+        }
+
+        /**
+         * Integers from {@code min} to {@code max} inclusive, all equally likely.
+         */
+        record Uniform(long min, long max) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                return max == Long.MAX_VALUE ? random.nextLong(min, max) : random.nextLong(min, max + 1);
+            }
+        }
+
+        record UniformReal(double min, double max) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                return min == max ? min : random.nextDouble(min, max);
+            }
+        }
+
+        record Normal(double mean, double stddev) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                // Box-Muller; 1 - u keeps the logarithm finite
+                double u = 1 - random.nextDouble();
+                return mean + stddev * Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+            }
+        }
+
+        /**
+         * Integers from 1 to {@code n}, the {@code k}th as likely as {@code 1 / k^exponent}: a few values are very
+         * common and most are rare.
+         */
+        final class Zipf implements Distribution {
+            static final int MAX_VALUES = 1 << 24;
+
+            private final int n;
+            private final double exponent;
+            // probability of each rank or a lower one
+            private final double[] cumulative;
+
+            Zipf(int n, double exponent) {
+                if (n < 1 || n > MAX_VALUES) {
+                    throw new RuntimeException("zipf needs between 1 and " + MAX_VALUES + " values");
+                }
+                this.n = n;
+                this.exponent = exponent;
+                cumulative = new double[n];
+                double total = 0;
+                for (int k = 1; k <= n; ++k) {
+                    total += Math.pow(k, -exponent);
+                    cumulative[k - 1] = total;
+                }
+                for (int k = 0; k < n; ++k) {
+                    cumulative[k] /= total;
+                }
+            }
+
+            public int n() {
+                return n;
+            }
+
+            public double exponent() {
+                return exponent;
+            }
+
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                return (long) rank(random) + 1;
+            }
+
+            /**
+             * A rank from 0 to {@code n - 1}.
+             */
+            int rank(SplittableRandom random) {
+                int found = Arrays.binarySearch(cumulative, random.nextDouble());
+                return Math.min(found < 0 ? -found - 1 : found, n - 1);
+            }
+        }
+
+        /**
+         * One of {@code values}: all equally likely, or with a skew the {@code k}th as likely as {@code 1 / k^skew}.
+         */
+        record Choice(List<Object> values, Zipf skew) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                return values.get(skew == null ? random.nextInt(values.size()) : skew.rank(random));
+            }
+        }
+
+        /**
+         * Lowercase words of random letters, {@code minLength} to {@code maxLength} characters in all.
+         */
+        record Text(int minLength, int maxLength) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                int length = random.nextInt(minLength, maxLength + 1);
+                var text = new char[length];
+                for (int i = 0; i < length; ++i) {
+                    // a space about every six letters, never first or last
+                    boolean space = i > 0 && i < length - 1 && text[i - 1] != ' ' && random.nextInt(6) == 0;
+                    text[i] = space ? ' ' : (char) ('a' + random.nextInt(26));
+                }
+                return new String(text);
+            }
+        }
+
+        record Blob(int minLength, int maxLength) implements Distribution {
+            @Override
+            public Object next(SplittableRandom random, long row) {
+                var bytes = new byte[random.nextInt(minLength, maxLength + 1)];
+                random.nextBytes(bytes);
+                return bytes;
+            }
+        }
+    }
+
+    static final long DEFAULT_SEED = 1;
+    static final int DEFAULT_PAGE_SIZE = 4096;
+
+    /**
+     * The table named {@code name}.
+     */
+    public Table table(String name) {
+        return tables.stream().filter(t -> t.name().equalsIgnoreCase(name)).findFirst()
+                .orElseThrow(() -> new RuntimeException("no such table: " + name));
+    }
+
+    /**
+     * Parses a spec written as described above.
+     */
+    public static DatabaseSpec parse(String text) {
+        return new SpecParser(Lexer.tokenize(text)).spec();
+    }
+
+    /**
+     * The distribution used for a column declared without one.
+     */
+    static Distribution defaultDistribution(String type, long rows) {
+        return switch (Schema.Affinity.of(type)) {
+            case INTEGER, NUMERIC -> new Distribution.Uniform(1, Math.max(rows, 1));
+            case REAL -> new Distribution.UniformReal(0, 1);
+            case TEXT -> new Distribution.Text(8, 24);
+            case BLOB -> new Distribution.Blob(8, 24);
+        };
+    }
+
+    private static final class SpecParser {
+        private final List<Lexer.Token> tokens;
+        private int pos;
+
+        SpecParser(List<Lexer.Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        DatabaseSpec spec() {
+            long seed = DEFAULT_SEED;
+            int pageSize = DEFAULT_PAGE_SIZE;
+            List<Table> tables = new ArrayList<>();
+            List<Index> indexes = new ArrayList<>();
+            while (peek().type() != Lexer.Type.END) {
+                if (accept(";")) {
+                    continue;
+                }
+                var keyword = identifier().toLowerCase(Locale.ROOT);
+                switch (keyword) {
+                    case "seed" -> seed = integer();
+                    case "page_size" -> {
+                        pageSize = (int) integer();
+                        if (pageSize < 512 || pageSize > 65536 || Integer.bitCount(pageSize) != 1) {
+                            throw error("page_size must be a power of two from 512 to 65536");
+                        }
+                    }
+                    case "table" -> tables.add(table());
+                    case "index" -> indexes.add(index());
+                    default -> throw error("near \"" + keyword + "\": expected seed, page_size, table or index");
+                }
+                if (peek().type() != Lexer.Type.END) {
+                    expect(";");
+                }
+            }
+            var spec = new DatabaseSpec(seed, pageSize, tables, indexes);
+            for (var index : indexes) {
+                var table = spec.table(index.table());
+                index.columns().forEach(table::columnIndex);
+            }
+            return spec;
+        }
+
+        private Table table() {
+            var name = identifier();
+            expect("rows");
+            long rows = integer();
+            expect("(");
+            List<Column> columns = new ArrayList<>();
+            do {
+                columns.add(column(rows));
+            } while (accept(","));
+            expect(")");
+            if (columns.stream().filter(Column::primaryKey).count() > 1) {
+                throw error("table " + name + " has more than one primary key");
+            }
+            return new Table(name, rows, columns);
+        }
+
+        private Column column(long rows) {
+            var name = identifier();
+            var type = identifier();
+            if (accept("(")) {
+                // a size, as in varchar(20), is kept in the declared type
+                var size = new StringBuilder(type).append('(').append(integer());
+                while (accept(",")) {
+                    size.append(", ").append(integer());
+                }
+                expect(")");
+                type = size.append(')').toString();
+            }
+            boolean primaryKey = false;
+            if (accept("primary")) {
+                expect("key");
+                if (!type.equalsIgnoreCase("integer")) {
+                    throw error("only an INTEGER PRIMARY KEY is supported, not " + type);
+                }
+                primaryKey = true;
+            }
+            Distribution values = null;
+            double nullFraction = 0;
+            while (peek().type() == Lexer.Type.IDENTIFIER) {
+                var function = identifier().toLowerCase(Locale.ROOT);
+                expect("(");
+                switch (function) {
+                    case "nulls" -> {
+                        nullFraction = number();
+                        if (nullFraction < 0 || nullFraction > 1) {
+                            throw error("nulls must be a fraction from 0 to 1");
+                        }
+                    }
+                    case "skew" -> {
+                        if (!(values instanceof Distribution.Choice choice)) {
+                            throw error("skew applies to choice()");
+                        }
+                        values = new Distribution.Choice(choice.values(), new Distribution.Zipf(choice.values().size(), number()));
+                    }
+                    default -> {
+                        if (values != null) {
+                            throw error("column " + name + " has more than one distribution");
+                        }
+                        values = distribution(function);
+                    }
+                }
+                expect(")");
+            }
+            if (primaryKey) {
+                if (values != null || nullFraction > 0) {
+                    throw error("the values of INTEGER PRIMARY KEY " + name + " are the rowids");
+                }
+            } else if (values == null) {
+                values = defaultDistribution(type, rows);
+            }
+            return new Column(name, type, primaryKey, values, nullFraction);
+        }
+
+        private Distribution distribution(String function) {
+            return switch (function) {
+                case "sequence" -> {
+                    long start = integer();
+                    yield new Distribution.Sequence(start, accept(",") ? integer() : 1);
+                }
+                case "uniform" -> {
+                    // integers between integer bounds, reals otherwise
+                    Number min = isInteger() ? (Number) integer() : (Number) number();
+                    expect(",");
+                    Number max = isInteger() ? (Number) integer() : (Number) number();
+                    if (max.doubleValue() < min.doubleValue()) {
+                        throw error("uniform needs min <= max");
+                    }
+                    yield min instanceof Long low && max instanceof Long high
+                            ? new Distribution.Uniform(low, high)
+                            : new Distribution.UniformReal(min.doubleValue(), max.doubleValue());
+                }
+                case "normal" -> {
+                    double mean = number();
+                    expect(",");
+                    yield new Distribution.Normal(mean, number());
+                }
+                case "zipf" -> {
+                    long n = integer();
+                    expect(",");
+                    yield new Distribution.Zipf((int) Math.min(n, Integer.MAX_VALUE), number());
+                }
+                case "choice" -> {
+                    List<Object> values = new ArrayList<>();
+                    do {
+                        values.add(literal());
+                    } while (accept(","));
+                    yield new Distribution.Choice(values, null);
+                }
+                case "text", "blob" -> {
+                    long min = integer();
+                    expect(",");
+                    long max = integer();
+                    if (min < 0 || max < min || max > 1_000_000_000) {
+                        throw error(function + " needs lengths 0 <= min <= max <= 1000000000");
+                    }
+                    yield function.equals("text")
+                            ? new Distribution.Text((int) min, (int) max)
+                            : new Distribution.Blob((int) min, (int) max);
+                }
+                default -> throw error("no such distribution: " + function);
+            };
+        }
+
+        private Object literal() {
+            var token = peek();
+            return switch (token.type()) {
+                case STRING -> next().text();
+                case BLOB -> HexFormat.of().parseHex(next().text());
+                case IDENTIFIER -> {
+                    if (!token.is("null")) {
+                        throw error("near \"" + token.text() + "\": expected a literal");
+                    }
+                    next();
+                    yield null;
+                }
+                default -> isInteger() ? (Object) integer() : (Object) number();
+            };
+        }
+
+        private boolean isInteger() {
+            var token = peek().is("-") || peek().is("+") ? peek(1) : peek();
+            return token.type() == Lexer.Type.INTEGER;
+        }
+
+        private long integer() {
+            boolean negative = accept("-");
+            if (!negative) {
+                accept("+");
+            }
+            var token = next();
+            if (token.type() != Lexer.Type.INTEGER) {
+                throw error("near \"" + token.text() + "\": expected an integer");
+            }
+            var text = token.text();
+            if (text.startsWith("0x") || text.startsWith("0X")) {
+                long value = Long.parseUnsignedLong(text.substring(2), 16);
+                return negative ? -value : value;
+            }
+            try {
+                // the sign is parsed with the digits, so that the smallest integer can be written
+                return Long.parseLong(negative ? "-" + text : text);
+            } catch (NumberFormatException e) {
+                throw error("integer out of range: " + text);
+            }
+        }
+
+        private double number() {
+            boolean negative = accept("-");
+            if (!negative) {
+                accept("+");
+            }
+            var token = next();
+            if (token.type() != Lexer.Type.INTEGER && token.type() != Lexer.Type.FLOAT) {
+                throw error("near \"" + token.text() + "\": expected a number");
+            }
+            double value = Double.parseDouble(token.text());
+            return negative ? -value : value;
+        }
+
+        private String identifier() {
+            var token = next();
+            if (token.type() != Lexer.Type.IDENTIFIER && token.type() != Lexer.Type.QUOTED_IDENTIFIER) {
+                throw error("near \"" + token.text() + "\": expected a name");
+            }
+            return token.text();
+        }
+
+        private Index index() {
+            var name = identifier();
+            expect("on");
+            var table = identifier();
+            expect("(");
+            List<String> columns = new ArrayList<>();
+            do {
+                columns.add(identifier());
+            } while (accept(","));
+            expect(")");
+            return new Index(name, table, columns);
+        }
+
+        private Lexer.Token peek() {
+            return peek(0);
+        }
+
+        private Lexer.Token peek(int ahead) {
+            return tokens.get(Math.min(pos + ahead, tokens.size() - 1));
+        }
+
+        private Lexer.Token next() {
+            var token = peek();
+            if (token.type() != Lexer.Type.END) {
+                pos++;
+            }
+            return token;
+        }
+
+        private boolean accept(String keywordOrOperator) {
+            if (peek().is(keywordOrOperator)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String keywordOrOperator) {
+            if (!accept(keywordOrOperator)) {
+                var token = peek();
+                throw error(token.type() == Lexer.Type.END
+                        ? "incomplete input, expected " + keywordOrOperator
+                        : "near \"" + token.text() + "\": expected " + keywordOrOperator);
+            }
+        }
+
+        private RuntimeException error(String message) {
+            return new RuntimeException(message);
+        }
+    }
+}
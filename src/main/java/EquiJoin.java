@@ -0,0 +1,63 @@
+import java.util.List;
+
+/**
+ * Base of the inner equi-joins. Rows of the outer input are streamed; for each, the rows of the inner table
+ * with an equal key are found, and each pair that also satisfies the other equalities of the join condition
+ * becomes an output row made of columns of both.
+ */
+public abstract class EquiJoin implements Operator<Object[]> {
+    /**
+     * A result column: column {@code column} of the inner or of the outer table.
+     */
+    public record Column(boolean inner, int column) {
+    }
+
+    /**
+     * Columns of the outer and the inner table that must be equal, compared after converting both values with
+     * {@code affinity}, as SQLite compares two columns: NUMERIC if either column is numeric, else TEXT if either
+     * has TEXT affinity, else BLOB for none.
+     */
+    public record Key(int outer, int inner, Schema.Affinity affinity) {
+    }
+
+    protected final Key key;
+    private final List<Key> otherKeys;
+    private final List<Column> output;
+
+    protected EquiJoin(Key key, List<Key> otherKeys, List<Column> output) {
+        this.key = key;
+        this.otherKeys = otherKeys;
+        this.output = output;
+    }
+
+    /**
+     * Column {@code column} of the inner row being joined.
+     */
+    protected abstract Object innerValue(int column);
+
+    /**
+     * Whether the inner row being joined equals {@code outer} on the keys other than the one it was found by.
+     */
+    protected boolean otherKeysMatch(TableRow outer) {
+        for (var other : otherKeys) {
+            var a = RowPredicate.affinity(other.affinity(), outer.value(other.outer()));
+            var b = RowPredicate.affinity(other.affinity(), innerValue(other.inner()));
+            if (a == null || b == null || RowPredicate.compareValues(a, b) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The output row joining {@code outer} with the inner row; a fresh array, so callers may keep it.
+     */
+    protected Object[] joined(TableRow outer) {
+        Object[] values = new Object[output.size()];
+        for (int i = 0; i < values.length; ++i) {
+            var column = output.get(i);
+            values[i] = column.inner() ? innerValue(column.column()) : outer.value(column.column());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Node of a parsed SQL expression.
+ */
+public sealed interface Expr {
+    /**
+     * A constant: {@code null}, {@link Long}, {@link Double}, {@link String} or {@code byte[]}.
+     */
+    record Literal(Object value) implements Expr {
+    }
+
+    /**
+     * A column, optionally qualified by a table name or alias.
+     */
+    record ColumnRef(String table, String name) implements Expr {
+    }
+
+    /**
+     * {@code *} in a result column list or {@code count(*)}, optionally qualified.
+     */
+    record Star(String table) implements Expr {
+    }
+
+    /**
+     * A {@code ?} placeholder; {@code index} counts from 0 in order of appearance, or is {@code N - 1} for
+     * {@code ?N}.
+     */
+    record Parameter(int index) implements Expr {
+    }
+
+    /**
+     * {@code -x}, {@code +x} or {@code NOT x}.
+     */
+    record Unary(String op, Expr operand) implements Expr {
+    }
+
+    /**
+     * A binary operator; {@code op} is the upper-case SQL spelling, with {@code ==} normalized to {@code =}
+     * and {@code <>} to {@code !=}.
+     */
+    record Binary(String op, Expr left, Expr right) implements Expr {
+    }
+
+    record IsNull(Expr operand, boolean negated) implements Expr {
+    }
+
+    record Between(Expr operand, Expr low, Expr high, boolean negated) implements Expr {
+    }
+
+    record InList(Expr operand, List<Expr> values, boolean negated) implements Expr {
+    }
+
+    /**
+     * A function call; {@code name} is lower case, {@code count(*)} has a single {@link Star} argument.
+     */
+    record Function(String name, List<Expr> args, boolean distinct) implements Expr {
+    }
+
+    /**
+     * Evaluates an expression that does not depend on a row: a literal, a parameter or a sign applied to one.
+     */
+    static Object constant(Expr expr, Object[] parameters) {
+        return switch (expr) {
+            case Literal l -> l.value();
+            case Parameter p -> {
+                if (p.index() >= parameters.length) {
+                    throw new RuntimeException("no value bound for parameter ?" + (p.index() + 1));
+                }
+                yield parameters[p.index()];
+            }
+            case Unary u when u.op().equals("-") -> switch (constant(u.operand(), parameters)) {
+                case Long l -> -l;
+                case Double d -> -d;
+                case null -> null;
+                default -> throw new RuntimeException("cannot negate " + toSql(u.operand()));
+            };
+            case Unary u when u.op().equals("+") -> constant(u.operand(), parameters);
+            default -> throw new RuntimeException("not a constant: " + toSql(expr));
+        };
+    }
+
+    static boolean isConstant(Expr expr) {
+        return switch (expr) {
+            case Literal l -> true;
+            case Parameter p -> true;
+            case Unary u -> !u.op().equals("NOT") && isConstant(u.operand());
+            default -> false;
+        };
+    }
+
+    /**
+     * Renders an expression back to SQL, as used for result column names.
+     */
+    static String toSql(Expr expr) {
+        return switch (expr) {
+            case Literal l -> switch (l.value()) {
+                case null -> "NULL";
+                case String s -> "'" + s.replace("'", "''") + "'";
+                case byte[] b -> "X'" + HexFormat.of().formatHex(b) + "'";
+                default -> String.valueOf(l.value());
+            };
+            case ColumnRef c -> c.table() == null ? c.name() : c.table() + "." + c.name();
+            case Star s -> s.table() == null ? "*" : s.table() + ".*";
+            case Parameter p -> "?" + (p.index() + 1);
+            case Unary u -> u.op().equals("NOT") ? "NOT " + toSql(u.operand()) : u.op() + toSql(u.operand());
+            case Binary b -> toSql(b.left()) + " " + b.op() + " " + toSql(b.right());
+            case IsNull n -> toSql(n.operand()) + (n.negated() ? " IS NOT NULL" : " IS NULL");
+            case Between b -> toSql(b.operand()) + (b.negated() ? " NOT BETWEEN " : " BETWEEN ")
+                    + toSql(b.low()) + " AND " + toSql(b.high());
+            case InList in -> toSql(in.operand()) + (in.negated() ? " NOT IN (" : " IN (")
+                    + in.values().stream().map(Expr::toSql).collect(Collectors.joining(", ")) + ")";
+            case Function f -> f.name() + "(" + (f.distinct() ? "DISTINCT " : "")
+                    + f.args().stream().map(Expr::toSql).collect(Collectors.joining(", ")) + ")";
+        };
+    }
+}
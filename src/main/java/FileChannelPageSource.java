@@ -0,0 +1,55 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Page source using positional reads, which do not share a file pointer and are safe to issue concurrently.
+ */
+public final class FileChannelPageSource implements PageSource {
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int usableSize;
+
+    public FileChannelPageSource(String databaseFilePath) throws IOException {
+        this.channel = FileChannel.open(Path.of(databaseFilePath), StandardOpenOption.READ);
+        var header = read(0, 100);
+        this.pageSize = PageSource.pageSize(header);
+        this.usableSize = PageSource.usableSize(header);
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int usableSize() {
+        return usableSize;
+    }
+
+    @Override
+    public ByteBuffer readPage(int pageNumber) throws IOException {
+        return read(PageSource.pageOffset(pageNumber, pageSize), pageSize);
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset + buffer.position());
+            if (n < 0) {
+                throw new EOFException("unexpected end of file at offset " + (offset + buffer.position()));
+            }
+        }
+        return buffer.flip().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
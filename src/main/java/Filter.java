@@ -0,0 +1,40 @@
+import java.io.IOException;
+import java.util.function.Predicate;
+
+/**
+ * Passes on the rows of its child that satisfy a predicate.
+ */
+public class Filter<R> implements Operator<R> {
+    private final Operator<R> child;
+    private final Predicate<R> predicate;
+
+    public Filter(Operator<R> child, Predicate<R> predicate) {
+        this.child = child;
+        this.predicate = predicate;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (child.next()) {
+            if (predicate.test(child.row())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public R row() {
+        return child.row();
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
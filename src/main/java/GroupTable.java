@@ -0,0 +1,791 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The groups of a hash aggregation and their running aggregates.
+ * <p>
+ * A group is identified by its grouping values encoded as bytes straight from the record: a storage class tag
+ * followed by an 8-byte integer or real, or by a length and the TEXT or BLOB content. Keys are appended to one
+ * byte arena and found through an open-addressing table of group numbers with linear probing, so a row that
+ * falls into an existing group allocates nothing. Aggregates keep their state in primitive arrays indexed by
+ * group number.
+ * <p>
+ * Integers and reals that compare equal, such as 1 and 1.0, encode the same way and share a group, as in
+ * SQLite. So do texts equal under the column's collation: their key holds the collation key, and the group
+ * returns the text of its first row. Tables built over different parts of the input can be {@link #merge merged}, which is how a parallel
+ * aggregation combines its partial results.
+ * <p>
+ * Rows come either one {@link TableRow} at a time or as the selected rows of a {@link Batch}. A batch is added
+ * column-wise: the groups of all its rows are found first, then each aggregate runs one loop over its argument's
+ * vector.
+ */
+public class GroupTable {
+    private static final int INITIAL_GROUPS = 16;
+
+    private final int[] groupColumns;
+    private final Schema.Collation[] collations;
+    private final Accumulator[] accumulators;
+    // per grouping column, the value of each group's first row when the key does not hold it; null for BINARY
+    private final First[] firsts;
+
+    // encoded keys of all groups, back to back
+    private byte[] arena = new byte[256];
+    private int arenaSize;
+    private int[] keyOffsets = new int[INITIAL_GROUPS];
+    private int[] keyLengths = new int[INITIAL_GROUPS];
+    private int[] hashes = new int[INITIAL_GROUPS];
+    private int groupCount;
+    // group number + 1 per slot, 0 for an empty slot; at most half full
+    private int[] slots = new int[INITIAL_GROUPS * 2];
+
+    // the key of the row being added
+    private byte[] key = new byte[64];
+    // the group of each selected row of the batch being added
+    private int[] rowGroups = new int[0];
+
+    /**
+     * @param groupColumns positions of the grouping columns in the rows' records; none for a single group, which
+     *                     exists even when no row is added
+     * @param aggregates   the aggregates to compute per group
+     */
+    public GroupTable(int[] groupColumns, List<HashAggregate.Aggregate> aggregates) {
+        this(groupColumns, binary(groupColumns.length), aggregates);
+    }
+
+    /**
+     * @param collations the collation of each grouping column
+     */
+    public GroupTable(int[] groupColumns, Schema.Collation[] collations, List<HashAggregate.Aggregate> aggregates) {
+        this.groupColumns = groupColumns;
+        this.collations = collations;
+        this.accumulators = aggregates.stream().map(GroupTable::accumulator).toArray(Accumulator[]::new);
+        this.firsts = new First[groupColumns.length];
+        for (int i = 0; i < groupColumns.length; ++i) {
+            if (collations[i] != Schema.Collation.BINARY) {
+                firsts[i] = new First(groupColumns[i]);
+            }
+        }
+        for (var accumulator : accumulators()) {
+            accumulator.grow(INITIAL_GROUPS);
+        }
+        if (groupColumns.length == 0) {
+            group(key, 0);
+        }
+    }
+
+    static Schema.Collation[] binary(int count) {
+        var collations = new Schema.Collation[count];
+        Arrays.fill(collations, Schema.Collation.BINARY);
+        return collations;
+    }
+
+    private static Accumulator accumulator(HashAggregate.Aggregate aggregate) {
+        return switch (aggregate.kind()) {
+            case COUNT -> new Count(aggregate.column());
+            case SUM, TOTAL, AVG -> new Sum(aggregate.column(), aggregate.kind());
+            case MIN -> new Extremum(aggregate.column(), -1, aggregate.collation());
+            case MAX -> new Extremum(aggregate.column(), 1, aggregate.collation());
+        };
+    }
+
+    /**
+     * The aggregates, then the first values of collated grouping columns: everything kept per group.
+     */
+    private List<Accumulator> accumulators() {
+        List<Accumulator> all = new ArrayList<>(Arrays.asList(accumulators));
+        for (var first : firsts) {
+            if (first != null) {
+                all.add(first);
+            }
+        }
+        return all;
+    }
+
+    public int size() {
+        return groupCount;
+    }
+
+    /**
+     * Adds a row to its group, creating the group on its first row.
+     */
+    public void add(TableRow row) {
+        int length = encode(row);
+        int group = group(key, length);
+        for (var accumulator : accumulators) {
+            accumulator.add(group, row);
+        }
+        for (var first : firsts) {
+            if (first != null) {
+                first.add(group, row);
+            }
+        }
+    }
+
+    /**
+     * Adds the selected rows of a batch whose vectors hold the grouping columns and the aggregates' arguments.
+     */
+    public void add(Batch batch) {
+        int count = batch.selectedCount;
+        if (rowGroups.length < count) {
+            rowGroups = new int[count];
+        }
+        int[] selection = batch.selection;
+        for (int i = 0; i < count; ++i) {
+            int length = encode(batch, selection[i]);
+            rowGroups[i] = group(key, length);
+        }
+        for (var accumulator : accumulators) {
+            accumulator.add(rowGroups, batch);
+        }
+        for (var first : firsts) {
+            if (first != null) {
+                first.add(rowGroups, batch);
+            }
+        }
+    }
+
+    /**
+     * Adds the groups and aggregates of {@code other} to this table.
+     */
+    public void merge(GroupTable other) {
+        for (int otherGroup = 0; otherGroup < other.groupCount; ++otherGroup) {
+            byte[] otherKey = Arrays.copyOfRange(other.arena, other.keyOffsets[otherGroup],
+                    other.keyOffsets[otherGroup] + other.keyLengths[otherGroup]);
+            int group = group(otherKey, otherKey.length);
+            for (int i = 0; i < accumulators.length; ++i) {
+                accumulators[i].merge(group, other.accumulators[i], otherGroup);
+            }
+            for (int i = 0; i < firsts.length; ++i) {
+                if (firsts[i] != null) {
+                    firsts[i].merge(group, other.firsts[i], otherGroup);
+                }
+            }
+        }
+    }
+
+    /**
+     * The grouping values of a group followed by its aggregates.
+     */
+    public Object[] row(int group) {
+        Object[] values = new Object[groupColumns.length + accumulators.length];
+        var buffer = ByteBuffer.wrap(arena, keyOffsets[group], keyLengths[group]);
+        for (int i = 0; i < groupColumns.length; ++i) {
+            byte type = buffer.get();
+            values[i] = switch (type) {
+                case ColumnVector.INTEGER -> buffer.getLong();
+                case ColumnVector.REAL -> buffer.getDouble();
+                case ColumnVector.TEXT, ColumnVector.BLOB -> {
+                    byte[] contents = new byte[buffer.getInt()];
+                    buffer.get(contents);
+                    yield type == ColumnVector.TEXT ? new String(contents, StandardCharsets.UTF_8) : contents;
+                }
+                default -> null;
+            };
+            if (firsts[i] != null) {
+                values[i] = firsts[i].result(group);
+            }
+        }
+        for (int i = 0; i < accumulators.length; ++i) {
+            values[groupColumns.length + i] = accumulators[i].result(group);
+        }
+        return values;
+    }
+
+    /**
+     * Encodes the grouping values of a row into {@link #key}.
+     *
+     * @return the length of the key
+     */
+    private int encode(TableRow row) {
+        int length = 0;
+        for (int c = 0; c < groupColumns.length; ++c) {
+            int n = groupColumns[c];
+            ensureKeyCapacity(length + 9);
+            byte type = type(row, n);
+            key[length++] = type;
+            switch (type) {
+                case ColumnVector.INTEGER -> length = putLong(length, longValue(row, n));
+                case ColumnVector.REAL -> length = putReal(length, row.record.getDouble(n));
+                case ColumnVector.TEXT, ColumnVector.BLOB -> {
+                    if (type == ColumnVector.TEXT && collations[c] != Schema.Collation.BINARY) {
+                        length = putContent(length, collations[c].key(row.record.getBlob(n)));
+                    } else {
+                        int size = row.record.contentLength(n);
+                        ensureKeyCapacity(length + 4 + size);
+                        length = putInt(length, size);
+                        row.record.getBytes(n, key, length);
+                        length += size;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the grouping values of row {@code r} of a batch into {@link #key}, as {@link #encode(TableRow)}
+     * does.
+     *
+     * @return the length of the key
+     */
+    private int encode(Batch batch, int r) {
+        int length = 0;
+        for (int c = 0; c < groupColumns.length; ++c) {
+            var vector = batch.columns[groupColumns[c]];
+            ensureKeyCapacity(length + 9);
+            byte type = vector.types[r];
+            key[length++] = type;
+            switch (type) {
+                case ColumnVector.INTEGER -> length = putLong(length, vector.longs[r]);
+                case ColumnVector.REAL -> length = putReal(length, vector.doubles[r]);
+                case ColumnVector.TEXT, ColumnVector.BLOB -> {
+                    if (type == ColumnVector.TEXT && collations[c] != Schema.Collation.BINARY) {
+                        length = putContent(length, collations[c].key(vector.bytes(r)));
+                    } else {
+                        int size = vector.lengths[r];
+                        ensureKeyCapacity(length + 4 + size);
+                        length = putInt(length, size);
+                        vector.getBytes(r, key, length);
+                        length += size;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Puts a real after its type tag at {@code offset - 1}.
+     */
+    private int putReal(int offset, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 9.2e18) {
+            // an integral real equals the integer, so it must land in the same group
+            key[offset - 1] = ColumnVector.INTEGER;
+            return putLong(offset, (long) value);
+        }
+        return putLong(offset, Double.doubleToLongBits(value));
+    }
+
+    private int putContent(int offset, byte[] contents) {
+        ensureKeyCapacity(offset + 4 + contents.length);
+        offset = putInt(offset, contents.length);
+        System.arraycopy(contents, 0, key, offset, contents.length);
+        return offset + contents.length;
+    }
+
+    private void ensureKeyCapacity(int capacity) {
+        if (capacity > key.length) {
+            key = Arrays.copyOf(key, Math.max(capacity, key.length * 2));
+        }
+    }
+
+    private int putLong(int offset, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            key[offset++] = (byte) (value >>> shift);
+        }
+        return offset;
+    }
+
+    private int putInt(int offset, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            key[offset++] = (byte) (value >>> shift);
+        }
+        return offset;
+    }
+
+    /**
+     * The number of the group with the first {@code length} bytes of {@code groupKey} as its key, added if new.
+     */
+    private int group(byte[] groupKey, int length) {
+        int hash = hash(groupKey, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int group = slots[slot] - 1;
+            if (group < 0) {
+                group = insert(groupKey, length, hash);
+                slots[slot] = group + 1;
+                if (groupCount * 2 > slots.length) {
+                    rehash();
+                }
+                return group;
+            }
+            if (hashes[group] == hash && keyLengths[group] == length
+                    && Arrays.equals(arena, keyOffsets[group], keyOffsets[group] + length, groupKey, 0, length)) {
+                return group;
+            }
+        }
+    }
+
+    private int insert(byte[] groupKey, int length, int hash) {
+        int group = groupCount++;
+        if (group == hashes.length) {
+            int capacity = group * 2;
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            for (var accumulator : accumulators()) {
+                accumulator.grow(capacity);
+            }
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length * 2));
+        }
+        System.arraycopy(groupKey, 0, arena, arenaSize, length);
+        keyOffsets[group] = arenaSize;
+        keyLengths[group] = length;
+        hashes[group] = hash;
+        arenaSize += length;
+        return group;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int group = 0; group < groupCount; ++group) {
+            int slot = hashes[group] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = group + 1;
+        }
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int h = 1;
+        for (int i = 0; i < length; ++i) {
+            h = 31 * h + bytes[i];
+        }
+        // spread the high bits into the low ones the mask keeps
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    /**
+     * Storage class of column {@code n}, as a {@link ColumnVector} type.
+     */
+    private static byte type(TableRow row, int n) {
+        if (n == row.rowIdAlias) {
+            return ColumnVector.INTEGER;
+        }
+        int serialType = row.record.serialType(n);
+        if (serialType == 0) {
+            return ColumnVector.NULL;
+        } else if (serialType == 7) {
+            return ColumnVector.REAL;
+        } else if (serialType < 12) {
+            return ColumnVector.INTEGER;
+        }
+        return (serialType & 1) == 1 ? ColumnVector.TEXT : ColumnVector.BLOB;
+    }
+
+    private static long longValue(TableRow row, int n) {
+        return n == row.rowIdAlias ? row.rowId : row.record.getLong(n);
+    }
+
+    /**
+     * The running state of one aggregate over all groups.
+     */
+    private abstract static class Accumulator {
+        // position of the argument in the rows' records, -1 for count(*)
+        final int column;
+
+        Accumulator(int column) {
+            this.column = column;
+        }
+
+        abstract void grow(int capacity);
+
+        abstract void add(int group, TableRow row);
+
+        /**
+         * Adds the selected rows of a batch, the {@code i}th of them to group {@code groups[i]}.
+         */
+        abstract void add(int[] groups, Batch batch);
+
+        abstract void merge(int group, Accumulator other, int otherGroup);
+
+        abstract Object result(int group);
+    }
+
+    /**
+     * {@code count(*)}, or {@code count(x)}, which skips NULLs.
+     */
+    private static final class Count extends Accumulator {
+        long[] counts = new long[0];
+
+        Count(int column) {
+            super(column);
+        }
+
+        @Override
+        void grow(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int group, TableRow row) {
+            if (column < 0 || type(row, column) != ColumnVector.NULL) {
+                counts[group]++;
+            }
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            int count = batch.selectedCount;
+            if (column < 0) {
+                for (int i = 0; i < count; ++i) {
+                    counts[groups[i]]++;
+                }
+                return;
+            }
+            int[] selection = batch.selection;
+            byte[] types = batch.columns[column].types;
+            for (int i = 0; i < count; ++i) {
+                counts[groups[i]] += types[selection[i]] != ColumnVector.NULL ? 1 : 0;
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            counts[group] += ((Count) other).counts[otherGroup];
+        }
+
+        @Override
+        Object result(int group) {
+            return counts[group];
+        }
+    }
+
+    /**
+     * {@code sum}, {@code total} and {@code avg}, with SQLite's rules: the sum stays an integer while every value
+     * is one, and {@code sum} fails when an integer sum overflows. Text counts as the number it looks like.
+     */
+    private static final class Sum extends Accumulator {
+        private final HashAggregate.Kind kind;
+        long[] counts = new long[0];
+        long[] integerSums = new long[0];
+        double[] realSums = new double[0];
+        // a value was a real or not a number at all
+        boolean[] approximate = new boolean[0];
+        boolean[] overflowed = new boolean[0];
+
+        Sum(int column, HashAggregate.Kind kind) {
+            super(column);
+            this.kind = kind;
+        }
+
+        @Override
+        void grow(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+            integerSums = Arrays.copyOf(integerSums, capacity);
+            realSums = Arrays.copyOf(realSums, capacity);
+            approximate = Arrays.copyOf(approximate, capacity);
+            overflowed = Arrays.copyOf(overflowed, capacity);
+        }
+
+        @Override
+        void add(int group, TableRow row) {
+            switch (type(row, column)) {
+                case ColumnVector.NULL -> {
+                    return;
+                }
+                case ColumnVector.INTEGER -> addInteger(group, longValue(row, column));
+                case ColumnVector.REAL -> addReal(group, row.record.getDouble(column));
+                case ColumnVector.TEXT -> addText(group, row.record.getText(column));
+                default -> addReal(group, 0);
+            }
+            counts[group]++;
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            int count = batch.selectedCount;
+            int[] selection = batch.selection;
+            var vector = batch.columns[column];
+            byte[] types = vector.types;
+            long[] longs = vector.longs;
+            double[] doubles = vector.doubles;
+            for (int i = 0; i < count; ++i) {
+                int r = selection[i];
+                int group = groups[i];
+                switch (types[r]) {
+                    case ColumnVector.NULL -> {
+                        continue;
+                    }
+                    case ColumnVector.INTEGER -> addInteger(group, longs[r]);
+                    case ColumnVector.REAL -> addReal(group, doubles[r]);
+                    case ColumnVector.TEXT -> addText(group, (String) vector.get(r));
+                    default -> addReal(group, 0);
+                }
+                counts[group]++;
+            }
+        }
+
+        private void addText(int group, String text) {
+            switch (RowPredicate.toNumber(text)) {
+                case Long l -> addInteger(group, l);
+                case Double d -> addReal(group, d);
+                default -> addReal(group, 0);
+            }
+        }
+
+        private void addInteger(int group, long value) {
+            realSums[group] += value;
+            if (!approximate[group]) {
+                try {
+                    integerSums[group] = Math.addExact(integerSums[group], value);
+                } catch (ArithmeticException e) {
+                    approximate[group] = true;
+                    overflowed[group] = true;
+                }
+            }
+        }
+
+        private void addReal(int group, double value) {
+            realSums[group] += value;
+            approximate[group] = true;
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            var sum = (Sum) other;
+            counts[group] += sum.counts[otherGroup];
+            realSums[group] += sum.realSums[otherGroup];
+            overflowed[group] |= sum.overflowed[otherGroup];
+            approximate[group] |= sum.approximate[otherGroup];
+            if (!approximate[group]) {
+                try {
+                    integerSums[group] = Math.addExact(integerSums[group], sum.integerSums[otherGroup]);
+                } catch (ArithmeticException e) {
+                    approximate[group] = true;
+                    overflowed[group] = true;
+                }
+            }
+        }
+
+        @Override
+        Object result(int group) {
+            if (kind == HashAggregate.Kind.TOTAL) {
+                return realSums[group];
+            }
+            if (counts[group] == 0) {
+                return null;
+            }
+            if (kind == HashAggregate.Kind.AVG) {
+                return realSums[group] / counts[group];
+            }
+            if (overflowed[group]) {
+                throw new RuntimeException("integer overflow");
+            }
+            return approximate[group] ? (Object) realSums[group] : (Object) integerSums[group];
+        }
+    }
+
+    /**
+     * {@code min} or {@code max}, which skip NULLs and compare in SQLite's sort order: numbers, then text, then
+     * blobs. TEXT and BLOB values are compared in place and copied only when they become the new extremum.
+     */
+    private static final class Extremum extends Accumulator {
+        // 1 for max, -1 for min
+        private final int direction;
+        private final Schema.Collation collation;
+        byte[] types = new byte[0];
+        long[] longs = new long[0];
+        double[] doubles = new double[0];
+        byte[][] contents = new byte[0][];
+
+        Extremum(int column, int direction, Schema.Collation collation) {
+            super(column);
+            this.direction = direction;
+            this.collation = collation;
+        }
+
+        @Override
+        void grow(int capacity) {
+            types = Arrays.copyOf(types, capacity);
+            longs = Arrays.copyOf(longs, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+            contents = Arrays.copyOf(contents, capacity);
+        }
+
+        @Override
+        void add(int group, TableRow row) {
+            byte type = type(row, column);
+            if (type == ColumnVector.NULL) {
+                return;
+            }
+            if (types[group] != ColumnVector.NULL && compare(row, type, group) * direction <= 0) {
+                return;
+            }
+            types[group] = type;
+            switch (type) {
+                case ColumnVector.INTEGER -> longs[group] = longValue(row, column);
+                case ColumnVector.REAL -> doubles[group] = row.record.getDouble(column);
+                default -> contents[group] = row.record.getBlob(column);
+            }
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            int count = batch.selectedCount;
+            int[] selection = batch.selection;
+            var vector = batch.columns[column];
+            for (int i = 0; i < count; ++i) {
+                int r = selection[i];
+                int group = groups[i];
+                byte type = vector.types[r];
+                if (type == ColumnVector.NULL
+                        || types[group] != ColumnVector.NULL && compare(vector, r, type, group) * direction <= 0) {
+                    continue;
+                }
+                types[group] = type;
+                switch (type) {
+                    case ColumnVector.INTEGER -> longs[group] = vector.longs[r];
+                    case ColumnVector.REAL -> doubles[group] = vector.doubles[r];
+                    default -> contents[group] = vector.bytes(r);
+                }
+            }
+        }
+
+        /**
+         * Compares the row's value, of the given non-NULL type, with the group's current extremum.
+         */
+        private int compare(TableRow row, byte type, int group) {
+            int c = Integer.compare(storageClass(type), storageClass(types[group]));
+            if (c != 0) {
+                return c;
+            }
+            return switch (type) {
+                case ColumnVector.INTEGER -> compareInteger(longValue(row, column), group);
+                case ColumnVector.REAL -> compareReal(row.record.getDouble(column), group);
+                default -> type == ColumnVector.TEXT && collation != Schema.Collation.BINARY
+                        ? Arrays.compareUnsigned(collation.key(row.record.getBlob(column)), collation.key(contents[group]))
+                        : row.record.compareBytes(column, contents[group]);
+            };
+        }
+
+        /**
+         * Compares the value in slot {@code r} of a vector, of the given non-NULL type, with the group's current
+         * extremum.
+         */
+        private int compare(ColumnVector vector, int r, byte type, int group) {
+            int c = Integer.compare(storageClass(type), storageClass(types[group]));
+            if (c != 0) {
+                return c;
+            }
+            return switch (type) {
+                case ColumnVector.INTEGER -> compareInteger(vector.longs[r], group);
+                case ColumnVector.REAL -> compareReal(vector.doubles[r], group);
+                default -> type == ColumnVector.TEXT && collation != Schema.Collation.BINARY
+                        ? Arrays.compareUnsigned(collation.key(vector.bytes(r)), collation.key(contents[group]))
+                        : vector.compareBytes(r, contents[group]);
+            };
+        }
+
+        private int compareInteger(long value, int group) {
+            return types[group] == ColumnVector.INTEGER
+                    ? Long.compare(value, longs[group])
+                    : -RowPredicate.compareRealInteger(doubles[group], value);
+        }
+
+        private int compareReal(double value, int group) {
+            return types[group] == ColumnVector.REAL
+                    ? Double.compare(value, doubles[group])
+                    : RowPredicate.compareRealInteger(value, longs[group]);
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            var extremum = (Extremum) other;
+            var value = extremum.result(otherGroup);
+            if (value == null) {
+                return;
+            }
+            var current = result(group);
+            if (current == null || RowPredicate.compareValues(value, current, collation) * direction > 0) {
+                types[group] = extremum.types[otherGroup];
+                longs[group] = extremum.longs[otherGroup];
+                doubles[group] = extremum.doubles[otherGroup];
+                contents[group] = extremum.contents[otherGroup];
+            }
+        }
+
+        @Override
+        Object result(int group) {
+            return switch (types[group]) {
+                case ColumnVector.INTEGER -> longs[group];
+                case ColumnVector.REAL -> doubles[group];
+                case ColumnVector.TEXT -> new String(contents[group], StandardCharsets.UTF_8);
+                case ColumnVector.BLOB -> contents[group];
+                default -> null;
+            };
+        }
+
+        private static int storageClass(byte type) {
+            return type == ColumnVector.REAL ? ColumnVector.INTEGER : type;
+        }
+    }
+
+    /**
+     * The value of a column in the first row of each group, kept for grouping columns whose key is a collation
+     * key rather than the value.
+     */
+    private static final class First extends Accumulator {
+        Object[] values = new Object[0];
+        boolean[] seen = new boolean[0];
+
+        First(int column) {
+            super(column);
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            seen = Arrays.copyOf(seen, capacity);
+        }
+
+        @Override
+        void add(int group, TableRow row) {
+            if (!seen[group]) {
+                seen[group] = true;
+                values[group] = column == row.rowIdAlias ? (Object) row.rowId : row.record.getValue(column);
+            }
+        }
+
+        @Override
+        void add(int[] groups, Batch batch) {
+            int count = batch.selectedCount;
+            int[] selection = batch.selection;
+            var vector = batch.columns[column];
+            for (int i = 0; i < count; ++i) {
+                int group = groups[i];
+                if (!seen[group]) {
+                    seen[group] = true;
+                    values[group] = vector.get(selection[i]);
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            var first = (First) other;
+            if (!seen[group]) {
+                seen[group] = first.seen[otherGroup];
+                values[group] = first.values[otherGroup];
+            }
+        }
+
+        @Override
+        Object result(int group) {
+            return values[group];
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * GROUP BY by hashing: adds every row of its input to a {@link GroupTable}, then returns one row per group. The
+ * input yields either {@link TableRow}s or {@link Batch}es, which the table aggregates a column vector at a time.
+ * <p>
+ * Over a whole table, the input can be split into subtrees as {@link ParallelScan} does. Each task then
+ * aggregates its own subtrees into a partial table, and the partial tables are merged at the end, so workers
+ * share nothing while they scan and only groups, not rows, cross threads.
+ */
+public class HashAggregate implements Operator<Object[]> {
+    public enum Kind {
+        COUNT, SUM, TOTAL, AVG, MIN, MAX
+    }
+
+    /**
+     * An aggregate function over the column at position {@code column} of the input records; -1 for
+     * {@code count(*)}. {@code min} and {@code max} compare text under {@code collation}.
+     */
+    public record Aggregate(Kind kind, int column, Schema.Collation collation) {
+        public Aggregate(Kind kind, int column) {
+            this(kind, column, Schema.Collation.BINARY);
+        }
+    }
+
+    /**
+     * Builds the input rows or batches found in the subtree rooted at {@code rootPage}. Inputs run concurrently.
+     */
+    @FunctionalInterface
+    public interface SubtreeInput {
+        Operator<?> rows(int rootPage);
+    }
+
+    private final Operator<?> child;
+    private final PageCache pageCache;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int rootPage;
+    private final SubtreeInput subtreeInput;
+    private final int[] groupColumns;
+    private final Schema.Collation[] collations;
+    private final List<Aggregate> aggregates;
+    private final int[] output;
+
+    private GroupTable groups;
+    private int position;
+    private Object[] row;
+
+    /**
+     * @param child        the input, of {@link TableRow}s or {@link Batch}es
+     * @param groupColumns positions of the grouping columns in the input records, or table columns for batches
+     * @param collations   the collation of each grouping column
+     * @param output       for each result column, its position among the grouping values followed by the
+     *                     aggregates
+     */
+    public HashAggregate(Operator<?> child, int[] groupColumns, Schema.Collation[] collations,
+                         List<Aggregate> aggregates, int[] output) {
+        this(child, null, null, 1, 0, null, groupColumns, collations, aggregates, output);
+    }
+
+    /**
+     * Aggregates the tree rooted at {@code rootPage} with {@code parallelism} workers.
+     */
+    public HashAggregate(PageCache pageCache, ForkJoinPool pool, int parallelism, int rootPage, SubtreeInput subtreeInput,
+                         int[] groupColumns, Schema.Collation[] collations, List<Aggregate> aggregates, int[] output) {
+        this(null, pageCache, pool, parallelism, rootPage, subtreeInput, groupColumns, collations, aggregates, output);
+    }
+
+    private HashAggregate(Operator<?> child, PageCache pageCache, ForkJoinPool pool, int parallelism,
+                          int rootPage, SubtreeInput subtreeInput, int[] groupColumns, Schema.Collation[] collations,
+                          List<Aggregate> aggregates, int[] output) {
+        this.child = child;
+        this.pageCache = pageCache;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.rootPage = rootPage;
+        this.subtreeInput = subtreeInput;
+        this.groupColumns = groupColumns;
+        this.collations = collations;
+        this.aggregates = aggregates;
+        this.output = output;
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (child != null) {
+            groups = new GroupTable(groupColumns, collations, aggregates);
+            add(child, groups);
+        } else {
+            groups = aggregateInParallel();
+        }
+        position = 0;
+    }
+
+    private static void add(Operator<?> input, GroupTable table) throws IOException {
+        input.open();
+        while (input.next()) {
+            if (input.row() instanceof Batch batch) {
+                table.add(batch);
+            } else {
+                table.add((TableRow) input.row());
+            }
+        }
+    }
+
+    private GroupTable aggregateInParallel() throws IOException {
+        int target = parallelism * ParallelScan.PARTITIONS_PER_WORKER;
+        var subtrees = ParallelScan.partition(pageCache, rootPage, target);
+        int perTask = (subtrees.size() + target - 1) / target;
+        List<Future<GroupTable>> tasks = new ArrayList<>();
+        for (int start = 0; start < subtrees.size(); start += perTask) {
+            var run = subtrees.subList(start, Math.min(start + perTask, subtrees.size()));
+            tasks.add(pool.submit(() -> {
+                var partial = new GroupTable(groupColumns, collations, aggregates);
+                for (int subtree : run) {
+                    try (var input = subtreeInput.rows(subtree)) {
+                        add(input, partial);
+                    }
+                }
+                return partial;
+            }));
+        }
+        try {
+            var table = ParallelScan.join(tasks.get(0));
+            for (var task : tasks.subList(1, tasks.size())) {
+                table.merge(ParallelScan.join(task));
+            }
+            return table;
+        } finally {
+            // after a failure, the tasks that have not started yet
+            tasks.forEach(task -> task.cancel(false));
+        }
+    }
+
+    @Override
+    public boolean next() {
+        if (position == groups.size()) {
+            return false;
+        }
+        var values = groups.row(position++);
+        row = new Object[output.length];
+        for (int i = 0; i < output.length; ++i) {
+            row[i] = values[output[i]];
+        }
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        if (child != null) {
+            child.close();
+        }
+        groups = null;
+    }
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash join: on open, the inner input, which should be the smaller one, is loaded into a {@link JoinTable} by
+ * its key; then each outer row is looked up by its own key and joined with every inner row that has the same.
+ * Only the inner columns the join returns or compares are kept in memory.
+ */
+public class HashJoin extends EquiJoin {
+    private final Operator<TableRow> inner;
+    private final Operator<TableRow> outer;
+    // inner columns kept per row, and where each inner column is among them
+    private final int[] keptColumns;
+    private final int[] keptPositions;
+
+    private JoinTable table;
+    private int match = -1;
+    private Object[] innerValues;
+    private Object[] row;
+
+    /**
+     * @param inner rows to build the hash table from
+     * @param outer rows to look up in the hash table
+     */
+    public HashJoin(Operator<TableRow> inner, Operator<TableRow> outer, Key key, List<Key> otherKeys, List<Column> output) {
+        super(key, otherKeys, output);
+        this.inner = inner;
+        this.outer = outer;
+        List<Integer> kept = new ArrayList<>();
+        output.stream().filter(Column::inner).map(Column::column).forEach(kept::add);
+        otherKeys.stream().map(Key::inner).forEach(kept::add);
+        this.keptColumns = kept.stream().distinct().mapToInt(Integer::intValue).toArray();
+        this.keptPositions = new int[Arrays.stream(keptColumns).max().orElse(-1) + 1];
+        for (int i = 0; i < keptColumns.length; ++i) {
+            keptPositions[keptColumns[i]] = i;
+        }
+    }
+
+    @Override
+    public void open() throws IOException {
+        table = new JoinTable(key.affinity());
+        inner.open();
+        while (inner.next()) {
+            var innerRow = inner.row();
+            Object[] values = new Object[keptColumns.length];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = innerRow.value(keptColumns[i]);
+            }
+            table.add(innerRow, key.inner(), values);
+        }
+        outer.open();
+        match = -1;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            while (match >= 0) {
+                innerValues = table.row(match);
+                match = table.next(match);
+                if (otherKeysMatch(outer.row())) {
+                    row = joined(outer.row());
+                    return true;
+                }
+            }
+            // nothing to look up once the inner input turned out empty
+            if (table.size() == 0 || !outer.next()) {
+                return false;
+            }
+            match = table.first(outer.row(), key.outer());
+        }
+    }
+
+    @Override
+    protected Object innerValue(int column) {
+        return innerValues[keptPositions[column]];
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        inner.close();
+        outer.close();
+        table = null;
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+
+/**
+ * Cursor over an index B-tree, ordered by the indexed columns followed by the rowid.
+ */
+public class IndexCursor extends BtreeCursor {
+    private final RecordView record;
+    // used while comparing during seeks, so that record() stays valid for the caller
+    private final RecordView probe;
+
+    public IndexCursor(PageCache pageCache, PageSource pageSource, int rootPage) {
+        super(pageCache, rootPage);
+        this.record = new RecordView(pageSource);
+        this.probe = new RecordView(pageSource);
+    }
+
+    @Override
+    protected boolean entriesInInterior() {
+        return true;
+    }
+
+    /**
+     * Positions the cursor on the first entry whose leading columns are greater than or equal to {@code key}.
+     *
+     * @return whether such an entry exists
+     */
+    public boolean seek(Object... key) throws IOException {
+        return seekGE((frame, i) -> {
+            recordsDecoded++;
+            return compare(cell(frame, i).recordView(probe), key);
+        });
+    }
+
+    /**
+     * Compares the leading columns of the current entry with {@code key}.
+     */
+    public int compareKey(Object... key) {
+        return compare(record(), key);
+    }
+
+    /**
+     * The current index entry; the returned view is reused by the cursor and only valid until it moves.
+     */
+    public RecordView record() {
+        recordsDecoded++;
+        return cell().recordView(record);
+    }
+
+    /**
+     * The rowid of the table row, stored as the last column of the index entry.
+     */
+    public long rowId() {
+        var entry = record();
+        return entry.getLong(entry.columnCount() - 1);
+    }
+
+    /**
+     * Estimates how many of the {@code entries} of the index share each value of its first column, from the
+     * pages on one path down the tree. Entries of a page that repeat a value mean that value spans several
+     * subtrees, so the page's subtree is shared among its distinct values; a page whose entries are all distinct
+     * tells nothing, and the estimate continues in the subtree after its first non-NULL entry. NULLs, which no
+     * equality matches, are left out.
+     */
+    public double entriesPerKey(long entries) throws IOException {
+        try {
+            reset();
+            var frame = push(rootPage);
+            double covered = entries;
+            while (true) {
+                int first = 0;
+                while (first < frame.cellCount && frame.cell(first).recordView(probe).isNull(0)) {
+                    first++;
+                }
+                int distinct = 0;
+                Object previous = null;
+                for (int i = first; i < frame.cellCount; ++i) {
+                    var entry = frame.cell(i).recordView(probe);
+                    if (previous == null || entry.compare(0, previous) != 0) {
+                        distinct++;
+                        previous = entry.getValue(0);
+                    }
+                }
+                int nonNull = frame.cellCount - first;
+                if (frame.isLeaf() || distinct < nonNull) {
+                    double share = frame.isLeaf() ? nonNull : covered * nonNull / frame.cellCount;
+                    return distinct == 0 ? 1 : Math.max(1, share / distinct);
+                }
+                covered /= frame.cellCount + 1;
+                frame = push(frame.childPage(Math.min(first + 1, frame.cellCount)));
+            }
+        } finally {
+            reset();
+        }
+    }
+
+    private static int compare(RecordView entry, Object[] key) {
+        for (int i = 0; i < key.length; ++i) {
+            int c = entry.compare(i, key[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+}
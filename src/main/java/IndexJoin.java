@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Index nested-loop join: for each outer row, the inner rows with the same key are found by a seek, on the
+ * rowid when the inner key is the INTEGER PRIMARY KEY, or else in an index whose first column is the inner key,
+ * each entry then being looked up in the table. Every outer row costs a descent, but no inner row that does not
+ * match is read, which suits a small outer input joined with a large table.
+ * <p>
+ * The inner key must need no conversion for the comparison, so that the outer key, converted with the key's
+ * affinity, is found by the B-tree's own ordering.
+ */
+public class IndexJoin extends EquiJoin {
+    private final Operator<TableRow> outer;
+    private final Schema.Index index;
+    private final RowPredicate innerPredicate;
+    private final TableCursor tableCursor;
+    private final IndexCursor indexCursor;
+    private final TableRow innerRow;
+
+    // the outer key whose index entries are being visited, null between outer rows
+    private Object probe;
+    private Object[] row;
+
+    /**
+     * @param index          the index to seek in, {@code null} to seek the inner table by rowid
+     * @param innerPredicate conjuncts on the inner table alone, tested on each inner row found; may be null
+     */
+    public IndexJoin(Operator<TableRow> outer, PageCache pageCache, PageSource pageSource, Schema inner,
+                     Schema.Index index, Key key, List<Key> otherKeys, List<Column> output, RowPredicate innerPredicate) {
+        super(key, otherKeys, output);
+        this.outer = outer;
+        this.index = index;
+        this.innerPredicate = innerPredicate;
+        this.tableCursor = new TableCursor(pageCache, pageSource, inner.pageNumber);
+        this.indexCursor = index == null ? null : new IndexCursor(pageCache, pageSource, index.pageNumber());
+        this.innerRow = new TableRow(TableRow.rowIdAlias(inner));
+    }
+
+    @Override
+    public void open() throws IOException {
+        outer.open();
+        probe = null;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            boolean found = probe != null && nextEntry();
+            if (!found) {
+                if (!outer.next()) {
+                    return false;
+                }
+                found = seek(outer.row());
+            }
+            if (found && (innerPredicate == null || innerPredicate.eval(innerRow)) && otherKeysMatch(outer.row())) {
+                row = joined(outer.row());
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Finds the first inner row with the key of {@code outerRow}.
+     */
+    private boolean seek(TableRow outerRow) throws IOException {
+        probe = null;
+        var value = RowPredicate.affinity(key.affinity(), outerRow.value(key.outer()));
+        if (index == null) {
+            // rowids are integers: an integral real finds its row, anything else none
+            return switch (value) {
+                case Long l -> lookUp(l);
+                case Double d when d == Math.rint(d) && Math.abs(d) < 9.2e18 -> lookUp((long) (double) d);
+                case null, default -> false;
+            };
+        }
+        if (value == null || !indexCursor.seek(value)) {
+            return false;
+        }
+        probe = value;
+        return matchEntries();
+    }
+
+    private boolean nextEntry() throws IOException {
+        return indexCursor.next() && matchEntries();
+    }
+
+    /**
+     * Looks up the row of the current index entry, or of the first entry after it whose row exists, as long as
+     * the entries have the probed key.
+     */
+    private boolean matchEntries() throws IOException {
+        do {
+            if (indexCursor.compareKey(probe) != 0) {
+                probe = null;
+                return false;
+            }
+            // an index entry without its table row means a corrupt file; skip it as RowidLookup does
+            if (lookUp(indexCursor.rowId())) {
+                return true;
+            }
+        } while (indexCursor.next());
+        probe = null;
+        return false;
+    }
+
+    private boolean lookUp(long rowId) throws IOException {
+        if (!tableCursor.seekForward(rowId)) {
+            return false;
+        }
+        innerRow.set(rowId, tableCursor.record());
+        return true;
+    }
+
+    @Override
+    protected Object innerValue(int column) {
+        return innerRow.value(column);
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        outer.close();
+        tableCursor.close();
+        if (indexCursor != null) {
+            indexCursor.close();
+        }
+    }
+}
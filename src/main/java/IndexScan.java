@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Visits the entries of an index in index order: those whose leading columns equal a key prefix and, optionally,
+ * whose next column lies within a range. The scan seeks to the lower end and stops at the first entry past the
+ * upper end, so only the matching part of the index is read. Rows are the index entries themselves: their rowid
+ * points at the table row and their record holds the indexed columns.
+ */
+public class IndexScan implements Operator<TableRow> {
+    /**
+     * One end of a range; values compare in SQLite's sort order, as {@link RecordView#compare(int, Object)} does.
+     */
+    public record Bound(Object value, boolean inclusive) {
+    }
+
+    private final IndexCursor cursor;
+    private final Object[] prefix;
+    // prefix followed by the bound's value, null for an open end
+    private final Object[] lowerKey;
+    private final Object[] upperKey;
+    private final boolean lowerInclusive;
+    private final boolean upperInclusive;
+    private final TableRow row = new TableRow(-1);
+    private boolean started;
+
+    public IndexScan(PageCache pageCache, PageSource pageSource, Schema.Index index, Object... key) {
+        this(pageCache, pageSource, index, key, null, null);
+    }
+
+    /**
+     * @param prefix values of the leading index columns
+     * @param lower  lower end for the column after the prefix, {@code null} for none
+     * @param upper  upper end for that column, {@code null} for none
+     */
+    public IndexScan(PageCache pageCache, PageSource pageSource, Schema.Index index, Object[] prefix, Bound lower, Bound upper) {
+        this.cursor = new IndexCursor(pageCache, pageSource, index.pageNumber());
+        this.prefix = prefix;
+        this.lowerKey = lower == null ? null : append(prefix, lower.value());
+        this.upperKey = upper == null ? null : append(prefix, upper.value());
+        this.lowerInclusive = lower == null || lower.inclusive();
+        this.upperInclusive = upper == null || upper.inclusive();
+    }
+
+    private static Object[] append(Object[] prefix, Object value) {
+        var key = Arrays.copyOf(prefix, prefix.length + 1);
+        key[prefix.length] = value;
+        return key;
+    }
+
+    @Override
+    public void open() {
+        started = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        boolean more;
+        if (started) {
+            more = cursor.next();
+        } else {
+            started = true;
+            more = cursor.seek(lowerKey != null ? lowerKey : prefix);
+            if (lowerKey != null && !lowerInclusive) {
+                while (more && cursor.compareKey(lowerKey) == 0) {
+                    more = cursor.next();
+                }
+            } else if (lowerKey == null && upperKey != null) {
+                // NULLs sort first and satisfy no comparison
+                while (more && cursor.compareKey(prefix) == 0 && cursor.record().isNull(prefix.length)) {
+                    more = cursor.next();
+                }
+            }
+        }
+        if (!more || cursor.compareKey(prefix) != 0) {
+            return false;
+        }
+        if (upperKey != null) {
+            int c = cursor.compareKey(upperKey);
+            if (c > 0 || c == 0 && !upperInclusive) {
+                return false;
+            }
+        }
+        row.set(cursor.rowId(), cursor.record());
+        return true;
+    }
+
+    @Override
+    public TableRow row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
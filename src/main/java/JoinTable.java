@@ -0,0 +1,286 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The build side of a hash join: rows, materialized as the values the join needs from them, found by their join
+ * key.
+ * <p>
+ * Integer keys, and reals equal to an integer, are kept in an open-addressing table of primitive longs. Other
+ * keys (text, blobs and the remaining reals) are encoded as a storage class tag followed by their bytes, copied
+ * straight from the record into one byte arena and found through a second open-addressing table, as
+ * {@link GroupTable} does. Looking up a row's key therefore allocates nothing unless the key has to be converted.
+ * Rows with equal keys are chained; a NULL key equals nothing, so its row is not added.
+ * <p>
+ * Keys on both sides are converted with the affinity SQLite applies to the comparison, so that with a numeric
+ * column on either side, text that looks like a number matches the number.
+ */
+public class JoinTable {
+    private static final int INITIAL_KEYS = 16;
+
+    // encode() results other than the length of a key in key bytes
+    private static final int NO_KEY = -1;
+    private static final int LONG_KEY = -2;
+
+    private final Schema.Affinity affinity;
+
+    private final List<Object[]> rows = new ArrayList<>();
+    // per row, the previously added row with the same key, -1 at the end of a chain
+    private int[] next = new int[INITIAL_KEYS];
+
+    // integer keys by slot, with the last row added under each + 1; a zero head is an empty slot
+    private long[] longKeys = new long[INITIAL_KEYS * 2];
+    private int[] longHeads = new int[INITIAL_KEYS * 2];
+    private int longCount;
+
+    // encoded keys back to back, and per key its offset, length, hash and last row added under it
+    private byte[] arena = new byte[256];
+    private int arenaSize;
+    private int[] keyOffsets = new int[INITIAL_KEYS];
+    private int[] keyLengths = new int[INITIAL_KEYS];
+    private int[] hashes = new int[INITIAL_KEYS];
+    private int[] keyHeads = new int[INITIAL_KEYS];
+    private int keyCount;
+    // key number + 1 per slot, 0 for an empty slot; at most half full
+    private int[] slots = new int[INITIAL_KEYS * 2];
+
+    // the key of the row being added or looked up: an integer, or encoded bytes
+    private long longKey;
+    private byte[] key = new byte[64];
+
+    /**
+     * @param affinity the affinity applied to the keys before they are compared: NUMERIC, TEXT, or BLOB for none
+     */
+    public JoinTable(Schema.Affinity affinity) {
+        this.affinity = affinity;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * Adds {@code values} under the key in column {@code column} of {@code row}, unless that key is NULL.
+     */
+    public void add(TableRow row, int column, Object[] values) {
+        int length = encode(row, column);
+        if (length == NO_KEY) {
+            return;
+        }
+        int index = rows.size();
+        rows.add(values);
+        if (index == next.length) {
+            next = Arrays.copyOf(next, index * 2);
+        }
+        next[index] = length == LONG_KEY ? addLong(index) : addBytes(length, index);
+    }
+
+    /**
+     * The first row added with the key in column {@code column} of {@code row}, -1 if there is none.
+     */
+    public int first(TableRow row, int column) {
+        int length = encode(row, column);
+        if (length == NO_KEY) {
+            return -1;
+        }
+        if (length == LONG_KEY) {
+            return longHeads[longSlot(longKey)] - 1;
+        }
+        int found = keySlot(length, hash(key, length));
+        return slots[found] == 0 ? -1 : keyHeads[slots[found] - 1];
+    }
+
+    /**
+     * The row after {@code row} with the same key, -1 after the last one.
+     */
+    public int next(int row) {
+        return next[row];
+    }
+
+    public Object[] row(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Makes {@code index} the head of the chain of {@link #longKey}.
+     *
+     * @return the previous head, -1 for a new key
+     */
+    private int addLong(int index) {
+        int slot = longSlot(longKey);
+        int previous = longHeads[slot] - 1;
+        longKeys[slot] = longKey;
+        longHeads[slot] = index + 1;
+        if (previous < 0 && ++longCount * 2 > longKeys.length) {
+            long[] keys = longKeys;
+            int[] heads = longHeads;
+            longKeys = new long[keys.length * 2];
+            longHeads = new int[keys.length * 2];
+            for (int i = 0; i < keys.length; ++i) {
+                if (heads[i] != 0) {
+                    int moved = longSlot(keys[i]);
+                    longKeys[moved] = keys[i];
+                    longHeads[moved] = heads[i];
+                }
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * The slot of an integer key, or the empty slot where it would go.
+     */
+    private int longSlot(long value) {
+        int mask = longKeys.length - 1;
+        int slot = (int) ((value * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        while (longHeads[slot] != 0 && longKeys[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Makes {@code index} the head of the chain of the first {@code length} bytes of {@link #key}.
+     *
+     * @return the previous head, -1 for a new key
+     */
+    private int addBytes(int length, int index) {
+        int hash = hash(key, length);
+        int slot = keySlot(length, hash);
+        if (slots[slot] != 0) {
+            int keyNumber = slots[slot] - 1;
+            int previous = keyHeads[keyNumber];
+            keyHeads[keyNumber] = index;
+            return previous;
+        }
+        int keyNumber = keyCount++;
+        if (keyNumber == hashes.length) {
+            int capacity = keyNumber * 2;
+            keyOffsets = Arrays.copyOf(keyOffsets, capacity);
+            keyLengths = Arrays.copyOf(keyLengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            keyHeads = Arrays.copyOf(keyHeads, capacity);
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arenaSize + length, arena.length * 2));
+        }
+        System.arraycopy(key, 0, arena, arenaSize, length);
+        keyOffsets[keyNumber] = arenaSize;
+        keyLengths[keyNumber] = length;
+        hashes[keyNumber] = hash;
+        keyHeads[keyNumber] = index;
+        arenaSize += length;
+        slots[slot] = keyNumber + 1;
+        if (keyCount * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            int mask = slots.length - 1;
+            for (int k = 0; k < keyCount; ++k) {
+                int s = hashes[k] & mask;
+                while (slots[s] != 0) {
+                    s = (s + 1) & mask;
+                }
+                slots[s] = k + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The slot of the first {@code length} bytes of {@link #key}, or the empty slot where they would go.
+     */
+    private int keySlot(int length, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int keyNumber = slots[slot] - 1;
+            if (keyNumber < 0 || hashes[keyNumber] == hash && keyLengths[keyNumber] == length
+                    && Arrays.equals(arena, keyOffsets[keyNumber], keyOffsets[keyNumber] + length, key, 0, length)) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Sets the key of column {@code n} of a row: integers and text or blobs that need no conversion are read
+     * straight from the record, anything else is decoded and converted first.
+     *
+     * @return the length of the key bytes, {@link #LONG_KEY} for an integer key or {@link #NO_KEY} for NULL
+     */
+    private int encode(TableRow row, int n) {
+        if (n == row.rowIdAlias) {
+            longKey = row.rowId;
+            return LONG_KEY;
+        }
+        int serialType = row.record.serialType(n);
+        if (serialType == 0) {
+            return NO_KEY;
+        }
+        if (serialType < 12 && serialType != 7 && affinity != Schema.Affinity.TEXT) {
+            longKey = row.record.getLong(n);
+            return LONG_KEY;
+        }
+        boolean text = serialType >= 12 && (serialType & 1) == 1;
+        if (serialType >= 12 && !(text && affinity == Schema.Affinity.NUMERIC)) {
+            int size = row.record.contentLength(n);
+            ensureKeyCapacity(1 + size);
+            key[0] = text ? ColumnVector.TEXT : ColumnVector.BLOB;
+            row.record.getBytes(n, key, 1);
+            return 1 + size;
+        }
+        return encode(RowPredicate.affinity(affinity, row.value(n)));
+    }
+
+    private int encode(Object value) {
+        switch (value) {
+            case null -> {
+                return NO_KEY;
+            }
+            case Long l -> {
+                longKey = l;
+                return LONG_KEY;
+            }
+            case Double d when d == Math.rint(d) && Math.abs(d) < 9.2e18 -> {
+                // an integral real equals the integer
+                longKey = (long) (double) d;
+                return LONG_KEY;
+            }
+            case Double d -> {
+                key[0] = ColumnVector.REAL;
+                long bits = Double.doubleToLongBits(d);
+                for (int i = 0; i < 8; ++i) {
+                    key[1 + i] = (byte) (bits >>> (56 - 8 * i));
+                }
+                return 9;
+            }
+            case String s -> {
+                return bytes(ColumnVector.TEXT, s.getBytes(StandardCharsets.UTF_8));
+            }
+            default -> {
+                return bytes(ColumnVector.BLOB, (byte[]) value);
+            }
+        }
+    }
+
+    private int bytes(byte type, byte[] contents) {
+        ensureKeyCapacity(1 + contents.length);
+        key[0] = type;
+        System.arraycopy(contents, 0, key, 1, contents.length);
+        return 1 + contents.length;
+    }
+
+    private void ensureKeyCapacity(int capacity) {
+        if (capacity > key.length) {
+            key = Arrays.copyOf(key, Math.max(capacity, key.length * 2));
+        }
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int h = 1;
+        for (int i = 0; i < length; ++i) {
+            h = 31 * h + bytes[i];
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * {@code count(*)} of a whole table: adds up the cell counts of its leaf pages without reading any cell.
+ * <p>
+ * Interior pages go through the page cache, but a leaf that is not resident is never loaded: only the first
+ * bytes of its page header, which hold the page type and the cell count, are read from the file. With more
+ * than one worker, the tree is split into subtrees as {@link ParallelScan} does and they are counted
+ * concurrently.
+ */
+public class LeafCount implements Operator<Object[]> {
+    // page type, first freeblock and cell count
+    private static final int HEADER_BYTES = 5;
+
+    private final PageCache pageCache;
+    private final PageSource pageSource;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int rootPage;
+    private boolean done;
+    private Object[] row;
+
+    public LeafCount(PageCache pageCache, PageSource pageSource, int rootPage) {
+        this(pageCache, pageSource, ForkJoinPool.commonPool(), 1, rootPage);
+    }
+
+    public LeafCount(PageCache pageCache, PageSource pageSource, ForkJoinPool pool, int parallelism, int rootPage) {
+        this.pageCache = pageCache;
+        this.pageSource = pageSource;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.rootPage = rootPage;
+    }
+
+    @Override
+    public void open() {
+        done = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (done) {
+            return false;
+        }
+        row = new Object[]{parallelism > 1 ? countInParallel() : count(rootPage)};
+        done = true;
+        return true;
+    }
+
+    private long countInParallel() throws IOException {
+        int target = parallelism * ParallelScan.PARTITIONS_PER_WORKER;
+        var subtrees = ParallelScan.partition(pageCache, rootPage, target);
+        int perTask = (subtrees.size() + target - 1) / target;
+        List<Future<Long>> tasks = new ArrayList<>();
+        for (int start = 0; start < subtrees.size(); start += perTask) {
+            var run = subtrees.subList(start, Math.min(start + perTask, subtrees.size()));
+            tasks.add(pool.submit(() -> {
+                long count = 0;
+                for (int subtree : run) {
+                    count += count(subtree);
+                }
+                return count;
+            }));
+        }
+        long count = 0;
+        for (var task : tasks) {
+            count += ParallelScan.join(task);
+        }
+        return count;
+    }
+
+    /**
+     * Number of rows in the subtree rooted at {@code pageNumber}.
+     */
+    private long count(int pageNumber) throws IOException {
+        var resident = pageCache.peek(pageNumber);
+        if (resident != null && resident.btreePageHeader.pageType == BtreeCursor.LEAF_TABLE) {
+            return resident.btreePageHeader.cellCounts & 0xFFFF;
+        }
+        if (resident == null && pageNumber != 1) {
+            ByteBuffer header = pageSource.read(PageSource.pageOffset(pageNumber, pageSource.pageSize()), HEADER_BYTES);
+            if (header.get(0) == BtreeCursor.LEAF_TABLE) {
+                return header.getShort(3) & 0xFFFF;
+            }
+        }
+        var page = pageCache.pin(pageNumber);
+        try {
+            var header = page.btreePageHeader;
+            if (header.pageType != BtreeCursor.INTERIOR_TABLE) {
+                return header.cellCounts & 0xFFFF;
+            }
+            var buffer = page.buffer();
+            long count = 0;
+            for (short cellPointer : page.cellPointerArray) {
+                count += count(buffer.getInt(cellPointer & 0xFFFF));
+            }
+            return count + count(header.rightMostPointer);
+        } finally {
+            pageCache.unpin(page);
+        }
+    }
+
+    /**
+     * Estimates the number of entries in the tree rooted at {@code rootPage} from the fan-out of the pages on its
+     * leftmost path, reading one page per level.
+     */
+    static long estimate(PageCache pageCache, int rootPage) throws IOException {
+        long estimate = 1;
+        int pageNumber = rootPage;
+        while (true) {
+            var page = pageCache.pin(pageNumber);
+            try {
+                var header = page.btreePageHeader;
+                int cells = header.cellCounts & 0xFFFF;
+                if (header.pageType == BtreeCursor.LEAF_TABLE || header.pageType == BtreeCursor.LEAF_INDEX) {
+                    return estimate * cells;
+                }
+                estimate *= cells + 1;
+                pageNumber = cells == 0 ? header.rightMostPointer : page.buffer().getInt(page.cellPointerArray[0] & 0xFFFF);
+            } finally {
+                pageCache.unpin(page);
+            }
+        }
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Splits SQL text into tokens. Keywords are returned as {@link Type#IDENTIFIER}s and recognized by the parser
+ * where it expects them, so that a keyword can still name a table or column.
+ */
+public class Lexer {
+    public enum Type {
+        IDENTIFIER,
+        // an identifier in "", `` or []: never a keyword
+        QUOTED_IDENTIFIER,
+        STRING,
+        INTEGER,
+        FLOAT,
+        BLOB,
+        PARAMETER,
+        OPERATOR,
+        END
+    }
+
+    public record Token(Type type, String text, int position) {
+        boolean is(String keywordOrOperator) {
+            return (type == Type.IDENTIFIER || type == Type.OPERATOR) && text.equalsIgnoreCase(keywordOrOperator);
+        }
+    }
+
+    private static final List<String> OPERATORS = List.of(
+            "||", "<=", ">=", "==", "!=", "<>", "<<", ">>",
+            "(", ")", ",", ".", ";", "*", "/", "%", "+", "-", "=", "<", ">", "&", "|", "~");
+
+    private final String sql;
+    private int pos;
+
+    private Lexer(String sql) {
+        this.sql = sql;
+    }
+
+    public static List<Token> tokenize(String sql) {
+        var lexer = new Lexer(sql);
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.nextToken();
+            tokens.add(token);
+        } while (token.type() != Type.END);
+        return tokens;
+    }
+
+    private Token nextToken() {
+        skipWhitespaceAndComments();
+        if (pos == sql.length()) {
+            return new Token(Type.END, "", pos);
+        }
+        int start = pos;
+        char c = sql.charAt(pos);
+        if ((c == 'x' || c == 'X') && pos + 1 < sql.length() && sql.charAt(pos + 1) == '\'') {
+            pos++;
+            String hex = quoted('\'');
+            if (hex.length() % 2 != 0) {
+                throw error("malformed blob literal", start);
+            }
+            return new Token(Type.BLOB, hex, start);
+        }
+        if (Character.isLetter(c) || c == '_' || c >= 0x80) {
+            while (pos < sql.length() && isIdentifierPart(sql.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Type.IDENTIFIER, sql.substring(start, pos), start);
+        }
+        if (Character.isDigit(c) || c == '.' && pos + 1 < sql.length() && Character.isDigit(sql.charAt(pos + 1))) {
+            return number(start);
+        }
+        switch (c) {
+            case '\'':
+                return new Token(Type.STRING, quoted('\''), start);
+            case '"':
+                return new Token(Type.QUOTED_IDENTIFIER, quoted('"'), start);
+            case '`':
+                return new Token(Type.QUOTED_IDENTIFIER, quoted('`'), start);
+            case '[': {
+                int close = sql.indexOf(']', pos + 1);
+                if (close < 0) {
+                    throw error("unterminated identifier", start);
+                }
+                pos = close + 1;
+                return new Token(Type.QUOTED_IDENTIFIER, sql.substring(start + 1, close), start);
+            }
+            case '?': {
+                pos++;
+                while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                    pos++;
+                }
+                return new Token(Type.PARAMETER, sql.substring(start + 1, pos), start);
+            }
+            default:
+                for (var op : OPERATORS) {
+                    if (sql.startsWith(op, pos)) {
+                        pos += op.length();
+                        return new Token(Type.OPERATOR, op, start);
+                    }
+                }
+                throw error("unrecognized token \"" + c + "\"", start);
+        }
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c >= 0x80;
+    }
+
+    private Token number(int start) {
+        boolean isFloat = false;
+        if (sql.startsWith("0x", pos) || sql.startsWith("0X", pos)) {
+            pos += 2;
+            while (pos < sql.length() && HexFormat.isHexDigit(sql.charAt(pos))) {
+                pos++;
+            }
+            return new Token(Type.INTEGER, sql.substring(start, pos), start);
+        }
+        while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+            pos++;
+        }
+        if (pos < sql.length() && sql.charAt(pos) == '.') {
+            isFloat = true;
+            pos++;
+            while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (pos < sql.length() && (sql.charAt(pos) == 'e' || sql.charAt(pos) == 'E')) {
+            isFloat = true;
+            pos++;
+            if (pos < sql.length() && (sql.charAt(pos) == '+' || sql.charAt(pos) == '-')) {
+                pos++;
+            }
+            while (pos < sql.length() && Character.isDigit(sql.charAt(pos))) {
+                pos++;
+            }
+        }
+        return new Token(isFloat ? Type.FLOAT : Type.INTEGER, sql.substring(start, pos), start);
+    }
+
+    /**
+     * Reads a literal delimited by {@code quote}, in which a doubled quote stands for itself.
+     */
+    private String quoted(char quote) {
+        int start = pos;
+        var text = new StringBuilder();
+        pos++;
+        while (true) {
+            if (pos >= sql.length()) {
+                throw error("unterminated literal", start);
+            }
+            char c = sql.charAt(pos++);
+            if (c == quote) {
+                if (pos < sql.length() && sql.charAt(pos) == quote) {
+                    pos++;
+                } else {
+                    return text.toString();
+                }
+            }
+            text.append(c);
+        }
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (pos < sql.length()) {
+            char c = sql.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (sql.startsWith("--", pos)) {
+                int end = sql.indexOf('\n', pos);
+                pos = end < 0 ? sql.length() : end + 1;
+            } else if (sql.startsWith("/*", pos)) {
+                int end = sql.indexOf("*/", pos + 2);
+                pos = end < 0 ? sql.length() : end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private RuntimeException error(String message, int position) {
+        return new RuntimeException(message + " at offset " + position);
+    }
+}
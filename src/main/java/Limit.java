@@ -0,0 +1,57 @@
+import java.io.IOException;
+
+/**
+ * Skips the first {@code offset} rows of its child and passes on at most {@code limit} of the rest. Once they
+ * are out it stops pulling, so the scans below it read no further pages.
+ */
+public class Limit<R> implements Operator<R> {
+    private final Operator<R> child;
+    private final long limit;
+    private final long offset;
+    private long count;
+
+    public Limit(Operator<R> child, long limit) {
+        this(child, limit, 0);
+    }
+
+    /**
+     * @param limit maximum number of rows, negative for no limit as in SQLite
+     */
+    public Limit(Operator<R> child, long limit, long offset) {
+        this.child = child;
+        this.limit = limit < 0 ? Long.MAX_VALUE : limit;
+        this.offset = offset;
+    }
+
+    @Override
+    public void open() throws IOException {
+        count = 0;
+        child.open();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (count == 0) {
+            for (long skipped = 0; skipped < offset; ++skipped) {
+                if (!child.next()) {
+                    return false;
+                }
+            }
+        }
+        if (count >= limit) {
+            return false;
+        }
+        count++;
+        return child.next();
+    }
+
+    @Override
+    public R row() {
+        return child.row();
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
@@ -1,65 +1,153 @@
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.InputStreamReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Locale;
 
 public class Main {
     public static void main(String[] args) throws IOException {
-        if (args.length < 2) {
+        if (args.length < 1) {
             System.out.println("Missing <database path> and <command>");
             return;
         }
 
         String databaseFilePath = args[0];
-        String command = args[1];
-        DB db = new DB(databaseFilePath);
+        // rows bypass System.out: no per-line flushing, and no charset encoder for digits and ASCII text
+        var out = new RowWriter(new FileOutputStream(FileDescriptor.out));
+        try (DB db = new DB(databaseFilePath)) {
+            if (args.length < 2) {
+                // session mode: every statement on stdin runs against the same open database
+                var in = new BufferedReader(new InputStreamReader(System.in));
+                runScript(db, in, System.console() != null, out);
+            } else {
+                execute(db, args[1], out);
+            }
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Executes the statements read from {@code in}. Dot-commands take a line each; SQL statements end with a
+     * semicolon and may span lines. A failing statement is reported and the script continues.
+     */
+    static void runScript(DB db, BufferedReader in, boolean interactive, RowWriter out) throws IOException {
+        StringBuilder statement = new StringBuilder();
+        prompt(interactive, statement);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (statement.isEmpty() && line.trim().startsWith(".")) {
+                executeAndReport(db, line.trim(), out);
+            } else {
+                statement.append(line.strip()).append(' ');
+                int end;
+                while ((end = statementEnd(statement)) >= 0) {
+                    var sql = statement.substring(0, end).trim();
+                    statement.delete(0, end + 1);
+                    if (!sql.isEmpty()) {
+                        executeAndReport(db, sql, out);
+                    }
+                }
+                if (statement.toString().isBlank()) {
+                    statement.setLength(0);
+                }
+            }
+            prompt(interactive, statement);
+        }
+        if (!statement.toString().isBlank()) {
+            executeAndReport(db, statement.toString().trim(), out);
+        }
+    }
 
+    static void execute(DB db, String command, RowWriter out) throws IOException {
+        if (command.startsWith(".read ")) {
+            try (var in = Files.newBufferedReader(Path.of(command.substring(".read ".length()).trim()))) {
+                runScript(db, in, false, out);
+            }
+            return;
+        }
         switch (command) {
             case ".dbinfo" -> {
                 try {
                     var dbInfo = db.dbInfo();
-                    System.out.printf("database page size: %d\n", dbInfo.pageSize());
-                    System.out.printf("number of tables: %d\n", dbInfo.numberOfTables());
-                } catch (IOException e) {
-                    System.out.println("Error reading file: " + e.getMessage());
-                }
-            }
-            case ".tables" -> {
-                try {
-                    db.printTableNames();
+                    out.writeLine("database page size: " + dbInfo.pageSize());
+                    out.writeLine("number of tables: " + dbInfo.numberOfTables());
                 } catch (IOException e) {
-                    throw new RuntimeException(e);
+                    out.writeLine("Error reading file: " + e.getMessage());
                 }
             }
+            case ".tables" -> out.writeLine(String.join(" ", db.tableNames()));
+            case ".stats" -> writeStats(db, out);
             default -> {
-                var query = Query.parse(command);
-                if(query.getColumns().size() == 1 && query.getColumns().get(0).equalsIgnoreCase("count(*)")){
-                    try {
-                        var c = db.countRows(query.getTable());
-                        System.out.println(c);
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                }else{
-                    try {
-                        var result = db.runQuery(query);
-                        for(var res : result){
-                            System.out.println(String.join("|", res));
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    }
-
-                }
+                // rows are written as the plan produces them
+                db.runQuery(command, out);
             }
         }
     }
-}
 
+    /**
+     * Writes the work done by the last statement next to that done since the database was opened.
+     */
+    private static void writeStats(DB db, RowWriter out) throws IOException {
+        var last = db.lastQueryMetrics();
+        var total = db.metrics();
+        out.writeLine(String.format(Locale.ROOT, "%-16s %16s %16s", "", "last statement", "total"));
+        writeStat(out, "statements", last.queries(), total.queries());
+        writeStat(out, "rows", last.rows(), total.rows());
+        writeStat(out, "page accesses", last.pageAccesses(), total.pageAccesses());
+        writeStat(out, "cache misses", last.cacheMisses(), total.cacheMisses());
+        writeStat(out, "page reads", last.pageReads(), total.pageReads());
+        writeStat(out, "bytes read", last.bytesRead(), total.bytesRead());
+        writeStat(out, "cells decoded", last.cellsDecoded(), total.cellsDecoded());
+        writeStat(out, "records decoded", last.recordsDecoded(), total.recordsDecoded());
+        out.writeLine(String.format(Locale.ROOT, "%-16s %16.3f %16.3f", "time (ms)", last.nanos() / 1e6, total.nanos() / 1e6));
+    }
+
+    private static void writeStat(RowWriter out, String name, long last, long total) throws IOException {
+        out.writeLine(String.format(Locale.ROOT, "%-16s %16d %16d", name, last, total));
+    }
 
+    private static void executeAndReport(DB db, String command, RowWriter out) {
+        try {
+            execute(db, command, out);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            try {
+                out.flush();
+            } catch (IOException ignored) {
+                // stdout is gone, the error below is all that can still be reported
+            }
+            System.err.println("Error: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Index of the first semicolon outside a quoted literal or identifier, -1 if the statement is incomplete.
+     */
+    private static int statementEnd(CharSequence text) {
+        char quote = 0;
+        for (int i = 0; i < text.length(); ++i) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == ';') {
+                return i;
+            }
+        }
+        return -1;
+    }
 
+    private static void prompt(boolean interactive, CharSequence pending) {
+        if (interactive) {
+            System.out.print(pending.isEmpty() ? "sqlite> " : "   ...> ");
+            System.out.flush();
+        }
+    }
+}
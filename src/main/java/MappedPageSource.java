@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Page source over a memory-mapped file. A single mapping is limited to 2 GB, so the file is mapped in
+ * segments whose size is a multiple of the page size; a page never straddles two segments and is handed
+ * out as a read-only slice without copying.
+ */
+public final class MappedPageSource implements PageSource {
+    static final long DEFAULT_SEGMENT_BYTES = 1L << 30;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int usableSize;
+    private final long segmentBytes;
+    private final MappedByteBuffer[] segments;
+
+    public MappedPageSource(String databaseFilePath) throws IOException {
+        this(databaseFilePath, DEFAULT_SEGMENT_BYTES);
+    }
+
+    public MappedPageSource(String databaseFilePath, long segmentBytes) throws IOException {
+        this.channel = FileChannel.open(Path.of(databaseFilePath), StandardOpenOption.READ);
+        long fileSize = channel.size();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(100, fileSize));
+        this.pageSize = PageSource.pageSize(header);
+        this.usableSize = PageSource.usableSize(header);
+        this.segmentBytes = Math.max(pageSize, segmentBytes / pageSize * pageSize);
+
+        int segmentCount = (int) ((fileSize + this.segmentBytes - 1) / this.segmentBytes);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; ++i) {
+            long start = i * this.segmentBytes;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(this.segmentBytes, fileSize - start));
+        }
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int usableSize() {
+        return usableSize;
+    }
+
+    @Override
+    public ByteBuffer readPage(int pageNumber) throws IOException {
+        long offset = PageSource.pageOffset(pageNumber, pageSize);
+        var segment = segment(offset, pageSize);
+        return segment.slice((int) (offset % segmentBytes), pageSize).asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) throws IOException {
+        long end = offset + length;
+        if (offset / segmentBytes == (end - 1) / segmentBytes) {
+            var segment = segment(offset, length);
+            return segment.slice((int) (offset % segmentBytes), length).asReadOnlyBuffer().order(ByteOrder.BIG_ENDIAN);
+        }
+        // the range crosses a segment boundary, stitch it together
+        ByteBuffer result = ByteBuffer.allocate(length);
+        long position = offset;
+        while (position < end) {
+            int inSegment = (int) (position % segmentBytes);
+            int chunk = (int) Math.min(end - position, segmentBytes - inSegment);
+            result.put(segment(position, chunk).slice(inSegment, chunk));
+            position += chunk;
+        }
+        return result.flip().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private MappedByteBuffer segment(long offset, int length) throws IOException {
+        int index = (int) (offset / segmentBytes);
+        if (offset < 0 || index >= segments.length || offset % segmentBytes + length > segments[index].capacity()) {
+            throw new IOException("read past end of file: offset " + offset + ", length " + length);
+        }
+        return segments[index];
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
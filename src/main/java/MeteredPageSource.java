@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Page source that counts the pages and bytes read through it into {@link Metrics} before delegating. Reads
+ * made through the page cache, overflow chains and header reads all go through the database's page source, so
+ * this sees every read the engine makes.
+ */
+public class MeteredPageSource implements PageSource {
+    private final PageSource source;
+    private final Metrics metrics;
+
+    public MeteredPageSource(PageSource source, Metrics metrics) {
+        this.source = source;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int pageSize() {
+        return source.pageSize();
+    }
+
+    @Override
+    public int usableSize() {
+        return source.usableSize();
+    }
+
+    @Override
+    public ByteBuffer readPage(int pageNumber) throws IOException {
+        var page = source.readPage(pageNumber);
+        metrics.pageReads.increment();
+        metrics.bytesRead.add(page.remaining());
+        return page;
+    }
+
+    @Override
+    public ByteBuffer read(long offset, int length) throws IOException {
+        var bytes = source.read(offset, length);
+        // a page header or an overflow pointer, but a trip to the file all the same
+        metrics.pageReads.increment();
+        metrics.bytesRead.add(length);
+        return bytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done against one database since it was opened: statements run, rows returned, pages
+ * read from the file and cells and records decoded from them.
+ * <p>
+ * The counters are {@link LongAdder}s, so scans on several threads do not contend on them. Per-row work is
+ * not added to them directly: cursors count cells and records in plain fields and add them up when they reset
+ * or close, and only page reads, which cost a system call or a page fault anyway, are added one at a time.
+ * The work of a single statement is the difference of two {@link Snapshot}s taken around it.
+ */
+public class Metrics {
+    /**
+     * The counters at one point in time, or the difference between two points. Page accesses are the pages
+     * requested from the {@link PageCache} and cache misses those it had to load; page reads are all reads
+     * from the file, including those of overflow pages and of parts of a page.
+     */
+    public record Snapshot(long queries, long rows, long pageAccesses, long cacheMisses, long pageReads,
+                           long bytesRead, long cellsDecoded, long recordsDecoded, long nanos) {
+        public Snapshot minus(Snapshot earlier) {
+            return new Snapshot(queries - earlier.queries, rows - earlier.rows,
+                    pageAccesses - earlier.pageAccesses, cacheMisses - earlier.cacheMisses,
+                    pageReads - earlier.pageReads, bytesRead - earlier.bytesRead,
+                    cellsDecoded - earlier.cellsDecoded, recordsDecoded - earlier.recordsDecoded, nanos - earlier.nanos);
+        }
+    }
+
+    static final Snapshot NONE = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    final LongAdder queries = new LongAdder();
+    final LongAdder rows = new LongAdder();
+    final LongAdder pageReads = new LongAdder();
+    final LongAdder bytesRead = new LongAdder();
+    final LongAdder cellsDecoded = new LongAdder();
+    final LongAdder recordsDecoded = new LongAdder();
+    // wall-clock time spent executing statements
+    final LongAdder nanos = new LongAdder();
+
+    /**
+     * The counters now, with the page accesses of {@code cache}.
+     */
+    Snapshot snapshot(PageCache.Stats cache) {
+        return new Snapshot(queries.sum(), rows.sum(), cache.hits() + cache.misses(), cache.misses(),
+                pageReads.sum(), bytesRead.sum(), cellsDecoded.sum(), recordsDecoded.sum(), nanos.sum());
+    }
+}
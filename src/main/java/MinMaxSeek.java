@@ -0,0 +1,68 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@code min(x)} and {@code max(x)} over a whole table, read off the ends of a B-tree instead of scanning: the
+ * first and last rowid of the table, or the first non-NULL and the last entry of an index on {@code x}. Each
+ * result column is one descent of its tree.
+ */
+public class MinMaxSeek implements Operator<Object[]> {
+    /**
+     * The end of a tree to read: an index whose first column is the argument, or, when {@code index} is
+     * {@code null}, the table tree rooted at {@code rootPage}, whose keys are the rowids.
+     */
+    public record Seek(int rootPage, Schema.Index index, boolean max) {
+    }
+
+    private final PageCache pageCache;
+    private final PageSource pageSource;
+    private final List<Seek> seeks;
+    private boolean done;
+    private Object[] row;
+
+    public MinMaxSeek(PageCache pageCache, PageSource pageSource, List<Seek> seeks) {
+        this.pageCache = pageCache;
+        this.pageSource = pageSource;
+        this.seeks = seeks;
+    }
+
+    @Override
+    public void open() {
+        done = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (done) {
+            return false;
+        }
+        row = new Object[seeks.size()];
+        for (int i = 0; i < row.length; ++i) {
+            row[i] = value(seeks.get(i));
+        }
+        done = true;
+        return true;
+    }
+
+    private Object value(Seek seek) throws IOException {
+        if (seek.index() == null) {
+            try (var cursor = new TableCursor(pageCache, pageSource, seek.rootPage())) {
+                return (seek.max() ? cursor.last() : cursor.first()) ? (Object) cursor.rowId() : null;
+            }
+        }
+        try (var cursor = new IndexCursor(pageCache, pageSource, seek.index().pageNumber())) {
+            // NULLs sort first, and min() skips them: seek past them to the smallest number
+            boolean found = seek.max() ? cursor.last() : cursor.seek(Double.NEGATIVE_INFINITY);
+            return found ? cursor.record().getValue(0) : null;
+        }
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,31 @@
+import java.io.IOException;
+
+/**
+ * A node of a pull-based (Volcano) query plan. Rows are pulled one at a time from the root with
+ * {@link #next()}; each operator pulls from its children only as far as it needs to, so a plan stops reading
+ * pages as soon as its consumer stops asking for rows.
+ *
+ * @param <R> the row type; rows may be reused by the operator and are only valid until the next call to
+ *            {@link #next()}
+ */
+public interface Operator<R> extends AutoCloseable {
+    void open() throws IOException;
+
+    /**
+     * Advances to the next row.
+     *
+     * @return {@code false} once the operator is exhausted
+     */
+    boolean next() throws IOException;
+
+    /**
+     * The current row.
+     */
+    R row();
+
+    /**
+     * Releases the pages and cursors held by this operator and its children.
+     */
+    @Override
+    void close();
+}
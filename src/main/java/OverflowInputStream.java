@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Streams a cell payload: first the part stored on the B-tree page, then the overflow chain. Overflow pages
+ * are read only when the stream reaches them, and {@link #skip(long)} steps over whole pages by reading just
+ * their 4-byte next-page pointer.
+ */
+public class OverflowInputStream extends InputStream {
+    private final PageSource pageSource;
+    private final int usableSize;
+
+    private ByteBuffer current;
+    private int position;
+    private int end;
+    private int nextPage;
+    // payload bytes not yet returned, including those left in the current chunk
+    private long remaining;
+
+    /**
+     * @param local         buffer holding the on-page part of the payload
+     * @param localOffset   absolute offset of the payload in {@code local}
+     * @param localLength   number of payload bytes stored on the page
+     * @param firstOverflow first overflow page, 0 if the payload fits on the page
+     * @param length        number of payload bytes to stream, at most the total payload size
+     */
+    public OverflowInputStream(PageSource pageSource, ByteBuffer local, int localOffset, int localLength,
+                               int firstOverflow, long length) {
+        this.pageSource = pageSource;
+        this.usableSize = pageSource == null ? 0 : pageSource.usableSize();
+        this.current = local;
+        this.position = localOffset;
+        this.end = localOffset + (int) Math.min(localLength, length);
+        this.nextPage = firstOverflow;
+        this.remaining = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position == end && !advance()) {
+            return -1;
+        }
+        remaining--;
+        return current.get(position++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position == end && !advance()) {
+            return -1;
+        }
+        int n = Math.min(len, end - position);
+        current.get(position, b, off, n);
+        position += n;
+        remaining -= n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        int inChunk = (int) Math.min(n, end - position);
+        position += inChunk;
+        remaining -= inChunk;
+        skipped += inChunk;
+        // step over overflow pages that are skipped entirely without loading them
+        while (n - skipped > 0 && remaining > 0 && nextPage != 0) {
+            long chunk = Math.min(usableSize - 4, remaining);
+            if (n - skipped < chunk) {
+                advance();
+                int partial = (int) (n - skipped);
+                position += partial;
+                remaining -= partial;
+                skipped += partial;
+                break;
+            }
+            nextPage = pageSource.read(PageSource.pageOffset(nextPage, pageSource.pageSize()), 4).getInt(0);
+            remaining -= chunk;
+            skipped += chunk;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return end - position;
+    }
+
+    private boolean advance() throws IOException {
+        if (remaining <= 0 || nextPage == 0) {
+            return false;
+        }
+        current = pageSource.readPage(nextPage);
+        nextPage = current.getInt(0);
+        position = 4;
+        end = 4 + (int) Math.min(usableSize - 4, remaining);
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of parsed B-tree pages keyed by page number, evicting with the CLOCK approximation of LRU.
+ * <p>
+ * Pages handed out by {@link #pin(int)} stay resident until they are released with {@link #unpin(BtreePage)};
+ * only unpinned pages are eligible for eviction once the byte budget is exceeded. The cache is safe for
+ * concurrent use without a global lock: pages are found in a concurrent map and pinned with a compare-and-set
+ * on their pin count, so parallel scans hitting the cache do not serialize. A hit only sets the page's
+ * reference bit. Eviction sweeps the resident pages in insertion order, one thread at a time: a referenced page
+ * loses its bit and gets a second chance, and the first unreferenced, unpinned page goes. Pages are loaded
+ * without holding any lock.
+ */
+public class PageCache {
+    public static final long DEFAULT_CAPACITY_BYTES = 16L * 1024 * 1024;
+
+    public interface PageLoader {
+        BtreePage load(int pageNumber) throws IOException;
+    }
+
+    public record Stats(long hits, long misses, long evictions, int residentPages, long residentBytes) {
+    }
+
+    private static class Entry {
+        final BtreePage page;
+        // -1 once the entry is evicted, after which it can no longer be pinned
+        final AtomicInteger pins = new AtomicInteger();
+        volatile boolean referenced;
+
+        Entry(BtreePage page) {
+            this.page = page;
+        }
+
+        boolean tryPin() {
+            for (int count = pins.get(); count >= 0; count = pins.get()) {
+                if (pins.compareAndSet(count, count + 1)) {
+                    referenced = true;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final PageLoader loader;
+    private final int pageSize;
+    // where the cursors reading through this cache add the cells and records they decode
+    final Metrics metrics;
+    private final long capacityBytes;
+    private final ConcurrentHashMap<Integer, Entry> entries = new ConcurrentHashMap<>();
+    // the clock: resident entries in insertion order, with evicted ones dropped when the sweep reaches them
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger residentPages = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PageCache(PageLoader loader, int pageSize, long capacityBytes) {
+        this(loader, pageSize, capacityBytes, new Metrics());
+    }
+
+    public PageCache(PageLoader loader, int pageSize, long capacityBytes, Metrics metrics) {
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.capacityBytes = capacityBytes;
+        this.metrics = metrics;
+    }
+
+    public BtreePage pin(int pageNumber) throws IOException {
+        Entry entry = entries.get(pageNumber);
+        if (entry != null && entry.tryPin()) {
+            hits.increment();
+            return entry.page;
+        }
+        misses.increment();
+        // read and parse outside any lock so that concurrent scans overlap their I/O
+        BtreePage page = loader.load(pageNumber);
+        while (true) {
+            Entry loaded = new Entry(page);
+            loaded.pins.set(1);
+            entry = entries.putIfAbsent(pageNumber, loaded);
+            if (entry == null) {
+                clock.add(loaded);
+                residentPages.incrementAndGet();
+                evict();
+                return page;
+            }
+            // if another thread loaded the page meanwhile, its copy is the one that stays resident
+            if (entry.tryPin()) {
+                return entry.page;
+            }
+            // that copy is being evicted
+            entries.remove(pageNumber, entry);
+        }
+    }
+
+    /**
+     * The page if it is resident, without pinning or loading it; {@code null} otherwise. The caller must not
+     * hold on to it, as it may be evicted at any time.
+     */
+    public BtreePage peek(int pageNumber) {
+        Entry entry = entries.get(pageNumber);
+        if (entry == null || entry.pins.get() < 0) {
+            return null;
+        }
+        hits.increment();
+        entry.referenced = true;
+        return entry.page;
+    }
+
+    public void unpin(BtreePage page) {
+        Entry entry = entries.get(page.pageNumber);
+        if (entry == null || entry.page != page) {
+            return;
+        }
+        int count;
+        do {
+            count = entry.pins.get();
+            if (count <= 0) {
+                throw new IllegalStateException("page " + page.pageNumber + " is not pinned");
+            }
+        } while (!entry.pins.compareAndSet(count, count - 1));
+        evict();
+    }
+
+    public void clear() {
+        for (var entry : entries.values()) {
+            if (entry.pins.compareAndSet(0, -1)) {
+                remove(entry);
+            }
+        }
+        clock.removeIf(entry -> entry.pins.get() < 0);
+    }
+
+    public Stats stats() {
+        int resident = residentPages.get();
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), resident, (long) resident * pageSize);
+    }
+
+    /**
+     * Pages requested so far, whether they were resident or not; {@link #stats()} without the allocation.
+     */
+    public long accesses() {
+        return hits.sum() + misses.sum();
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * Sweeps the clock until the cache is back within its budget. A thread finding another one sweeping leaves
+     * the work to it.
+     */
+    private void evict() {
+        long maxPages = Math.max(1, capacityBytes / pageSize);
+        if (residentPages.get() <= maxPages || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // enough for every page to lose its reference bit and be seen again; beyond that, all are pinned
+            int chances = 2 * residentPages.get();
+            while (residentPages.get() > maxPages && chances > 0) {
+                Entry entry = clock.poll();
+                if (entry == null) {
+                    return;
+                }
+                if (entry.pins.get() < 0) {
+                    continue;
+                }
+                if (entry.referenced || !entry.pins.compareAndSet(0, -1)) {
+                    entry.referenced = false;
+                    clock.add(entry);
+                    chances--;
+                    continue;
+                }
+                remove(entry);
+                evictions.increment();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops an entry whose pin count was just set to -1.
+     */
+    private void remove(Entry entry) {
+        entries.remove(entry.page.pageNumber, entry);
+        residentPages.decrementAndGet();
+    }
+}
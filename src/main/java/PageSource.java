@@ -0,0 +1,56 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Supplies raw database pages. Page offsets are computed in {@code long} so files larger than 2 GB are addressable.
+ */
+public interface PageSource extends Closeable {
+    enum Kind {
+        RANDOM_ACCESS_FILE,
+        FILE_CHANNEL,
+        MMAP
+    }
+
+    static PageSource open(String databaseFilePath, Kind kind) throws IOException {
+        return switch (kind) {
+            case RANDOM_ACCESS_FILE -> new RandomAccessFilePageSource(databaseFilePath);
+            case FILE_CHANNEL -> new FileChannelPageSource(databaseFilePath);
+            case MMAP -> new MappedPageSource(databaseFilePath);
+        };
+    }
+
+    /**
+     * Reads the page size from the 100 byte database header; the value 1 encodes 65536.
+     */
+    static int pageSize(ByteBuffer header) {
+        int pageSize = header.getShort(16) & 0xFFFF;
+        return pageSize == 1 ? 65536 : pageSize;
+    }
+
+    /**
+     * Usable bytes per page: the page size minus the reserved region whose size is stored at header offset 20.
+     */
+    static int usableSize(ByteBuffer header) {
+        return pageSize(header) - (header.get(20) & 0xFF);
+    }
+
+    static long pageOffset(int pageNumber, int pageSize) {
+        return (pageNumber - 1L) * pageSize;
+    }
+
+    int pageSize();
+
+    int usableSize();
+
+    /**
+     * Returns the full contents of a page (1-based) as a big-endian buffer positioned at 0. Callers must not
+     * modify it: depending on the implementation it may be a view over shared memory.
+     */
+    ByteBuffer readPage(int pageNumber) throws IOException;
+
+    /**
+     * Reads {@code length} bytes at an absolute file offset.
+     */
+    ByteBuffer read(long offset, int length) throws IOException;
+}
@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Full scan of a table B-tree, split into the subtrees below its first interior level(s) and scanned
+ * concurrently on a {@link ForkJoinPool}. Subtrees cover disjoint, consecutive rowid ranges, so returning
+ * their results in partition order yields the rows in rowid order, just like a sequential scan.
+ * <p>
+ * Each worker runs its own plan over its subtrees, typically a filtering scan, which is where the work is.
+ * Only a bounded window of partitions is in flight at a time, and each hands its rows over through a bounded
+ * queue, its worker pausing while the queue is full. At most {@code IN_FLIGHT_PER_WORKER * ROWS_PER_PARTITION}
+ * rows per worker are therefore held, whatever the size of the result. Closing the operator early stops the
+ * partitions in flight and cancels those that have not started.
+ */
+public class ParallelScan implements Operator<Object[]> {
+    /**
+     * Subtrees per worker; more, smaller partitions even out the load when some subtrees are fuller than others.
+     */
+    static final int PARTITIONS_PER_WORKER = 4;
+
+    /**
+     * Partitions scanned or waiting to be consumed, per worker.
+     */
+    static final int IN_FLIGHT_PER_WORKER = 2;
+
+    /**
+     * Rows a partition in flight buffers before its worker waits for them to be consumed.
+     */
+    static final int ROWS_PER_PARTITION = 1024;
+
+    // marks the end of a partition's rows
+    private static final Object[] END = new Object[0];
+
+    /**
+     * Builds the plan scanning the subtree rooted at {@code rootPage}. Plans run concurrently and must produce
+     * a fresh array for every row.
+     */
+    @FunctionalInterface
+    public interface SubtreePlan {
+        Operator<Object[]> plan(int rootPage);
+    }
+
+    private final PageCache pageCache;
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int rootPage;
+    private final SubtreePlan subtreePlan;
+
+    private final ArrayDeque<Partition> inFlight = new ArrayDeque<>();
+    private List<Integer> subtrees;
+    private int perTask;
+    private int nextSubtree;
+    private Object[] row;
+
+    public ParallelScan(PageCache pageCache, ForkJoinPool pool, int parallelism, int rootPage, SubtreePlan subtreePlan) {
+        this.pageCache = pageCache;
+        this.pool = pool;
+        this.parallelism = parallelism;
+        this.rootPage = rootPage;
+        this.subtreePlan = subtreePlan;
+    }
+
+    @Override
+    public void open() throws IOException {
+        int target = parallelism * PARTITIONS_PER_WORKER;
+        subtrees = parallelism > 1 ? partition(pageCache, rootPage, target) : List.of(rootPage);
+        // a level can be much wider than the target; each task takes a run of consecutive subtrees
+        perTask = (subtrees.size() + target - 1) / target;
+        nextSubtree = 0;
+        while (nextSubtree < subtrees.size() && inFlight.size() < parallelism * IN_FLIGHT_PER_WORKER) {
+            submitNext();
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (!inFlight.isEmpty()) {
+            var partition = inFlight.getFirst();
+            Object[] next;
+            try {
+                next = partition.rows.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("scan interrupted", e);
+            }
+            if (next != END) {
+                row = next;
+                return true;
+            }
+            inFlight.removeFirst();
+            // rethrows the failure that ended the partition, if any
+            join(partition.task);
+            if (nextSubtree < subtrees.size()) {
+                submitNext();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        for (var partition : inFlight) {
+            partition.cancelled = true;
+            partition.task.cancel(false);
+            // frees a worker waiting for room, which then sees the partition is cancelled
+            partition.rows.clear();
+        }
+        inFlight.clear();
+    }
+
+    private void submitNext() {
+        var run = subtrees.subList(nextSubtree, Math.min(nextSubtree + perTask, subtrees.size()));
+        nextSubtree += run.size();
+        var partition = new Partition();
+        partition.task = pool.submit(() -> scanSubtrees(run, partition));
+        inFlight.addLast(partition);
+    }
+
+    /**
+     * Root pages of the subtrees at the shallowest level holding at least {@code target} of them, or the leaf
+     * pages if the tree is not that wide. Pages are listed in key order.
+     */
+    static List<Integer> partition(PageCache pageCache, int rootPage, int target) throws IOException {
+        List<Integer> level = List.of(rootPage);
+        while (level.size() < target) {
+            List<Integer> children = new ArrayList<>();
+            for (int pageNumber : level) {
+                var page = pageCache.pin(pageNumber);
+                try {
+                    var header = page.btreePageHeader;
+                    if (header.pageType != BtreeCursor.INTERIOR_TABLE) {
+                        // every leaf is at the same depth, so this level cannot be split any further
+                        return level;
+                    }
+                    var buffer = page.buffer();
+                    for (short cellPointer : page.cellPointerArray) {
+                        children.add(buffer.getInt(cellPointer & 0xFFFF));
+                    }
+                    children.add(header.rightMostPointer);
+                } finally {
+                    pageCache.unpin(page);
+                }
+            }
+            level = children;
+        }
+        return level;
+    }
+
+    private Void scanSubtrees(List<Integer> rootPages, Partition partition) throws IOException, InterruptedException {
+        try {
+            for (int subtree : rootPages) {
+                try (var plan = subtreePlan.plan(subtree)) {
+                    plan.open();
+                    while (!partition.cancelled && plan.next()) {
+                        partition.put(plan.row());
+                    }
+                }
+            }
+        } finally {
+            // also after a failure, which the consumer then finds in the task
+            if (!partition.cancelled) {
+                partition.put(END);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The rows of a run of subtrees, on their way from the worker scanning them to the consumer.
+     */
+    private static final class Partition {
+        final BlockingQueue<Object[]> rows = new ArrayBlockingQueue<>(ROWS_PER_PARTITION);
+        Future<Void> task;
+        volatile boolean cancelled;
+
+        /**
+         * Adds a row, waiting for room; the pool may start another worker meanwhile, so that the partition the
+         * consumer waits for is never stuck behind partitions waiting for it.
+         */
+        void put(Object[] row) throws InterruptedException {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() throws InterruptedException {
+                    rows.put(row);
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return rows.offer(row);
+                }
+            });
+        }
+    }
+
+    /**
+     * The result of a task, rethrowing the exception that failed it.
+     */
+    static <T> T join(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("scan interrupted", e);
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            } else if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            } else if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+}
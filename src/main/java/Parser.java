@@ -0,0 +1,451 @@
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Recursive-descent parser for SELECT statements, optionally preceded by {@code EXPLAIN ANALYZE}. Operator
+ * precedence follows SQLite, from loosest to tightest: OR, AND, NOT, equality
+ * ({@code = != IS IN LIKE GLOB BETWEEN}), comparison ({@code < <= > >=}), {@code + -}, {@code * / %},
+ * {@code ||}, unary {@code - +}.
+ */
+public class Parser {
+    /**
+     * Keywords that end an expression or result column, and therefore cannot be used as a bare alias.
+     */
+    private static final Set<String> RESERVED = Set.of(
+            "SELECT", "DISTINCT", "ALL", "FROM", "WHERE", "GROUP", "BY", "HAVING", "ORDER", "LIMIT", "OFFSET",
+            "AND", "OR", "NOT", "IS", "IN", "LIKE", "GLOB", "BETWEEN", "AS", "ASC", "DESC", "NULL",
+            "JOIN", "INNER", "LEFT", "CROSS", "NATURAL", "ON", "USING", "UNION", "EXCEPT", "INTERSECT");
+
+    private final List<Lexer.Token> tokens;
+    private int pos;
+    private int nextParameter;
+    private int parameterCount;
+
+    private Parser(List<Lexer.Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    public static Query parse(String sql) {
+        var parser = new Parser(Lexer.tokenize(sql));
+        boolean analyze = parser.accept("EXPLAIN");
+        if (analyze && !parser.accept("ANALYZE")) {
+            throw parser.error("not supported: EXPLAIN without ANALYZE");
+        }
+        var query = parser.select();
+        query.analyze = analyze;
+        parser.accept(";");
+        if (parser.peek().type() != Lexer.Type.END) {
+            throw parser.error("near \"" + parser.peek().text() + "\": syntax error");
+        }
+        query.parameterCount = parser.parameterCount;
+        return query;
+    }
+
+    /**
+     * Parses a standalone expression.
+     */
+    public static Expr parseExpression(String sql) {
+        var parser = new Parser(Lexer.tokenize(sql));
+        var expr = parser.expr();
+        if (parser.peek().type() != Lexer.Type.END) {
+            throw parser.error("near \"" + parser.peek().text() + "\": syntax error");
+        }
+        return expr;
+    }
+
+    private Query select() {
+        expect("SELECT");
+        var query = new Query();
+        if (accept("DISTINCT")) {
+            query.distinct = true;
+        } else {
+            accept("ALL");
+        }
+        List<Query.SelectItem> items = new ArrayList<>();
+        do {
+            items.add(selectItem());
+        } while (accept(","));
+        query.items = items;
+
+        expect("FROM");
+        query.table = identifier();
+        if (accept("AS") || isAlias(peek())) {
+            query.tableAlias = identifier();
+        }
+        query.join = join();
+        if (query.join != null && (peek().is(",") || peek().is("JOIN") || peek().is("INNER") || peek().is("CROSS"))) {
+            throw error("not supported: joins of more than two tables");
+        }
+        if (accept("WHERE")) {
+            query.where = expr();
+        }
+        if (accept("GROUP")) {
+            expect("BY");
+            query.groupBy = exprList();
+            if (accept("HAVING")) {
+                query.having = expr();
+            }
+        }
+        if (accept("ORDER")) {
+            expect("BY");
+            List<Query.OrderTerm> terms = new ArrayList<>();
+            do {
+                var expr = expr();
+                boolean descending = accept("DESC");
+                if (!descending) {
+                    accept("ASC");
+                }
+                terms.add(new Query.OrderTerm(expr, descending));
+            } while (accept(","));
+            query.orderBy = terms;
+        }
+        if (accept("LIMIT")) {
+            query.limit = expr();
+            if (accept("OFFSET")) {
+                query.offset = expr();
+            } else if (accept(",")) {
+                // LIMIT offset, count
+                query.offset = query.limit;
+                query.limit = expr();
+            }
+        }
+        return query;
+    }
+
+    /**
+     * A second table after the first one's name: {@code , t}, {@code [INNER | CROSS] JOIN t [ON expr]}, with an
+     * optional alias; {@code null} if there is none.
+     */
+    private Query.Join join() {
+        if (peek().is("LEFT") || peek().is("NATURAL")) {
+            throw error("not supported: " + peek().text() + " JOIN");
+        }
+        boolean comma = accept(",");
+        if (!comma && !accept("JOIN")) {
+            if (!accept("INNER") && !accept("CROSS")) {
+                return null;
+            }
+            expect("JOIN");
+        }
+        var table = identifier();
+        String alias = null;
+        if (accept("AS") || isAlias(peek())) {
+            alias = identifier();
+        }
+        Expr on = null;
+        if (!comma && accept("ON")) {
+            on = expr();
+        } else if (!comma && peek().is("USING")) {
+            throw error("not supported: USING");
+        }
+        return new Query.Join(table, alias, on);
+    }
+
+    private Query.SelectItem selectItem() {
+        if (accept("*")) {
+            return new Query.SelectItem(new Expr.Star(null), null);
+        }
+        // table.*
+        if (isName(peek()) && peek(1).is(".") && peek(2).is("*")) {
+            var table = identifier();
+            pos += 2;
+            return new Query.SelectItem(new Expr.Star(table), null);
+        }
+        var expr = expr();
+        String alias = null;
+        if (accept("AS")) {
+            alias = peek().type() == Lexer.Type.STRING ? next().text() : identifier();
+        } else if (isAlias(peek())) {
+            alias = identifier();
+        }
+        return new Query.SelectItem(expr, alias);
+    }
+
+    private List<Expr> exprList() {
+        List<Expr> exprs = new ArrayList<>();
+        do {
+            exprs.add(expr());
+        } while (accept(","));
+        return exprs;
+    }
+
+    private Expr expr() {
+        return or();
+    }
+
+    private Expr or() {
+        var left = and();
+        while (accept("OR")) {
+            left = new Expr.Binary("OR", left, and());
+        }
+        return left;
+    }
+
+    private Expr and() {
+        var left = not();
+        while (accept("AND")) {
+            left = new Expr.Binary("AND", left, not());
+        }
+        return left;
+    }
+
+    private Expr not() {
+        if (accept("NOT")) {
+            return new Expr.Unary("NOT", not());
+        }
+        return equality();
+    }
+
+    private Expr equality() {
+        var left = comparison();
+        while (true) {
+            if (accept("=") || accept("==")) {
+                left = new Expr.Binary("=", left, comparison());
+            } else if (accept("!=") || accept("<>")) {
+                left = new Expr.Binary("!=", left, comparison());
+            } else if (accept("IS")) {
+                boolean negated = accept("NOT");
+                if (accept("NULL")) {
+                    left = new Expr.IsNull(left, negated);
+                } else {
+                    left = new Expr.Binary(negated ? "IS NOT" : "IS", left, comparison());
+                }
+            } else if (peek().is("NOT") && (peek(1).is("IN") || peek(1).is("LIKE") || peek(1).is("GLOB") || peek(1).is("BETWEEN"))) {
+                next();
+                left = negatable(left, true);
+            } else if (peek().is("IN") || peek().is("LIKE") || peek().is("GLOB") || peek().is("BETWEEN")) {
+                left = negatable(left, false);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    /**
+     * IN, LIKE, GLOB and BETWEEN, each of which can be preceded by NOT.
+     */
+    private Expr negatable(Expr left, boolean negated) {
+        if (accept("IN")) {
+            expect("(");
+            List<Expr> values = peek().is(")") ? List.of() : exprList();
+            expect(")");
+            return new Expr.InList(left, values, negated);
+        }
+        if (accept("BETWEEN")) {
+            // the AND belongs to BETWEEN, so the bounds are parsed at a level that binds tighter than AND
+            var low = comparison();
+            expect("AND");
+            var high = comparison();
+            return new Expr.Between(left, low, high, negated);
+        }
+        var op = next().text().toUpperCase(Locale.ROOT);
+        Expr like = new Expr.Binary(op, left, comparison());
+        return negated ? new Expr.Unary("NOT", like) : like;
+    }
+
+    private Expr comparison() {
+        var left = additive();
+        while (peek().is("<") || peek().is("<=") || peek().is(">") || peek().is(">=")) {
+            var op = next().text();
+            left = new Expr.Binary(op, left, additive());
+        }
+        return left;
+    }
+
+    private Expr additive() {
+        var left = multiplicative();
+        while (peek().is("+") || peek().is("-")) {
+            var op = next().text();
+            left = new Expr.Binary(op, left, multiplicative());
+        }
+        return left;
+    }
+
+    private Expr multiplicative() {
+        var left = concat();
+        while (peek().is("*") || peek().is("/") || peek().is("%")) {
+            var op = next().text();
+            left = new Expr.Binary(op, left, concat());
+        }
+        return left;
+    }
+
+    private Expr concat() {
+        var left = unary();
+        while (accept("||")) {
+            left = new Expr.Binary("||", left, unary());
+        }
+        return left;
+    }
+
+    private Expr unary() {
+        if (peek().is("-") || peek().is("+")) {
+            var op = next().text();
+            if (op.equals("-") && peek().type() == Lexer.Type.INTEGER) {
+                // the smallest integer's magnitude is only in range with its sign
+                return new Expr.Literal(integer(next(), true));
+            }
+            var operand = unary();
+            // fold signs into numeric literals, so that -5 is a constant like 5
+            if (op.equals("-") && operand instanceof Expr.Literal l && l.value() instanceof Long v) {
+                return new Expr.Literal(-v);
+            } else if (op.equals("-") && operand instanceof Expr.Literal l && l.value() instanceof Double v) {
+                return new Expr.Literal(-v);
+            }
+            return new Expr.Unary(op, operand);
+        }
+        return primary();
+    }
+
+    private Expr primary() {
+        var token = next();
+        switch (token.type()) {
+            case INTEGER:
+                return new Expr.Literal(integer(token, false));
+            case FLOAT:
+                return new Expr.Literal(Double.parseDouble(token.text()));
+            case STRING:
+                return new Expr.Literal(token.text());
+            case BLOB:
+                return new Expr.Literal(HexFormat.of().parseHex(token.text()));
+            case PARAMETER: {
+                int index;
+                if (token.text().isEmpty()) {
+                    index = nextParameter++;
+                } else {
+                    index = Integer.parseInt(token.text()) - 1;
+                    nextParameter = index + 1;
+                }
+                parameterCount = Math.max(parameterCount, index + 1);
+                return new Expr.Parameter(index);
+            }
+            case OPERATOR:
+                if (token.is("(")) {
+                    var inner = expr();
+                    expect(")");
+                    return inner;
+                }
+                break;
+            case IDENTIFIER:
+                if (token.is("NULL")) {
+                    return new Expr.Literal(null);
+                }
+                if (RESERVED.contains(token.text().toUpperCase(Locale.ROOT))) {
+                    break;
+                }
+                if (accept("(")) {
+                    return function(token.text().toLowerCase(Locale.ROOT));
+                }
+                return columnRef(token);
+            case QUOTED_IDENTIFIER:
+                return columnRef(token);
+            default:
+                break;
+        }
+        throw error(token.type() == Lexer.Type.END ? "incomplete input" : "near \"" + token.text() + "\": syntax error");
+    }
+
+    /**
+     * A column named by {@code token}, qualified by a table name if a dot follows.
+     */
+    private Expr columnRef(Lexer.Token token) {
+        if (accept(".")) {
+            return new Expr.ColumnRef(token.text(), identifier());
+        }
+        return new Expr.ColumnRef(null, token.text());
+    }
+
+    private Expr function(String name) {
+        if (accept("*")) {
+            expect(")");
+            return new Expr.Function(name, List.of(new Expr.Star(null)), false);
+        }
+        boolean distinct = accept("DISTINCT");
+        List<Expr> args = peek().is(")") ? List.of() : exprList();
+        expect(")");
+        return new Expr.Function(name, args, distinct);
+    }
+
+    /**
+     * The value of an integer literal, negated if a minus sign precedes it. As in SQLite, a decimal literal out of
+     * the 64-bit range is a real, and a hexadecimal one is an error.
+     */
+    private static Object integer(Lexer.Token token, boolean negated) {
+        var text = token.text();
+        if (text.startsWith("0x") || text.startsWith("0X")) {
+            long value;
+            try {
+                value = Long.parseUnsignedLong(text.substring(2), 16);
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("hex literal too big: " + (negated ? "-" : "") + text);
+            }
+            return negated ? -value : value;
+        }
+        var signed = negated ? "-" + text : text;
+        try {
+            return Long.parseLong(signed);
+        } catch (NumberFormatException e) {
+            return Double.parseDouble(signed);
+        }
+    }
+
+    /**
+     * A table, column or alias name; keywords are allowed wherever a name is expected.
+     */
+    private String identifier() {
+        var token = next();
+        if (!isName(token)) {
+            throw error("near \"" + token.text() + "\": expected a name");
+        }
+        return token.text();
+    }
+
+    private static boolean isName(Lexer.Token token) {
+        return token.type() == Lexer.Type.IDENTIFIER || token.type() == Lexer.Type.QUOTED_IDENTIFIER;
+    }
+
+    private static boolean isAlias(Lexer.Token token) {
+        return token.type() == Lexer.Type.QUOTED_IDENTIFIER
+                || token.type() == Lexer.Type.IDENTIFIER && !RESERVED.contains(token.text().toUpperCase(Locale.ROOT));
+    }
+
+    private Lexer.Token peek() {
+        return peek(0);
+    }
+
+    private Lexer.Token peek(int ahead) {
+        return tokens.get(Math.min(pos + ahead, tokens.size() - 1));
+    }
+
+    private Lexer.Token next() {
+        var token = peek();
+        if (token.type() != Lexer.Type.END) {
+            pos++;
+        }
+        return token;
+    }
+
+    private boolean accept(String keywordOrOperator) {
+        if (peek().is(keywordOrOperator)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String keywordOrOperator) {
+        if (!accept(keywordOrOperator)) {
+            var token = peek();
+            throw error(token.type() == Lexer.Type.END
+                    ? "incomplete input, expected " + keywordOrOperator
+                    : "near \"" + token.text() + "\": expected " + keywordOrOperator);
+        }
+    }
+
+    private RuntimeException error(String message) {
+        return new RuntimeException(message);
+    }
+}
@@ -0,0 +1,962 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Turns a parsed {@link Query} into a {@link Plan} over the database's tables and indexes. Everything that does
+ * not depend on parameter values, such as resolving names and picking access paths, is done once here; the plan
+ * then builds a fresh tree of {@link Operator}s for each execution. Each operator is built through
+ * {@link Profile#node}, so that {@code EXPLAIN ANALYZE} can report on it.
+ */
+public class Planner {
+    // estimated cost of a descent of a B-tree to a key, in rows scanned
+    private static final int SEEK_COST = 8;
+
+    /**
+     * A planned statement, instantiated once per execution with that execution's parameter values.
+     */
+    @FunctionalInterface
+    public interface Plan {
+        Operator<Object[]> instantiate(Object[] parameters) throws IOException;
+    }
+
+    private final DB db;
+
+    public Planner(DB db) {
+        this.db = db;
+    }
+
+    public Plan plan(Query query) throws IOException {
+        if (query.distinct) {
+            throw new RuntimeException("not supported: DISTINCT");
+        }
+        var schema = db.catalog().getTable(query.getTable());
+        Scope scope = query.join == null ? new TableScope(schema) : new JoinScope(
+                List.of(schema, db.catalog().getTable(query.join.table())),
+                List.of(query.tableAlias != null ? query.tableAlias : query.table, query.join.name()));
+        var order = query.orderBy.isEmpty() ? null : orderBy(query, scope);
+        // the query with the ORDER BY terms that are not result columns appended to them
+        var planned = order == null ? query : order.query();
+        // a join splits its WHERE clause between its tables
+        RowPredicate unbound = query.where == null || query.join != null ? null : new RowPredicate(query.where, schema);
+        var rowidTerms = rowidTerms(unbound);
+        Plan plan;
+        boolean ordered = false;
+        boolean countStar = isCountStar(planned);
+        if (query.join != null) {
+            plan = join(planned, (JoinScope) scope);
+        } else if (countStar && unbound == null) {
+            // the leaves' cell counts add up to the row count: no record is read
+            plan = parameters -> Profile.node(new LeafCount(db.pageCache, db.pageSource, ForkJoinPool.commonPool(),
+                    db.scanParallelism, schema.pageNumber), schema.tableName);
+        } else if (!countStar && isAggregate(planned)) {
+            plan = aggregate(planned, schema, unbound, rowidTerms);
+        } else {
+            var candidate = access(schema, unbound, rowidTerms);
+            var orderColumns = order == null || countStar ? null : order.columns();
+            // with no index for the WHERE clause, an index on the ORDER BY columns can replace the sort
+            var ordering = orderColumns == null || candidate != null || !rowidTerms.isEmpty() || orderColumns.get(0).isPK()
+                    ? null : orderingIndex(schema, unbound, orderColumns, query.hasLimit(), selectedColumns(schema, query));
+            var access = ordering != null ? ordering : candidate;
+            // every table scan returns rows in rowid order
+            boolean inOrder = orderColumns != null && (access != null ? access.orders(orderColumns) : orderColumns.get(0).isPK());
+            ordered = inOrder;
+            // count(*) reads no column, so any index holding the WHERE clause's columns covers it
+            var columns = countStar ? List.<Schema.Column>of() : selectedColumns(schema, inOrder ? query : planned);
+            int[] covered = access == null ? null : coveredColumns(access.index(), unbound, columns);
+            var indexPredicate = covered == null || unbound == null ? null : unbound.onIndex(access.index());
+            plan = parameters -> {
+                var rowPredicate = unbound == null ? null : unbound.bind(parameters);
+                var matches = access == null ? null : access.scan(rowPredicate);
+                if (matches != null && covered != null) {
+                    // the index entries hold every column the query reads: no table lookups
+                    var entries = indexPredicate == null ? matches
+                            : Profile.node(new Filter<>(matches, indexPredicate.bind(parameters)::eval), matches);
+                    return Profile.node(countStar ? new Count<>(entries) : new Project(entries, covered), entries);
+                }
+                if (matches != null) {
+                    // entries equal on all index columns are in rowid order already; other index scans are not
+                    boolean sortRowIds = access.equalities().size() < access.index().columns().size()
+                            && !query.hasLimit() && !inOrder;
+                    var rows = Profile.node(new RowidLookup(matches, db.pageCache, db.pageSource, schema, sortRowIds),
+                            schema.tableName, matches);
+                    // the index narrows the rows down; the WHERE clause, including its other conjuncts, decides
+                    var filtered = rowPredicate == null ? rows : Profile.node(new Filter<>(rows, rowPredicate::eval), rows);
+                    return Profile.node(countStar ? new Count<>(filtered) : new Project(filtered, columns), filtered);
+                }
+                var range = rowidRange(rowPredicate, rowidTerms);
+                if (countStar && db.vectorized) {
+                    var batches = batchScan(schema, schema.pageNumber, rowPredicate, new int[0], range);
+                    return Profile.node(new BatchCount(batches), batches);
+                }
+                if (countStar) {
+                    var rows = rows(schema, schema.pageNumber, rowPredicate, range);
+                    return Profile.node(new Count<>(rows), rows);
+                }
+                if (!range.equals(RowidRange.ALL)) {
+                    return scan(schema, schema.pageNumber, rowPredicate, columns, range);
+                }
+                ParallelScan.SubtreePlan scan = rootPage -> scan(schema, rootPage, rowPredicate, columns, RowidRange.ALL);
+                if (rowPredicate != null && db.scanParallelism > 1 && !query.hasLimit()) {
+                    // a selective filter over a large table is worth spreading over workers; LIMIT wants the first rows fast
+                    return Profile.node(new ParallelScan(db.pageCache, ForkJoinPool.commonPool(), db.scanParallelism,
+                            schema.pageNumber, scan), schema.tableName);
+                }
+                return scan.plan(schema.pageNumber);
+            };
+        }
+        if (order != null && !ordered) {
+            var unsorted = plan;
+            plan = parameters -> {
+                // with a LIMIT, the sort only has to keep the rows up to the last one returned
+                long limit = query.hasLimit() ? integer(query.limit, parameters) : -1;
+                if (limit >= 0 && query.offset != null) {
+                    limit += Math.max(0, integer(query.offset, parameters));
+                }
+                var rows = unsorted.instantiate(parameters);
+                return Profile.node(new Sort(rows, order.keys(), order.width(), limit, db.sortMemory), rows);
+            };
+        }
+        if (query.hasLimit()) {
+            var unlimited = plan;
+            plan = parameters -> {
+                var rows = unlimited.instantiate(parameters);
+                return Profile.node(new Limit<>(rows, integer(query.limit, parameters),
+                        query.offset == null ? 0 : integer(query.offset, parameters)), rows);
+            };
+        }
+        return plan;
+    }
+
+    /**
+     * Comparisons of the rowid with constants, which table scans turn into seeks.
+     */
+    private static List<RowPredicate.Term> rowidTerms(RowPredicate unbound) {
+        return unbound == null ? List.of() : unbound.getTerms().stream()
+                .filter(term -> term.column() == RowPredicate.ROWID && !term.op().equals("LIKE"))
+                .toList();
+    }
+
+    /**
+     * The columns the names in a query refer to.
+     */
+    private interface Scope {
+        /**
+         * The column a reference names, {@code null} if there is none; references to the same column resolve to
+         * equal objects.
+         */
+        Object resolve(Expr.ColumnRef ref);
+
+        /**
+         * The columns {@code *} or {@code table.*} stands for.
+         */
+        List<Expr> expand(Expr.Star star);
+    }
+
+    /**
+     * The columns of a single table, named without regard to any qualifier.
+     */
+    private record TableScope(Schema schema) implements Scope {
+        @Override
+        public Schema.Column resolve(Expr.ColumnRef ref) {
+            return schema.getColumn(ref.name()).orElse(null);
+        }
+
+        @Override
+        public List<Expr> expand(Expr.Star star) {
+            return schema.columnList.stream().<Expr>map(column -> new Expr.ColumnRef(null, column.name())).toList();
+        }
+    }
+
+    /**
+     * Column {@code column} of the first table of a join (0) or of the joined one (1).
+     */
+    private record TableColumn(int table, Schema.Column column) {
+    }
+
+    /**
+     * The two tables of a join. A column is qualified by its table's alias, or by its name when it has none, or
+     * named alone when only one of the tables has it.
+     */
+    private record JoinScope(List<Schema> tables, List<String> names) implements Scope {
+        @Override
+        public TableColumn resolve(Expr.ColumnRef ref) {
+            TableColumn found = null;
+            for (int i = 0; i < tables.size(); ++i) {
+                if (ref.table() != null && !ref.table().equalsIgnoreCase(names.get(i))) {
+                    continue;
+                }
+                var column = tables.get(i).getColumn(ref.name());
+                if (column.isPresent()) {
+                    if (found != null) {
+                        throw new RuntimeException("ambiguous column name: " + Expr.toSql(ref));
+                    }
+                    found = new TableColumn(i, column.get());
+                }
+            }
+            return found;
+        }
+
+        TableColumn column(Expr.ColumnRef ref) {
+            var column = resolve(ref);
+            if (column == null) {
+                throw new RuntimeException("no such column: " + Expr.toSql(ref));
+            }
+            return column;
+        }
+
+        @Override
+        public List<Expr> expand(Expr.Star star) {
+            List<Expr> columns = new ArrayList<>();
+            for (int i = 0; i < tables.size(); ++i) {
+                var name = names.get(i);
+                if (star.table() == null || star.table().equalsIgnoreCase(name)) {
+                    tables.get(i).columnList.forEach(column -> columns.add(new Expr.ColumnRef(name, column.name())));
+                }
+            }
+            if (columns.isEmpty()) {
+                throw new RuntimeException("no such table: " + star.table());
+            }
+            return columns;
+        }
+    }
+
+    /**
+     * ORDER BY resolved against the result columns.
+     *
+     * @param query   the query with the terms that are not result columns appended to its result columns
+     * @param keys    the sort keys, as positions in the result rows
+     * @param width   the number of result columns before any term was appended
+     * @param columns the terms as table columns, when every term is an ascending column; {@code null} otherwise
+     */
+    private record OrderBy(Query query, List<Sort.Key> keys, int width, List<Schema.Column> columns) {
+    }
+
+    /**
+     * Resolves the ORDER BY terms as SQLite does: a number is the position of a result column, a name may be a
+     * result column's alias, and any other term is matched against the result columns' expressions.
+     */
+    private static OrderBy orderBy(Query query, Scope scope) {
+        List<Query.SelectItem> items = new ArrayList<>(query.items);
+        // the expression of each result column, with * expanded, and the position of each item's first column
+        List<Expr> outputs = new ArrayList<>();
+        int[] itemPositions = new int[items.size()];
+        for (int i = 0; i < items.size(); ++i) {
+            itemPositions[i] = outputs.size();
+            if (items.get(i).expr() instanceof Expr.Star star) {
+                outputs.addAll(scope.expand(star));
+            } else {
+                outputs.add(items.get(i).expr());
+            }
+        }
+        int width = outputs.size();
+        List<Sort.Key> keys = new ArrayList<>();
+        List<Schema.Column> columns = new ArrayList<>();
+        for (var term : query.orderBy) {
+            var expr = term.expr();
+            int position = -1;
+            if (expr instanceof Expr.Literal literal && literal.value() instanceof Long n) {
+                if (n < 1 || n > width) {
+                    throw new RuntimeException("ORDER BY term out of range - should be between 1 and " + width);
+                }
+                position = (int) (n - 1);
+            } else if (expr instanceof Expr.ColumnRef ref && ref.table() == null) {
+                for (int i = 0; i < items.size() && position < 0; ++i) {
+                    if (ref.name().equalsIgnoreCase(items.get(i).alias())) {
+                        position = itemPositions[i];
+                    }
+                }
+            }
+            for (int i = 0; i < outputs.size() && position < 0; ++i) {
+                if (sameExpr(scope, outputs.get(i), expr)) {
+                    position = i;
+                }
+            }
+            if (position < 0) {
+                items.add(new Query.SelectItem(expr, null));
+                outputs.add(expr);
+                position = outputs.size() - 1;
+            }
+            var column = outputs.get(position) instanceof Expr.ColumnRef ref ? scope.resolve(ref) : null;
+            var collation = switch (column) {
+                case Schema.Column c -> c.collation();
+                case TableColumn c -> c.column().collation();
+                case null, default -> Schema.Collation.BINARY;
+            };
+            keys.add(new Sort.Key(position, term.descending(), collation));
+            // a join's columns are never read in order
+            if (columns != null && column instanceof Schema.Column tableColumn && !term.descending()) {
+                columns.add(tableColumn);
+            } else {
+                columns = null;
+            }
+        }
+        return new OrderBy(items.size() == query.items.size() ? query : query.withItems(items), keys, width, columns);
+    }
+
+    /**
+     * Whether two expressions are the same; column references are compared by the column they name.
+     */
+    private static boolean sameExpr(Scope scope, Expr a, Expr b) {
+        if (a instanceof Expr.ColumnRef x && b instanceof Expr.ColumnRef y) {
+            var column = scope.resolve(x);
+            return column != null && column.equals(scope.resolve(y));
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * An index whose leading columns are the ORDER BY columns, scanned whole instead of sorting the table. Worth
+     * it when a LIMIT stops the scan early or when the index covers the query; otherwise looking up every row
+     * from the index costs more than the sort saves.
+     */
+    private IndexAccess orderingIndex(Schema schema, RowPredicate unbound, List<Schema.Column> orderColumns,
+                                      boolean hasLimit, List<Schema.Column> columns) {
+        for (var index : schema.indexes) {
+            var access = new IndexAccess(db, index, List.of(), null, null, null);
+            if (access.orders(orderColumns) && (hasLimit || coveredColumns(index, unbound, columns) != null)) {
+                return access;
+            }
+        }
+        return null;
+    }
+
+    static boolean isCountStar(Query query) {
+        return query.items.size() == 1 && query.groupBy.isEmpty()
+                && query.items.get(0).expr() instanceof Expr.Function f && f.name().equals("count")
+                && f.args().size() == 1 && f.args().get(0) instanceof Expr.Star;
+    }
+
+    private static long integer(Expr expr, Object[] parameters) {
+        // parameters of any integral Java type count, as they do in a WHERE clause
+        if (!(RowPredicate.constant(expr, parameters) instanceof Long value)) {
+            throw new RuntimeException("datatype mismatch: " + Expr.toSql(expr) + " is not an integer");
+        }
+        return value;
+    }
+
+    /**
+     * GROUP BY, or aggregate functions over all the rows the WHERE clause selects: a hash aggregation over the
+     * same access paths as a plain SELECT, in parallel over a whole table. {@code min} and {@code max} alone
+     * over a whole table are read off the ends of an index or of the table itself.
+     */
+    private Plan aggregate(Query query, Schema schema, RowPredicate unbound, List<RowPredicate.Term> rowidTerms) {
+        if (query.having != null) {
+            throw new RuntimeException("not supported: HAVING");
+        }
+        List<Schema.Column> groupBy = query.groupBy.stream().map(expr -> column(schema, expr)).toList();
+        // the columns the aggregation reads: the grouping columns, then the aggregates' arguments
+        List<Schema.Column> columns = new ArrayList<>(groupBy);
+        List<Expr.Function> functions = new ArrayList<>();
+        int[] output = new int[query.items.size()];
+        for (int i = 0; i < output.length; ++i) {
+            var expr = query.items.get(i).expr();
+            if (isAggregate(expr)) {
+                var function = (Expr.Function) expr;
+                output[i] = groupBy.size() + functions.size();
+                functions.add(function);
+                if (!(function.args().isEmpty() || function.args().get(0) instanceof Expr.Star)) {
+                    columns.add(column(schema, function.args().get(0)));
+                }
+            } else {
+                output[i] = groupBy.indexOf(column(schema, expr));
+                if (output[i] < 0) {
+                    throw new RuntimeException("not supported: " + query.items.get(i).name() + " is neither grouped nor aggregated");
+                }
+            }
+        }
+        if (unbound == null && groupBy.isEmpty()) {
+            var seeks = minMaxSeeks(schema, functions);
+            if (seeks != null) {
+                return parameters -> Profile.node(new MinMaxSeek(db.pageCache, db.pageSource, seeks), schema.tableName);
+            }
+        }
+
+        var access = access(schema, unbound, rowidTerms);
+        int[] covered = access == null ? null : coveredColumns(access.index(), unbound, columns);
+        var indexPredicate = covered == null ? null : unbound.onIndex(access.index());
+        var collations = groupBy.stream().map(Schema.Column::collation).toArray(Schema.Collation[]::new);
+        // positions of the columns read in table records and batches, and in index entries when the index covers
+        // the query
+        int[] positions = Project.columnIndexes(columns);
+        int[] groupColumns = Arrays.copyOf(positions, groupBy.size());
+        var aggregates = aggregates(functions, columns, positions, groupBy.size());
+        int[] entryGroupColumns = covered == null ? null : Arrays.copyOf(covered, groupBy.size());
+        var entryAggregates = covered == null ? null : aggregates(functions, columns, covered, groupBy.size());
+        return parameters -> {
+            var rowPredicate = unbound == null ? null : unbound.bind(parameters);
+            var matches = access == null ? null : access.scan(rowPredicate);
+            if (matches != null && covered != null) {
+                var entries = Profile.node(new Filter<>(matches, indexPredicate.bind(parameters)::eval), matches);
+                return Profile.node(new HashAggregate(entries, entryGroupColumns, collations, entryAggregates, output),
+                        entries);
+            }
+            if (matches != null) {
+                // groups do not depend on the order of the rows, so the rowids can always be sorted
+                boolean sortRowIds = access.equalities().size() < access.index().columns().size();
+                var rows = Profile.node(new RowidLookup(matches, db.pageCache, db.pageSource, schema, sortRowIds),
+                        schema.tableName, matches);
+                var filtered = Profile.node(new Filter<>(rows, rowPredicate::eval), rows);
+                return Profile.node(new HashAggregate(filtered, groupColumns, collations, aggregates, output), filtered);
+            }
+            var range = rowidRange(rowPredicate, rowidTerms);
+            if (!range.equals(RowidRange.ALL) || db.scanParallelism <= 1) {
+                var rows = aggregateInput(schema, schema.pageNumber, rowPredicate, positions, range);
+                return Profile.node(new HashAggregate(rows, groupColumns, collations, aggregates, output), rows);
+            }
+            // every row is read whatever the filter keeps, so a whole-table aggregation is always worth splitting
+            return Profile.node(new HashAggregate(db.pageCache, ForkJoinPool.commonPool(), db.scanParallelism, schema.pageNumber,
+                    rootPage -> aggregateInput(schema, rootPage, rowPredicate, positions, RowidRange.ALL), groupColumns,
+                    collations, aggregates, output),
+                    schema.tableName);
+        };
+    }
+
+    /**
+     * The aggregate functions over their arguments, found at {@code positions} after the grouping columns.
+     */
+    private static List<HashAggregate.Aggregate> aggregates(List<Expr.Function> functions, List<Schema.Column> columns,
+                                                            int[] positions, int argument) {
+        List<HashAggregate.Aggregate> aggregates = new ArrayList<>();
+        for (var function : functions) {
+            boolean star = function.args().isEmpty() || function.args().get(0) instanceof Expr.Star;
+            aggregates.add(star ? new HashAggregate.Aggregate(aggregateKind(function), -1)
+                    : new HashAggregate.Aggregate(aggregateKind(function), positions[argument],
+                    columns.get(argument++).collation()));
+        }
+        return aggregates;
+    }
+
+    /**
+     * What an aggregation reads from the tree rooted at {@code rootPage}: batches holding {@code columns} when
+     * {@link DB#isVectorized()}, else table rows.
+     */
+    private Operator<?> aggregateInput(Schema schema, int rootPage, RowPredicate rowPredicate, int[] columns,
+                                       RowidRange range) {
+        return db.vectorized ? batchScan(schema, rootPage, rowPredicate, columns, range)
+                : rows(schema, rootPage, rowPredicate, range);
+    }
+
+    /**
+     * How one table of a join is read: the conjuncts of the ON and WHERE clauses that only read this table, the
+     * index access serving them, and the estimated numbers of rows in the table and among those it keeps.
+     */
+    private record JoinInput(Schema schema, RowPredicate unbound, List<RowPredicate.Term> rowidTerms,
+                             IndexAccess access, long rows, double kept) {
+        /**
+         * The estimated number of rows read: the rows kept when an index or a rowid range finds them, else all.
+         */
+        double cost() {
+            return access != null || !rowidTerms.isEmpty() ? kept : rows;
+        }
+    }
+
+    /**
+     * A two-table inner join on equalities between their columns. Conjuncts of the ON and WHERE clauses that
+     * read one table filter it before the join. Of a hash join building from the table that keeps fewer rows,
+     * and of an index nested-loop join from either table into the other's rowid or index on the join column,
+     * the one with the lowest cost estimated from the tables' row counts is chosen.
+     */
+    private Plan join(Query query, JoinScope scope) throws IOException {
+        if (isAggregate(query)) {
+            throw new RuntimeException("not supported: aggregates over a join");
+        }
+        List<List<Expr>> filters = List.of(new ArrayList<>(), new ArrayList<>());
+        // equalities between a column of the first table and one of the second, in that order
+        List<TableColumn[]> equalities = new ArrayList<>();
+        List<Expr> conjuncts = new ArrayList<>();
+        conjuncts(query.join.on(), conjuncts);
+        conjuncts(query.where, conjuncts);
+        for (var conjunct : conjuncts) {
+            List<Expr.ColumnRef> refs = new ArrayList<>();
+            columnRefs(conjunct, refs);
+            int[] tables = refs.stream().mapToInt(ref -> scope.column(ref).table()).distinct().toArray();
+            if (tables.length < 2) {
+                // a conjunct that reads no column filters the first table
+                filters.get(tables.length == 0 ? 0 : tables[0]).add(conjunct);
+            } else if (conjunct instanceof Expr.Binary b && b.op().equals("=")
+                    && b.left() instanceof Expr.ColumnRef left && b.right() instanceof Expr.ColumnRef right) {
+                var l = scope.column(left);
+                var r = scope.column(right);
+                equalities.add(l.table() == 0 ? new TableColumn[]{l, r} : new TableColumn[]{r, l});
+            } else {
+                throw new RuntimeException("not supported: join condition " + Expr.toSql(conjunct));
+            }
+        }
+        if (equalities.isEmpty()) {
+            throw new RuntimeException("not supported: a join without an equality between columns of both tables");
+        }
+        List<TableColumn> output = new ArrayList<>();
+        for (var item : query.items) {
+            switch (item.expr()) {
+                case Expr.Star star -> scope.expand(star).forEach(expr -> output.add(scope.column((Expr.ColumnRef) expr)));
+                case Expr.ColumnRef ref -> output.add(scope.column(ref));
+                default -> throw new RuntimeException("not supported in the result columns: " + item.name());
+            }
+        }
+        JoinInput[] inputs = {joinInput(scope.tables().get(0), filters.get(0)), joinInput(scope.tables().get(1), filters.get(1))};
+
+        // a hash join streams the table that keeps more rows and builds from the other
+        int outer = inputs[0].kept() >= inputs[1].kept() ? 0 : 1;
+        double best = inputs[0].cost() + inputs[1].cost() + inputs[1 - outer].kept();
+        var key = equalities.get(0);
+        Schema.Index lookupIndex = null;
+        boolean indexJoin = false;
+        for (int side = 0; side < 2; ++side) {
+            for (var equality : equalities) {
+                var innerColumn = equality[1 - side].column();
+                var affinity = joinAffinity(equality[0].column(), equality[1].column());
+                // the inner B-tree is ordered by the column's own values, so they must need no conversion
+                if (!isNumeric(innerColumn.affinity()) && innerColumn.affinity() != affinity) {
+                    continue;
+                }
+                var innerTable = scope.tables().get(1 - side);
+                var index = innerTable.indexes.stream()
+                        .filter(i -> i.colIndex() == innerColumn.index() && seekable(innerTable, i, 0)).findFirst().orElse(null);
+                if (!innerColumn.isPK() && index == null) {
+                    continue;
+                }
+                // a seek in the index, then one in the table for each entry with the key
+                double probe = innerColumn.isPK() ? SEEK_COST
+                        : SEEK_COST * (1 + entriesPerKey(index, inputs[1 - side].rows()));
+                double cost = inputs[side].cost() + inputs[side].kept() * probe;
+                if (cost < best) {
+                    best = cost;
+                    outer = side;
+                    key = equality;
+                    lookupIndex = innerColumn.isPK() ? null : index;
+                    indexJoin = true;
+                }
+            }
+        }
+
+        int outerTable = outer;
+        var outerInput = inputs[outer];
+        var innerInput = inputs[1 - outer];
+        List<EquiJoin.Column> columns = output.stream()
+                .map(column -> new EquiJoin.Column(column.table() != outerTable, column.column().index())).toList();
+        var joinKey = joinKey(key, outerTable);
+        var joinedOn = key;
+        List<EquiJoin.Key> otherKeys = equalities.stream().filter(equality -> equality != joinedOn)
+                .map(equality -> joinKey(equality, outerTable)).toList();
+        if (indexJoin) {
+            var index = lookupIndex;
+            return parameters -> {
+                var outerRows = rows(outerInput, parameters);
+                return Profile.node(new IndexJoin(outerRows, db.pageCache, db.pageSource, innerInput.schema(), index, joinKey,
+                        otherKeys, columns, innerInput.unbound() == null ? null : innerInput.unbound().bind(parameters)),
+                        innerInput.schema().tableName, outerRows);
+            };
+        }
+        return parameters -> {
+            var innerRows = rows(innerInput, parameters);
+            var outerRows = rows(outerInput, parameters);
+            return Profile.node(new HashJoin(innerRows, outerRows, joinKey, otherKeys, columns), innerRows, outerRows);
+        };
+    }
+
+    private double entriesPerKey(Schema.Index index, long entries) throws IOException {
+        try (var cursor = new IndexCursor(db.pageCache, db.pageSource, index.pageNumber())) {
+            return cursor.entriesPerKey(entries);
+        }
+    }
+
+    private JoinInput joinInput(Schema schema, List<Expr> conjuncts) throws IOException {
+        var where = conjuncts.stream().reduce((a, b) -> new Expr.Binary("AND", a, b)).orElse(null);
+        RowPredicate unbound = where == null ? null : new RowPredicate(where, schema);
+        var rowidTerms = rowidTerms(unbound);
+        long rows = LeafCount.estimate(db.pageCache, schema.pageNumber);
+        return new JoinInput(schema, unbound, rowidTerms, access(schema, unbound, rowidTerms), rows, kept(rows, unbound));
+    }
+
+    /**
+     * The estimated number of rows a WHERE clause keeps, by fixed guesses: an equality on the rowid keeps one,
+     * any other equality a tenth of the rows, a range a third, and a clause with no such terms half.
+     */
+    private static double kept(long rows, RowPredicate unbound) {
+        if (unbound == null) {
+            return rows;
+        }
+        double kept = unbound.getTerms().isEmpty() ? rows / 2.0 : rows;
+        for (var term : unbound.getTerms()) {
+            if (term.column() == RowPredicate.ROWID && term.op().equals("=")) {
+                return Math.min(rows, 1);
+            }
+            kept /= term.op().equals("=") ? 10 : 3;
+        }
+        return kept;
+    }
+
+    /**
+     * The rows of a join's table that its own conjuncts select, through its index access if it has one.
+     */
+    private Operator<TableRow> rows(JoinInput input, Object[] parameters) {
+        var schema = input.schema();
+        var rowPredicate = input.unbound() == null ? null : input.unbound().bind(parameters);
+        var matches = input.access() == null ? null : input.access().scan(rowPredicate);
+        if (matches != null) {
+            boolean sortRowIds = input.access().equalities().size() < input.access().index().columns().size();
+            var rows = Profile.node(new RowidLookup(matches, db.pageCache, db.pageSource, schema, sortRowIds),
+                    schema.tableName, matches);
+            return Profile.node(new Filter<>(rows, rowPredicate::eval), rows);
+        }
+        return rows(schema, schema.pageNumber, rowPredicate, rowidRange(rowPredicate, input.rowidTerms()));
+    }
+
+    /**
+     * An equality of the join condition as a key from the outer table's column to the inner table's.
+     */
+    private static EquiJoin.Key joinKey(TableColumn[] equality, int outer) {
+        return new EquiJoin.Key(equality[outer].column().index(), equality[1 - outer].column().index(),
+                joinAffinity(equality[0].column(), equality[1].column()));
+    }
+
+    /**
+     * The affinity SQLite applies to both sides of a comparison between two columns: NUMERIC if either column is
+     * numeric, else TEXT if either has TEXT affinity, else none.
+     */
+    private static Schema.Affinity joinAffinity(Schema.Column a, Schema.Column b) {
+        if (isNumeric(a.affinity()) || isNumeric(b.affinity())) {
+            return Schema.Affinity.NUMERIC;
+        }
+        return a.affinity() == Schema.Affinity.TEXT || b.affinity() == Schema.Affinity.TEXT
+                ? Schema.Affinity.TEXT : Schema.Affinity.BLOB;
+    }
+
+    private static boolean isNumeric(Schema.Affinity affinity) {
+        return affinity == Schema.Affinity.INTEGER || affinity == Schema.Affinity.REAL || affinity == Schema.Affinity.NUMERIC;
+    }
+
+    /**
+     * Adds the conjuncts of a clause, if there is one, to {@code conjuncts}.
+     */
+    private static void conjuncts(Expr clause, List<Expr> conjuncts) {
+        if (clause instanceof Expr.Binary b && b.op().equals("AND")) {
+            conjuncts(b.left(), conjuncts);
+            conjuncts(b.right(), conjuncts);
+        } else if (clause != null) {
+            conjuncts.add(clause);
+        }
+    }
+
+    private static void columnRefs(Expr expr, List<Expr.ColumnRef> refs) {
+        switch (expr) {
+            case Expr.ColumnRef ref -> refs.add(ref);
+            case Expr.Unary u -> columnRefs(u.operand(), refs);
+            case Expr.Binary b -> {
+                columnRefs(b.left(), refs);
+                columnRefs(b.right(), refs);
+            }
+            case Expr.IsNull n -> columnRefs(n.operand(), refs);
+            case Expr.Between b -> {
+                columnRefs(b.operand(), refs);
+                columnRefs(b.low(), refs);
+                columnRefs(b.high(), refs);
+            }
+            case Expr.InList in -> {
+                columnRefs(in.operand(), refs);
+                in.values().forEach(value -> columnRefs(value, refs));
+            }
+            case Expr.Function f -> f.args().forEach(arg -> columnRefs(arg, refs));
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * The seeks answering an aggregation made only of {@code min} and {@code max} of the INTEGER PRIMARY KEY or
+     * of columns leading an ascending BINARY index, or {@code null} if some aggregate needs a scan.
+     */
+    private static List<MinMaxSeek.Seek> minMaxSeeks(Schema schema, List<Expr.Function> functions) {
+        List<MinMaxSeek.Seek> seeks = new ArrayList<>();
+        for (var function : functions) {
+            var kind = aggregateKind(function);
+            if (kind != HashAggregate.Kind.MIN && kind != HashAggregate.Kind.MAX) {
+                return null;
+            }
+            var column = column(schema, function.args().get(0));
+            boolean max = kind == HashAggregate.Kind.MAX;
+            if (column.isPK()) {
+                seeks.add(new MinMaxSeek.Seek(schema.pageNumber, null, max));
+                continue;
+            }
+            // the first and last entries are the minimum and maximum only in ascending BINARY order
+            var index = schema.indexes.stream()
+                    .filter(i -> i.colIndex() == column.index() && seekable(schema, i, 0)).findFirst();
+            if (index.isEmpty()) {
+                return null;
+            }
+            seeks.add(new MinMaxSeek.Seek(schema.pageNumber, index.get(), max));
+        }
+        return seeks;
+    }
+
+    /**
+     * Rows of the tree rooted at {@code rootPage} within {@code range} that satisfy the predicate, if any.
+     */
+    private Operator<TableRow> rows(Schema schema, int rootPage, RowPredicate rowPredicate, RowidRange range) {
+        var rows = Profile.node(new TableScan(db.pageCache, db.pageSource, schema, rootPage, range), schema.tableName);
+        return rowPredicate == null ? rows : Profile.node(new Filter<>(rows, rowPredicate::eval), rows);
+    }
+
+    static boolean isAggregate(Query query) {
+        return !query.groupBy.isEmpty() || query.items.stream().anyMatch(item -> isAggregate(item.expr()));
+    }
+
+    /**
+     * Whether an expression is a call to an aggregate function; {@code min} and {@code max} with several
+     * arguments are the scalar functions.
+     */
+    private static boolean isAggregate(Expr expr) {
+        return expr instanceof Expr.Function f && switch (f.name()) {
+            case "count" -> f.args().size() <= 1;
+            case "sum", "total", "avg", "min", "max" -> f.args().size() == 1;
+            default -> false;
+        };
+    }
+
+    private static HashAggregate.Kind aggregateKind(Expr.Function function) {
+        if (function.distinct()) {
+            throw new RuntimeException("not supported: " + Expr.toSql(function));
+        }
+        return HashAggregate.Kind.valueOf(function.name().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Filtering scan of the tree rooted at {@code rootPage}, batch at a time or row at a time depending on
+     * {@link DB#isVectorized()}.
+     */
+    private Operator<Object[]> scan(Schema schema, int rootPage, RowPredicate rowPredicate, List<Schema.Column> columns,
+                                    RowidRange range) {
+        int[] columnIndexes = Project.columnIndexes(columns);
+        if (db.vectorized) {
+            var batches = batchScan(schema, rootPage, rowPredicate, columnIndexes, range);
+            return Profile.node(new BatchProject(batches, columnIndexes), batches);
+        }
+        var rows = Profile.node(new TableScan(db.pageCache, db.pageSource, schema, rootPage, range), schema.tableName);
+        if (rowPredicate != null) {
+            // only the record header is parsed per row; columns are decoded when the filter or projection reads them
+            rows = Profile.node(new Filter<>(rows, rowPredicate::eval), rows);
+        }
+        return Profile.node(new Project(rows, columns), rows);
+    }
+
+    /**
+     * Batch scan of the tree rooted at {@code rootPage}, decoding {@code columns}. The conjuncts of the filter that
+     * compare a column with a constant run over the column vectors; the others are tested on the record before the
+     * row is decoded.
+     */
+    private Operator<Batch> batchScan(Schema schema, int rootPage, RowPredicate rowPredicate, int[] columns, RowidRange range) {
+        if (rowPredicate == null) {
+            return Profile.node(new BatchScan(db.pageCache, db.pageSource, schema, rootPage, columns, null, range),
+                    schema.tableName);
+        }
+        var vectorized = rowPredicate.vectorize();
+        int[] decoded = IntStream.concat(IntStream.of(columns), IntStream.of(vectorized.columns())).toArray();
+        Operator<Batch> batches = Profile.node(new BatchScan(db.pageCache, db.pageSource, schema, rootPage, decoded,
+                vectorized.residual(), range), schema.tableName);
+        if (vectorized.conditions().isEmpty()) {
+            return batches;
+        }
+        return Profile.node(new BatchFilter(batches, vectorized.conditions()), batches);
+    }
+
+    /**
+     * The rowids the rowid terms of a bound predicate allow.
+     */
+    private static RowidRange rowidRange(RowPredicate rowPredicate, List<RowPredicate.Term> rowidTerms) {
+        var range = RowidRange.ALL;
+        for (var term : rowidTerms) {
+            range = range.narrow(term.op(), rowPredicate.value(term));
+        }
+        return range;
+    }
+
+    /**
+     * How an index serves a WHERE clause: equality terms on its leading columns, then range or LIKE terms on
+     * the next one.
+     */
+    private record IndexAccess(DB db, Schema.Index index, List<RowPredicate.Term> equalities,
+                               RowPredicate.Term lower, RowPredicate.Term upper, RowPredicate.Term like) {
+        int score() {
+            int range = lower != null || upper != null ? 2 : like != null ? 1 : 0;
+            return equalities.size() * 4 + range;
+        }
+
+        /**
+         * The index scan for the bound predicate; {@code null} when the only usable term is a LIKE whose
+         * pattern gives no range.
+         */
+        Operator<TableRow> scan(RowPredicate predicate) {
+            var prefix = equalities.stream().map(term -> predicate.value(term)).toArray();
+            IndexScan.Bound low = lower == null ? null : new IndexScan.Bound(predicate.value(lower), lower.op().equals(">="));
+            IndexScan.Bound high = upper == null ? null : new IndexScan.Bound(predicate.value(upper), upper.op().equals("<="));
+            if (low == null && high == null && like != null) {
+                var prefixRange = likeRange(predicate.value(like));
+                if (prefixRange != null) {
+                    low = prefixRange[0];
+                    high = prefixRange[1];
+                } else if (equalities.isEmpty()) {
+                    return null;
+                }
+            }
+            return Profile.node(new IndexScan(db.pageCache, db.pageSource, index, prefix, low, high), index.name());
+        }
+
+        /**
+         * Whether the scan returns rows ordered by {@code columns}: they are the index columns after the equality
+         * terms, ascending and under the collation ORDER BY uses for them, and the scan cannot fall back to a
+         * table scan.
+         */
+        boolean orders(List<Schema.Column> columns) {
+            var indexed = index.colIndexes();
+            int start = equalities.size();
+            if (start == 0 && lower == null && upper == null && like != null || start + columns.size() > indexed.size()) {
+                return false;
+            }
+            for (int i = 0; i < columns.size(); ++i) {
+                int position = start + i;
+                if (indexed.get(position) != columns.get(i).index().intValue() || index.descending().get(position)
+                        || index.collations().get(position) != columns.get(i).collation()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The index access for a WHERE clause, or {@code null} when the table is better scanned: a rowid lookup beats
+     * any index, and a rowid range beats a range over an index.
+     */
+    private IndexAccess access(Schema schema, RowPredicate unbound, List<RowPredicate.Term> rowidTerms) {
+        var candidate = unbound == null ? null : chooseIndex(schema, unbound);
+        return candidate != null && !rowidTerms.isEmpty()
+                && (candidate.equalities().isEmpty() || rowidTerms.stream().anyMatch(term -> term.op().equals("=")))
+                ? null : candidate;
+    }
+
+    /**
+     * The index that narrows the WHERE clause the most: the one with the most leading columns fixed by equality
+     * terms, then with a range on the next column.
+     */
+    private IndexAccess chooseIndex(Schema schema, RowPredicate rowPredicate) {
+        IndexAccess best = null;
+        for (var index : schema.indexes) {
+            List<RowPredicate.Term> equalities = new ArrayList<>();
+            RowPredicate.Term lower = null, upper = null, like = null;
+            for (int i = 0; i < index.colIndexes().size() && seekable(schema, index, i); ++i) {
+                int column = index.colIndexes().get(i);
+                var equal = term(rowPredicate, column, "=");
+                if (equal != null) {
+                    equalities.add(equal);
+                    continue;
+                }
+                lower = term(rowPredicate, column, ">", ">=");
+                upper = term(rowPredicate, column, "<", "<=");
+                // LIKE is matched as text, so only text values are in the range its prefix gives
+                if (schema.columnList.get(column).affinity() == Schema.Affinity.TEXT) {
+                    like = term(rowPredicate, column, "LIKE");
+                }
+                break;
+            }
+            var access = new IndexAccess(db, index, equalities, lower, upper, like);
+            if (access.score() > 0 && (best == null || access.score() > best.score())) {
+                best = access;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Whether seeks can use column {@code i} of {@code index}. Seeks compare keys in ascending BINARY order, so the
+     * index must keep its entries in that order, and comparisons with the column must use BINARY as well; other
+     * columns are left to the filter over whatever rows the seekable columns give.
+     */
+    static boolean seekable(Schema schema, Schema.Index index, int i) {
+        return !index.descending().get(i) && index.collations().get(i) == Schema.Collation.BINARY
+                && schema.columnList.get(index.colIndexes().get(i)).collation() == Schema.Collation.BINARY;
+    }
+
+    /**
+     * Positions in the entries of {@code index} of the selected columns, or {@code null} if the index does not
+     * hold all the columns the query reads. The rowid is the last column of every index entry.
+     */
+    private static int[] coveredColumns(Schema.Index index, RowPredicate rowPredicate, List<Schema.Column> columns) {
+        if (rowPredicate != null && !rowPredicate.isCoveredBy(index)) {
+            return null;
+        }
+        int[] positions = new int[columns.size()];
+        for (int i = 0; i < positions.length; ++i) {
+            var column = columns.get(i);
+            positions[i] = column.isPK() ? index.colIndexes().size() : index.colIndexes().indexOf(column.index());
+            if (positions[i] < 0) {
+                return null;
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * The first term on {@code column} with one of the given operators.
+     */
+    private static RowPredicate.Term term(RowPredicate rowPredicate, int column, String... ops) {
+        for (var term : rowPredicate.getTerms()) {
+            if (term.column() == column && List.of(ops).contains(term.op())) {
+                return term;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The range of text values a LIKE pattern can match, from its prefix before the first wildcard, or
+     * {@code null} if it has none. LIKE ignores the case of ASCII letters while the index orders them by byte,
+     * so a prefix with letters gives no single range.
+     */
+    static IndexScan.Bound[] likeRange(Object pattern) {
+        if (!(pattern instanceof String text)) {
+            return null;
+        }
+        int end = 0;
+        while (end < text.length() && text.charAt(end) != '%' && text.charAt(end) != '_') {
+            char c = text.charAt(end);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+                return null;
+            }
+            end++;
+        }
+        if (end == 0) {
+            return null;
+        }
+        var prefix = text.substring(0, end);
+        char last = prefix.charAt(end - 1);
+        // the smallest text after every string starting with the prefix; not expressible after a surrogate
+        IndexScan.Bound upper = Character.isSurrogate(last) || Character.isSurrogate((char) (last + 1)) || last == Character.MAX_VALUE ? null
+                : new IndexScan.Bound(prefix.substring(0, end - 1) + (char) (last + 1), false);
+        return new IndexScan.Bound[]{new IndexScan.Bound(prefix, true), upper};
+    }
+
+    private static List<Schema.Column> selectedColumns(Schema schema, Query query) {
+        List<Schema.Column> columns = new ArrayList<>();
+        for (var item : query.items) {
+            switch (item.expr()) {
+                case Expr.Star star -> columns.addAll(schema.columnList);
+                case Expr.ColumnRef ref -> columns.add(column(schema, ref));
+                default -> throw new RuntimeException("not supported in the result columns: " + item.name());
+            }
+        }
+        return columns;
+    }
+
+    private static Schema.Column column(Schema schema, Expr expr) {
+        if (!(expr instanceof Expr.ColumnRef ref)) {
+            throw new RuntimeException("not supported: " + Expr.toSql(expr) + " is not a column");
+        }
+        return schema.getColumn(ref.name()).orElseThrow(() -> new RuntimeException("no such column: " + Expr.toSql(ref)));
+    }
+}
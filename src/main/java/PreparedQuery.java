@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parsed and planned statement that can be executed any number of times with different parameter values.
+ * The plan is kept until the schema changes, when the next execution plans the statement again.
+ */
+public class PreparedQuery {
+    private final DB db;
+    private final String sql;
+    private final Query query;
+    // the catalog the plan was made against; a reloaded catalog means tables or indexes may have changed
+    private Catalog plannedCatalog;
+    private Planner.Plan plan;
+
+    PreparedQuery(DB db, String sql) {
+        this.db = db;
+        this.sql = sql;
+        this.query = Query.parse(sql);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Query getQuery() {
+        return query;
+    }
+
+    public int getParameterCount() {
+        return query.parameterCount;
+    }
+
+    private synchronized Planner.Plan plan() throws IOException {
+        var catalog = db.catalog();
+        if (plan == null || catalog != plannedCatalog) {
+            plan = new Planner(db).plan(query);
+            plannedCatalog = catalog;
+        }
+        return plan;
+    }
+
+    /**
+     * Runs the statement, handing each row to {@code sink} as soon as the plan produces it. For
+     * {@code EXPLAIN ANALYZE}, the rows are produced but dropped, and the sink receives one row per line of the
+     * {@link Profile} instead.
+     */
+    public void execute(RowSink sink, Object... parameters) throws IOException {
+        if (parameters.length != query.parameterCount) {
+            throw new RuntimeException("expected " + query.parameterCount + " parameters, got " + parameters.length);
+        }
+        var before = db.metrics();
+        long start = System.nanoTime();
+        long rows = 0;
+        Metrics.Snapshot spent;
+        var profile = query.analyze ? new Profile(db) : null;
+        try (var operator = profile == null ? plan().instantiate(parameters) : profile.instantiate(plan(), parameters)) {
+            operator.open();
+            while (operator.next()) {
+                rows++;
+                var row = operator.row();
+                if (profile == null) {
+                    sink.accept(row);
+                }
+            }
+        } finally {
+            db.metrics.queries.increment();
+            db.metrics.rows.add(rows);
+            db.metrics.nanos.add(System.nanoTime() - start);
+            spent = db.metrics().minus(before);
+            db.lastQuery = spent;
+        }
+        if (profile != null) {
+            for (var line : profile.lines(spent)) {
+                sink.accept(new Object[]{line});
+            }
+        }
+    }
+
+    /**
+     * Runs the statement and collects its rows.
+     */
+    public List<Object[]> executeQuery(Object... parameters) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        execute(rows::add, parameters);
+        return rows;
+    }
+}
@@ -0,0 +1,200 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-operator statistics of one execution of a statement, as reported by {@code EXPLAIN ANALYZE}.
+ * <p>
+ * While a plan is {@linkplain #instantiate instantiated} for a profile, the planner wraps each operator it
+ * builds, along with the operators it reads from, in a {@link Node}, which counts the operator's rows and
+ * measures the time and pages spent in it, including its inputs. Operators built while the plan runs, such as
+ * the subtree scans of a {@link ParallelScan}, are not wrapped: their pages and time count towards the operator
+ * that started them, except for CPU time spent on other threads.
+ * <p>
+ * Reading the thread's CPU time costs about as much as producing a row, and every call to every operator pays
+ * it, so the times are inflated for operators passing many rows; they compare operators, not plans with plain runs.
+ */
+public class Profile {
+    private static final ThreadLocal<Profile> ACTIVE = new ThreadLocal<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final DB db;
+    private final boolean cpuTime = THREADS.isCurrentThreadCpuTimeSupported();
+    private Node<?> root;
+
+    public Profile(DB db) {
+        this.db = db;
+    }
+
+    /**
+     * {@code operator}, wrapped in a node of the profile the calling thread is instantiating a plan for, if any.
+     *
+     * @param inputs the operators {@code operator} reads from
+     */
+    static <R> Operator<R> node(Operator<R> operator, Operator<?>... inputs) {
+        return node(operator, null, inputs);
+    }
+
+    /**
+     * @param detail what the operator reads, such as a table or index name
+     */
+    static <R> Operator<R> node(Operator<R> operator, String detail, Operator<?>... inputs) {
+        var profile = ACTIVE.get();
+        if (profile == null) {
+            return operator;
+        }
+        var name = operator.getClass().getSimpleName();
+        List<Node<?>> children = new ArrayList<>();
+        for (var input : inputs) {
+            if (input instanceof Node<?> child) {
+                children.add(child);
+            }
+        }
+        return new Node<>(profile, operator, detail == null ? name : name + " " + detail, children);
+    }
+
+    /**
+     * Instantiates {@code plan} with its operators wrapped in nodes of this profile.
+     *
+     * @return the root of the wrapped tree
+     */
+    public Operator<Object[]> instantiate(Planner.Plan plan, Object[] parameters) throws IOException {
+        Operator<Object[]> operator;
+        ACTIVE.set(this);
+        try {
+            operator = plan.instantiate(parameters);
+            if (!(operator instanceof Node)) {
+                // the planner built the root without a node of its own
+                operator = node(operator);
+            }
+        } finally {
+            ACTIVE.remove();
+        }
+        root = (Node<?>) operator;
+        return operator;
+    }
+
+    /**
+     * One line per node of the executed plan, children indented under their parent, followed by the totals of
+     * the statement.
+     */
+    public List<String> lines(Metrics.Snapshot total) {
+        List<String> lines = new ArrayList<>();
+        if (root != null) {
+            root.describe(0, lines);
+        }
+        lines.add(String.format(Locale.ROOT, "Total  rows=%d time=%.3f ms pages=%d reads=%d cells=%d records=%d",
+                total.rows(), total.nanos() / 1e6, total.pageAccesses(), total.pageReads(),
+                total.cellsDecoded(), total.recordsDecoded()));
+        return lines;
+    }
+
+    private long cpuTime() {
+        return cpuTime ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long pageAccesses() {
+        return db.pageCache.accesses();
+    }
+
+    private long pageReads() {
+        return db.metrics.pageReads.sum();
+    }
+
+    /**
+     * An operator of the profiled plan. Its counters include the work of the operators below it.
+     */
+    static final class Node<R> implements Operator<R> {
+        private final Profile profile;
+        private final Operator<R> operator;
+        final String name;
+        final List<Node<?>> children;
+        // a batch scan's rows are those of its batches
+        private final boolean batches;
+        long rows;
+        long nanos;
+        long cpuNanos;
+        long pages;
+        long reads;
+        private long startNanos;
+        private long startCpu;
+        private long startPages;
+        private long startReads;
+
+        Node(Profile profile, Operator<R> operator, String name, List<Node<?>> children) {
+            this.profile = profile;
+            this.operator = operator;
+            this.name = name;
+            this.children = children;
+            this.batches = operator instanceof BatchScan || operator instanceof BatchFilter;
+        }
+
+        @Override
+        public void open() throws IOException {
+            start();
+            try {
+                operator.open();
+            } finally {
+                stop();
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            start();
+            try {
+                boolean more = operator.next();
+                if (more) {
+                    rows += batches ? ((Batch) operator.row()).selectedCount : 1;
+                }
+                return more;
+            } finally {
+                stop();
+            }
+        }
+
+        @Override
+        public R row() {
+            // a projection does its work here; it is only timed by the wall clock, as reading the thread's CPU
+            // time costs about as much as producing a row
+            long start = System.nanoTime();
+            try {
+                return operator.row();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() {
+            operator.close();
+        }
+
+        // the CPU time is read inside the wall-clock interval, so that the cost of reading it counts towards neither
+        private void start() {
+            startPages = profile.pageAccesses();
+            startReads = profile.pageReads();
+            startNanos = System.nanoTime();
+            startCpu = profile.cpuTime();
+        }
+
+        private void stop() {
+            cpuNanos += profile.cpuTime() - startCpu;
+            nanos += System.nanoTime() - startNanos;
+            reads += profile.pageReads() - startReads;
+            pages += profile.pageAccesses() - startPages;
+        }
+
+        private void describe(int depth, List<String> lines) {
+            lines.add(String.format(Locale.ROOT, "%s%s  rows=%d time=%.3f ms%s pages=%d reads=%d", "  ".repeat(depth),
+                    name, rows, nanos / 1e6, profile.cpuTime ? String.format(Locale.ROOT, " cpu=%.3f ms", cpuNanos / 1e6) : "",
+                    pages, reads));
+            for (var child : children) {
+                child.describe(depth + 1, lines);
+            }
+        }
+    }
+}
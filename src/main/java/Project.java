@@ -0,0 +1,62 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decodes the selected columns of each table row into an output row. Only the selected columns are decoded.
+ */
+public class Project implements Operator<Object[]> {
+    private final Operator<TableRow> child;
+    private final int[] columns;
+    private Object[] row;
+
+    public Project(Operator<TableRow> child, List<Schema.Column> columns) {
+        this(child, columnIndexes(columns));
+    }
+
+    /**
+     * @param columns positions of the output columns in the child's records
+     */
+    public Project(Operator<TableRow> child, int[] columns) {
+        this.child = child;
+        this.columns = columns;
+    }
+
+    static int[] columnIndexes(List<Schema.Column> columns) {
+        return columns.stream().mapToInt(Schema.Column::index).toArray();
+    }
+
+    /**
+     * The output row for a table row; a fresh array, so callers may keep it.
+     */
+    static Object[] project(TableRow tableRow, int[] columns) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            values[i] = tableRow.value(columns[i]);
+        }
+        return values;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!child.next()) {
+            return false;
+        }
+        row = project(child.row(), columns);
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+    }
+}
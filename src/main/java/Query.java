@@ -1,22 +1,78 @@
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
+/**
+ * A parsed SELECT statement.
+ */
 public class Query {
-    String table;
-    List<String> columns;
+    /**
+     * A result column and its optional {@code AS} alias.
+     */
+    public record SelectItem(Expr expr, String alias) {
+        /**
+         * The column name shown for this item: its alias, or the expression as written.
+         */
+        public String name() {
+            return alias != null ? alias : Expr.toSql(expr);
+        }
+    }
 
-    String filter;
+    public record OrderTerm(Expr expr, boolean descending) {
+    }
 
-    public Query(String table, List<String> columns) {
-        this.table = table;
-        this.columns = columns;
+    /**
+     * The second table of an inner join; {@code on} is {@code null} after a comma or for a join without
+     * {@code ON}.
+     */
+    public record Join(String table, String alias, Expr on) {
+        /**
+         * The name columns of this table are qualified with: its alias, or its name.
+         */
+        public String name() {
+            return alias != null ? alias : table;
+        }
     }
 
-    public Query(String table, List<String> columns, String filter) {
-        this.table = table;
-        this.columns = columns;
-        this.filter = filter;
+    // EXPLAIN ANALYZE: run the statement and return its plan's statistics instead of its rows
+    boolean analyze;
+    boolean distinct;
+    List<SelectItem> items;
+    String table;
+    String tableAlias;
+    // null when the statement reads a single table
+    Join join;
+    // null when the statement has no such clause
+    Expr where;
+    List<Expr> groupBy = List.of();
+    Expr having;
+    List<OrderTerm> orderBy = List.of();
+    Expr limit;
+    Expr offset;
+    // number of values to bind: the highest ?N, or the number of plain ? placeholders
+    int parameterCount;
+
+    public static Query parse(String sql) {
+        return Parser.parse(sql);
+    }
+
+    /**
+     * A copy of this query with other result columns.
+     */
+    Query withItems(List<SelectItem> items) {
+        var query = new Query();
+        query.analyze = analyze;
+        query.distinct = distinct;
+        query.items = items;
+        query.table = table;
+        query.tableAlias = tableAlias;
+        query.join = join;
+        query.where = where;
+        query.groupBy = groupBy;
+        query.having = having;
+        query.orderBy = orderBy;
+        query.limit = limit;
+        query.offset = offset;
+        query.parameterCount = parameterCount;
+        return query;
     }
 
     public String getTable() {
@@ -27,53 +83,60 @@ public class Query {
         this.table = table;
     }
 
+    public Join getJoin() {
+        return join;
+    }
+
+    public List<SelectItem> getItems() {
+        return items;
+    }
+
+    /**
+     * Names of the result columns.
+     */
     public List<String> getColumns() {
-        return columns;
+        return items.stream().map(SelectItem::name).toList();
     }
 
-    public void setColumns(List<String> columns) {
-        this.columns = columns;
+    public Expr getWhere() {
+        return where;
     }
 
-    public static Query parse(String sql) {
-        String[] parts = sql.split(" ");
-        List<String> partsList = Arrays.asList(parts);
+    public List<Expr> getGroupBy() {
+        return groupBy;
+    }
+
+    public List<OrderTerm> getOrderBy() {
+        return orderBy;
+    }
 
-        int selectIndex = getIndexCaseInsensite("SELECT", partsList);
-        int fromIndex = getIndexCaseInsensite("FROM", partsList);
-        int whereIndex = getIndexCaseInsensite("WHERE", partsList);
+    public int getParameterCount() {
+        return parameterCount;
+    }
 
+    public boolean isAnalyze() {
+        return analyze;
+    }
 
-        String table = partsList.get(fromIndex + 1);
-        List<String> columns = new ArrayList<>();
-        for(int i=selectIndex+1; i<fromIndex; ++i){
-            var col = partsList.get(i);
-            var index = col.indexOf(',');
-            var columnName = index >= 0 ? col.substring(0, index) : col;
-            columns.add(columnName);
-        }
-        if(whereIndex != -1){
-            String filter = String.join(" ", partsList.subList(whereIndex + 1, partsList.size()));
-            return new Query(table, columns, filter);
-        }else{
-            return new Query(table, columns, "");
-        }
+    public boolean hasLimit() {
+        return limit != null;
     }
 
-    private static int getIndexCaseInsensite(String str, List<String> partsList){
-        int index = partsList.indexOf(str);
-        if(index == -1){
-            index = partsList.indexOf(str.toLowerCase());
-        }
-        return index;
+    /**
+     * The LIMIT of a statement without parameters, -1 when it has none.
+     */
+    public long getLimit() {
+        return limit == null ? -1 : ((Number) Expr.constant(limit, new Object[0])).longValue();
     }
 
     @Override
     public String toString() {
         return "Query{" +
                 "table='" + table + '\'' +
-                ", columns=" + columns +
-                ", filter='" + filter + '\'' +
+                (join == null ? "" : ", join='" + join.table() + '\'') +
+                ", columns=" + getColumns() +
+                ", where=" + (where == null ? null : Expr.toSql(where)) +
+                ", limit=" + (limit == null ? null : Expr.toSql(limit)) +
                 '}';
     }
 }
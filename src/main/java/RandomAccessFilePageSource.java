@@ -0,0 +1,48 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Page source doing a seek and a read per page. Seek and read are not atomic, so reads are serialized.
+ */
+public final class RandomAccessFilePageSource implements PageSource {
+    private final RandomAccessFile file;
+    private final int pageSize;
+    private final int usableSize;
+
+    public RandomAccessFilePageSource(String databaseFilePath) throws IOException {
+        this.file = new RandomAccessFile(databaseFilePath, "r");
+        var header = read(0, 100);
+        this.pageSize = PageSource.pageSize(header);
+        this.usableSize = PageSource.usableSize(header);
+    }
+
+    @Override
+    public int pageSize() {
+        return pageSize;
+    }
+
+    @Override
+    public int usableSize() {
+        return usableSize;
+    }
+
+    @Override
+    public ByteBuffer readPage(int pageNumber) throws IOException {
+        return read(PageSource.pageOffset(pageNumber, pageSize), pageSize);
+    }
+
+    @Override
+    public synchronized ByteBuffer read(long offset, int length) throws IOException {
+        byte[] contents = new byte[length];
+        file.seek(offset);
+        file.readFully(contents);
+        return ByteBuffer.wrap(contents).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
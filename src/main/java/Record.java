@@ -60,7 +60,7 @@ public class Record {
                     break;
 
                 case 7:
-                    values.add(buffer.getFloat());
+                    values.add(buffer.getDouble());
                     break;
 
                 case 8:
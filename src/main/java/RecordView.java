@@ -0,0 +1,318 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Lazy view over a record in a page buffer. Only the serial-type header is parsed up front; a column is
+ * decoded when it is read. A view can be {@link #reset} to the next record so a scan reuses one instance.
+ * <p>
+ * Values are read with absolute gets, so the underlying buffer is never repositioned. For records that spill
+ * to overflow pages, a column is fetched from the overflow chain only when it is read, and large values can
+ * be consumed incrementally with {@link #openStream(int)}.
+ */
+public class RecordView {
+    final PageSource pageSource;
+
+    ByteBuffer buffer;
+    int columnCount;
+    int[] serialTypes = new int[8];
+    // absolute offset of each column's content in the buffer; may lie past localEnd for spilled records
+    int[] offsets = new int[8];
+
+    int payloadStart;
+    int localEnd;
+    int firstOverflowPage;
+    long payloadLength;
+
+    public RecordView() {
+        this(null);
+    }
+
+    public RecordView(PageSource pageSource) {
+        this.pageSource = pageSource;
+    }
+
+    public static RecordView of(ByteBuffer buffer, int start, int length) {
+        return new RecordView().reset(buffer, start, length);
+    }
+
+    public RecordView reset(ByteBuffer buffer, int start, int length) {
+        this.firstOverflowPage = 0;
+        this.payloadLength = length;
+        return parseHeader(buffer, start, length);
+    }
+
+    /**
+     * Points the view at a record of {@code payloadLength} bytes, of which {@code localLength} are in
+     * {@code buffer} and the rest in the overflow chain starting at {@code firstOverflowPage}.
+     */
+    public RecordView reset(ByteBuffer buffer, int start, int localLength, int firstOverflowPage, long payloadLength) {
+        this.firstOverflowPage = firstOverflowPage;
+        this.payloadLength = payloadLength;
+        if (Cell.varint(buffer, start) > localLength) {
+            // the header itself spills; rare enough (hundreds of columns) to just materialize the record
+            try (var in = new OverflowInputStream(pageSource, buffer, start, localLength, firstOverflowPage, payloadLength)) {
+                byte[] payload = in.readAllBytes();
+                return reset(ByteBuffer.wrap(payload), 0, payload.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return parseHeader(buffer, start, localLength);
+    }
+
+    private RecordView parseHeader(ByteBuffer buffer, int start, int localLength) {
+        this.buffer = buffer;
+        this.payloadStart = start;
+        this.localEnd = start + localLength;
+        long headerSize = Cell.varint(buffer, start);
+        int pos = start + Cell.varintSize(buffer, start);
+        int headerEnd = start + (int) headerSize;
+        int contentOffset = headerEnd;
+        int n = 0;
+        while (pos < headerEnd) {
+            // serial types below 128 (all but long TEXT and BLOB values) take a single byte
+            int serialType = buffer.get(pos);
+            if (serialType >= 0) {
+                pos++;
+            } else {
+                serialType = (int) Cell.varint(buffer, pos);
+                pos += Cell.varintSize(buffer, pos);
+            }
+            if (n == serialTypes.length) {
+                serialTypes = Arrays.copyOf(serialTypes, n * 2);
+                offsets = Arrays.copyOf(offsets, n * 2);
+            }
+            serialTypes[n] = serialType;
+            offsets[n] = contentOffset;
+            contentOffset += contentSize(serialType);
+            n++;
+        }
+        assert contentOffset <= start + payloadLength;
+        this.columnCount = n;
+        return this;
+    }
+
+    public static int contentSize(int serialType) {
+        return switch (serialType) {
+            case 0, 8, 9 -> 0;
+            case 1 -> 1;
+            case 2 -> 2;
+            case 3 -> 3;
+            case 4 -> 4;
+            case 5 -> 6;
+            case 6, 7 -> 8;
+            default -> serialType >= 12 ? (serialType - 12) >> 1 : 0;
+        };
+    }
+
+    public int columnCount() {
+        return columnCount;
+    }
+
+    /**
+     * Serial type of column {@code n}; columns past the end of the record (added by ALTER TABLE) read as NULL.
+     */
+    public int serialType(int n) {
+        return n < columnCount ? serialTypes[n] : 0;
+    }
+
+    public boolean isNull(int n) {
+        return serialType(n) == 0;
+    }
+
+    public boolean isInteger(int n) {
+        int serialType = serialType(n);
+        return serialType >= 1 && serialType <= 6 || serialType == 8 || serialType == 9;
+    }
+
+    public boolean isText(int n) {
+        int serialType = serialType(n);
+        return serialType >= 13 && (serialType & 1) == 1;
+    }
+
+    public long getLong(int n) {
+        if (n >= columnCount) {
+            return 0;
+        }
+        ByteBuffer buffer = this.buffer;
+        int offset = offsets[n];
+        if (isSpilled(n)) {
+            buffer = ByteBuffer.wrap(readSpilled(n));
+            offset = 0;
+        }
+        return switch (serialTypes[n]) {
+            case 1 -> buffer.get(offset);
+            case 2 -> buffer.getShort(offset);
+            case 3 -> (buffer.get(offset) << 16) | ((buffer.get(offset + 1) & 0xFF) << 8) | (buffer.get(offset + 2) & 0xFF);
+            case 4 -> buffer.getInt(offset);
+            case 5 -> ((long) buffer.getShort(offset) << 32) | (buffer.getInt(offset + 2) & 0xFFFFFFFFL);
+            case 6 -> buffer.getLong(offset);
+            case 7 -> (long) buffer.getDouble(offset);
+            case 9 -> 1;
+            default -> 0;
+        };
+    }
+
+    public double getDouble(int n) {
+        if (serialType(n) != 7) {
+            return getLong(n);
+        }
+        return isSpilled(n) ? ByteBuffer.wrap(readSpilled(n)).getDouble() : buffer.getDouble(offsets[n]);
+    }
+
+    public String getText(int n) {
+        int serialType = serialType(n);
+        if (serialType < 12) {
+            return serialType == 0 ? null : String.valueOf(getValue(n));
+        }
+        byte[] contents = getBlob(n);
+        return new String(contents, StandardCharsets.UTF_8);
+    }
+
+    public byte[] getBlob(int n) {
+        if (n >= columnCount) {
+            return new byte[0];
+        }
+        if (isSpilled(n)) {
+            return readSpilled(n);
+        }
+        byte[] contents = new byte[contentSize(serialTypes[n])];
+        buffer.get(offsets[n], contents);
+        return contents;
+    }
+
+    /**
+     * Compares column {@code n} with a value using SQLite's sort order: NULL, then numbers, then text (binary
+     * collation), then blobs. {@code value} is {@code null}, a {@link Number}, a {@link String} or a {@code byte[]}.
+     */
+    public int compare(int n, Object value) {
+        int storageClass = storageClass(serialType(n));
+        int valueClass = value == null ? 0 : value instanceof Number ? 1 : value instanceof String ? 2 : 3;
+        if (storageClass != valueClass) {
+            return Integer.compare(storageClass, valueClass);
+        }
+        return switch (storageClass) {
+            case 0 -> 0;
+            case 1 -> isInteger(n) && !(value instanceof Double || value instanceof Float)
+                    ? Long.compare(getLong(n), ((Number) value).longValue())
+                    : Double.compare(getDouble(n), ((Number) value).doubleValue());
+            case 2 -> compareBytes(n, ((String) value).getBytes(StandardCharsets.UTF_8));
+            default -> compareBytes(n, (byte[]) value);
+        };
+    }
+
+    private static int storageClass(int serialType) {
+        if (serialType == 0) {
+            return 0;
+        }
+        if (serialType < 12) {
+            return 1;
+        }
+        return (serialType & 1) == 1 ? 2 : 3;
+    }
+
+    /**
+     * Whether TEXT or BLOB column {@code n} holds exactly the bytes of {@code key}, compared in place.
+     */
+    boolean bytesEqual(int n, byte[] key) {
+        if (contentSize(serialType(n)) != key.length) {
+            return false;
+        }
+        if (isSpilled(n)) {
+            return Arrays.equals(readSpilled(n), key);
+        }
+        int offset = offsets[n];
+        for (int i = 0; i < key.length; ++i) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the content of TEXT or BLOB column {@code n} with {@code other}, as unsigned bytes.
+     */
+    int compareBytes(int n, byte[] other) {
+        if (isSpilled(n)) {
+            return Arrays.compareUnsigned(readSpilled(n), other);
+        }
+        int offset = offsets[n];
+        int length = contentSize(serialTypes[n]);
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; ++i) {
+            int c = Integer.compare(buffer.get(offset + i) & 0xFF, other[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    /**
+     * Copies the content of TEXT or BLOB column {@code n} into {@code destination} at {@code offset}.
+     */
+    void getBytes(int n, byte[] destination, int offset) {
+        if (isSpilled(n)) {
+            byte[] contents = readSpilled(n);
+            System.arraycopy(contents, 0, destination, offset, contents.length);
+        } else {
+            buffer.get(offsets[n], destination, offset, contentSize(serialTypes[n]));
+        }
+    }
+
+    /**
+     * Size in bytes of the content of a TEXT or BLOB column.
+     */
+    public int contentLength(int n) {
+        return contentSize(serialType(n));
+    }
+
+    /**
+     * Streams the content of column {@code n}. Overflow pages before the column are skipped by following their
+     * next-page pointers only, and pages holding the column are read as the stream is consumed.
+     */
+    public InputStream openStream(int n) throws IOException {
+        if (n >= columnCount) {
+            return InputStream.nullInputStream();
+        }
+        long columnStart = offsets[n] - payloadStart;
+        long columnEnd = columnStart + contentSize(serialTypes[n]);
+        var in = new OverflowInputStream(pageSource, buffer, payloadStart, localEnd - payloadStart, firstOverflowPage, columnEnd);
+        in.skipNBytes(columnStart);
+        return in;
+    }
+
+    boolean isSpilled(int n) {
+        return offsets[n] + contentSize(serialTypes[n]) > localEnd;
+    }
+
+    private byte[] readSpilled(int n) {
+        try (var in = openStream(n)) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decodes column {@code n} to {@code null}, {@link Long}, {@link Double}, {@link String} or {@code byte[]}.
+     */
+    public Object getValue(int n) {
+        int serialType = serialType(n);
+        if (serialType == 0) {
+            return null;
+        } else if (serialType == 7) {
+            return getDouble(n);
+        } else if (serialType < 12) {
+            return getLong(n);
+        } else if ((serialType & 1) == 1) {
+            return getText(n);
+        }
+        return getBlob(n);
+    }
+}
@@ -1,62 +1,944 @@
-import java.util.Objects;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
+/**
+ * A WHERE clause compiled into a tree of {@link Condition}s that test the undecoded record of a row. Column
+ * references are resolved against the schema once. Each comparison with a constant is specialized for the
+ * constant's type after SQLite's affinity rules are applied to it, so that evaluation reads the serial type and
+ * compares integers as primitives and text as bytes in the page, without decoding the row. Text is compared
+ * under the collation of the column, or of the left one when two columns are compared.
+ * <p>
+ * Conditions follow SQL's three-valued logic, so that {@code NOT} and {@code OR} treat NULL as SQLite does;
+ * a row passes when its condition is {@link #TRUE}.
+ * <p>
+ * A predicate over parameters is compiled when {@link #bind(Object[])} supplies their values.
+ * <p>
+ * For a batch scan, {@link #vectorize()} takes the conjuncts that compare a column with a constant out of the
+ * clause as {@link BatchCondition}s, loops over the primitive arrays of a column vector that narrow a batch's
+ * selection; the conjuncts left over are still tested on the record.
+ */
 public class RowPredicate {
-    String filter;
-    Schema schema;
+    static final int FALSE = 0;
+    static final int TRUE = 1;
+    static final int UNKNOWN = 2;
 
-    int colIndex;
-    Object expected;
+    /**
+     * Column index standing for the rowid, whether named {@code rowid} or by its INTEGER PRIMARY KEY alias.
+     */
+    static final int ROWID = -2;
 
-    String op;
+    // bits of the comparison results an operator accepts, indexed by the sign of the comparison plus one
+    private static final int LESS = 1;
+    private static final int EQUAL = 2;
+    private static final int GREATER = 4;
+    private static final Map<String, Integer> COMPARISONS = Map.of(
+            "=", EQUAL, "!=", LESS | GREATER, "<", LESS, "<=", LESS | EQUAL, ">", GREATER, ">=", GREATER | EQUAL);
+    private static final Map<String, String> FLIPPED = Map.of(
+            "=", "=", "!=", "!=", "<", ">", "<=", ">=", ">", "<", ">=", "<=");
+    private static final Pattern NUMBER = Pattern.compile("\\s*[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?\\s*");
 
-    public RowPredicate(String filter, Schema schema) {
-        this.filter = filter;
-        this.schema = schema;
+    /**
+     * A compiled condition. Implementations read only the columns they test, straight from the record.
+     */
+    interface Condition {
+        /**
+         * @return {@link #TRUE}, {@link #FALSE} or {@link #UNKNOWN}
+         */
+        int eval(long rowId, RecordView record);
+    }
 
-        var filterParts = filter.trim().splitWithDelimiters("[=><]", 0);
-        var colName = filterParts[0].trim();
-        op = filterParts[1].trim();
-        var arg = filterParts[2].trim();
+    /**
+     * A conjunct compiled to run over the column vectors of a batch. It narrows the batch's selection to the rows
+     * for which the conjunct is {@link #TRUE}, keeping their order.
+     */
+    interface BatchCondition {
+        void filter(Batch batch);
 
-        colIndex = schema.columnList.stream().filter(c -> c.name().equals(colName))
-                .findAny()
-                .get()
-                .index();
+        /**
+         * The table column whose vector the condition reads, or {@link #ROWID}.
+         */
+        int column();
+    }
 
-        if (Character.isDigit(arg.charAt(0))) {
-            expected = Integer.parseInt(arg);
-        } else {
-            expected = arg.substring(1, arg.lastIndexOf("'"));
+    /**
+     * A bound predicate split for a batch scan: {@code conditions} run over column vectors, and {@code residual}
+     * holds the other conjuncts, {@code null} when there are none.
+     */
+    public record Vectorized(List<BatchCondition> conditions, RowPredicate residual) {
+        /**
+         * The table columns the conditions read, which the scan must decode.
+         */
+        int[] columns() {
+            return conditions.stream().mapToInt(BatchCondition::column).filter(c -> c != ROWID).distinct().toArray();
         }
     }
 
-    public boolean eval(Record record) {
-        var recordValue = record.getValues().get(this.colIndex);
-        switch (op) {
-            case "=":
-                return Objects.equals(recordValue, expected);
-            default:
-                throw new RuntimeException("evaluation not implemented for operator " + op);
+    /**
+     * A conjunct of the WHERE clause of the form {@code column op constant}, with the column on the left; the
+     * planner matches these against indexes. {@code op} is a comparison other than {@code !=}, or {@code LIKE};
+     * {@code BETWEEN} contributes a {@code >=} and a {@code <=} term.
+     */
+    public record Term(int column, String op, Expr operand) {
+    }
+
+    final Expr where;
+    final Schema schema;
+    final List<Term> terms;
+    // table columns the clause reads, other than the rowid
+    final BitSet columns = new BitSet();
+    // values of the parameters, null until bound; a predicate without parameters is bound from the start
+    private final Object[] parameters;
+    // position in the evaluated record of each table column, null when evaluated on table records
+    private final int[] recordColumns;
+    private final Condition condition;
+
+    public RowPredicate(Expr where, Schema schema) {
+        this(where, schema, parameterCount(where) > 0 ? null : new Object[0], null);
+    }
+
+    private RowPredicate(Expr where, Schema schema, Object[] parameters, int[] recordColumns) {
+        this.where = where;
+        this.schema = schema;
+        this.parameters = parameters;
+        this.recordColumns = recordColumns;
+        List<Term> terms = new ArrayList<>();
+        collectTerms(where, terms);
+        this.terms = terms;
+        // compiling checks every column and operator, so an unbound predicate is compiled once with dummy values
+        var compiled = compile(where, parameters == null ? new Object[parameterCount(where)] : parameters);
+        this.condition = parameters == null ? null : compiled;
+    }
+
+    /**
+     * This predicate compiled with the parameter values of one execution.
+     */
+    public RowPredicate bind(Object[] parameters) {
+        return this.parameters != null ? this : new RowPredicate(where, schema, parameters, recordColumns);
+    }
+
+    /**
+     * This predicate evaluated on the entries of {@code index} instead of table rows; every column it reads must
+     * be in the index.
+     */
+    public RowPredicate onIndex(Schema.Index index) {
+        int[] recordColumns = new int[schema.columnList.size()];
+        Arrays.fill(recordColumns, -1);
+        for (int i = 0; i < index.colIndexes().size(); ++i) {
+            recordColumns[index.colIndexes().get(i)] = i;
         }
+        return new RowPredicate(where, schema, parameters, recordColumns);
+    }
+
+    /**
+     * Whether all the columns the clause reads are in {@code index}, which also holds the rowid.
+     */
+    public boolean isCoveredBy(Schema.Index index) {
+        return columns.stream().allMatch(index.colIndexes()::contains);
+    }
+
+    public boolean eval(TableRow row) {
+        return test(row.rowId, row.record);
     }
 
-    public String getFilter() {
-        return filter;
+    public boolean test(long rowId, RecordView record) {
+        return condition.eval(rowId, record) == TRUE;
+    }
+
+    /**
+     * Splits this bound predicate, evaluated on table records, into the conjuncts that run over column vectors
+     * and the rest.
+     */
+    public Vectorized vectorize() {
+        List<Expr> conjuncts = new ArrayList<>();
+        collectConjuncts(where, conjuncts);
+        List<BatchCondition> conditions = new ArrayList<>();
+        Expr residual = null;
+        for (var conjunct : conjuncts) {
+            var condition = batchCondition(conjunct);
+            if (condition != null) {
+                conditions.add(condition);
+            } else {
+                residual = residual == null ? conjunct : new Expr.Binary("AND", residual, conjunct);
+            }
+        }
+        return new Vectorized(conditions, residual == null ? null : new RowPredicate(residual, schema, parameters, null));
+    }
+
+    public List<Term> getTerms() {
+        return terms;
+    }
+
+    /**
+     * The constant of a term in a bound predicate, converted by the column's affinity as the comparison sees it;
+     * {@code null} for NULL, which no index entry matches.
+     */
+    public Object value(Term term) {
+        var value = constant(term.operand(), parameters);
+        // a LIKE pattern is text whatever the column
+        return term.op().equals("LIKE") ? value : affinity(term.column(), value);
     }
 
     public Schema getSchema() {
         return schema;
     }
 
-    public int getColIndex() {
-        return colIndex;
+    private static int parameterCount(Expr expr) {
+        return switch (expr) {
+            case Expr.Parameter p -> p.index() + 1;
+            case Expr.Unary u -> parameterCount(u.operand());
+            case Expr.Binary b -> Math.max(parameterCount(b.left()), parameterCount(b.right()));
+            case Expr.IsNull n -> parameterCount(n.operand());
+            case Expr.Between b -> Math.max(parameterCount(b.operand()), Math.max(parameterCount(b.low()), parameterCount(b.high())));
+            case Expr.InList in -> Math.max(parameterCount(in.operand()),
+                    in.values().stream().mapToInt(RowPredicate::parameterCount).max().orElse(0));
+            default -> 0;
+        };
+    }
+
+    private void collectTerms(Expr expr, List<Term> terms) {
+        if (expr instanceof Expr.Binary b && b.op().equals("AND")) {
+            collectTerms(b.left(), terms);
+            collectTerms(b.right(), terms);
+        } else if (expr instanceof Expr.Binary b && COMPARISONS.containsKey(b.op()) && !b.op().equals("!=")) {
+            if (b.left() instanceof Expr.ColumnRef c && Expr.isConstant(b.right())) {
+                terms.add(new Term(column(c), b.op(), b.right()));
+            } else if (b.right() instanceof Expr.ColumnRef c && Expr.isConstant(b.left())) {
+                terms.add(new Term(column(c), FLIPPED.get(b.op()), b.left()));
+            }
+        } else if (expr instanceof Expr.Between b && !b.negated() && b.operand() instanceof Expr.ColumnRef c
+                && Expr.isConstant(b.low()) && Expr.isConstant(b.high())) {
+            terms.add(new Term(column(c), ">=", b.low()));
+            terms.add(new Term(column(c), "<=", b.high()));
+        } else if (expr instanceof Expr.Binary b && b.op().equals("LIKE") && b.left() instanceof Expr.ColumnRef c
+                && Expr.isConstant(b.right())) {
+            terms.add(new Term(column(c), "LIKE", b.right()));
+        }
+    }
+
+    /**
+     * The top-level conjuncts of {@code expr}; a row passes all of them exactly when it passes {@code expr}, so a
+     * {@code BETWEEN} yields its two comparisons.
+     */
+    private static void collectConjuncts(Expr expr, List<Expr> conjuncts) {
+        if (expr instanceof Expr.Binary b && b.op().equals("AND")) {
+            collectConjuncts(b.left(), conjuncts);
+            collectConjuncts(b.right(), conjuncts);
+        } else if (expr instanceof Expr.Between b && !b.negated()) {
+            conjuncts.add(new Expr.Binary(">=", b.operand(), b.low()));
+            conjuncts.add(new Expr.Binary("<=", b.operand(), b.high()));
+        } else {
+            conjuncts.add(expr);
+        }
+    }
+
+    /**
+     * The conjunct as a loop over a column vector, or {@code null} when it only runs on records: comparisons of a
+     * column with a number or, under BINARY collation, with a text, IS [NOT] NULL, and IN lists of integers.
+     */
+    private BatchCondition batchCondition(Expr conjunct) {
+        switch (conjunct) {
+            case Expr.Binary b when COMPARISONS.containsKey(b.op()) -> {
+                String op = b.op();
+                Expr left = b.left();
+                Expr right = b.right();
+                if (Expr.isConstant(left) && right instanceof Expr.ColumnRef) {
+                    op = FLIPPED.get(op);
+                    left = b.right();
+                    right = b.left();
+                }
+                if (!(left instanceof Expr.ColumnRef ref) || !Expr.isConstant(right)) {
+                    return null;
+                }
+                int column = column(ref);
+                int mask = COMPARISONS.get(op);
+                return switch (affinity(column, constant(right, parameters))) {
+                    case Long l -> new IntegerFilter(column, l, mask);
+                    case Double d -> new RealFilter(column, d, mask);
+                    case String s when column != ROWID && collation(column) == Schema.Collation.BINARY ->
+                            new TextFilter(column, s.getBytes(StandardCharsets.UTF_8), mask);
+                    case null, default -> null;
+                };
+            }
+            case Expr.IsNull n when n.operand() instanceof Expr.ColumnRef ref && column(ref) != ROWID -> {
+                return new NullFilter(column(ref), n.negated());
+            }
+            case Expr.InList in when !in.negated() && !in.values().isEmpty()
+                    && in.operand() instanceof Expr.ColumnRef ref && in.values().stream().allMatch(Expr::isConstant) -> {
+                int column = column(ref);
+                long[] keys = new long[in.values().size()];
+                for (int i = 0; i < keys.length; ++i) {
+                    if (!(affinity(column, constant(in.values().get(i), parameters)) instanceof Long l)) {
+                        return null;
+                    }
+                    keys[i] = l;
+                }
+                Arrays.sort(keys);
+                return new IntegerSetFilter(column, keys);
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+
+    private int column(Expr.ColumnRef ref) {
+        var column = schema.getColumn(ref.name());
+        if (column.isPresent()) {
+            if (column.get().isPK()) {
+                return ROWID;
+            }
+            columns.set(column.get().index());
+            return column.get().index();
+        }
+        var name = ref.name().toLowerCase();
+        if (name.equals("rowid") || name.equals("oid") || name.equals("_rowid_")) {
+            return ROWID;
+        }
+        throw new RuntimeException("no such column: " + Expr.toSql(ref));
+    }
+
+    /**
+     * Where the conditions read a table column in the records they are evaluated on.
+     */
+    private int slot(int column) {
+        return column == ROWID || recordColumns == null ? column : recordColumns[column];
+    }
+
+    private Condition compile(Expr expr, Object[] parameters) {
+        return switch (expr) {
+            case Expr.Binary b when b.op().equals("AND") -> and(compile(b.left(), parameters), compile(b.right(), parameters));
+            case Expr.Binary b when b.op().equals("OR") -> or(compile(b.left(), parameters), compile(b.right(), parameters));
+            case Expr.Unary u when u.op().equals("NOT") -> not(compile(u.operand(), parameters));
+            case Expr.Binary b when COMPARISONS.containsKey(b.op()) -> comparison(b.op(), b.left(), b.right(), parameters);
+            case Expr.Binary b when b.op().equals("IS") || b.op().equals("IS NOT") -> {
+                Condition is = Expr.isConstant(b.right()) && constant(b.right(), parameters) == null
+                        ? isNull(b.left())
+                        : notNull(comparison("=", b.left(), b.right(), parameters));
+                yield b.op().equals("IS") ? is : not(is);
+            }
+            case Expr.Binary b when b.op().equals("LIKE") -> like(b.left(), b.right(), parameters);
+            case Expr.IsNull n -> n.negated() ? not(isNull(n.operand())) : isNull(n.operand());
+            case Expr.Between b -> {
+                var between = and(comparison(">=", b.operand(), b.low(), parameters), comparison("<=", b.operand(), b.high(), parameters));
+                yield b.negated() ? not(between) : between;
+            }
+            case Expr.InList in -> in.negated() ? not(in(in, parameters)) : in(in, parameters);
+            default -> {
+                if (Expr.isConstant(expr)) {
+                    yield constant(truth(constant(expr, parameters)));
+                }
+                throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(expr));
+            }
+        };
+    }
+
+    private Condition comparison(String op, Expr left, Expr right, Object[] parameters) {
+        if (Expr.isConstant(left) && !Expr.isConstant(right)) {
+            return comparison(FLIPPED.get(op), right, left, parameters);
+        }
+        int mask = COMPARISONS.get(op);
+        if (!(left instanceof Expr.ColumnRef ref)) {
+            if (Expr.isConstant(left)) {
+                Object l = constant(left, parameters);
+                Object r = constant(right, parameters);
+                return constant(l == null || r == null ? UNKNOWN : result(mask, compareValues(l, r)));
+            }
+            throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(left));
+        }
+        int column = column(ref);
+        if (right instanceof Expr.ColumnRef other) {
+            int otherColumn = column(other);
+            // numeric affinity applies to both sides when either column has it, and neither is converted otherwise
+            boolean numeric = isNumeric(column) || isNumeric(otherColumn);
+            return new ColumnComparison(slot(column), slot(otherColumn), numeric, collation(column), mask);
+        }
+        if (!Expr.isConstant(right)) {
+            throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(right));
+        }
+        Object value = affinity(column, constant(right, parameters));
+        if (value == null) {
+            return constant(UNKNOWN);
+        }
+        if (column == ROWID) {
+            return new RowidComparison(value, mask);
+        }
+        return switch (value) {
+            case Long l -> new IntegerComparison(slot(column), l, mask);
+            case Double d -> new RealComparison(slot(column), d, mask);
+            case String s when collation(column) != Schema.Collation.BINARY -> new CollatedComparison(slot(column),
+                    collation(column).key(s.getBytes(StandardCharsets.UTF_8)), collation(column), mask);
+            case String s -> new TextComparison(slot(column), s.getBytes(StandardCharsets.UTF_8), mask);
+            default -> new BlobComparison(slot(column), (byte[]) value, mask);
+        };
+    }
+
+    private Condition isNull(Expr operand) {
+        if (!(operand instanceof Expr.ColumnRef ref)) {
+            throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(operand) + " IS NULL");
+        }
+        int column = slot(column(ref));
+        // the rowid is never NULL
+        return column == ROWID ? constant(FALSE) : (rowId, record) -> record.serialType(column) == 0 ? TRUE : FALSE;
+    }
+
+    private Condition in(Expr.InList in, Object[] parameters) {
+        if (in.values().isEmpty()) {
+            // even NULL IN () is false
+            return constant(FALSE);
+        }
+        if (!(in.operand() instanceof Expr.ColumnRef ref) || !in.values().stream().allMatch(Expr::isConstant)) {
+            throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(in));
+        }
+        int column = column(ref);
+        List<Long> integers = new ArrayList<>();
+        List<Expr> others = new ArrayList<>();
+        for (var value : in.values()) {
+            if (affinity(column, constant(value, parameters)) instanceof Long l) {
+                integers.add(l);
+            } else {
+                others.add(value);
+            }
+        }
+        // x IN (a, b) is x = a OR x = b, including the UNKNOWN when no value matches and one of them is NULL
+        Condition condition = null;
+        if (!integers.isEmpty()) {
+            condition = new IntegerSet(slot(column), integers.stream().mapToLong(Long::longValue).sorted().toArray());
+        }
+        for (var value : others) {
+            var equal = comparison("=", ref, value, parameters);
+            condition = condition == null ? equal : or(condition, equal);
+        }
+        return condition;
+    }
+
+    private Condition like(Expr operand, Expr pattern, Object[] parameters) {
+        if (!(operand instanceof Expr.ColumnRef ref) || !Expr.isConstant(pattern)) {
+            throw new RuntimeException("unsupported WHERE clause: " + Expr.toSql(operand) + " LIKE " + Expr.toSql(pattern));
+        }
+        int column = column(ref);
+        Object value = constant(pattern, parameters);
+        if (value == null) {
+            return constant(UNKNOWN);
+        }
+        byte[] bytes = value instanceof byte[] b ? b : String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        return new Like(slot(column), bytes);
+    }
+
+    private static Condition and(Condition left, Condition right) {
+        return (rowId, record) -> {
+            int l = left.eval(rowId, record);
+            if (l == FALSE) {
+                return FALSE;
+            }
+            int r = right.eval(rowId, record);
+            return r == FALSE ? FALSE : l == TRUE && r == TRUE ? TRUE : UNKNOWN;
+        };
+    }
+
+    private static Condition or(Condition left, Condition right) {
+        return (rowId, record) -> {
+            int l = left.eval(rowId, record);
+            if (l == TRUE) {
+                return TRUE;
+            }
+            int r = right.eval(rowId, record);
+            return r == TRUE ? TRUE : l == FALSE && r == FALSE ? FALSE : UNKNOWN;
+        };
+    }
+
+    private static Condition not(Condition operand) {
+        return (rowId, record) -> {
+            int result = operand.eval(rowId, record);
+            return result == UNKNOWN ? UNKNOWN : TRUE - result;
+        };
+    }
+
+    private static Condition notNull(Condition operand) {
+        return (rowId, record) -> operand.eval(rowId, record) == TRUE ? TRUE : FALSE;
+    }
+
+    private static Condition constant(int result) {
+        return (rowId, record) -> result;
+    }
+
+    private static int result(int mask, int comparison) {
+        return (mask >> (Integer.signum(comparison) + 1) & 1) != 0 ? TRUE : FALSE;
+    }
+
+    /**
+     * Evaluates a constant, widening Java parameter types to the ones records decode to.
+     */
+    static Object constant(Expr expr, Object[] parameters) {
+        return switch (Expr.constant(expr, parameters)) {
+            case Integer i -> (long) i;
+            case Short s -> (long) s;
+            case Byte b -> (long) b;
+            case Float f -> (double) f;
+            case Boolean b -> b ? 1L : 0L;
+            case null -> null;
+            case Object o -> o;
+        };
+    }
+
+    /**
+     * Converts a value compared with {@code column} as SQLite does: text that looks like a number becomes one
+     * for numeric columns, and numbers become text for TEXT columns.
+     */
+    private Object affinity(int column, Object value) {
+        return affinity(column == ROWID ? Schema.Affinity.INTEGER : schema.columnList.get(column).affinity(), value);
+    }
+
+    private boolean isNumeric(int column) {
+        return switch (column == ROWID ? Schema.Affinity.INTEGER : schema.columnList.get(column).affinity()) {
+            case INTEGER, REAL, NUMERIC -> true;
+            case TEXT, BLOB -> false;
+        };
+    }
+
+    private Schema.Collation collation(int column) {
+        return column == ROWID ? Schema.Collation.BINARY : schema.columnList.get(column).collation();
+    }
+
+    /**
+     * Converts a value as {@code affinity} does before a comparison.
+     */
+    static Object affinity(Schema.Affinity affinity, Object value) {
+        return switch (affinity) {
+            case INTEGER, REAL, NUMERIC -> value instanceof String s ? toNumber(s) : value;
+            case TEXT -> value instanceof Number n ? toText(n) : value;
+            case BLOB -> value;
+        };
+    }
+
+    /**
+     * The number a text looks like, as numeric affinity converts it, or the text itself.
+     */
+    static Object toNumber(String text) {
+        if (!NUMBER.matcher(text).matches()) {
+            return text;
+        }
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return Double.parseDouble(text.trim());
+        }
+    }
+
+    private static String toText(Number number) {
+        if (number instanceof Double d && d == Math.rint(d) && Math.abs(d) < 1e15) {
+            return (long) (double) d + ".0";
+        }
+        return String.valueOf(number);
+    }
+
+    private static int truth(Object value) {
+        return switch (value) {
+            case null -> UNKNOWN;
+            case Long l -> l != 0 ? TRUE : FALSE;
+            case Double d -> d != 0 ? TRUE : FALSE;
+            case String s -> toNumber(s) instanceof Number n && n.doubleValue() != 0 ? TRUE : FALSE;
+            default -> FALSE;
+        };
+    }
+
+    /**
+     * Compares two non-null values in SQLite's sort order: numbers, then text, then blobs.
+     */
+    static int compareValues(Object a, Object b) {
+        int classA = storageClass(a);
+        int classB = storageClass(b);
+        if (classA != classB) {
+            return Integer.compare(classA, classB);
+        }
+        return switch (a) {
+            case Long l when b instanceof Long m -> Long.compare(l, m);
+            case Long l -> -compareRealInteger((Double) b, l);
+            case Double d when b instanceof Long m -> compareRealInteger(d, m);
+            case Double d -> Double.compare(d, (Double) b);
+            case String s -> Arrays.compareUnsigned(s.getBytes(StandardCharsets.UTF_8), ((String) b).getBytes(StandardCharsets.UTF_8));
+            default -> Arrays.compareUnsigned((byte[]) a, (byte[]) b);
+        };
+    }
+
+    /**
+     * Compares two non-null values in SQLite's sort order, two texts under {@code collation}.
+     */
+    static int compareValues(Object a, Object b, Schema.Collation collation) {
+        return a instanceof String s && b instanceof String t ? collation.compare(s, t) : compareValues(a, b);
+    }
+
+    private static int storageClass(Object value) {
+        return value instanceof Number ? 1 : value instanceof String ? 2 : 3;
+    }
+
+    /**
+     * Compares a real with an integer exactly, where converting the integer to a double could round it.
+     */
+    static int compareRealInteger(double real, long integer) {
+        if (real < -9.223372036854775808E18) {
+            return -1;
+        }
+        if (real >= 9.223372036854775808E18) {
+            return 1;
+        }
+        long truncated = (long) real;
+        if (truncated != integer) {
+            return truncated < integer ? -1 : 1;
+        }
+        double fraction = real - truncated;
+        return fraction > 0 ? 1 : fraction < 0 ? -1 : 0;
+    }
+
+    private static boolean isInteger(int serialType) {
+        return serialType >= 1 && serialType <= 6 || serialType == 8 || serialType == 9;
+    }
+
+    private record IntegerComparison(int column, long key, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            int serialType = record.serialType(column);
+            if (isInteger(serialType)) {
+                return result(mask, Long.compare(record.getLong(column), key));
+            } else if (serialType == 7) {
+                return result(mask, compareRealInteger(record.getDouble(column), key));
+            }
+            // text and blobs sort after numbers
+            return serialType == 0 ? UNKNOWN : result(mask, 1);
+        }
+    }
+
+    private record RealComparison(int column, double key, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            int serialType = record.serialType(column);
+            if (serialType == 7) {
+                double value = record.getDouble(column);
+                return result(mask, value < key ? -1 : value > key ? 1 : 0);
+            } else if (isInteger(serialType)) {
+                return result(mask, -compareRealInteger(key, record.getLong(column)));
+            }
+            return serialType == 0 ? UNKNOWN : result(mask, 1);
+        }
+    }
+
+    private record TextComparison(int column, byte[] key, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            int serialType = record.serialType(column);
+            if (serialType >= 13 && (serialType & 1) == 1) {
+                if (mask == EQUAL || mask == (LESS | GREATER)) {
+                    // equality only needs a length check and a byte compare in the page
+                    return result(mask, record.bytesEqual(column, key) ? 0 : 1);
+                }
+                return result(mask, record.compareBytes(column, key));
+            }
+            // numbers sort before text, blobs after
+            return serialType == 0 ? UNKNOWN : result(mask, serialType < 12 ? -1 : 1);
+        }
+    }
+
+    /**
+     * Comparison with a text under a collation other than BINARY; {@code key} is the text's collation key.
+     */
+    private record CollatedComparison(int column, byte[] key, Schema.Collation collation, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            int serialType = record.serialType(column);
+            if (serialType >= 13 && (serialType & 1) == 1) {
+                return result(mask, Arrays.compareUnsigned(collation.key(record.getBlob(column)), key));
+            }
+            return serialType == 0 ? UNKNOWN : result(mask, serialType < 12 ? -1 : 1);
+        }
+    }
+
+    private record BlobComparison(int column, byte[] key, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            int serialType = record.serialType(column);
+            if (serialType >= 12 && (serialType & 1) == 0) {
+                return result(mask, record.compareBytes(column, key));
+            }
+            return serialType == 0 ? UNKNOWN : result(mask, -1);
+        }
+    }
+
+    private record RowidComparison(Object key, int mask) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            return result(mask, switch (key) {
+                case Long l -> Long.compare(rowId, l);
+                case Double d -> -compareRealInteger(d, rowId);
+                default -> -1;
+            });
+        }
+    }
+
+    /**
+     * {@code column IN (...)} for the integer values of the list, by binary search.
+     */
+    private record IntegerSet(int column, long[] sortedKeys) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            if (column == ROWID) {
+                return Arrays.binarySearch(sortedKeys, rowId) >= 0 ? TRUE : FALSE;
+            }
+            int serialType = record.serialType(column);
+            if (isInteger(serialType)) {
+                return Arrays.binarySearch(sortedKeys, record.getLong(column)) >= 0 ? TRUE : FALSE;
+            } else if (serialType == 7) {
+                double value = record.getDouble(column);
+                return value == Math.rint(value) && compareRealInteger(value, (long) value) == 0
+                        && Arrays.binarySearch(sortedKeys, (long) value) >= 0 ? TRUE : FALSE;
+            }
+            return serialType == 0 ? UNKNOWN : FALSE;
+        }
+    }
+
+    /**
+     * {@code column op integer} over a batch.
+     */
+    private record IntegerFilter(int column, long key, int mask) implements BatchCondition {
+        @Override
+        public void filter(Batch batch) {
+            int[] selection = batch.selection;
+            int count = batch.selectedCount;
+            int kept = 0;
+            if (column == ROWID) {
+                long[] rowIds = batch.rowIds;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    selection[kept] = r;
+                    kept += mask >> Long.compare(rowIds[r], key) + 1 & 1;
+                }
+            } else {
+                var vector = batch.columns[column];
+                byte[] types = vector.types;
+                long[] longs = vector.longs;
+                double[] doubles = vector.doubles;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    byte type = types[r];
+                    // text and blobs sort after numbers
+                    int sign = type == ColumnVector.INTEGER ? Long.compare(longs[r], key)
+                            : type == ColumnVector.REAL ? compareRealInteger(doubles[r], key) : 1;
+                    selection[kept] = r;
+                    kept += type == ColumnVector.NULL ? 0 : mask >> sign + 1 & 1;
+                }
+            }
+            batch.selectedCount = kept;
+        }
     }
 
-    public Object getExpected() {
-        return expected;
+    /**
+     * {@code column op real} over a batch.
+     */
+    private record RealFilter(int column, double key, int mask) implements BatchCondition {
+        @Override
+        public void filter(Batch batch) {
+            int[] selection = batch.selection;
+            int count = batch.selectedCount;
+            int kept = 0;
+            if (column == ROWID) {
+                long[] rowIds = batch.rowIds;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    selection[kept] = r;
+                    kept += mask >> -compareRealInteger(key, rowIds[r]) + 1 & 1;
+                }
+            } else {
+                var vector = batch.columns[column];
+                byte[] types = vector.types;
+                long[] longs = vector.longs;
+                double[] doubles = vector.doubles;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    byte type = types[r];
+                    int sign = type == ColumnVector.REAL ? (doubles[r] < key ? -1 : doubles[r] > key ? 1 : 0)
+                            : type == ColumnVector.INTEGER ? -compareRealInteger(key, longs[r]) : 1;
+                    selection[kept] = r;
+                    kept += type == ColumnVector.NULL ? 0 : mask >> sign + 1 & 1;
+                }
+            }
+            batch.selectedCount = kept;
+        }
     }
 
-    public String getOp() {
-        return op;
+    /**
+     * {@code column op text} over a batch, under BINARY collation.
+     */
+    private record TextFilter(int column, byte[] key, int mask) implements BatchCondition {
+        @Override
+        public void filter(Batch batch) {
+            int[] selection = batch.selection;
+            int count = batch.selectedCount;
+            int kept = 0;
+            var vector = batch.columns[column];
+            byte[] types = vector.types;
+            boolean equality = mask == EQUAL || mask == (LESS | GREATER);
+            for (int i = 0; i < count; ++i) {
+                int r = selection[i];
+                byte type = types[r];
+                int sign;
+                if (type == ColumnVector.TEXT) {
+                    sign = equality ? (vector.textEquals(r, key) ? 0 : 1) : vector.compareBytes(r, key);
+                } else {
+                    // numbers sort before text, blobs after
+                    sign = type == ColumnVector.BLOB ? 1 : -1;
+                }
+                selection[kept] = r;
+                kept += type == ColumnVector.NULL ? 0 : mask >> Integer.signum(sign) + 1 & 1;
+            }
+            batch.selectedCount = kept;
+        }
+    }
+
+    private record NullFilter(int column, boolean negated) implements BatchCondition {
+        @Override
+        public void filter(Batch batch) {
+            int[] selection = batch.selection;
+            int count = batch.selectedCount;
+            int kept = 0;
+            byte[] types = batch.columns[column].types;
+            for (int i = 0; i < count; ++i) {
+                int r = selection[i];
+                selection[kept] = r;
+                kept += (types[r] == ColumnVector.NULL) != negated ? 1 : 0;
+            }
+            batch.selectedCount = kept;
+        }
+    }
+
+    /**
+     * {@code column IN (...)} over a batch, for a list of integers only.
+     */
+    private record IntegerSetFilter(int column, long[] sortedKeys) implements BatchCondition {
+        @Override
+        public void filter(Batch batch) {
+            int[] selection = batch.selection;
+            int count = batch.selectedCount;
+            int kept = 0;
+            if (column == ROWID) {
+                long[] rowIds = batch.rowIds;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    selection[kept] = r;
+                    kept += Arrays.binarySearch(sortedKeys, rowIds[r]) >= 0 ? 1 : 0;
+                }
+            } else {
+                var vector = batch.columns[column];
+                byte[] types = vector.types;
+                long[] longs = vector.longs;
+                double[] doubles = vector.doubles;
+                for (int i = 0; i < count; ++i) {
+                    int r = selection[i];
+                    boolean match = types[r] == ColumnVector.INTEGER ? Arrays.binarySearch(sortedKeys, longs[r]) >= 0
+                            : types[r] == ColumnVector.REAL && doubles[r] == Math.rint(doubles[r])
+                                    && compareRealInteger(doubles[r], (long) doubles[r]) == 0
+                                    && Arrays.binarySearch(sortedKeys, (long) doubles[r]) >= 0;
+                    selection[kept] = r;
+                    kept += match ? 1 : 0;
+                }
+            }
+            batch.selectedCount = kept;
+        }
+    }
+
+    /**
+     * Comparison of two columns; with {@code numeric}, text that looks like a number on either side is compared as
+     * that number.
+     */
+    private record ColumnComparison(int left, int right, boolean numeric, Schema.Collation collation, int mask)
+            implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            Object l = left == ROWID ? (Object) rowId : record.getValue(left);
+            Object r = right == ROWID ? (Object) rowId : record.getValue(right);
+            if (l == null || r == null) {
+                return UNKNOWN;
+            }
+            if (numeric) {
+                l = l instanceof String s ? toNumber(s) : l;
+                r = r instanceof String s ? toNumber(s) : r;
+            }
+            return result(mask, compareValues(l, r, collation));
+        }
+    }
+
+    /**
+     * {@code column LIKE pattern}: {@code %} matches any sequence, {@code _} any one character, and ASCII
+     * letters match either case. Text is matched as UTF-8 in the page.
+     */
+    private record Like(int column, byte[] pattern) implements Condition {
+        @Override
+        public int eval(long rowId, RecordView record) {
+            if (column == ROWID) {
+                return matches(String.valueOf(rowId).getBytes(StandardCharsets.UTF_8)) ? TRUE : FALSE;
+            }
+            int serialType = record.serialType(column);
+            if (serialType == 0) {
+                return UNKNOWN;
+            }
+            if (serialType < 12) {
+                return matches(record.getText(column).getBytes(StandardCharsets.UTF_8)) ? TRUE : FALSE;
+            }
+            if (record.isSpilled(column)) {
+                return matches(record.getBlob(column)) ? TRUE : FALSE;
+            }
+            return matches(record.buffer, record.offsets[column], RecordView.contentSize(serialType)) ? TRUE : FALSE;
+        }
+
+        private boolean matches(byte[] value) {
+            return matches(ByteBuffer.wrap(value), 0, value.length);
+        }
+
+        private boolean matches(ByteBuffer value, int offset, int length) {
+            byte[] pattern = this.pattern;
+            int p = 0;
+            int v = 0;
+            // where the last % was seen, and where in the value the text it matches currently ends
+            int starP = -1;
+            int starV = 0;
+            while (v < length) {
+                if (p < pattern.length && pattern[p] == '%') {
+                    starP = p++;
+                    starV = v;
+                } else if (p < pattern.length && pattern[p] == '_') {
+                    p++;
+                    v += charLength(value.get(offset + v));
+                } else if (p < pattern.length && fold(pattern[p]) == fold(value.get(offset + v))) {
+                    p++;
+                    v++;
+                } else if (starP >= 0) {
+                    // let the last % take one more character and retry from there
+                    p = starP + 1;
+                    starV += charLength(value.get(offset + starV));
+                    v = starV;
+                } else {
+                    return false;
+                }
+            }
+            while (p < pattern.length && pattern[p] == '%') {
+                p++;
+            }
+            return p == pattern.length && v == length;
+        }
+
+        private static int fold(byte b) {
+            return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+        }
+
+        /**
+         * Length of the UTF-8 sequence a lead byte starts.
+         */
+        private static int charLength(byte lead) {
+            int b = lead & 0xFF;
+            return b < 0xC0 ? 1 : b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+        }
     }
 }
@@ -0,0 +1,12 @@
+import java.io.IOException;
+
+/**
+ * Receives result rows one at a time as a query produces them, so that no query has to hold its whole result.
+ */
+@FunctionalInterface
+public interface RowSink {
+    /**
+     * @param row column values, each {@code null}, {@link Long}, {@link Double}, {@link String} or {@code byte[]}
+     */
+    void accept(Object[] row) throws IOException;
+}
@@ -0,0 +1,123 @@
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes rows in the {@code sqlite3} list format: columns separated by {@code |}, NULL as an empty string, one
+ * row per line. Output is encoded straight into a byte buffer, so integers and ASCII text are written without
+ * allocating, and the stream is only written to when the buffer fills or on {@link #flush()}.
+ */
+public class RowWriter implements RowSink, Flushable {
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+
+    public RowWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void accept(Object[] row) throws IOException {
+        for (int i = 0; i < row.length; ++i) {
+            if (i > 0) {
+                write('|');
+            }
+            writeValue(row[i]);
+        }
+        write('\n');
+    }
+
+    public void writeLine(String line) throws IOException {
+        writeText(line);
+        write('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+        out.flush();
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Long l) {
+            writeLong(l);
+        } else if (value instanceof String s) {
+            writeText(s);
+        } else if (value instanceof byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        } else {
+            writeText(String.valueOf(value));
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeText(Long.toString(value));
+            return;
+        }
+        if (BUFFER_SIZE - count < 20) {
+            drain();
+        }
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; --i) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    private void writeText(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // not ASCII: let the encoder handle the rest
+                byte[] bytes = text.substring(i).getBytes(StandardCharsets.UTF_8);
+                write(bytes, 0, bytes.length);
+                return;
+            }
+            if (count == BUFFER_SIZE) {
+                drain();
+            }
+            buffer[count++] = (byte) c;
+        }
+    }
+
+    private void write(int b) throws IOException {
+        if (count == BUFFER_SIZE) {
+            drain();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    private void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > BUFFER_SIZE - count) {
+            drain();
+            if (length > BUFFER_SIZE) {
+                out.write(bytes, offset, length);
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    private void drain() throws IOException {
+        out.write(buffer, 0, count);
+        count = 0;
+    }
+}
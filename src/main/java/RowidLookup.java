@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Fetches the table rows whose rowids its child produces, typically an {@link IndexScan}. Rowids are visited
+ * with {@link TableCursor#seekForward(long)}, so ascending rowids sweep the table B-tree once instead of
+ * descending it once per row.
+ * <p>
+ * When the child's rowids are not ascending (an index scanned on a prefix of its columns), {@code sorted}
+ * makes the lookup collect and sort them first, trading streaming for the single sweep.
+ */
+public class RowidLookup implements Operator<TableRow> {
+    private final Operator<TableRow> child;
+    private final TableCursor cursor;
+    private final TableRow row;
+    private final boolean sorted;
+
+    private long[] rowIds;
+    private int position;
+
+    public RowidLookup(Operator<TableRow> child, PageCache pageCache, PageSource pageSource, Schema schema, boolean sorted) {
+        this.child = child;
+        this.cursor = new TableCursor(pageCache, pageSource, schema.pageNumber);
+        this.row = new TableRow(TableRow.rowIdAlias(schema));
+        this.sorted = sorted;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        if (sorted) {
+            long[] ids = new long[16];
+            int n = 0;
+            while (child.next()) {
+                if (n == ids.length) {
+                    ids = Arrays.copyOf(ids, n * 2);
+                }
+                ids[n++] = child.row().rowId();
+            }
+            rowIds = Arrays.copyOf(ids, n);
+            Arrays.sort(rowIds);
+            position = 0;
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            long rowId;
+            if (sorted) {
+                if (position == rowIds.length) {
+                    return false;
+                }
+                rowId = rowIds[position++];
+            } else {
+                if (!child.next()) {
+                    return false;
+                }
+                rowId = child.row().rowId();
+            }
+            // an index entry without its table row means a corrupt file; skip rather than fail the query
+            if (cursor.seekForward(rowId)) {
+                row.set(rowId, cursor.record());
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public TableRow row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+        child.close();
+    }
+}
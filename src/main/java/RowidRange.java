@@ -0,0 +1,49 @@
+/**
+ * An inclusive range of rowids, which table scans seek to instead of walking the whole tree.
+ */
+public record RowidRange(long min, long max) {
+    public static final RowidRange ALL = new RowidRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    public static final RowidRange EMPTY = new RowidRange(0, -1);
+
+    public boolean isEmpty() {
+        return min > max;
+    }
+
+    /**
+     * This range intersected with the rowids satisfying {@code rowid op value}, where {@code value} has integer
+     * affinity applied: a {@link Long}, a {@link Double}, a {@link String} that is not a number, or {@code null}.
+     */
+    public RowidRange narrow(String op, Object value) {
+        return switch (value) {
+            // nothing compares with NULL
+            case null -> EMPTY;
+            // every number sorts before text and blobs
+            case String s -> op.startsWith("<") ? this : EMPTY;
+            case byte[] b -> op.startsWith("<") ? this : EMPTY;
+            case Long l -> switch (op) {
+                case "=" -> intersect(l, l);
+                case ">" -> l == Long.MAX_VALUE ? EMPTY : intersect(l + 1, Long.MAX_VALUE);
+                case ">=" -> intersect(l, Long.MAX_VALUE);
+                case "<" -> l == Long.MIN_VALUE ? EMPTY : intersect(Long.MIN_VALUE, l - 1);
+                case "<=" -> intersect(Long.MIN_VALUE, l);
+                default -> throw new IllegalArgumentException(op);
+            };
+            // past either end of the long range every rowid compares the same way
+            case Double d when d >= 0x1p63 -> op.startsWith("<") ? this : EMPTY;
+            case Double d when d < -0x1p63 -> op.startsWith(">") ? this : EMPTY;
+            case Double d -> switch (op) {
+                case "=" -> d == Math.rint(d) ? narrow("=", d.longValue()) : EMPTY;
+                case ">" -> narrow(">", (long) Math.floor(d));
+                case ">=" -> narrow(">=", (long) Math.ceil(d));
+                case "<" -> narrow("<", (long) Math.ceil(d));
+                case "<=" -> narrow("<=", (long) Math.floor(d));
+                default -> throw new IllegalArgumentException(op);
+            };
+            default -> throw new IllegalArgumentException("not a rowid: " + value);
+        };
+    }
+
+    private RowidRange intersect(long min, long max) {
+        return new RowidRange(Math.max(this.min, min), Math.min(this.max, max));
+    }
+}
@@ -1,102 +1,325 @@
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.util.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 public class Schema {
     String tableName;
     Integer pageNumber;
-    public record Column(String name, String type, Integer index, boolean isPK){}
+    // the table is stored in an index B-tree keyed by its primary key, which the engine cannot read
+    boolean withoutRowid;
 
-    List<Column> columnList;
-
-
-    public record Index(String name, String column, int colIndex, int pageNumber){}
-    Index index;
+    /**
+     * A table column; {@code isPK} marks an INTEGER PRIMARY KEY, which is an alias of the rowid.
+     */
+    public record Column(String name, String type, Integer index, boolean isPK, Collation collation){
+        public Column(String name, String type, Integer index, boolean isPK) {
+            this(name, type, index, isPK, Collation.BINARY);
+        }
 
-    public Schema(String tableName, List<Column> columnList, int pageNumber) {
-        this.tableName = tableName;
-        this.columnList = columnList;
-        this.pageNumber = pageNumber;
+        public Affinity affinity() {
+            return Affinity.of(type);
+        }
     }
 
-    public Schema(String tableName, List<Column> columnsList, int pageNumber, Index index){
-        this.tableName = tableName;
-        this.columnList = columnsList;
-        this.pageNumber = pageNumber;
-        this.index = index;
-    }
-
-    public static Schema loadSchema(BtreePage page, String table) throws IOException {
-        byte pageType = page.btreePageHeader.pageType;
-        ByteBuffer pageContents = ByteBuffer.wrap(page.pageContents).order(ByteOrder.BIG_ENDIAN);
-        Schema schema = null;
-        for(var cellOffset : page.cellPointerArray){
-            pageContents.position(cellOffset);
-            var cell = Cell.readCell(pageContents, pageType);
-            ByteBuffer cellPayload = ByteBuffer.wrap(cell.getPayload()).order(ByteOrder.BIG_ENDIAN);
-            var record = Record.readRecord(cellPayload);
-            var objectType = (String)record.getValues().get(0);
-            var objectName = (String)record.getValues().get(2);
-            var objectDef = (String)record.getValues().get(4);
-
-            Object val3 = record.getValues().get(3);
-            int pageNumber;
-            if(val3 instanceof Integer){
-                pageNumber = (Integer)val3;
-            }else if(val3 instanceof Byte){
-                pageNumber = (byte) val3;
-            }else{
-                throw new RuntimeException("unexpected type for val3");
+    /**
+     * The built-in collating sequences, which decide how two text values compare: BINARY by their UTF-8 bytes,
+     * NOCASE as BINARY with ASCII letters folded to lower case, RTRIM as BINARY without trailing spaces.
+     */
+    public enum Collation {
+        BINARY, NOCASE, RTRIM;
+
+        static Collation of(String name) {
+            try {
+                return valueOf(name.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("no such collation sequence: " + name);
             }
-            var objectPageNumber  = pageNumber;
-
-            if(objectName.equals(table)){
-                switch (objectType){
-                    case "table": {
-                        List<Column> columns = parseColumns(objectDef);
-                        schema = new Schema(objectName, columns, objectPageNumber);
-                        break;
+        }
+
+        /**
+         * The UTF-8 bytes of a text turned into ones whose unsigned byte order is this collation's order;
+         * {@code text} itself for BINARY.
+         */
+        public byte[] key(byte[] text) {
+            return switch (this) {
+                case BINARY -> text;
+                case NOCASE -> {
+                    byte[] folded = text.clone();
+                    for (int i = 0; i < folded.length; ++i) {
+                        if (folded[i] >= 'A' && folded[i] <= 'Z') {
+                            folded[i] += 'a' - 'A';
+                        }
                     }
-                    case "index":{
-                        assert schema != null;
-                        schema.index = parseIndex(schema, objectPageNumber, objectName, objectDef);
-                        break;
+                    yield folded;
+                }
+                case RTRIM -> {
+                    int length = text.length;
+                    while (length > 0 && text[length - 1] == ' ') {
+                        --length;
                     }
+                    yield length == text.length ? text : Arrays.copyOf(text, length);
                 }
+            };
+        }
+
+        public int compare(String a, String b) {
+            return Arrays.compareUnsigned(key(a.getBytes(StandardCharsets.UTF_8)), key(b.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * Type affinity of a column, which decides how values compared with it are converted.
+     */
+    public enum Affinity {
+        TEXT, NUMERIC, INTEGER, REAL, BLOB;
+
+        /**
+         * The affinity of a declared type, by SQLite's substring rules.
+         */
+        static Affinity of(String declaredType) {
+            var type = declaredType == null ? "" : declaredType.toUpperCase();
+            if (type.contains("INT")) {
+                return INTEGER;
+            } else if (type.contains("CHAR") || type.contains("CLOB") || type.contains("TEXT")) {
+                return TEXT;
+            } else if (type.isEmpty() || type.contains("BLOB")) {
+                return BLOB;
+            } else if (type.contains("REAL") || type.contains("FLOA") || type.contains("DOUB")) {
+                return REAL;
             }
+            return NUMERIC;
+        }
+    }
+
+    List<Column> columnList;
+
+
+    /**
+     * An index over one or more columns of a table; {@code colIndexes} are positions in the table's column list.
+     * {@code descending} and {@code collations} give each column's sort order and collating sequence, which
+     * decide the order of the entries in the B-tree.
+     */
+    public record Index(String name, String table, List<String> columns, List<Integer> colIndexes, int pageNumber,
+                        List<Boolean> descending, List<Collation> collations){
+        /**
+         * An index whose columns are all in ascending BINARY order.
+         */
+        public Index(String name, String table, List<String> columns, List<Integer> colIndexes, int pageNumber) {
+            this(name, table, columns, colIndexes, pageNumber, columns.stream().map(c -> false).toList(),
+                    columns.stream().map(c -> Collation.BINARY).toList());
+        }
+
+        public String column() {
+            return columns.get(0);
         }
-        if(schema == null){
-            throw new RuntimeException("error loading schema for table: " + table);
+
+        public int colIndex() {
+            return colIndexes.get(0);
         }
-        return schema;
     }
+    List<Index> indexes = new ArrayList<>();
 
+    public Schema(String tableName, List<Column> columnList, int pageNumber) {
+        this.tableName = tableName;
+        this.columnList = columnList;
+        this.pageNumber = pageNumber;
+    }
+
+    /**
+     * Parses a CREATE INDEX statement; returns {@code null} for indexes on expressions, which are not supported.
+     */
     protected static Index parseIndex(Schema schema, int indexPageNumber, String indexName, String indexDef){
-        int openParenIdx = indexDef.indexOf('(');
-        int closeParenIdx = indexDef.indexOf(')');
-        String colName = indexDef.substring(openParenIdx+1, closeParenIdx);
-        var colIndex = schema.columnList.stream().filter(c -> c.name.equals(colName)).findAny().get().index;
-        return new Index(indexName, colName, colIndex, indexPageNumber);
+        var columns = new ArrayList<String>();
+        var colIndexes = new ArrayList<Integer>();
+        var descending = new ArrayList<Boolean>();
+        var collations = new ArrayList<Collation>();
+        for (var part : splitDefinitions(indexDef)) {
+            var nameAndRest = splitName(part.trim());
+            var column = schema.getColumn(nameAndRest[0]);
+            if (column.isEmpty()) {
+                return null;
+            }
+            var words = words(nameAndRest[1]);
+            columns.add(column.get().name());
+            colIndexes.add(column.get().index());
+            descending.add(words.contains("DESC"));
+            // without a COLLATE clause, the entries are ordered by the column's own collation
+            var collation = collation(words);
+            collations.add(collation != null ? collation : column.get().collation());
+        }
+        return new Index(indexName, schema.tableName, columns, colIndexes, indexPageNumber, descending, collations);
     }
 
     protected static List<Column> parseColumns(String tableDefinition){
-        var openParenIndex = tableDefinition.indexOf('(');
-        var closeParenIndex = tableDefinition.indexOf(')');
-        var columnDefList = tableDefinition.substring(openParenIndex + 1, closeParenIndex);
-        var columns = columnDefList.split(",");
         var result = new ArrayList<Column>();
-        for(int i=0;i<columns.length;++i){
-            var colDef = columns[i].trim().split(" ", 0);
+        String primaryKey = null;
+        for (var columnDef : splitDefinitions(tableDefinition)) {
+            var colDef = columnDef.trim();
+            var upper = colDef.toUpperCase();
+            if (upper.startsWith("PRIMARY KEY")) {
+                var keyColumns = splitDefinitions(colDef);
+                primaryKey = keyColumns.size() == 1 ? splitName(keyColumns.get(0).trim())[0] : null;
+            }
+            if (TABLE_CONSTRAINTS.stream().anyMatch(upper::startsWith)) {
+                continue;
+            }
+            var nameAndRest = splitName(colDef);
+            var type = declaredType(nameAndRest[1]);
+            var words = words(nameAndRest[1]);
+            int key = words.indexOf("KEY");
+            // only a column declared exactly INTEGER PRIMARY KEY, and not PRIMARY KEY DESC, aliases the rowid
+            boolean rowidAlias = type.equalsIgnoreCase("INTEGER") && key > 0 && words.get(key - 1).equals("PRIMARY")
+                    && (key + 1 == words.size() || !words.get(key + 1).equals("DESC"));
+            var collation = collation(words);
             result.add(new Column(
-                    colDef[0].trim(),
-                    colDef[1].trim(),
-                    i,
-                    columns[i].toUpperCase().contains("INTEGER PRIMARY KEY")));
+                    nameAndRest[0],
+                    type,
+                    result.size(),
+                    rowidAlias,
+                    collation != null ? collation : Collation.BINARY));
+        }
+        // a PRIMARY KEY table constraint on a single INTEGER column makes it the rowid alias too, even DESC
+        for (int i = 0; i < result.size(); ++i) {
+            var column = result.get(i);
+            if (column.name().equalsIgnoreCase(primaryKey) && column.type().equalsIgnoreCase("INTEGER")) {
+                result.set(i, new Column(column.name(), column.type(), i, true, column.collation()));
+            }
         }
         return result;
     }
 
+    /**
+     * Whether a CREATE TABLE statement ends with {@code WITHOUT ROWID}.
+     */
+    static boolean isWithoutRowid(String tableDefinition) {
+        var options = tableDefinition.substring(tableDefinition.lastIndexOf(')') + 1);
+        return words(options).containsAll(List.of("WITHOUT", "ROWID"));
+    }
+
+    /**
+     * The upper-cased words of the constraints of a definition, outside parentheses and quotes, so that the
+     * contents of a CHECK or DEFAULT expression are not mistaken for keywords.
+     */
+    private static List<String> words(String constraints) {
+        var words = new ArrayList<String>();
+        var word = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (char c : (constraints + " ").toCharArray()) {
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                if (depth == 0) {
+                    word.append(c);
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                if (depth == 0) {
+                    word.append(c);
+                }
+            } else if (c == '(' || c == ')' || c == ',' || Character.isWhitespace(c)) {
+                if (!word.isEmpty()) {
+                    words.add(word.toString().toUpperCase(Locale.ROOT));
+                    word.setLength(0);
+                }
+                depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            } else if (depth == 0) {
+                word.append(c);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The collating sequence named by a {@code COLLATE} clause among {@code words}, {@code null} if there is none.
+     */
+    private static Collation collation(List<String> words) {
+        int collate = words.indexOf("COLLATE");
+        if (collate < 0 || collate + 1 == words.size()) {
+            return null;
+        }
+        return Collation.of(words.get(collate + 1).replaceAll("[\"'`\\[\\]]", ""));
+    }
+
+    private static final List<String> TABLE_CONSTRAINTS = List.of("CONSTRAINT", "PRIMARY KEY", "UNIQUE", "CHECK", "FOREIGN KEY");
+    private static final List<String> COLUMN_CONSTRAINTS = List.of("CONSTRAINT", "PRIMARY", "NOT", "NULL", "UNIQUE", "CHECK",
+            "DEFAULT", "COLLATE", "REFERENCES", "GENERATED", "AS", "AUTOINCREMENT");
+
+    /**
+     * The declared type: the words after the column name up to the first column constraint, with any
+     * size arguments such as {@code (10)}.
+     */
+    private static String declaredType(String rest) {
+        var type = new StringBuilder();
+        int depth = 0;
+        for (var word : rest.split("\\s+")) {
+            if (depth == 0 && COLUMN_CONSTRAINTS.contains(word.toUpperCase())) {
+                break;
+            }
+            for (char c : word.toCharArray()) {
+                depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            }
+            if (!type.isEmpty()) {
+                type.append(' ');
+            }
+            type.append(word);
+        }
+        return type.toString();
+    }
+
+    /**
+     * Splits the parenthesized list of a CREATE statement on top-level commas.
+     */
+    private static List<String> splitDefinitions(String definition) {
+        int open = definition.indexOf('(');
+        var parts = new ArrayList<String>();
+        int depth = 0;
+        char quote = 0;
+        int start = open + 1;
+        for (int i = start; i < definition.length(); ++i) {
+            char c = definition.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if (c == '[') {
+                quote = ']';
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && depth-- == 0) {
+                parts.add(definition.substring(start, i));
+                break;
+            } else if (c == ',' && depth == 0) {
+                parts.add(definition.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Splits a definition into its leading, possibly quoted, identifier and the rest.
+     */
+    private static String[] splitName(String definition) {
+        char first = definition.charAt(0);
+        if (first == '"' || first == '`' || first == '[') {
+            int close = definition.indexOf(first == '[' ? ']' : first, 1);
+            return new String[]{definition.substring(1, close), definition.substring(close + 1).trim()};
+        }
+        var parts = definition.split("\\s+", 2);
+        return new String[]{parts[0], parts.length > 1 ? parts[1] : ""};
+    }
+
+    public Optional<Column> getColumn(String name) {
+        return columnList.stream().filter(c -> c.name().equalsIgnoreCase(name)).findAny();
+    }
+
     public String getTableName() {
         return tableName;
     }
@@ -121,12 +344,8 @@ public class Schema {
         this.pageNumber = pageNumber;
     }
 
-    public Index getIndex() {
-        return index;
-    }
-
-    public void setIndex(Index index) {
-        this.index = index;
+    public List<Index> getIndexes() {
+        return indexes;
     }
 
     @Override
@@ -135,7 +354,7 @@ public class Schema {
                 "tableName='" + tableName + '\'' +
                 ", pageNumber=" + pageNumber +
                 ", columnList=" + columnList +
-                ", index=" + index +
+                ", indexes=" + indexes +
                 '}';
     }
 }
@@ -0,0 +1,398 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * ORDER BY: returns the rows of its child sorted on some of their columns, in SQLite's order (NULLs first, then
+ * numbers, text by bytes, blobs), each key ascending or descending.
+ * <p>
+ * Rows are encoded as byte arrays: the sort key in a form whose unsigned byte order is the sort order, followed
+ * by the row's values. Comparing two rows is then a single byte comparison, and the memory a row takes is its
+ * encoded size rather than that of its boxed values. With a limit, only the first {@code limit} rows are kept,
+ * in a bounded heap. Otherwise, or when those rows do not fit in the memory budget, rows are sorted in memory up
+ * to the budget; past it, each full buffer is sorted and written to a temporary file as a run, and the runs are
+ * merged at the end. A run never holds more than {@code limit} rows.
+ */
+public class Sort implements Operator<Object[]> {
+    /**
+     * A sort key: column {@code column} of the child's rows, its text compared under {@code collation}.
+     */
+    public record Key(int column, boolean descending, Schema.Collation collation) {
+        public Key(int column, boolean descending) {
+            this(column, descending, Schema.Collation.BINARY);
+        }
+    }
+
+    // array header and list slot, counted against the budget on top of a row's bytes
+    private static final int ROW_OVERHEAD = 24;
+
+    private static final byte NULL = 0;
+    private static final byte INTEGER = 1;
+    private static final byte REAL = 2;
+    private static final byte TEXT = 3;
+    private static final byte BLOB = 4;
+
+    // the key is preceded by its length
+    private static final Comparator<byte[]> ORDER = (a, b) -> Arrays.compareUnsigned(
+            a, 4, 4 + ByteBuffer.wrap(a).getInt(0), b, 4, 4 + ByteBuffer.wrap(b).getInt(0));
+
+    private final Operator<Object[]> child;
+    private final List<Key> keys;
+    private final int width;
+    private final long limit;
+    private final long memoryBudget;
+
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private Iterator<byte[]> sorted;
+    private PriorityQueue<Run> merge;
+    private byte[] scratch = new byte[256];
+    private Object[] row;
+    private long returned;
+
+    /**
+     * @param width        number of leading columns of the child's rows to return; the others only serve as keys
+     * @param limit        number of rows wanted, negative for all of them
+     * @param memoryBudget bytes of encoded rows to hold before spilling a run to disk
+     */
+    public Sort(Operator<Object[]> child, List<Key> keys, int width, long limit, long memoryBudget) {
+        this.child = child;
+        this.keys = keys;
+        this.width = width;
+        this.limit = limit;
+        this.memoryBudget = memoryBudget;
+    }
+
+    @Override
+    public void open() throws IOException {
+        child.open();
+        returned = 0;
+        List<byte[]> buffer = new ArrayList<>();
+        if (limit < 0 || !topN(buffer)) {
+            sortAll(buffer);
+        }
+    }
+
+    /**
+     * Keeps the first {@code limit} rows in a heap whose root is the last of them, and sorts them once the child
+     * is exhausted. When the heap outgrows the memory budget before it holds {@code limit} rows, its rows are
+     * moved to {@code overflow} for {@link #sortAll} to go on from.
+     *
+     * @return whether the rows fit in the budget
+     */
+    private boolean topN(List<byte[]> overflow) throws IOException {
+        var heap = new PriorityQueue<>(ORDER.reversed());
+        long bytes = 0;
+        while (child.next()) {
+            var encoded = encode(child.row());
+            if (heap.size() < limit) {
+                heap.add(encoded);
+                bytes += encoded.length + ROW_OVERHEAD;
+                if (bytes > memoryBudget) {
+                    overflow.addAll(heap);
+                    return false;
+                }
+            } else if (!heap.isEmpty() && ORDER.compare(encoded, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(encoded);
+            }
+        }
+        List<byte[]> rows = new ArrayList<>(heap);
+        rows.sort(ORDER);
+        sorted = rows.iterator();
+        return true;
+    }
+
+    /**
+     * Sorts the rows of {@code buffer} and those left in the child.
+     */
+    private void sortAll(List<byte[]> buffer) throws IOException {
+        long bytes = 0;
+        for (var encoded : buffer) {
+            bytes += encoded.length + ROW_OVERHEAD;
+        }
+        while (child.next()) {
+            var encoded = encode(child.row());
+            buffer.add(encoded);
+            bytes += encoded.length + ROW_OVERHEAD;
+            if (bytes > memoryBudget) {
+                spill(buffer);
+                buffer.clear();
+                bytes = 0;
+            }
+        }
+        buffer.sort(ORDER);
+        if (runFiles.isEmpty()) {
+            sorted = buffer.iterator();
+            return;
+        }
+        // the last buffer is merged from memory along with the runs on disk
+        merge = new PriorityQueue<>((a, b) -> ORDER.compare(a.current, b.current));
+        for (var path : runFiles) {
+            var run = new Run(new DataInputStream(new BufferedInputStream(Files.newInputStream(path))));
+            runs.add(run);
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+        var inMemory = new Run(buffer.iterator());
+        if (inMemory.advance()) {
+            merge.add(inMemory);
+        }
+    }
+
+    /**
+     * Writes a buffer, sorted, to a new run file; with a limit, only its first {@code limit} rows.
+     */
+    private void spill(List<byte[]> buffer) throws IOException {
+        buffer.sort(ORDER);
+        var path = Files.createTempFile("sort", ".run");
+        runFiles.add(path);
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            for (var encoded : limit < 0 ? buffer : buffer.subList(0, (int) Math.min(limit, buffer.size()))) {
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.writeInt(-1);
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (returned == limit) {
+            return false;
+        }
+        byte[] encoded;
+        if (merge == null) {
+            if (!sorted.hasNext()) {
+                return false;
+            }
+            encoded = sorted.next();
+        } else {
+            var run = merge.poll();
+            if (run == null) {
+                return false;
+            }
+            encoded = run.current;
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+        row = decode(encoded);
+        ++returned;
+        return true;
+    }
+
+    @Override
+    public Object[] row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        child.close();
+        for (var run : runs) {
+            run.close();
+        }
+        runs.clear();
+        for (var path : runFiles) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        runFiles.clear();
+        sorted = null;
+        merge = null;
+    }
+
+    /**
+     * A sorted run being merged: a run file, or the rows still in memory.
+     */
+    private static final class Run {
+        private final DataInputStream in;
+        private final Iterator<byte[]> rows;
+        byte[] current;
+
+        Run(DataInputStream in) {
+            this.in = in;
+            this.rows = null;
+        }
+
+        Run(Iterator<byte[]> rows) {
+            this.in = null;
+            this.rows = rows;
+        }
+
+        boolean advance() throws IOException {
+            if (rows != null) {
+                current = rows.hasNext() ? rows.next() : null;
+            } else {
+                int length = in.readInt();
+                current = length < 0 ? null : in.readNBytes(length);
+            }
+            return current != null;
+        }
+
+        void close() {
+            try {
+                if (in != null) {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Encodes a row as the length of its key, its key and its first {@code width} values.
+     */
+    private byte[] encode(Object[] values) {
+        int position = 4;
+        for (var key : keys) {
+            int start = position;
+            position = encodeKey(position, values[key.column()], key.collation());
+            if (key.descending()) {
+                for (int i = start; i < position; ++i) {
+                    scratch[i] = (byte) ~scratch[i];
+                }
+            }
+        }
+        int keyLength = position - 4;
+        for (int i = 0; i < width; ++i) {
+            position = encodeValue(position, values[i]);
+        }
+        var encoded = Arrays.copyOf(scratch, position);
+        ByteBuffer.wrap(encoded).putInt(0, keyLength);
+        return encoded;
+    }
+
+    /**
+     * Writes a key value so that unsigned byte order is SQLite's order. Numbers are a real followed by the
+     * integer's distance from it, so that integers too large for a double still compare exactly; text and blobs
+     * have their zero bytes escaped and end with two zero bytes, so no value is a prefix of another. Text is
+     * written as its collation key.
+     */
+    private int encodeKey(int position, Object value, Schema.Collation collation) {
+        ensureCapacity(position + 17);
+        switch (value) {
+            case null -> scratch[position++] = 1;
+            case Long l -> {
+                scratch[position++] = 2;
+                double real = l;
+                position = putLong(position, orderedBits(real));
+                position = putLong(position, (l - (long) real) ^ Long.MIN_VALUE);
+            }
+            case Double d -> {
+                scratch[position++] = 2;
+                position = putLong(position, orderedBits(d));
+                // a real past the largest integer is greater than every integer, including those rounding to it
+                position = putLong(position, (d >= 0x1p63 ? 1L : 0L) ^ Long.MIN_VALUE);
+            }
+            case String s -> {
+                scratch[position++] = 3;
+                position = putEscaped(position, collation.key(s.getBytes(StandardCharsets.UTF_8)));
+            }
+            default -> {
+                scratch[position++] = 4;
+                position = putEscaped(position, (byte[]) value);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * The bits of a double, with the sign flipped for positive numbers and every bit flipped for negative ones,
+     * which orders them as unsigned integers.
+     */
+    private static long orderedBits(double value) {
+        // -0.0 equals 0.0
+        long bits = Double.doubleToLongBits(value + 0.0);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    private int putEscaped(int position, byte[] bytes) {
+        ensureCapacity(position + bytes.length * 2 + 2);
+        for (byte b : bytes) {
+            scratch[position++] = b;
+            if (b == 0) {
+                scratch[position++] = (byte) 0xFF;
+            }
+        }
+        scratch[position++] = 0;
+        scratch[position++] = 0;
+        return position;
+    }
+
+    private int encodeValue(int position, Object value) {
+        ensureCapacity(position + 9);
+        switch (value) {
+            case null -> scratch[position++] = NULL;
+            case Long l -> {
+                scratch[position++] = INTEGER;
+                position = putLong(position, l);
+            }
+            case Double d -> {
+                scratch[position++] = REAL;
+                position = putLong(position, Double.doubleToRawLongBits(d));
+            }
+            case String s -> position = putBytes(position, TEXT, s.getBytes(StandardCharsets.UTF_8));
+            default -> position = putBytes(position, BLOB, (byte[]) value);
+        }
+        return position;
+    }
+
+    private int putBytes(int position, byte type, byte[] bytes) {
+        ensureCapacity(position + 5 + bytes.length);
+        scratch[position++] = type;
+        ByteBuffer.wrap(scratch).putInt(position, bytes.length);
+        System.arraycopy(bytes, 0, scratch, position + 4, bytes.length);
+        return position + 4 + bytes.length;
+    }
+
+    private int putLong(int position, long value) {
+        ByteBuffer.wrap(scratch).putLong(position, value);
+        return position + 8;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(capacity, scratch.length * 2));
+        }
+    }
+
+    private Object[] decode(byte[] encoded) {
+        var buffer = ByteBuffer.wrap(encoded);
+        buffer.position(4 + buffer.getInt(0));
+        Object[] values = new Object[width];
+        for (int i = 0; i < width; ++i) {
+            byte type = buffer.get();
+            values[i] = switch (type) {
+                case INTEGER -> buffer.getLong();
+                case REAL -> buffer.getDouble();
+                case TEXT, BLOB -> {
+                    byte[] contents = new byte[buffer.getInt()];
+                    buffer.get(contents);
+                    yield type == TEXT ? new String(contents, StandardCharsets.UTF_8) : contents;
+                }
+                default -> null;
+            };
+        }
+        return values;
+    }
+}
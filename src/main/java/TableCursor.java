@@ -0,0 +1,91 @@
+import java.io.IOException;
+
+/**
+ * Cursor over a table B-tree, ordered by rowid.
+ */
+public class TableCursor extends BtreeCursor {
+    private final RecordView record;
+
+    public TableCursor(PageCache pageCache, PageSource pageSource, int rootPage) {
+        super(pageCache, rootPage);
+        this.record = new RecordView(pageSource);
+    }
+
+    @Override
+    protected boolean entriesInInterior() {
+        return false;
+    }
+
+    /**
+     * Positions the cursor on the row with the given rowid or, if there is none, on the next larger one.
+     *
+     * @return whether a row with exactly this rowid exists
+     */
+    public boolean seek(long rowId) throws IOException {
+        return seekGE((frame, i) -> Long.compare(keyAt(frame, i), rowId)) && rowId() == rowId;
+    }
+
+    /**
+     * Positions the cursor on the first row whose rowid is at least {@code rowId}.
+     *
+     * @return whether there is such a row
+     */
+    public boolean seekGE(long rowId) throws IOException {
+        return seekGE((frame, i) -> Long.compare(keyAt(frame, i), rowId));
+    }
+
+    /**
+     * Like {@link #seek(long)}, for callers visiting rowids in ascending order. Instead of descending from the
+     * root, the cursor climbs only as far as the lowest page whose key range still covers {@code rowId}; a
+     * rowid on the current leaf costs a single binary search and no page access.
+     */
+    public boolean seekForward(long rowId) throws IOException {
+        if (!isValid() || rowId < rowId()) {
+            return seek(rowId);
+        }
+        int depth = stack.size() - 1;
+        while (depth > 0 && rowId > upperBound(depth)) {
+            depth--;
+        }
+        popTo(depth);
+        return seekGE(top(), (frame, i) -> Long.compare(keyAt(frame, i), rowId)) && rowId() == rowId;
+    }
+
+    /**
+     * Largest rowid the subtree of the frame at {@code depth} can hold: the separator key of the nearest
+     * ancestor slot that is not a right-most pointer.
+     */
+    private long upperBound(int depth) {
+        for (int d = depth; d > 0; --d) {
+            Frame parent = stack.get(d - 1);
+            if (parent.index < parent.cellCount) {
+                return keyAt(parent, parent.index);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public long rowId() {
+        return keyAt(top(), top().index);
+    }
+
+    /**
+     * The current row; the returned view is reused by the cursor and only valid until it moves.
+     */
+    public RecordView record() {
+        recordsDecoded++;
+        return cell().recordView(record);
+    }
+
+    private static long keyAt(Frame frame, int i) {
+        int offset = frame.cellOffset(i);
+        if (frame.isLeaf()) {
+            // skip the payload size varint
+            offset += Cell.varintSize(frame.buffer, offset);
+        } else {
+            // skip the left child pointer
+            offset += 4;
+        }
+        return Cell.varint(frame.buffer, offset);
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * A B-tree entry as seen by the operators below {@link Project}: its rowid and its undecoded record. Scans
+ * reuse one instance and repoint it at each entry they visit.
+ */
+public class TableRow {
+    long rowId;
+    RecordView record;
+    // column stored as the rowid (INTEGER PRIMARY KEY), -1 if none
+    final int rowIdAlias;
+
+    public TableRow(int rowIdAlias) {
+        this.rowIdAlias = rowIdAlias;
+    }
+
+    /**
+     * Index of the INTEGER PRIMARY KEY column of a table, -1 if it has none.
+     */
+    static int rowIdAlias(Schema schema) {
+        return schema.columnList.stream().filter(Schema.Column::isPK).mapToInt(Schema.Column::index).findFirst().orElse(-1);
+    }
+
+    TableRow set(long rowId, RecordView record) {
+        this.rowId = rowId;
+        this.record = record;
+        return this;
+    }
+
+    public long rowId() {
+        return rowId;
+    }
+
+    public RecordView record() {
+        return record;
+    }
+
+    /**
+     * Decodes column {@code n}; the rowid alias column, stored as NULL in the record, reads as the rowid.
+     */
+    public Object value(int n) {
+        return n == rowIdAlias ? (Object) rowId : record.getValue(n);
+    }
+}
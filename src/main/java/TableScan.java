@@ -0,0 +1,60 @@
+import java.io.IOException;
+
+/**
+ * Walks a table B-tree in rowid order, optionally only the rows within a {@link RowidRange}, which it seeks to
+ * and stops after.
+ */
+public class TableScan implements Operator<TableRow> {
+    private final TableCursor cursor;
+    private final TableRow row;
+    private final RowidRange range;
+    private boolean started;
+
+    public TableScan(PageCache pageCache, PageSource pageSource, Schema schema) {
+        this(pageCache, pageSource, schema, schema.pageNumber);
+    }
+
+    /**
+     * @param rootPage root of the tree to walk: the table's root page or the root of one of its subtrees
+     */
+    public TableScan(PageCache pageCache, PageSource pageSource, Schema schema, int rootPage) {
+        this(pageCache, pageSource, schema, rootPage, RowidRange.ALL);
+    }
+
+    public TableScan(PageCache pageCache, PageSource pageSource, Schema schema, int rootPage, RowidRange range) {
+        this.cursor = new TableCursor(pageCache, pageSource, rootPage);
+        this.row = new TableRow(TableRow.rowIdAlias(schema));
+        this.range = range;
+    }
+
+    @Override
+    public void open() {
+        started = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        boolean more;
+        if (started) {
+            more = cursor.next();
+        } else {
+            started = true;
+            more = !range.isEmpty() && (range.min() == Long.MIN_VALUE ? cursor.first() : cursor.seekGE(range.min()));
+        }
+        if (!more || cursor.rowId() > range.max()) {
+            return false;
+        }
+        row.set(cursor.rowId(), cursor.record());
+        return true;
+    }
+
+    @Override
+    public TableRow row() {
+        return row;
+    }
+
+    @Override
+    public void close() {
+        cursor.close();
+    }
+}
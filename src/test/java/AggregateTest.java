@@ -0,0 +1,170 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+class AggregateTest {
+    private static HashAggregate.Aggregate aggregate(HashAggregate.Kind kind, int column) {
+        return new HashAggregate.Aggregate(kind, column);
+    }
+
+    /**
+     * The rows of a table keyed by their first value as it would be written in SQL.
+     */
+    private static Map<String, List<Object>> rows(GroupTable table) {
+        Map<String, List<Object>> rows = new TreeMap<>();
+        for (int group = 0; group < table.size(); ++group) {
+            var row = table.row(group);
+            rows.put(row[0] instanceof String text ? "'" + text + "'" : String.valueOf(row[0]), Arrays.asList(row).subList(1, row.length));
+        }
+        return rows;
+    }
+
+    @Test
+    void groupsByEncodedValues() {
+        var table = new GroupTable(new int[]{0}, List.of(aggregate(HashAggregate.Kind.COUNT, -1),
+                aggregate(HashAggregate.Kind.MIN, 1), aggregate(HashAggregate.Kind.MAX, 1)));
+        table.add(TestRecords.row(1L, "b"));
+        table.add(TestRecords.row(1.0, "a"));
+        table.add(TestRecords.row(2.5, "c"));
+        table.add(TestRecords.row(null, "d"));
+        table.add(TestRecords.row(null, null));
+        table.add(TestRecords.row("1", "e"));
+
+        var rows = rows(table);
+        Assertions.assertEquals(List.of(2L, "a", "b"), rows.get("1"), "1 and 1.0 are the same group");
+        Assertions.assertEquals(List.of(1L, "c", "c"), rows.get("2.5"));
+        Assertions.assertEquals(List.of(2L, "d", "d"), rows.get("null"), "NULLs form one group; min and max skip them");
+        Assertions.assertEquals(List.of(1L, "e", "e"), rows.get("'1'"), "text '1' is not the number 1");
+    }
+
+    @Test
+    void groupsTextUnderItsCollation() {
+        var aggregates = List.of(aggregate(HashAggregate.Kind.COUNT, -1),
+                new HashAggregate.Aggregate(HashAggregate.Kind.MAX, 1, Schema.Collation.NOCASE));
+        var table = new GroupTable(new int[]{0}, new Schema.Collation[]{Schema.Collation.NOCASE}, aggregates);
+        table.add(TestRecords.row("Apple", "b"));
+        table.add(TestRecords.row("APPLE", "B"));
+        table.add(TestRecords.row("apple", "a"));
+        table.add(TestRecords.row("pear", 1L));
+        var second = new GroupTable(new int[]{0}, new Schema.Collation[]{Schema.Collation.NOCASE}, aggregates);
+        second.add(TestRecords.row("PEAR", "x"));
+        table.merge(second);
+
+        var rows = rows(table);
+        Assertions.assertEquals(2, rows.size());
+        Assertions.assertEquals(List.of(3L, "b"), rows.get("'Apple'"), "a group returns its first row's text");
+        Assertions.assertEquals(List.of(2L, "x"), rows.get("'pear'"));
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        var table = new GroupTable(new int[]{0}, List.of(aggregate(HashAggregate.Kind.SUM, 1)));
+        for (long i = 0; i < 10_000; ++i) {
+            table.add(TestRecords.row("key " + i % 1000, i));
+        }
+        Assertions.assertEquals(1000, table.size());
+        Assertions.assertEquals(List.of(10 * 999L + 1000 * 45L), rows(table).get("'key 999'"));
+    }
+
+    @Test
+    void sumsLikeSqlite() {
+        var aggregates = List.of(aggregate(HashAggregate.Kind.SUM, 1), aggregate(HashAggregate.Kind.TOTAL, 1),
+                aggregate(HashAggregate.Kind.AVG, 1), aggregate(HashAggregate.Kind.COUNT, 1));
+        var table = new GroupTable(new int[]{0}, aggregates);
+        table.add(TestRecords.row("integers", 3L));
+        table.add(TestRecords.row("integers", "12"));
+        table.add(TestRecords.row("integers", null));
+        table.add(TestRecords.row("reals", 1L));
+        table.add(TestRecords.row("reals", 0.5));
+        table.add(TestRecords.row("text", "abc"));
+        table.add(TestRecords.row("nulls", null));
+
+        var rows = rows(table);
+        Assertions.assertEquals(List.of(15L, 15.0, 7.5, 2L), rows.get("'integers'"));
+        Assertions.assertEquals(List.of(1.5, 1.5, 0.75, 2L), rows.get("'reals'"));
+        Assertions.assertEquals(List.of(0.0, 0.0, 0.0, 1L), rows.get("'text'"));
+        Assertions.assertEquals(Arrays.asList(null, 0.0, null, 0L), rows.get("'nulls'"));
+
+        var overflow = new GroupTable(new int[0], List.of(aggregate(HashAggregate.Kind.SUM, 0)));
+        overflow.add(TestRecords.row(Long.MAX_VALUE));
+        overflow.add(TestRecords.row(1L));
+        Assertions.assertThrows(RuntimeException.class, () -> overflow.row(0));
+    }
+
+    @Test
+    void aggregatesNoRowsIntoOneGroupWithoutGroupBy() {
+        var table = new GroupTable(new int[0], List.of(aggregate(HashAggregate.Kind.COUNT, -1),
+                aggregate(HashAggregate.Kind.MAX, 0)));
+        Assertions.assertEquals(1, table.size());
+        Assertions.assertArrayEquals(new Object[]{0L, null}, table.row(0));
+    }
+
+    @Test
+    void mergesPartialTables() {
+        var aggregates = List.of(aggregate(HashAggregate.Kind.COUNT, -1), aggregate(HashAggregate.Kind.SUM, 1),
+                aggregate(HashAggregate.Kind.MIN, 1), aggregate(HashAggregate.Kind.MAX, 1));
+        var first = new GroupTable(new int[]{0}, aggregates);
+        first.add(TestRecords.row("a", 5L));
+        first.add(TestRecords.row("b", 2L));
+        var second = new GroupTable(new int[]{0}, aggregates);
+        second.add(TestRecords.row("a", 1.5));
+        second.add(TestRecords.row("c", "x"));
+        second.add(TestRecords.row("a", 7L));
+
+        first.merge(second);
+        var rows = rows(first);
+        Assertions.assertEquals(List.of(3L, 13.5, 1.5, 7L), rows.get("'a'"));
+        Assertions.assertEquals(List.of(1L, 2L, 2L, 2L), rows.get("'b'"));
+        Assertions.assertEquals(List.of(1L, 0.0, "x", "x"), rows.get("'c'"));
+    }
+
+    @Test
+    void aggregatesBatchesAsItDoesRows() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            var aggregates = List.of(aggregate(HashAggregate.Kind.COUNT, -1), aggregate(HashAggregate.Kind.MIN, 1),
+                    aggregate(HashAggregate.Kind.MAX, 0), aggregate(HashAggregate.Kind.SUM, 0));
+            var byRow = new GroupTable(new int[]{2}, aggregates);
+            try (var scan = new TableScan(db.pageCache, db.pageSource, apples, apples.pageNumber, RowidRange.ALL)) {
+                scan.open();
+                while (scan.next()) {
+                    byRow.add(scan.row());
+                }
+            }
+            var byBatch = new GroupTable(new int[]{2}, aggregates);
+            try (var scan = new BatchScan(db.pageCache, db.pageSource, apples, apples.pageNumber, new int[]{0, 1, 2})) {
+                scan.open();
+                while (scan.next()) {
+                    byBatch.add(scan.row());
+                }
+            }
+            Assertions.assertEquals(4, byBatch.size());
+            Assertions.assertEquals(rows(byRow), rows(byBatch));
+        }
+    }
+
+    @Test
+    void runsAggregateQueries() throws IOException {
+        try (var db = new DB("sample.db")) {
+            for (int parallelism : new int[]{1, 4}) {
+                db.setScanParallelism(parallelism);
+                for (boolean vectorized : new boolean[]{true, false}) {
+                    db.setVectorized(vectorized);
+                    var rows = db.runQuery("SELECT count(*), min(name), max(id), sum(id) FROM apples WHERE id > 1");
+                    Assertions.assertArrayEquals(new Object[]{3L, "Fuji", 4L, 9L}, rows.get(0));
+                    Assertions.assertEquals(4, db.runQuery("SELECT color, count(*) FROM apples GROUP BY color").size());
+                    Assertions.assertEquals(1L, db.runQuery("SELECT count(*) FROM apples WHERE color = 'Red'").get(0)[0]);
+                }
+            }
+            // read off the ends of the table tree
+            Assertions.assertArrayEquals(new Object[]{1L, 6L}, db.runQuery("SELECT min(id), max(id) FROM oranges").get(0));
+            Assertions.assertEquals(List.of(), db.runQuery("SELECT name, count(*) FROM apples WHERE id > 10 GROUP BY name"));
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("SELECT name, count(*) FROM apples GROUP BY color"));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+class BatchTest {
+    @Test
+    void decodesLeafIntoColumnVectors() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            try (var scan = new BatchScan(db.pageCache, db.pageSource, apples, apples.pageNumber, new int[]{0, 1})) {
+                scan.open();
+                Assertions.assertTrue(scan.next());
+                var batch = scan.row();
+                Assertions.assertEquals(4, batch.selectedCount());
+                // id is the rowid alias, NULL in the record
+                Assertions.assertEquals(ColumnVector.INTEGER, batch.column(0).types[2]);
+                Assertions.assertEquals(3L, batch.column(0).longs[2]);
+                Assertions.assertEquals("Honeycrisp", batch.column(1).get(2));
+                Assertions.assertNull(batch.column(2), "columns not asked for are not decoded");
+                Assertions.assertFalse(scan.next());
+            }
+        }
+    }
+
+    @Test
+    void filtersRowsBeforeDecodingThem() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            var predicate = new RowPredicate(Parser.parseExpression("color = 'Yellow'"), apples);
+            try (var scan = new BatchScan(db.pageCache, db.pageSource, apples, apples.pageNumber, new int[]{1}, predicate, RowidRange.ALL)) {
+                scan.open();
+                Assertions.assertTrue(scan.next());
+                Assertions.assertEquals(1, scan.row().selectedCount());
+                Assertions.assertEquals(4L, scan.row().rowIds[0]);
+                Assertions.assertEquals("Golden Delicious", scan.row().column(1).get(0));
+                Assertions.assertNull(scan.row().column(2), "the filter column is read from the record");
+                Assertions.assertFalse(scan.next());
+            }
+        }
+    }
+
+    @Test
+    void filterNarrowsTheSelectionVector() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            var vectorized = new RowPredicate(Parser.parseExpression("(color = 'Yellow' OR id = 1) AND id > 0"), apples).vectorize();
+            Assertions.assertEquals(1, vectorized.conditions().size(), "id > 0 runs over the rowids");
+            Assertions.assertNotNull(vectorized.residual(), "OR is tested on the record");
+            var predicate = new RowPredicate(Parser.parseExpression("id >= 2 AND color = 'Yellow'"), apples).vectorize();
+            Assertions.assertNull(predicate.residual());
+            var scan = new BatchScan(db.pageCache, db.pageSource, apples, apples.pageNumber, new int[]{1, 2});
+            try (var filter = new BatchFilter(scan, predicate.conditions())) {
+                filter.open();
+                Assertions.assertTrue(filter.next());
+                var batch = filter.row();
+                Assertions.assertEquals(4, batch.size, "rows stay in place");
+                Assertions.assertEquals(1, batch.selectedCount());
+                Assertions.assertEquals(3, batch.selection[0]);
+                Assertions.assertEquals("Golden Delicious", batch.column(1).get(batch.selection[0]));
+                Assertions.assertFalse(filter.next());
+            }
+        }
+    }
+
+    @Test
+    void vectorizedAndRowPlansAgree() throws IOException {
+        try (var db = new DB("sample.db")) {
+            for (var sql : List.of("SELECT id, name, color FROM apples", "SELECT name FROM apples WHERE color = 'Yellow'",
+                    "SELECT name FROM apples WHERE id BETWEEN 2 AND 3 AND color IS NOT NULL",
+                    "SELECT name FROM apples WHERE color > 'Red' OR name LIKE 'F%'", "SELECT id FROM apples WHERE id IN (1, 4)")) {
+                db.setVectorized(true);
+                var vectorized = db.runQuery(sql);
+                db.setVectorized(false);
+                var rows = db.runQuery(sql);
+                Assertions.assertEquals(rows.size(), vectorized.size());
+                for (int i = 0; i < rows.size(); ++i) {
+                    Assertions.assertArrayEquals(rows.get(i), vectorized.get(i));
+                }
+            }
+            Assertions.assertEquals(1L, db.runQuery("SELECT count(*) FROM apples WHERE color = 'Yellow'").get(0)[0]);
+        }
+    }
+}
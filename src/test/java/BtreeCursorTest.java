@@ -0,0 +1,67 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class BtreeCursorTest {
+    private static final int APPLES_ROOT_PAGE = 2;
+
+    @Test
+    void walksTableForwardAndBackward() throws IOException {
+        try (var source = PageSource.open("sample.db", PageSource.Kind.FILE_CHANNEL)) {
+            var cache = new PageCache(n -> BtreePage.readPage(source, n), source.pageSize(), 1 << 20);
+            try (var cursor = new TableCursor(cache, source, APPLES_ROOT_PAGE)) {
+                List<String> forward = new ArrayList<>();
+                for (boolean more = cursor.first(); more; more = cursor.next()) {
+                    forward.add(cursor.rowId() + "|" + cursor.record().getText(1));
+                }
+                List<String> backward = new ArrayList<>();
+                for (boolean more = cursor.last(); more; more = cursor.prev()) {
+                    backward.add(0, cursor.rowId() + "|" + cursor.record().getText(1));
+                }
+
+                Assertions.assertEquals(List.of("1|Granny Smith", "2|Fuji", "3|Honeycrisp", "4|Golden Delicious"), forward);
+                Assertions.assertEquals(forward, backward);
+            }
+        }
+    }
+
+    @Test
+    void seeksByRowId() throws IOException {
+        try (var source = PageSource.open("sample.db", PageSource.Kind.FILE_CHANNEL)) {
+            var cache = new PageCache(n -> BtreePage.readPage(source, n), source.pageSize(), 1 << 20);
+            try (var cursor = new TableCursor(cache, source, APPLES_ROOT_PAGE)) {
+                Assertions.assertTrue(cursor.seek(3));
+                Assertions.assertEquals("Blush Red", cursor.record().getText(2));
+
+                Assertions.assertFalse(cursor.seek(0));
+                Assertions.assertEquals(1, cursor.rowId());
+
+                Assertions.assertFalse(cursor.seek(5));
+                Assertions.assertFalse(cursor.isValid());
+            }
+        }
+    }
+
+    @Test
+    void seeksForwardThroughSortedRowIds() throws IOException {
+        try (var source = PageSource.open("sample.db", PageSource.Kind.FILE_CHANNEL)) {
+            var cache = new PageCache(n -> BtreePage.readPage(source, n), source.pageSize(), 1 << 20);
+            try (var cursor = new TableCursor(cache, source, APPLES_ROOT_PAGE)) {
+                List<String> names = new ArrayList<>();
+                for (long rowId : new long[]{1, 3, 4, 7}) {
+                    if (cursor.seekForward(rowId)) {
+                        names.add(cursor.record().getText(1));
+                    }
+                }
+                Assertions.assertEquals(List.of("Granny Smith", "Honeycrisp", "Golden Delicious"), names);
+
+                // going backwards falls back to a seek from the root
+                Assertions.assertTrue(cursor.seekForward(2));
+                Assertions.assertEquals("Fuji", cursor.record().getText(1));
+            }
+        }
+    }
+}
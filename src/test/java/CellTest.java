@@ -28,4 +28,20 @@ class CellTest {
         Assertions.assertEquals(1000, l.value());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testLeafCellIsViewIntoPage(){
+        // payload size 3, rowid 7, payload bytes
+        var page = ByteBuffer.allocate(512).order(ByteOrder.BIG_ENDIAN);
+        page.put(new byte[]{0, 3, 7, 10, 11, 12, 0});
+        page.position(1);
+        var cell = Cell.readCell(page, (byte) 0x0d);
+        Assertions.assertEquals(7L, cell.getRowId().value());
+        Assertions.assertEquals(3, cell.getPayloadOffset());
+        Assertions.assertEquals(3, cell.getPayloadLength());
+        Assertions.assertEquals(6, page.position());
+
+        page.put(4, (byte) 42);
+        Assertions.assertEquals(42, cell.getPayloadBuffer().get(1));
+    }
+
+}
@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+class DatabaseGeneratorTest {
+    // small pages, long text and an index on it: interior pages and overflow chains in both trees
+    private static final String SPEC = """
+            seed 5;
+            page_size 512;
+            table items rows 3000 (
+                id integer primary key,
+                kind text choice('a', 'b', 'c', NULL) skew(1.5),
+                size integer uniform(-1000, 1000) nulls(0.1),
+                price real normal(10, 2),
+                notes text text(0, 2000)
+            );
+            table log rows 500 (at integer sequence(100, 10), message text);
+            index idx_items_kind on items (kind, size);
+            index idx_items_notes on items (notes);
+            """;
+
+    private static Path generate(String spec) throws IOException {
+        var file = Files.createTempFile("generated", ".db");
+        DatabaseGenerator.generate(DatabaseSpec.parse(spec), file);
+        return file;
+    }
+
+    @Test
+    void parsesSpecs() {
+        var spec = DatabaseSpec.parse(SPEC);
+        Assertions.assertEquals(5, spec.seed());
+        Assertions.assertEquals(512, spec.pageSize());
+        var items = spec.table("items");
+        Assertions.assertEquals(3000, items.rows());
+        Assertions.assertEquals(0, items.rowidColumn());
+        Assertions.assertEquals(new DatabaseSpec.Distribution.Uniform(-1000, 1000), items.columns().get(2).values());
+        Assertions.assertEquals(0.1, items.columns().get(2).nullFraction());
+        Assertions.assertEquals(new DatabaseSpec.Distribution.Sequence(100, 10), spec.table("log").columns().get(0).values());
+        Assertions.assertTrue(spec.table("log").columns().get(1).values() instanceof DatabaseSpec.Distribution.Text,
+                "a column without a distribution gets its affinity's default");
+        Assertions.assertEquals(List.of("kind", "size"), spec.indexes().get(0).columns());
+
+        Assertions.assertThrows(RuntimeException.class, () -> DatabaseSpec.parse("table t rows 1 (id text primary key);"));
+        Assertions.assertThrows(RuntimeException.class, () -> DatabaseSpec.parse("table t rows 1 (a integer poisson(3));"));
+        Assertions.assertThrows(RuntimeException.class, () -> DatabaseSpec.parse("table t rows 1 (a text); index i on t (b);"));
+        Assertions.assertThrows(RuntimeException.class, () -> DatabaseSpec.parse("page_size 1000;"));
+    }
+
+    @Test
+    void encodesRecordsAsSqliteDoes() {
+        Assertions.assertArrayEquals(new byte[]{0x7f}, DatabaseGenerator.varint(127));
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x81, 0x00}, DatabaseGenerator.varint(128));
+        Assertions.assertEquals(9, DatabaseGenerator.varint(-1).length);
+        Object[] values = {null, 0L, 1L, -200L, 1L << 40, Long.MIN_VALUE, 2.5, "text", new byte[]{1, 2}};
+        var bytes = DatabaseGenerator.record(values);
+        var record = RecordView.of(ByteBuffer.wrap(bytes), 0, bytes.length);
+        int[] serialTypes = {0, 8, 9, 2, 5, 6, 7, 21, 16};
+        for (int i = 0; i < values.length; ++i) {
+            Assertions.assertEquals(serialTypes[i], record.serialType(i), "the smallest serial type of " + values[i]);
+        }
+        Assertions.assertEquals(1L << 40, record.getLong(4));
+        Assertions.assertEquals(Long.MIN_VALUE, record.getLong(5));
+        Assertions.assertEquals("text", record.getText(7));
+
+        Assertions.assertEquals(5L, DatabaseGenerator.stored(Schema.Affinity.INTEGER, " 5 "));
+        Assertions.assertEquals(3L, DatabaseGenerator.stored(Schema.Affinity.NUMERIC, 3.0));
+        Assertions.assertEquals(3.0, DatabaseGenerator.stored(Schema.Affinity.REAL, 3L));
+        Assertions.assertEquals("2.5", DatabaseGenerator.stored(Schema.Affinity.TEXT, 2.5));
+    }
+
+    @Test
+    void writesDatabasesTheEngineReads() throws IOException {
+        var file = generate(SPEC);
+        var again = generate(SPEC);
+        try (var db = new DB(file.toString())) {
+            Assertions.assertTrue(Arrays.equals(Files.readAllBytes(file), Files.readAllBytes(again)), "the same spec gives the same file");
+            Assertions.assertEquals(List.of("items", "log"), db.tableNames());
+            Assertions.assertEquals(3000L, db.countRows("items"));
+            Assertions.assertArrayEquals(new Object[]{110L}, db.runQuery("SELECT at FROM log WHERE rowid = 2").get(0));
+
+            // rows are found through the index on notes, which spill to overflow pages in both trees
+            var rows = db.runQuery("SELECT id, kind, size, notes FROM items");
+            Assertions.assertEquals(3000, rows.size());
+            for (var row : rows.subList(0, 300)) {
+                var byNotes = db.runQuery("SELECT id FROM items WHERE notes = ?", row[3]);
+                Assertions.assertTrue(byNotes.stream().anyMatch(found -> found[0].equals(row[0])));
+            }
+            long kindA = rows.stream().filter(row -> "a".equals(row[1])).count();
+            Assertions.assertEquals(List.of(kindA), Arrays.asList(db.runQuery("SELECT count(*) FROM items WHERE kind = 'a'").get(0)));
+            Assertions.assertEquals(rows.stream().filter(row -> "b".equals(row[1]) && row[2] != null && (Long) row[2] > 500).count(),
+                    db.runQuery("SELECT id FROM items WHERE kind = 'b' AND size > 500").size());
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(again);
+        }
+    }
+}
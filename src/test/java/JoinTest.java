@@ -0,0 +1,88 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class JoinTest {
+    /**
+     * The values of the rows chained under the key of {@code probe}.
+     */
+    private static List<Object> matches(JoinTable table, TableRow probe) {
+        List<Object> values = new ArrayList<>();
+        for (int row = table.first(probe, 0); row >= 0; row = table.next(row)) {
+            values.add(table.row(row)[0]);
+        }
+        values.sort(null);
+        return values;
+    }
+
+    @Test
+    void matchesKeysWithTheComparisonsAffinity() {
+        var numeric = new JoinTable(Schema.Affinity.NUMERIC);
+        var none = new JoinTable(Schema.Affinity.BLOB);
+        Object[][] keys = {{1L, "integer"}, {1.0, "real"}, {"1", "text"}, {2.5, "fraction"}, {"abc", "word"}, {null, "null"}};
+        for (var key : keys) {
+            numeric.add(TestRecords.row(key[0]), 0, new Object[]{key[1]});
+            none.add(TestRecords.row(key[0]), 0, new Object[]{key[1]});
+        }
+        Assertions.assertEquals(5, numeric.size(), "a NULL key is not added");
+        Assertions.assertEquals(List.of("integer", "real", "text"), matches(numeric, TestRecords.row(1L)));
+        Assertions.assertEquals(List.of("integer", "real", "text"), matches(numeric, TestRecords.row(" 1.0")));
+        Assertions.assertEquals(List.of("fraction"), matches(numeric, TestRecords.row(2.5)));
+        Assertions.assertEquals(List.of("word"), matches(numeric, TestRecords.row("abc")));
+        Assertions.assertEquals(List.of(), matches(numeric, TestRecords.row((Object) null)), "NULL equals nothing");
+
+        Assertions.assertEquals(List.of("integer", "real"), matches(none, TestRecords.row(1L)),
+                "without affinity, 1 is not '1'");
+        Assertions.assertEquals(List.of("text"), matches(none, TestRecords.row("1")));
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        var table = new JoinTable(Schema.Affinity.BLOB);
+        for (long i = 0; i < 10_000; ++i) {
+            table.add(TestRecords.row(i % 3 == 0 ? "key " + i : i), 0, new Object[]{i});
+        }
+        Assertions.assertEquals(List.of(9999L), matches(table, TestRecords.row("key 9999")));
+        Assertions.assertEquals(List.of(9998L), matches(table, TestRecords.row(9998L)));
+        Assertions.assertEquals(List.of(), matches(table, TestRecords.row(9999L)));
+    }
+
+    @Test
+    void hashJoinsOnEveryEqualKey() throws IOException {
+        var inner = List.of(TestRecords.row("a", 1L), TestRecords.row("b", 2L), TestRecords.row("a", 3L),
+                TestRecords.row(null, 4L));
+        var outer = List.of(TestRecords.row(10L, "a"), TestRecords.row(20L, "c"), TestRecords.row(30L, "b"),
+                TestRecords.row(40L, null));
+        var key = new EquiJoin.Key(1, 0, Schema.Affinity.TEXT);
+        var output = List.of(new EquiJoin.Column(false, 0), new EquiJoin.Column(true, 1));
+        List<List<Object>> joined = new ArrayList<>();
+        try (var join = new HashJoin(TestRecords.operator(inner), TestRecords.operator(outer), key, List.of(), output)) {
+            join.open();
+            while (join.next()) {
+                joined.add(Arrays.asList(join.row()));
+            }
+        }
+        joined.sort((a, b) -> Long.compare((Long) a.get(1), (Long) b.get(1)));
+        Assertions.assertEquals(List.of(List.of(10L, 1L), List.of(30L, 2L), List.of(10L, 3L)), joined);
+    }
+
+    @Test
+    void runsJoinQueries() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var rows = db.runQuery("SELECT a.name, o.name FROM apples a JOIN oranges o ON o.id = a.id WHERE o.id > 2 ORDER BY 1");
+            Assertions.assertEquals(2, rows.size());
+            Assertions.assertArrayEquals(new Object[]{"Golden Delicious", "Clementine"}, rows.get(0));
+            Assertions.assertArrayEquals(new Object[]{"Honeycrisp", "Tangerine"}, rows.get(1));
+            Assertions.assertEquals(4, db.runQuery("SELECT apples.color, description FROM apples, oranges WHERE apples.id = oranges.id").size());
+            Assertions.assertEquals(6, db.runQuery("SELECT a.*, o.* FROM apples a JOIN oranges o ON o.id = a.id").get(0).length);
+            Assertions.assertEquals(List.of(), db.runQuery("SELECT a.id FROM apples a JOIN oranges o ON o.name = a.name"));
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("SELECT name FROM apples a JOIN oranges o ON o.id = a.id"));
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("SELECT a.id FROM apples a JOIN oranges o ON o.id < a.id"));
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("SELECT a.id FROM apples a LEFT JOIN oranges o ON o.id = a.id"));
+        }
+    }
+}
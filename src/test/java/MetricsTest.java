@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+class MetricsTest {
+    @Test
+    void countsTheWorkOfEachStatement() throws IOException {
+        try (var db = new DB("sample.db")) {
+            Assertions.assertEquals(Metrics.NONE, db.lastQueryMetrics());
+            // reads the schema, which the first statement would otherwise count
+            db.tableNames();
+            Assertions.assertEquals(4, db.runQuery("SELECT name FROM apples").size());
+            var first = db.lastQueryMetrics();
+            Assertions.assertEquals(1, first.queries());
+            Assertions.assertEquals(4, first.rows());
+            Assertions.assertEquals(4, first.recordsDecoded(), "one record per row of the single-page table");
+            Assertions.assertTrue(first.cacheMisses() > 0 && first.pageReads() >= first.cacheMisses());
+
+            db.runQuery("SELECT name FROM apples");
+            var second = db.lastQueryMetrics();
+            Assertions.assertEquals(0, second.cacheMisses(), "the table's pages are cached by now");
+            Assertions.assertEquals(first.pageAccesses(), second.pageAccesses());
+
+            db.runQuery("SELECT name FROM apples WHERE id = 2");
+            Assertions.assertEquals(1, db.lastQueryMetrics().rows());
+            var total = db.metrics();
+            Assertions.assertEquals(3, total.queries());
+            Assertions.assertEquals(9, total.rows());
+            Assertions.assertTrue(total.recordsDecoded() >= 9);
+        }
+    }
+
+    @Test
+    void explainAnalyzeReportsEveryOperator() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var lines = db.runQuery("EXPLAIN ANALYZE SELECT a.name, o.name FROM apples a JOIN oranges o ON o.id = a.id")
+                    .stream().map(row -> (String) row[0]).toList();
+            Assertions.assertEquals(4, lines.size(), String.join("\n", lines));
+            Assertions.assertTrue(lines.get(0).startsWith("HashJoin  rows=4 "), lines.get(0));
+            var inputs = lines.subList(1, 3).stream().map(line -> line.substring(0, line.indexOf(" time="))).sorted().toList();
+            Assertions.assertEquals(List.of("  TableScan apples  rows=4", "  TableScan oranges  rows=6"), inputs);
+            Assertions.assertTrue(lines.get(3).startsWith("Total  rows=4 "), lines.get(3));
+            Assertions.assertEquals(4, db.lastQueryMetrics().rows(), "the rows are produced, only not returned");
+
+            Assertions.assertEquals(List.of("Limit", "Sort", "BatchProject", "BatchScan apples", "Total"),
+                    db.runQuery("explain analyze SELECT name FROM apples ORDER BY name LIMIT 1").stream()
+                            .map(row -> ((String) row[0]).strip().split(" {2}")[0]).toList());
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("EXPLAIN SELECT name FROM apples"));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+class OperatorTest {
+    private static List<String> drain(Operator<Object[]> plan) throws IOException {
+        List<String> rows = new ArrayList<>();
+        try (plan) {
+            plan.open();
+            while (plan.next()) {
+                rows.add(plan.row()[0] + "|" + plan.row()[1]);
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    void composesScanFilterProjectAndLimit() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            var columns = List.of(apples.getColumn("id").orElseThrow(), apples.getColumn("name").orElseThrow());
+
+            Operator<TableRow> scan = new TableScan(db.pageCache, db.pageSource, apples);
+            var odd = new Filter<>(scan, row -> row.rowId() % 2 == 1);
+            Assertions.assertEquals(List.of("1|Granny Smith", "3|Honeycrisp"), drain(new Project(odd, columns)));
+
+            var firstTwo = new Limit<>(new Project(new TableScan(db.pageCache, db.pageSource, apples), columns), 2);
+            Assertions.assertEquals(List.of("1|Granny Smith", "2|Fuji"), drain(firstTwo));
+        }
+    }
+
+    @Test
+    void limitStopsPullingFromItsChild() throws IOException {
+        int[] pulls = {0};
+        Operator<Object[]> counting = new Operator<>() {
+            @Override
+            public void open() {
+            }
+
+            @Override
+            public boolean next() {
+                pulls[0]++;
+                return true;
+            }
+
+            @Override
+            public Object[] row() {
+                return new Object[]{(long) pulls[0], null};
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Assertions.assertEquals(List.of("1|null", "2|null", "3|null"), drain(new Limit<>(counting, 3)));
+        Assertions.assertEquals(3, pulls[0]);
+    }
+
+    @Test
+    void seeksToRowidRanges() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            var rows = new Project(new TableScan(db.pageCache, db.pageSource, apples, apples.pageNumber, new RowidRange(2, 3)),
+                    apples.getColumnList().subList(0, 2));
+            Assertions.assertEquals(List.of("2|Fuji", "3|Honeycrisp"), drain(rows));
+            Assertions.assertEquals("Honeycrisp", db.runQuery("SELECT name FROM apples WHERE id = 3").get(0)[0]);
+            Assertions.assertEquals(List.of(), db.runQuery("SELECT name FROM apples WHERE id > 4"));
+        }
+    }
+
+    @Test
+    void countsRowsWithoutDecodingThem() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            for (int parallelism : new int[]{1, 4}) {
+                try (var count = new LeafCount(db.pageCache, db.pageSource, ForkJoinPool.commonPool(), parallelism, apples.pageNumber)) {
+                    count.open();
+                    Assertions.assertTrue(count.next());
+                    Assertions.assertEquals(4L, count.row()[0]);
+                    Assertions.assertFalse(count.next());
+                }
+            }
+            var odd = new Filter<>(new TableScan(db.pageCache, db.pageSource, apples), row -> row.rowId() % 2 == 1);
+            try (var count = new Count<>(odd)) {
+                count.open();
+                Assertions.assertTrue(count.next());
+                Assertions.assertEquals(2L, count.row()[0]);
+                Assertions.assertFalse(count.next());
+            }
+        }
+    }
+
+    @Test
+    void parallelScanBuffersABoundedNumberOfRows() throws IOException {
+        long total = 20L * ParallelScan.ROWS_PER_PARTITION;
+        var produced = new AtomicLong();
+        var closed = new AtomicBoolean();
+        ParallelScan.SubtreePlan plan = rootPage -> new Operator<>() {
+            @Override
+            public void open() {
+            }
+
+            @Override
+            public boolean next() {
+                return produced.incrementAndGet() <= total;
+            }
+
+            @Override
+            public Object[] row() {
+                return new Object[]{produced.get(), null};
+            }
+
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        };
+        try (var db = new DB("sample.db")) {
+            var apples = db.catalog().getTable("apples");
+            // the single-page table is one partition
+            try (var scan = new ParallelScan(db.pageCache, ForkJoinPool.commonPool(), 4, apples.pageNumber, plan)) {
+                scan.open();
+                for (long consumed = 0; consumed < total; ++consumed) {
+                    Assertions.assertTrue(scan.next());
+                    Assertions.assertTrue(produced.get() - consumed <= ParallelScan.ROWS_PER_PARTITION + 2,
+                            "the worker stays within a queue of the consumer");
+                }
+                Assertions.assertFalse(scan.next());
+            }
+            Assertions.assertTrue(closed.get());
+
+            produced.set(0);
+            try (var scan = new ParallelScan(db.pageCache, ForkJoinPool.commonPool(), 4, apples.pageNumber, plan)) {
+                scan.open();
+                Assertions.assertTrue(scan.next());
+            }
+            Assertions.assertTrue(produced.get() <= ParallelScan.ROWS_PER_PARTITION + 3, "closing early stops the worker");
+        }
+    }
+
+    @Test
+    void runsLimitQueries() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var rows = db.runQuery("SELECT name, color FROM apples LIMIT 1");
+            Assertions.assertEquals(1, rows.size());
+            Assertions.assertEquals("Granny Smith", rows.get(0)[0]);
+        }
+    }
+}
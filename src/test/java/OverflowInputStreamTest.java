@@ -0,0 +1,104 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+class OverflowInputStreamTest {
+    private static final int PAGE_SIZE = 512;
+
+    /**
+     * In-memory pages; records which pages were read in full.
+     */
+    static class FakePageSource implements PageSource {
+        final List<ByteBuffer> pages = new ArrayList<>();
+        final List<Integer> pagesRead = new ArrayList<>();
+
+        int addPage(ByteBuffer page) {
+            pages.add(page);
+            return pages.size();
+        }
+
+        @Override
+        public int pageSize() {
+            return PAGE_SIZE;
+        }
+
+        @Override
+        public int usableSize() {
+            return PAGE_SIZE;
+        }
+
+        @Override
+        public ByteBuffer readPage(int pageNumber) {
+            pagesRead.add(pageNumber);
+            return pages.get(pageNumber - 1).duplicate();
+        }
+
+        @Override
+        public ByteBuffer read(long offset, int length) {
+            var page = pages.get((int) (offset / PAGE_SIZE));
+            return page.slice((int) (offset % PAGE_SIZE), length);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // payload byte i has value i % 251; the first 100 bytes are local, the rest fills overflow pages 1..3
+    private static final int LOCAL = 100;
+    private static final int TOTAL = LOCAL + 2 * (PAGE_SIZE - 4) + 10;
+
+    private static ByteBuffer buildChain(FakePageSource source) {
+        int offset = LOCAL;
+        for (int pageNumber = 1; pageNumber <= 3; ++pageNumber) {
+            var page = ByteBuffer.allocate(PAGE_SIZE);
+            page.putInt(pageNumber < 3 ? pageNumber + 1 : 0);
+            while (page.hasRemaining() && offset < TOTAL) {
+                page.put((byte) (offset++ % 251));
+            }
+            source.addPage(page.clear());
+        }
+        var local = ByteBuffer.allocate(LOCAL);
+        for (int i = 0; i < LOCAL; ++i) {
+            local.put((byte) (i % 251));
+        }
+        return local.clear();
+    }
+
+    @Test
+    void readsLocalPartThenOverflowChain() throws IOException {
+        var source = new FakePageSource();
+        var local = buildChain(source);
+        byte[] payload = new OverflowInputStream(source, local, 0, LOCAL, 1, TOTAL).readAllBytes();
+
+        Assertions.assertEquals(TOTAL, payload.length);
+        for (int i = 0; i < TOTAL; ++i) {
+            Assertions.assertEquals((byte) (i % 251), payload[i]);
+        }
+    }
+
+    @Test
+    void skipDoesNotLoadSkippedPages() throws IOException {
+        var source = new FakePageSource();
+        var local = buildChain(source);
+        var in = new OverflowInputStream(source, local, 0, LOCAL, 1, TOTAL);
+        in.skipNBytes(TOTAL - 5);
+
+        Assertions.assertEquals((TOTAL - 5) % 251, in.read());
+        Assertions.assertEquals(List.of(3), source.pagesRead);
+    }
+
+    @Test
+    void stopsAtRequestedLength() throws IOException {
+        var source = new FakePageSource();
+        var local = buildChain(source);
+        byte[] prefix = new OverflowInputStream(source, local, 0, LOCAL, 1, 50).readAllBytes();
+
+        Assertions.assertEquals(50, prefix.length);
+        Assertions.assertTrue(source.pagesRead.isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class PageCacheTest {
+    private static final int PAGE_SIZE = 4096;
+
+    private static BtreePage fakePage(int pageNumber) {
+        var header = new BtreePageHeader((byte) 0x0d, (short) 0, (short) 0, (short) 0, (byte) 0, 0);
+        var page = new BtreePage(header, new short[0], ByteBuffer.allocate(PAGE_SIZE));
+        page.pageNumber = pageNumber;
+        return page;
+    }
+
+    @Test
+    void servesRepeatedReadsFromCache() throws IOException {
+        var cache = new PageCache(PageCacheTest::fakePage, PAGE_SIZE, 4L * PAGE_SIZE);
+        var first = cache.pin(3);
+        cache.unpin(first);
+        var second = cache.pin(3);
+        cache.unpin(second);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, cache.stats().hits());
+        Assertions.assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void peeksWithoutLoading() throws IOException {
+        var cache = new PageCache(PageCacheTest::fakePage, PAGE_SIZE, 4L * PAGE_SIZE);
+        Assertions.assertNull(cache.peek(3));
+        Assertions.assertEquals(0, cache.stats().misses());
+        var page = cache.pin(3);
+        cache.unpin(page);
+        Assertions.assertSame(page, cache.peek(3));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUnpinnedPages() throws IOException {
+        var cache = new PageCache(PageCacheTest::fakePage, PAGE_SIZE, 2L * PAGE_SIZE);
+        var pinned = cache.pin(1);
+        cache.unpin(cache.pin(2));
+        cache.unpin(cache.pin(3));
+
+        Assertions.assertEquals(2, cache.stats().residentPages());
+        Assertions.assertEquals(1, cache.stats().evictions());
+        // page 1 was pinned, so page 2 was the victim
+        Assertions.assertSame(pinned, cache.pin(1));
+        cache.unpin(cache.pin(2));
+        Assertions.assertEquals(4, cache.stats().misses());
+    }
+
+    @Test
+    void givesRecentlyUsedPagesASecondChance() throws IOException {
+        var cache = new PageCache(PageCacheTest::fakePage, PAGE_SIZE, 2L * PAGE_SIZE);
+        cache.unpin(cache.pin(1));
+        cache.unpin(cache.pin(2));
+        cache.unpin(cache.pin(1));
+        cache.unpin(cache.pin(3));
+
+        Assertions.assertNotNull(cache.peek(1), "page 1 was used again, so page 2 was the victim");
+        Assertions.assertNull(cache.peek(2));
+        cache.clear();
+        Assertions.assertEquals(0, cache.stats().residentPages());
+    }
+
+    @Test
+    void pinsAndUnpinsFromManyThreads() throws Exception {
+        var cache = new PageCache(PageCacheTest::fakePage, PAGE_SIZE, 8L * PAGE_SIZE);
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; ++t) {
+                int seed = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; ++i) {
+                        int pageNumber = 1 + (i * 7 + seed) % 16;
+                        var page = cache.pin(pageNumber);
+                        Assertions.assertEquals(pageNumber, page.pageNumber);
+                        cache.unpin(page);
+                    }
+                    return null;
+                }));
+            }
+            for (var task : tasks) {
+                task.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        // a sweep racing with hits may stop over budget; one run alone brings the cache back within it
+        cache.unpin(cache.pin(1));
+        var stats = cache.stats();
+        Assertions.assertEquals(80_001, stats.hits() + stats.misses());
+        Assertions.assertTrue(stats.residentPages() <= 8, "unpinned pages are evicted down to the budget");
+    }
+
+    @Test
+    void loadsConcurrentlyAndKeepsOneCopyPerPage() throws Exception {
+        var bothLoading = new CountDownLatch(2);
+        var cache = new PageCache(n -> {
+            bothLoading.countDown();
+            try {
+                // only returns once the other thread is loading too, which the cache lock would prevent
+                Assertions.assertTrue(bothLoading.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return fakePage(n);
+        }, PAGE_SIZE, 4L * PAGE_SIZE);
+
+        var pool = Executors.newFixedThreadPool(2);
+        try {
+            var first = pool.submit(() -> cache.pin(7));
+            var second = pool.submit(() -> cache.pin(7));
+            Assertions.assertSame(first.get(), second.get());
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertEquals(1, cache.stats().residentPages());
+    }
+}
@@ -0,0 +1,32 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+class PageSourceTest {
+    private static final String DATABASE = "sample.db";
+
+    @Test
+    void allSourcesReturnTheSamePages() throws IOException {
+        try (var raf = PageSource.open(DATABASE, PageSource.Kind.RANDOM_ACCESS_FILE);
+             var channel = PageSource.open(DATABASE, PageSource.Kind.FILE_CHANNEL);
+             var mapped = PageSource.open(DATABASE, PageSource.Kind.MMAP)) {
+            Assertions.assertEquals(4096, raf.pageSize());
+            for (int pageNumber = 1; pageNumber <= 4; ++pageNumber) {
+                var expected = raf.readPage(pageNumber);
+                Assertions.assertEquals(expected, channel.readPage(pageNumber));
+                Assertions.assertEquals(expected, mapped.readPage(pageNumber));
+            }
+        }
+    }
+
+    @Test
+    void mappedSourceReadsAcrossSegments() throws IOException {
+        // one page per segment, so every multi-page read crosses a mapping boundary
+        try (var raf = PageSource.open(DATABASE, PageSource.Kind.RANDOM_ACCESS_FILE);
+             var mapped = new MappedPageSource(DATABASE, 4096)) {
+            Assertions.assertEquals(raf.readPage(3), mapped.readPage(3));
+            Assertions.assertEquals(raf.read(4000, 5000), mapped.read(4000, 5000));
+        }
+    }
+}
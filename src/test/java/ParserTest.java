@@ -0,0 +1,77 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ParserTest {
+    @Test
+    void toleratesCommasWithoutSpacesAndExtraWhitespace() {
+        var query = Parser.parse("  SELECT a,b ,\n c   FROM\tt  ;");
+        Assertions.assertEquals("t", query.getTable());
+        Assertions.assertEquals(List.of("a", "b", "c"), query.getColumns());
+    }
+
+    @Test
+    void keepsSpacesInsideQuotedStrings() {
+        var query = Parser.parse("SELECT name FROM companies WHERE country = 'united states'");
+        Assertions.assertEquals(new Expr.Binary("=", new Expr.ColumnRef(null, "country"), new Expr.Literal("united states")),
+                query.getWhere());
+        var quoted = Parser.parse("SELECT \"size range\" FROM companies WHERE name = 'it''s'");
+        Assertions.assertEquals(List.of("size range"), quoted.getColumns());
+        Assertions.assertEquals(new Expr.Literal("it's"), ((Expr.Binary) quoted.getWhere()).right());
+    }
+
+    @Test
+    void keywordsCanNameTables() {
+        var query = Parser.parse("select c1 from table");
+        Assertions.assertEquals("table", query.getTable());
+    }
+
+    @Test
+    void followsOperatorPrecedence() {
+        var where = Parser.parseExpression("a = 1 OR b > 2 AND NOT c BETWEEN 1 AND 5");
+        Assertions.assertEquals("a = 1 OR b > 2 AND NOT c BETWEEN 1 AND 5", Expr.toSql(where));
+        var or = (Expr.Binary) where;
+        Assertions.assertEquals("OR", or.op());
+        var and = (Expr.Binary) or.right();
+        Assertions.assertEquals("AND", and.op());
+        Assertions.assertInstanceOf(Expr.Unary.class, and.right());
+        Assertions.assertEquals(new Expr.Literal(-5L), Parser.parseExpression("-5"));
+        Assertions.assertEquals(new Expr.Literal(5L), Parser.parseExpression("- -5"));
+        Assertions.assertEquals(new Expr.Literal(Long.MIN_VALUE), Parser.parseExpression("-9223372036854775808"));
+        Assertions.assertEquals(new Expr.Literal(9223372036854775808.0), Parser.parseExpression("9223372036854775808"),
+                "out of range, a decimal literal is a real");
+        Assertions.assertEquals(new Expr.Literal(-9223372036854775809.0), Parser.parseExpression("-9223372036854775809"));
+        Assertions.assertEquals(new Expr.Literal(-1L), Parser.parseExpression("0xffffffffffffffff"));
+        var e = Assertions.assertThrows(RuntimeException.class, () -> Parser.parseExpression("0x10000000000000000"));
+        Assertions.assertEquals("hex literal too big: 0x10000000000000000", e.getMessage());
+    }
+
+    @Test
+    void numbersParameters() {
+        var query = Parser.parse("SELECT name FROM apples WHERE color = ? LIMIT ?");
+        Assertions.assertEquals(2, query.getParameterCount());
+        Assertions.assertEquals(new Expr.Parameter(1), query.limit);
+        Assertions.assertEquals(3, Parser.parse("SELECT a FROM t WHERE a = ?3 OR b = ?1").getParameterCount());
+    }
+
+    @Test
+    void parsesGroupByOrderByAndLimit() {
+        var query = Parser.parse("SELECT country, count(*) AS n FROM companies WHERE id > 10 "
+                + "GROUP BY country HAVING count(*) > 2 ORDER BY n DESC, country LIMIT 5, 10");
+        Assertions.assertEquals(List.of("country", "n"), query.getColumns());
+        Assertions.assertEquals(List.of(new Expr.ColumnRef(null, "country")), query.getGroupBy());
+        Assertions.assertNotNull(query.having);
+        Assertions.assertEquals(List.of(new Query.OrderTerm(new Expr.ColumnRef(null, "n"), true),
+                new Query.OrderTerm(new Expr.ColumnRef(null, "country"), false)), query.getOrderBy());
+        Assertions.assertEquals(10, query.getLimit());
+        Assertions.assertEquals(new Expr.Literal(5L), query.offset);
+    }
+
+    @Test
+    void reportsSyntaxErrors() {
+        Assertions.assertThrows(RuntimeException.class, () -> Parser.parse("SELECT FROM t"));
+        Assertions.assertThrows(RuntimeException.class, () -> Parser.parse("SELECT a FROM t WHERE"));
+        Assertions.assertThrows(RuntimeException.class, () -> Parser.parse("SELECT a FROM t WHERE name = 'open"));
+    }
+}
@@ -0,0 +1,34 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class PlannerTest {
+    @Test
+    void likePrefixesBecomeRanges() {
+        var range = Planner.likeRange("2022-03%");
+        Assertions.assertEquals(new IndexScan.Bound("2022-03", true), range[0]);
+        Assertions.assertEquals(new IndexScan.Bound("2022-04", false), range[1]);
+        Assertions.assertEquals(new IndexScan.Bound("2022-1", true), Planner.likeRange("2022-1_-0%")[0]);
+        Assertions.assertNull(Planner.likeRange("ind%"), "LIKE ignores case, the index does not");
+        Assertions.assertNull(Planner.likeRange("%03"));
+        Assertions.assertNull(Planner.likeRange(42L));
+    }
+
+    @Test
+    void seeksOnlyAscendingBinaryIndexColumns() {
+        var catalog = new Catalog(1, List.of(
+                new Catalog.Entry("table", "t", "t", 2, "CREATE TABLE t (x INTEGER, y TEXT, z TEXT COLLATE NOCASE)"),
+                new Catalog.Entry("index", "t_x_y", "t", 3, "CREATE INDEX t_x_y ON t (x DESC, y)"),
+                new Catalog.Entry("index", "t_y", "t", 4, "CREATE INDEX t_y ON t (y COLLATE NOCASE, x)"),
+                new Catalog.Entry("index", "t_z", "t", 5, "CREATE INDEX t_z ON t (z)"),
+                new Catalog.Entry("index", "t_z_binary", "t", 6, "CREATE INDEX t_z_binary ON t (z COLLATE BINARY)")));
+        var table = catalog.getTable("t");
+        Assertions.assertFalse(Planner.seekable(table, catalog.getIndex("t_x_y"), 0), "descending");
+        Assertions.assertTrue(Planner.seekable(table, catalog.getIndex("t_x_y"), 1));
+        Assertions.assertFalse(Planner.seekable(table, catalog.getIndex("t_y"), 0), "y = 'a' compares BINARY, the index NOCASE");
+        Assertions.assertTrue(Planner.seekable(table, catalog.getIndex("t_y"), 1));
+        Assertions.assertFalse(Planner.seekable(table, catalog.getIndex("t_z"), 0), "seeks compare BINARY");
+        Assertions.assertFalse(Planner.seekable(table, catalog.getIndex("t_z_binary"), 0), "z = 'a' compares NOCASE");
+    }
+}
@@ -0,0 +1,31 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+class PreparedQueryTest {
+    @Test
+    void bindsParametersPerExecution() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var statement = db.prepare("SELECT name FROM apples WHERE color = ?");
+            Assertions.assertEquals("Golden Delicious", statement.executeQuery("Yellow").get(0)[0]);
+            Assertions.assertEquals("Fuji", statement.executeQuery("Red").get(0)[0]);
+            Assertions.assertEquals(0, statement.executeQuery((Object) null).size());
+            Assertions.assertThrows(RuntimeException.class, statement::executeQuery);
+        }
+    }
+
+    @Test
+    void cachesStatementsBySqlText() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var sql = "SELECT id, name FROM apples LIMIT ? OFFSET 1";
+            var statement = db.prepare(sql);
+            Assertions.assertSame(statement, db.prepare(sql));
+            var rows = db.runQuery(sql, 2L);
+            Assertions.assertEquals(2, rows.size());
+            Assertions.assertEquals(2L, rows.get(0)[0]);
+            Assertions.assertEquals(1, db.runQuery(sql, 1).size(), "an Integer parameter is an integer too");
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery(sql, 1.5));
+        }
+    }
+}
@@ -35,4 +35,12 @@ class QueryTest {
         var result = Query.parse(sql);
         System.out.println(result);
     }
-}
\ No newline at end of file
+
+    @Test
+    void parseLimit(){
+        var result = Query.parse("SELECT name FROM apples WHERE color = 'Yellow' LIMIT 10");
+        Assertions.assertEquals(10, result.getLimit());
+        Assertions.assertEquals("color = 'Yellow'", Expr.toSql(result.getWhere()));
+        Assertions.assertFalse(Query.parse("SELECT name FROM apples").hasLimit());
+    }
+}
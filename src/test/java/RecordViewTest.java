@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class RecordViewTest {
+    // header: size 7, serial types NULL, int8, float64, text(3), int48, blob(2)
+    private static ByteBuffer sampleRecord() {
+        var buffer = ByteBuffer.allocate(64);
+        buffer.put(new byte[]{7, 0, 1, 7, 19, 5, 16});
+        buffer.put((byte) -3);
+        buffer.putDouble(2.5);
+        buffer.put("abc".getBytes(StandardCharsets.UTF_8));
+        buffer.putShort((short) 1).putInt(2);
+        buffer.put(new byte[]{9, 8});
+        return buffer.flip();
+    }
+
+    @Test
+    void decodesEachSerialType() {
+        var buffer = sampleRecord();
+        var record = RecordView.of(buffer, 0, buffer.limit());
+
+        Assertions.assertEquals(6, record.columnCount());
+        Assertions.assertNull(record.getValue(0));
+        Assertions.assertEquals(-3L, record.getValue(1));
+        Assertions.assertEquals(2.5, record.getValue(2));
+        Assertions.assertEquals("abc", record.getValue(3));
+        Assertions.assertEquals((1L << 32) + 2, record.getLong(4));
+        Assertions.assertArrayEquals(new byte[]{9, 8}, (byte[]) record.getValue(5));
+        Assertions.assertEquals(0, buffer.position());
+    }
+
+    @Test
+    void columnsPastTheEndReadAsNull() {
+        var buffer = sampleRecord();
+        var record = RecordView.of(buffer, 0, buffer.limit());
+        Assertions.assertTrue(record.isNull(7));
+        Assertions.assertNull(record.getText(7));
+    }
+}
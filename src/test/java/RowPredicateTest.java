@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+class RowPredicateTest {
+    private static final Schema SCHEMA = new Schema("t", Schema.parseColumns(
+            "CREATE TABLE t (id integer primary key, n integer, name text, price real, data)"), 2);
+
+    private static boolean matches(String where, RecordView record, Object... parameters) {
+        return new RowPredicate(Parser.parseExpression(where), SCHEMA).bind(parameters).test(7, record);
+    }
+
+    @Test
+    void comparesWithAffinity() {
+        var row = TestRecords.record(null, 42L, "apple pie", 2.5, null);
+        Assertions.assertTrue(matches("n = 42", row));
+        Assertions.assertTrue(matches("n = 42.0", row));
+        Assertions.assertTrue(matches("n = '42'", row), "text is converted for an integer column");
+        Assertions.assertTrue(matches("n = ?", row, 42));
+        Assertions.assertTrue(matches("n = ?", row, (short) 42));
+        Assertions.assertTrue(matches("n >= 42 AND n < 43 AND n != 41", row));
+        Assertions.assertTrue(matches("price > 2 AND price <= 2.5", row));
+        Assertions.assertTrue(matches("name > 'apple' AND name < 'b'", row));
+        Assertions.assertTrue(matches("n < 'abc'", row), "numbers sort before text");
+        Assertions.assertTrue(matches("id = 7 AND rowid BETWEEN 5 AND 10", row));
+        Assertions.assertFalse(matches("name = 42", row));
+    }
+
+    @Test
+    void comparesColumnsWithAffinityAndCollation() {
+        var row = TestRecords.record(null, 12L, "12", 9.5, "9");
+        Assertions.assertTrue(matches("n = name", row), "numeric affinity applies to the text column too");
+        Assertions.assertTrue(matches("price > data", row));
+        Assertions.assertFalse(matches("name = data OR name > data", row), "two text columns compare as text");
+        Assertions.assertTrue(matches("name < data", row));
+
+        var schema = new Schema("c", Schema.parseColumns(
+                "CREATE TABLE c (a text COLLATE NOCASE, b text, c text COLLATE RTRIM)"), 2);
+        var texts = TestRecords.record("Apple", "apple", "apple  ");
+        Assertions.assertTrue(new RowPredicate(Parser.parseExpression("a = 'APPLE' AND a = b AND c = b"), schema).test(1, texts));
+        Assertions.assertFalse(new RowPredicate(Parser.parseExpression("b = a"), schema).test(1, texts),
+                "the left column's collation wins");
+        Assertions.assertTrue(new RowPredicate(Parser.parseExpression("'APPLE' = a AND a IN ('x', 'apple') AND c < 'applf'"), schema).test(1, texts));
+    }
+
+    @Test
+    void followsThreeValuedLogic() {
+        var row = TestRecords.record(null, null, "x", 1.0, null);
+        Assertions.assertFalse(matches("n = 1", row));
+        Assertions.assertFalse(matches("NOT n = 1", row), "NOT UNKNOWN is still UNKNOWN");
+        Assertions.assertTrue(matches("n = 1 OR name = 'x'", row));
+        Assertions.assertTrue(matches("n IS NULL AND data IS NULL AND name IS NOT NULL", row));
+        Assertions.assertFalse(matches("name NOT IN ('y', NULL)", row));
+        Assertions.assertTrue(matches("name IN ('y', NULL, 'x')", row));
+        Assertions.assertTrue(matches("n NOT IN ()", row));
+        Assertions.assertTrue(matches("n IS NOT 3", row));
+    }
+
+    @Test
+    void matchesInListsAndLike() {
+        var row = TestRecords.record(null, 5L, "Ünïcode Text", 3.0, null);
+        Assertions.assertTrue(matches("n IN (1, 3, 5, 7)", row));
+        Assertions.assertTrue(matches("price IN (3)", row));
+        Assertions.assertFalse(matches("n NOT BETWEEN 1 AND 9", row));
+        Assertions.assertTrue(matches("name LIKE '%text'", row));
+        Assertions.assertTrue(matches("name LIKE '_nïcode%'", row), "_ matches a whole UTF-8 character");
+        Assertions.assertTrue(matches("name LIKE '%c%d%'", row));
+        Assertions.assertFalse(matches("name LIKE 'code%'", row));
+        Assertions.assertTrue(matches("n LIKE '5'", row));
+    }
+
+    @Test
+    void exposesIndexableTerms() {
+        var predicate = new RowPredicate(Parser.parseExpression("5 < n AND name = ? AND (price = 1 OR price = 2)"), SCHEMA);
+        Assertions.assertEquals(List.of(new RowPredicate.Term(1, ">", new Expr.Literal(5L)),
+                new RowPredicate.Term(2, "=", new Expr.Parameter(0))), predicate.getTerms());
+        Assertions.assertEquals("12", predicate.bind(new Object[]{12}).value(predicate.getTerms().get(1)));
+        Assertions.assertThrows(RuntimeException.class, () -> new RowPredicate(Parser.parseExpression("missing = 1"), SCHEMA));
+    }
+
+    @Test
+    void evaluatesOnIndexEntries() {
+        var index = new Schema.Index("idx_name_n", "t", List.of("name", "n"), List.of(2, 1), 3);
+        var predicate = new RowPredicate(Parser.parseExpression("name = 'x' AND n > 3 AND id < 10"), SCHEMA);
+        Assertions.assertTrue(predicate.isCoveredBy(index));
+        // index entries hold the indexed columns, then the rowid
+        Assertions.assertTrue(predicate.onIndex(index).test(7, TestRecords.record("x", 4L, 7L)));
+        Assertions.assertFalse(predicate.onIndex(index).test(7, TestRecords.record("x", 3L, 7L)));
+        Assertions.assertFalse(new RowPredicate(Parser.parseExpression("price > 1 AND name = 'x'"), SCHEMA).isCoveredBy(index));
+    }
+
+    @Test
+    void filtersScans() throws IOException {
+        try (var db = new DB("sample.db")) {
+            Assertions.assertEquals(3, db.runQuery("SELECT name FROM apples WHERE color LIKE '%red' OR id > 3").size());
+            Assertions.assertEquals(List.of(), db.runQuery("SELECT name FROM apples WHERE NOT (id BETWEEN 0 AND 10)"));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+class RowWriterTest {
+    @Test
+    void writesListFormatWithEmptyNulls() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var writer = new RowWriter(bytes);
+        writer.accept(new Object[]{1L, "Fuji", null});
+        writer.accept(new Object[]{Long.MIN_VALUE, -42L, "crème", 2.5});
+        writer.accept(new Object[]{new byte[]{'a', 'b'}});
+        Assertions.assertEquals(0, bytes.size(), "nothing is written before the buffer fills or is flushed");
+
+        writer.flush();
+        Assertions.assertEquals("1|Fuji|\n-9223372036854775808|-42|crème|2.5\nab\n", bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void spillsRowsLargerThanTheBuffer() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var writer = new RowWriter(bytes);
+        var large = "x".repeat(RowWriter.BUFFER_SIZE + 10);
+        writer.accept(new Object[]{7L, large, large.getBytes(StandardCharsets.US_ASCII)});
+        writer.flush();
+        Assertions.assertEquals("7|" + large + "|" + large + "\n", bytes.toString(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,24 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RowidRangeTest {
+    @Test
+    void narrowsByComparisons() {
+        var range = RowidRange.ALL.narrow(">", 10L).narrow("<=", 20.5);
+        Assertions.assertEquals(new RowidRange(11, 20), range);
+        Assertions.assertEquals(new RowidRange(42, 42), RowidRange.ALL.narrow("=", 42.0));
+        Assertions.assertEquals(new RowidRange(-1, Long.MAX_VALUE), RowidRange.ALL.narrow(">=", -1.5));
+        Assertions.assertEquals(new RowidRange(Long.MIN_VALUE, 5), RowidRange.ALL.narrow("<", 5.5));
+    }
+
+    @Test
+    void handlesValuesNoRowidEquals() {
+        Assertions.assertTrue(RowidRange.ALL.narrow("=", 42.5).isEmpty());
+        Assertions.assertTrue(RowidRange.ALL.narrow("=", null).isEmpty());
+        Assertions.assertTrue(RowidRange.ALL.narrow(">", "abc").isEmpty(), "numbers sort before text");
+        Assertions.assertEquals(RowidRange.ALL, RowidRange.ALL.narrow("<", "abc"));
+        Assertions.assertTrue(RowidRange.ALL.narrow(">", Long.MAX_VALUE).isEmpty());
+        Assertions.assertEquals(RowidRange.ALL, RowidRange.ALL.narrow("<=", 1e30));
+        Assertions.assertTrue(RowidRange.ALL.narrow(">", 1e30).isEmpty());
+    }
+}
@@ -2,24 +2,68 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class SchemaTest {
     @Test
-    void loadSchema() throws IOException {
-//        String databaseFilePath = "sample.db";
-//        ByteBuffer fileContents = ByteBuffer
-//                .wrap(Files.readAllBytes(Path.of(databaseFilePath)))
-//                .order(ByteOrder.BIG_ENDIAN);
-//        //read first page
-//        BtreePage page = BtreePage.readPage(fileContents, 1);
-//        var schema = Schema.loadSchema(page, "apples");
-//        Assertions.assertEquals("apples", schema.tableName);
+    void loadCatalog() throws IOException {
+        try (var source = PageSource.open("sample.db", PageSource.Kind.FILE_CHANNEL)) {
+            var cache = new PageCache(n -> BtreePage.readPage(source, n), source.pageSize(), 1 << 20);
+            var catalog = Catalog.load(cache, source);
+            Assertions.assertEquals(List.of("apples", "sqlite_sequence", "oranges"), catalog.tableNames());
+            Assertions.assertEquals(2, catalog.getTable("APPLES").getPageNumber().intValue());
+            Assertions.assertThrows(RuntimeException.class, () -> catalog.getTable("pears"));
+        }
+    }
+
+    @Test
+    void listsUserTablesOnly() throws IOException {
+        try (var db = new DB("sample.db")) {
+            Assertions.assertEquals(List.of("apples", "oranges"), db.tableNames());
+        }
+    }
+
+    @Test
+    void attachesEveryIndexWhateverTheRowOrder() {
+        var catalog = new Catalog(1, List.of(
+                new Catalog.Entry("index", "idx_kind_ts", "events", 5, "CREATE INDEX idx_kind_ts ON events (kind COLLATE NOCASE, \"ts\" DESC)"),
+                new Catalog.Entry("index", "sqlite_autoindex_events_1", "events", 6, null),
+                new Catalog.Entry("table", "events", "events", 2, "CREATE TABLE events (id integer primary key, kind text, ts integer, \"size range\" text collate rtrim)"),
+                new Catalog.Entry("index", "idx_size", "events", 7, "CREATE INDEX idx_size ON events ([size range])")));
+
+        var indexes = catalog.getTable("events").getIndexes();
+        Assertions.assertEquals(2, indexes.size());
+        Assertions.assertEquals(List.of("kind", "ts"), indexes.get(0).columns());
+        Assertions.assertEquals(List.of(1, 2), indexes.get(0).colIndexes());
+        Assertions.assertEquals(List.of(false, true), indexes.get(0).descending());
+        Assertions.assertEquals(List.of(Schema.Collation.NOCASE, Schema.Collation.BINARY), indexes.get(0).collations());
+        Assertions.assertEquals(3, catalog.getIndex("IDX_SIZE").colIndex());
+        Assertions.assertEquals(List.of(Schema.Collation.RTRIM), catalog.getIndex("idx_size").collations(),
+                "an index column without COLLATE sorts by the column's collation");
+        Assertions.assertEquals(List.of(false), catalog.getIndex("idx_size").descending());
+    }
+
+    @Test
+    void aliasesTheRowidAsSqliteDoes() {
+        Assertions.assertTrue(Schema.parseColumns("CREATE TABLE t (id INTEGER PRIMARY KEY, v)").get(0).isPK());
+        Assertions.assertTrue(Schema.parseColumns("CREATE TABLE t (id integer not null primary key asc autoincrement)").get(0).isPK());
+        Assertions.assertTrue(Schema.parseColumns("CREATE TABLE t (id INTEGER, v, PRIMARY KEY (id DESC))").get(0).isPK());
+        Assertions.assertFalse(Schema.parseColumns("CREATE TABLE t (id INTEGER PRIMARY KEY DESC, v)").get(0).isPK(),
+                "SQLite keeps INTEGER PRIMARY KEY DESC out of the rowid");
+        Assertions.assertFalse(Schema.parseColumns("CREATE TABLE t (id INT PRIMARY KEY, v)").get(0).isPK());
+        Assertions.assertFalse(Schema.parseColumns("CREATE TABLE t (id INTEGER, v, PRIMARY KEY (id, v))").get(0).isPK());
+        Assertions.assertEquals(Schema.Collation.NOCASE,
+                Schema.parseColumns("CREATE TABLE t (name TEXT NOT NULL COLLATE nocase CHECK (name <> 'COLLATE'))").get(0).collation());
+        Assertions.assertThrows(RuntimeException.class, () -> Schema.parseColumns("CREATE TABLE t (name TEXT COLLATE klingon)"));
+
+        var catalog = new Catalog(1, List.of(
+                new Catalog.Entry("table", "kv", "kv", 2, "CREATE TABLE kv (k TEXT PRIMARY KEY, v) WITHOUT ROWID"),
+                new Catalog.Entry("table", "t", "t", 3, "CREATE TABLE t (\"without rowid\" TEXT)")));
+        var error = Assertions.assertThrows(RuntimeException.class, () -> catalog.getTable("kv"));
+        Assertions.assertEquals("not supported: WITHOUT ROWID table kv", error.getMessage());
+        Assertions.assertEquals("without rowid", catalog.getTable("t").getColumnList().get(0).name());
     }
 
     @Test
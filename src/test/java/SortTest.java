@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+class SortTest {
+    private static List<Object[]> drain(Operator<Object[]> plan) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        try (plan) {
+            plan.open();
+            while (plan.next()) {
+                rows.add(plan.row());
+            }
+        }
+        return rows;
+    }
+
+    private static List<Object> firstColumn(List<Object[]> rows) {
+        return rows.stream().map(row -> row[0] instanceof byte[] b ? Arrays.toString(b) : row[0]).toList();
+    }
+
+    @Test
+    void sortsInSqliteOrder() throws IOException {
+        List<Object> sorted = Arrays.asList(null, Long.MIN_VALUE, -2.5, -0.0, 1L, 1.5, 9007199254740992L,
+                9007199254740993L, 9007199254740994.0, Long.MAX_VALUE, 0x1p63, "", "A", "a", "a\u0000b", "ab",
+                "é", new byte[0], new byte[]{0}, new byte[]{0, 1}, new byte[]{1});
+        List<Object[]> rows = new ArrayList<>();
+        for (var value : sorted) {
+            rows.add(new Object[]{value});
+        }
+        Collections.shuffle(rows, new Random(1));
+        var expected = firstColumn(sorted.stream().map(value -> new Object[]{value}).toList());
+
+        var ascending = new Sort(TestRecords.operator(rows), List.of(new Sort.Key(0, false)), 1, -1, 1 << 20);
+        Assertions.assertEquals(expected, firstColumn(drain(ascending)));
+
+        var descending = new Sort(TestRecords.operator(rows), List.of(new Sort.Key(0, true)), 1, -1, 1 << 20);
+        var reversed = new ArrayList<>(expected);
+        Collections.reverse(reversed);
+        Assertions.assertEquals(reversed, firstColumn(drain(descending)));
+    }
+
+    @Test
+    void keepsTheFirstRowsOfALimit() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        for (long i = 0; i < 1000; ++i) {
+            rows.add(new Object[]{i % 10, i, "row " + i});
+        }
+        Collections.shuffle(rows, new Random(2));
+        var keys = List.of(new Sort.Key(0, true), new Sort.Key(1, false));
+        var top = drain(new Sort(TestRecords.operator(rows), keys, 2, 3, 1 << 20));
+        Assertions.assertEquals(3, top.size());
+        Assertions.assertArrayEquals(new Object[]{9L, 9L}, top.get(0), "only the first two columns are returned");
+        Assertions.assertArrayEquals(new Object[]{9L, 19L}, top.get(1));
+        Assertions.assertArrayEquals(new Object[]{9L, 29L}, top.get(2));
+        Assertions.assertEquals(List.of(), drain(new Sort(TestRecords.operator(rows), keys, 2, 0, 1 << 20)));
+    }
+
+    @Test
+    void mergesRunsSpilledToDisk() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        var random = new Random(3);
+        for (int i = 0; i < 5000; ++i) {
+            rows.add(new Object[]{random.nextInt(100) == 0 ? null : "key " + random.nextInt(1000), (long) i});
+        }
+        var keys = List.of(new Sort.Key(0, false), new Sort.Key(1, true));
+        var inMemory = drain(new Sort(TestRecords.operator(rows), keys, 2, -1, 1 << 30));
+        // a budget of a few rows makes hundreds of runs
+        var spilled = drain(new Sort(TestRecords.operator(rows), keys, 2, -1, 1000));
+        Assertions.assertEquals(rows.size(), spilled.size());
+        for (int i = 0; i < rows.size(); ++i) {
+            Assertions.assertArrayEquals(inMemory.get(i), spilled.get(i));
+        }
+        // a limit too large for the budget spills rather than growing the heap
+        var limited = drain(new Sort(TestRecords.operator(rows), keys, 2, 3000, 1000));
+        Assertions.assertEquals(3000, limited.size());
+        for (int i = 0; i < limited.size(); ++i) {
+            Assertions.assertArrayEquals(inMemory.get(i), limited.get(i));
+        }
+    }
+
+    @Test
+    void runsOrderByQueries() throws IOException {
+        try (var db = new DB("sample.db")) {
+            var rows = db.runQuery("SELECT name FROM apples ORDER BY color DESC LIMIT 2");
+            Assertions.assertEquals(List.of("Golden Delicious", "Fuji"), firstColumn(rows));
+            Assertions.assertEquals(List.of(4L, 3L), firstColumn(db.runQuery("SELECT id, name FROM apples ORDER BY 1 DESC LIMIT 2")));
+            Assertions.assertEquals(List.of("Fuji"), firstColumn(db.runQuery("SELECT name AS n FROM apples ORDER BY n LIMIT 1")));
+            Assertions.assertEquals(List.of(1L, 2L, 3L, 4L), firstColumn(db.runQuery("SELECT id FROM apples ORDER BY id")));
+            Assertions.assertThrows(RuntimeException.class, () -> db.runQuery("SELECT id FROM apples ORDER BY 2"));
+        }
+    }
+}
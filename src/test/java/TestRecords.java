@@ -0,0 +1,79 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records, rows and inputs built from Java values, for tests of the operators that read them.
+ */
+final class TestRecords {
+    private TestRecords() {
+    }
+
+    /**
+     * Encodes a record of long, double, String and null values in the SQLite format.
+     */
+    static RecordView record(Object... values) {
+        var header = new ArrayList<Integer>();
+        var body = new ByteArrayOutputStream();
+        for (var value : values) {
+            switch (value) {
+                case null -> header.add(0);
+                case Long l -> {
+                    header.add(6);
+                    body.writeBytes(ByteBuffer.allocate(8).putLong(l).array());
+                }
+                case Double d -> {
+                    header.add(7);
+                    body.writeBytes(ByteBuffer.allocate(8).putDouble(d).array());
+                }
+                default -> {
+                    byte[] text = value.toString().getBytes(StandardCharsets.UTF_8);
+                    header.add(text.length * 2 + 13);
+                    body.writeBytes(text);
+                }
+            }
+        }
+        var bytes = new ByteArrayOutputStream();
+        bytes.write(header.size() + 1);
+        header.forEach(bytes::write);
+        bytes.writeBytes(body.toByteArray());
+        return RecordView.of(ByteBuffer.wrap(bytes.toByteArray()), 0, bytes.size());
+    }
+
+    /**
+     * A row without a rowid alias whose record holds long, double, String and null values.
+     */
+    static TableRow row(Object... values) {
+        return new TableRow(-1).set(0, record(values));
+    }
+
+    /**
+     * An operator returning the elements of {@code rows} in order, again on each open.
+     */
+    static <R> Operator<R> operator(List<R> rows) {
+        return new Operator<>() {
+            private int position = -1;
+
+            @Override
+            public void open() {
+                position = -1;
+            }
+
+            @Override
+            public boolean next() {
+                return ++position < rows.size();
+            }
+
+            @Override
+            public R row() {
+                return rows.get(position);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}